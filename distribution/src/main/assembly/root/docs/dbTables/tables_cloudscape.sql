@@ -32,6 +32,7 @@ create table qrtz_triggers(
 	next_fire_time longint,
 	prev_fire_time longint,
 	priority integer,
+	key_hash integer,
 	trigger_state varchar(16) not null,
 	trigger_type varchar(8) not null,
 	start_time longint not null,
@@ -140,3 +141,11 @@ create table qrtz_locks
     lock_name  varchar(40) not null, 
 primary key (sched_name,lock_name)
 );
+
+create table qrtz_change_counters
+  (
+    sched_name varchar(120) not null,
+    counter_name  varchar(40) not null,
+    counter_value longint not null,
+primary key (sched_name,counter_name)
+);
@@ -39,6 +39,7 @@ create table qrtz_triggers(
   next_fire_time bigint,
   prev_fire_time bigint,
   priority integer,
+  key_hash integer,
   trigger_state varchar(16) not null,
   trigger_type varchar(8) not null,
   start_time bigint not null,
@@ -146,3 +147,11 @@ create table qrtz_locks
     lock_name  varchar(40) not null, 
       primary key (sched_name,lock_name)
 );
+
+create table qrtz_change_counters
+  (
+  sched_name varchar(120) not null,
+    counter_name  varchar(40) not null,
+    counter_value bigint not null,
+      primary key (sched_name,counter_name)
+);
@@ -22,6 +22,7 @@ DROP TABLE QRTZ_FIRED_TRIGGERS;
 DROP TABLE QRTZ_PAUSED_TRIGGER_GRPS;
 DROP TABLE QRTZ_SCHEDULER_STATE;
 DROP TABLE QRTZ_LOCKS;
+DROP TABLE QRTZ_CHANGE_COUNTERS;
 DROP TABLE QRTZ_SIMPLE_TRIGGERS;
 DROP TABLE QRTZ_SIMPROP_TRIGGERS;
 DROP TABLE QRTZ_CRON_TRIGGERS;
@@ -54,6 +55,7 @@ create table qrtz_triggers(
   next_fire_time bigint,
   prev_fire_time bigint,
   priority integer,
+  key_hash integer,
   trigger_state varchar(16) not null,
   trigger_type varchar(8) not null,
   start_time bigint not null,
@@ -161,3 +163,11 @@ create table qrtz_locks
     lock_name  varchar(40) not null, 
       primary key (sched_name,lock_name)
 );
+
+create table qrtz_change_counters
+  (
+    sched_name varchar(120) not null,
+    counter_name  varchar(40) not null,
+    counter_value bigint not null,
+      primary key (sched_name,counter_name)
+);
@@ -32,6 +32,7 @@ description varchar(250) ,
 next_fire_time bigint,
 prev_fire_time bigint,
 priority integer,
+key_hash integer,
 trigger_state varchar(16) not null,
 trigger_type varchar(8) not null,
 start_time bigint not null,
@@ -138,4 +139,11 @@ lock_name varchar(40) not null,
 primary key (sched_name,lock_name)
 );
 
+create table qrtz_change_counters (
+sched_name varchar(120) not null,
+counter_name varchar(40) not null,
+counter_value bigint not null,
+primary key (sched_name,counter_name)
+);
+
 commit;
@@ -8,6 +8,7 @@ DROP TABLE QRTZ_FIRED_TRIGGERS;
 DROP TABLE QRTZ_PAUSED_TRIGGER_GRPS;
 DROP TABLE QRTZ_SCHEDULER_STATE;
 DROP TABLE QRTZ_LOCKS;
+DROP TABLE QRTZ_CHANGE_COUNTERS;
 DROP TABLE QRTZ_SIMPLE_TRIGGERS;
 DROP TABLE QRTZ_SIMPROP_TRIGGERS;
 DROP TABLE QRTZ_CRON_TRIGGERS;
@@ -41,6 +42,7 @@ CREATE TABLE QRTZ_TRIGGERS (
     NEXT_FIRE_TIME BIGINT,
     PREV_FIRE_TIME BIGINT,
     PRIORITY INTEGER,
+    KEY_HASH INTEGER,
     TRIGGER_STATE VARCHAR(16) NOT NULL,
     TRIGGER_TYPE VARCHAR(8) NOT NULL,
     START_TIME BIGINT NOT NULL,
@@ -151,4 +153,11 @@ CREATE TABLE QRTZ_LOCKS (
     CONSTRAINT PK_QRTZ_LOCKS PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE QRTZ_CHANGE_COUNTERS (
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    COUNTER_NAME  VARCHAR(40) NOT NULL,
+    COUNTER_VALUE BIGINT NOT NULL,
+    CONSTRAINT PK_QRTZ_CHANGE_COUNTERS PRIMARY KEY (SCHED_NAME,COUNTER_NAME)
+);
+
 COMMIT;
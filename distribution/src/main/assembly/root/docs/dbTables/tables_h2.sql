@@ -55,6 +55,12 @@ CREATE TABLE QRTZ_LOCKS (
   LOCK_NAME VARCHAR (40)  NOT NULL 
 );
 
+CREATE TABLE QRTZ_CHANGE_COUNTERS (
+  SCHED_NAME VARCHAR(120) NOT NULL,
+  COUNTER_NAME VARCHAR (40)  NOT NULL,
+  COUNTER_VALUE BIGINT NOT NULL
+);
+
 CREATE TABLE QRTZ_JOB_DETAILS (
   SCHED_NAME VARCHAR(120) NOT NULL,
   JOB_NAME VARCHAR (200)  NOT NULL ,
@@ -112,6 +118,7 @@ CREATE TABLE QRTZ_TRIGGERS (
   NEXT_FIRE_TIME BIGINT NULL ,
   PREV_FIRE_TIME BIGINT NULL ,
   PRIORITY INTEGER NULL ,
+  KEY_HASH INTEGER NULL ,
   TRIGGER_STATE VARCHAR (16)  NOT NULL ,
   TRIGGER_TYPE VARCHAR (8)  NOT NULL ,
   START_TIME BIGINT NOT NULL ,
@@ -164,6 +171,13 @@ ALTER TABLE QRTZ_LOCKS  ADD
     LOCK_NAME
   );
 
+ALTER TABLE QRTZ_CHANGE_COUNTERS  ADD
+  CONSTRAINT PK_QRTZ_CHANGE_COUNTERS PRIMARY KEY  
+  (
+    SCHED_NAME,
+    COUNTER_NAME
+  );
+
 ALTER TABLE QRTZ_JOB_DETAILS  ADD
   CONSTRAINT PK_QRTZ_JOB_DETAILS PRIMARY KEY  
   (
@@ -4,6 +4,7 @@
 --
 
 DROP TABLE qrtz_locks IF EXISTS;
+DROP TABLE qrtz_change_counters IF EXISTS;
 DROP TABLE qrtz_scheduler_state IF EXISTS;
 DROP TABLE qrtz_fired_triggers IF EXISTS;
 DROP TABLE qrtz_paused_trigger_grps IF EXISTS;
@@ -41,6 +42,7 @@ DESCRIPTION VARCHAR(250) NULL,
 NEXT_FIRE_TIME NUMERIC(13) NULL,
 PREV_FIRE_TIME NUMERIC(13) NULL,
 PRIORITY INTEGER NULL,
+KEY_HASH INTEGER NULL,
 TRIGGER_STATE VARCHAR(16) NOT NULL,
 TRIGGER_TYPE VARCHAR(8) NOT NULL,
 START_TIME NUMERIC(13) NOT NULL,
@@ -159,3 +161,11 @@ LOCK_NAME VARCHAR(40) NOT NULL,
 PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE qrtz_change_counters
+(
+SCHED_NAME VARCHAR(120) NOT NULL,
+COUNTER_NAME VARCHAR(40) NOT NULL,
+COUNTER_VALUE NUMERIC(13) NOT NULL,
+PRIMARY KEY (SCHED_NAME,COUNTER_NAME)
+);
+
@@ -35,6 +35,7 @@ DESCRIPTION LONGVARCHAR(120) NULL,
 NEXT_FIRE_TIME NUMERIC(13) NULL,
 PREV_FIRE_TIME NUMERIC(13) NULL,
 PRIORITY INTEGER NULL,
+KEY_HASH INTEGER NULL,
 TRIGGER_STATE LONGVARCHAR(16) NOT NULL,
 TRIGGER_TYPE LONGVARCHAR(8) NOT NULL,
 START_TIME NUMERIC(13) NOT NULL,
@@ -153,4 +154,12 @@ CREATE TABLE qrtz_locks
     PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE qrtz_change_counters
+  (
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    COUNTER_NAME  LONGVARCHAR(40) NOT NULL,
+    COUNTER_VALUE NUMERIC(13) NOT NULL,
+    PRIMARY KEY (SCHED_NAME,COUNTER_NAME)
+);
+
 commit;
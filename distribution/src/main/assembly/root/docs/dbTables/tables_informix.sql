@@ -83,9 +83,18 @@ SCHED_NAME VARCHAR(120) NOT NULL,
 LOCK_NAME  varchar(40) NOT NULL
 );
 
+CREATE TABLE qchange_counters (
+SCHED_NAME VARCHAR(120) NOT NULL,
+COUNTER_NAME  varchar(40) NOT NULL,
+COUNTER_VALUE numeric(13) NOT NULL
+);
+
 ALTER TABLE qlocks
 ADD CONSTRAINT PRIMARY KEY (SCHED_NAME,LOCK_NAME);
 
+ALTER TABLE qchange_counters
+ADD CONSTRAINT PRIMARY KEY (SCHED_NAME,COUNTER_NAME);
+
 
 CREATE TABLE qjob_details (
 SCHED_NAME VARCHAR(120) NOT NULL,
@@ -149,6 +158,7 @@ DESCRIPTION varchar(120),
 NEXT_FIRE_TIME numeric(13),
 PREV_FIRE_TIME numeric(13),
 PRIORITY integer,
+KEY_HASH integer,
 TRIGGER_STATE varchar(16) NOT NULL,
 TRIGGER_TYPE varchar(8) NOT NULL,
 START_TIME numeric(13) NOT NULL,
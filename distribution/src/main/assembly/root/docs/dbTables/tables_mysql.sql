@@ -11,6 +11,7 @@ DROP TABLE IF EXISTS QRTZ_FIRED_TRIGGERS;
 DROP TABLE IF EXISTS QRTZ_PAUSED_TRIGGER_GRPS;
 DROP TABLE IF EXISTS QRTZ_SCHEDULER_STATE;
 DROP TABLE IF EXISTS QRTZ_LOCKS;
+DROP TABLE IF EXISTS QRTZ_CHANGE_COUNTERS;
 DROP TABLE IF EXISTS QRTZ_SIMPLE_TRIGGERS;
 DROP TABLE IF EXISTS QRTZ_SIMPROP_TRIGGERS;
 DROP TABLE IF EXISTS QRTZ_CRON_TRIGGERS;
@@ -46,6 +47,7 @@ CREATE TABLE QRTZ_TRIGGERS
     NEXT_FIRE_TIME BIGINT(13) NULL,
     PREV_FIRE_TIME BIGINT(13) NULL,
     PRIORITY INTEGER NULL,
+    KEY_HASH INTEGER NULL,
     TRIGGER_STATE VARCHAR(16) NOT NULL,
     TRIGGER_TYPE VARCHAR(8) NOT NULL,
     START_TIME BIGINT(13) NOT NULL,
@@ -164,5 +166,13 @@ CREATE TABLE QRTZ_LOCKS
     PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE QRTZ_CHANGE_COUNTERS
+  (
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    COUNTER_NAME  VARCHAR(40) NOT NULL,
+    COUNTER_VALUE BIGINT(13) NOT NULL,
+    PRIMARY KEY (SCHED_NAME,COUNTER_NAME)
+);
+
 
 commit;
@@ -18,6 +18,7 @@ delete from qrtz_job_details;
 delete from qrtz_calendars;
 delete from qrtz_paused_trigger_grps;
 delete from qrtz_locks;
+delete from qrtz_change_counters;
 delete from qrtz_scheduler_state;
 
 drop table qrtz_calendars;
@@ -30,6 +31,7 @@ drop table qrtz_triggers;
 drop table qrtz_job_details;
 drop table qrtz_paused_trigger_grps;
 drop table qrtz_locks;
+drop table qrtz_change_counters;
 drop table qrtz_scheduler_state;
 
 
@@ -58,6 +60,7 @@ CREATE TABLE qrtz_triggers
     NEXT_FIRE_TIME NUMBER(13) NULL,
     PREV_FIRE_TIME NUMBER(13) NULL,
     PRIORITY NUMBER(13) NULL,
+    KEY_HASH NUMBER(13) NULL,
     TRIGGER_STATE VARCHAR2(16) NOT NULL,
     TRIGGER_TYPE VARCHAR2(8) NOT NULL,
     START_TIME NUMBER(13) NOT NULL,
@@ -167,6 +170,14 @@ CREATE TABLE qrtz_locks
     CONSTRAINT QRTZ_LOCKS_PK PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE qrtz_change_counters
+  (
+    SCHED_NAME VARCHAR2(120) NOT NULL,
+    COUNTER_NAME  VARCHAR2(40) NOT NULL,
+    COUNTER_VALUE NUMBER(13) NOT NULL,
+    CONSTRAINT QRTZ_CHANGE_COUNTERS_PK PRIMARY KEY (SCHED_NAME,COUNTER_NAME)
+);
+
 create index idx_qrtz_j_req_recovery on qrtz_job_details(SCHED_NAME,REQUESTS_RECOVERY);
 create index idx_qrtz_j_grp on qrtz_job_details(SCHED_NAME,JOB_GROUP);
 
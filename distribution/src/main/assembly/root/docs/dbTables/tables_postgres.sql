@@ -7,6 +7,7 @@ drop table qrtz_fired_triggers;
 DROP TABLE QRTZ_PAUSED_TRIGGER_GRPS;
 DROP TABLE QRTZ_SCHEDULER_STATE;
 DROP TABLE QRTZ_LOCKS;
+DROP TABLE QRTZ_CHANGE_COUNTERS;
 drop table qrtz_simple_triggers;
 drop table qrtz_cron_triggers;
 drop table qrtz_simprop_triggers;
@@ -41,6 +42,7 @@ CREATE TABLE qrtz_triggers
     NEXT_FIRE_TIME BIGINT NULL,
     PREV_FIRE_TIME BIGINT NULL,
     PRIORITY INTEGER NULL,
+    KEY_HASH INTEGER NULL,
     TRIGGER_STATE VARCHAR(16) NOT NULL,
     TRIGGER_TYPE VARCHAR(8) NOT NULL,
     START_TIME BIGINT NOT NULL,
@@ -160,6 +162,14 @@ CREATE TABLE qrtz_locks
     PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE qrtz_change_counters
+  (
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    COUNTER_NAME  VARCHAR(40) NOT NULL,
+    COUNTER_VALUE BIGINT NOT NULL,
+    PRIMARY KEY (SCHED_NAME,COUNTER_NAME)
+);
+
 create index idx_qrtz_j_req_recovery on qrtz_job_details(SCHED_NAME,REQUESTS_RECOVERY);
 create index idx_qrtz_j_grp on qrtz_job_details(SCHED_NAME,JOB_GROUP);
 
@@ -31,6 +31,7 @@ CREATE TABLE QRTZ_TRIGGERS
     NEXT_FIRE_TIME FIXED(13) NULL,
     PREV_FIRE_TIME FIXED(13) NULL,
     PRIORITY FIXED(13) NULL,
+    KEY_HASH FIXED(13) NULL,
     TRIGGER_STATE VARCHAR(16) NOT NULL,
     TRIGGER_TYPE VARCHAR(8) NOT NULL,
     START_TIME FIXED(13) NOT NULL,
@@ -147,5 +148,13 @@ CREATE TABLE QRTZ_LOCKS
     PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE QRTZ_CHANGE_COUNTERS
+  (
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    COUNTER_NAME  VARCHAR(40) NOT NULL,
+    COUNTER_VALUE FIXED(13) NOT NULL,
+    PRIMARY KEY (SCHED_NAME,COUNTER_NAME)
+);
+
 
 commit;
@@ -1,5 +1,6 @@
 
 DROP TABLE qrtz_locks;
+DROP TABLE qrtz_change_counters;
 DROP TABLE qrtz_scheduler_state;
 DROP TABLE qrtz_fired_triggers;
 DROP TABLE qrtz_paused_trigger_grps;
@@ -35,6 +36,7 @@ create table qrtz_triggers(
 	next_fire_time numeric(13),
 	prev_fire_time numeric(13),
 	priority integer,
+	key_hash integer,
 	trigger_state varchar(16) not null,
 	trigger_type varchar(8) not null,
 	start_time numeric(13) not null,
@@ -144,4 +146,12 @@ create table qrtz_locks
 primary key (sched_name,lock_name)
 );
 
+create table qrtz_change_counters
+  (
+    sched_name varchar(120) not null,
+    counter_name  varchar(40) not null,
+    counter_value numeric(13) not null,
+primary key (sched_name,counter_name)
+);
+
 commit work;
@@ -70,6 +70,9 @@ GO
 IF EXISTS (SELECT * FROM dbo.sysobjects WHERE id = OBJECT_ID(N'[dbo].[QRTZ_LOCKS]') AND OBJECTPROPERTY(id, N'ISUSERTABLE') = 1)
 DROP TABLE [dbo].[QRTZ_LOCKS]
 GO
+IF EXISTS (SELECT * FROM dbo.sysobjects WHERE id = OBJECT_ID(N'[dbo].[QRTZ_CHANGE_COUNTERS]') AND OBJECTPROPERTY(id, N'ISUSERTABLE') = 1)
+DROP TABLE [dbo].[QRTZ_CHANGE_COUNTERS]
+GO
 
 IF EXISTS (SELECT * FROM dbo.sysobjects WHERE id = OBJECT_ID(N'[dbo].[QRTZ_JOB_DETAILS]') AND OBJECTPROPERTY(id, N'ISUSERTABLE') = 1)
 DROP TABLE [dbo].[QRTZ_JOB_DETAILS]
@@ -140,6 +143,13 @@ CREATE TABLE [dbo].[QRTZ_LOCKS] (
 ) ON [PRIMARY]
 GO
 
+CREATE TABLE [dbo].[QRTZ_CHANGE_COUNTERS] (
+  [SCHED_NAME] [VARCHAR] (120)  NOT NULL ,
+  [COUNTER_NAME] [VARCHAR] (40)  NOT NULL ,
+  [COUNTER_VALUE] [BIGINT] NOT NULL
+) ON [PRIMARY]
+GO
+
 CREATE TABLE [dbo].[QRTZ_JOB_DETAILS] (
   [SCHED_NAME] [VARCHAR] (120)  NOT NULL ,
   [JOB_NAME] [VARCHAR] (200)  NOT NULL ,
@@ -200,6 +210,7 @@ CREATE TABLE [dbo].[QRTZ_TRIGGERS] (
   [NEXT_FIRE_TIME] [BIGINT] NULL ,
   [PREV_FIRE_TIME] [BIGINT] NULL ,
   [PRIORITY] [INTEGER] NULL ,
+  [KEY_HASH] [INTEGER] NULL ,
   [TRIGGER_STATE] [VARCHAR] (16)  NOT NULL ,
   [TRIGGER_TYPE] [VARCHAR] (8)  NOT NULL ,
   [START_TIME] [BIGINT] NOT NULL ,
@@ -259,6 +270,14 @@ ALTER TABLE [dbo].[QRTZ_LOCKS] WITH NOCHECK ADD
   )  ON [PRIMARY]
 GO
 
+ALTER TABLE [dbo].[QRTZ_CHANGE_COUNTERS] WITH NOCHECK ADD
+  CONSTRAINT [PK_QRTZ_CHANGE_COUNTERS] PRIMARY KEY  CLUSTERED
+  (
+    [SCHED_NAME],
+    [COUNTER_NAME]
+  )  ON [PRIMARY]
+GO
+
 ALTER TABLE [dbo].[QRTZ_JOB_DETAILS] WITH NOCHECK ADD
   CONSTRAINT [PK_QRTZ_JOB_DETAILS] PRIMARY KEY  CLUSTERED
   (
@@ -28,6 +28,9 @@ go
 IF OBJECT_ID('QRTZ_LOCKS') IS NOT NULL 
 delete from QRTZ_LOCKS
 go
+IF OBJECT_ID('QRTZ_CHANGE_COUNTERS') IS NOT NULL 
+delete from QRTZ_CHANGE_COUNTERS
+go
 IF OBJECT_ID('QRTZ_SIMPLE_TRIGGERS') IS NOT NULL 
 delete from QRTZ_SIMPLE_TRIGGERS
 go
@@ -86,6 +89,8 @@ drop table QRTZ_SCHEDULER_STATE
 go
 drop table QRTZ_LOCKS
 go
+drop table QRTZ_CHANGE_COUNTERS
+go
 drop table QRTZ_SIMPLE_TRIGGERS
 go
 drop table QRTZ_SIMPROP_TRIGGERS
@@ -158,6 +163,13 @@ LOCK_NAME  varchar(40) not null,
 )
 go
 
+create table QRTZ_CHANGE_COUNTERS (
+SCHED_NAME varchar(120) not null,
+COUNTER_NAME  varchar(40) not null,
+COUNTER_VALUE numeric(13,0) not null,
+)
+go
+
 
 create table QRTZ_JOB_DETAILS (
 SCHED_NAME varchar(120) not null,
@@ -220,6 +232,7 @@ DESCRIPTION varchar(120) null,
 NEXT_FIRE_TIME numeric(13,0) null,
 PREV_FIRE_TIME numeric(13,0) null,
 PRIORITY int null,
+KEY_HASH int null,
 TRIGGER_STATE varchar(16) not null,
 TRIGGER_TYPE varchar(8) not null,
 START_TIME numeric(13,0) not null,
@@ -258,6 +271,10 @@ alter table QRTZ_LOCKS
 add constraint PK_qrtz_locks primary key clustered (SCHED_NAME,LOCK_NAME)
 go
 
+alter table QRTZ_CHANGE_COUNTERS
+add constraint PK_qrtz_change_counters primary key clustered (SCHED_NAME,COUNTER_NAME)
+go
+
 alter table QRTZ_JOB_DETAILS
 add constraint PK_qrtz_job_details primary key clustered (SCHED_NAME,JOB_NAME, JOB_GROUP)
 go
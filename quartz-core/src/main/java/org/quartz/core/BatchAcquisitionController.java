@@ -0,0 +1,215 @@
+/*
+ * Copyright 2001-2013 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Sizes the trigger batches acquired by the <code>{@link QuartzSchedulerThread}</code>:
+ * the maximum number of triggers per batch and the fire-ahead time window.
+ * </p>
+ *
+ * <p>
+ * Unless adaptive, these are simply the values configured in the
+ * <code>{@link QuartzSchedulerResources}</code>.  Otherwise the configured
+ * values are the floor, and after each batch fired the controller looks at how
+ * late it was, how long acquiring it took, and how busy the thread pool was:
+ * </p>
+ * <ul>
+ * <li>late, with the pool busy - the pool is the bottleneck, and triggers
+ * acquired ahead would only wait for threads: shrink the window.</li>
+ * <li>late, with full batches - there are more due triggers than a batch
+ * holds: double the batch size (up to the pool size), and widen the window to
+ * cover the acquisition latency.</li>
+ * <li>late, with batches not full - acquisition is not keeping up with the
+ * fire times: widen the window to cover the acquisition latency.</li>
+ * <li>on time for a while - step both back towards the configured values, so
+ * that triggers are not held acquired for nothing.</li>
+ * </ul>
+ *
+ * <p>
+ * Shared by all the scheduler threads of a scheduler (and their acquirers).
+ * </p>
+ *
+ * @see org.quartz.core.jmx.QuartzSchedulerMBean#getBatchTriggerAcquisitionMetrics()
+ */
+class BatchAcquisitionController {
+
+    // a batch fired later than this is late
+    static final long LATE_THRESHOLD = 20L;
+
+    // busy once this share of the pool (in percent) was taken when acquiring
+    static final int BUSY_OCCUPANCY = 90;
+
+    // consecutive batches on time before stepping back
+    static final int ON_TIME_BATCHES_BEFORE_DECREASE = 20;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final boolean adaptive;
+
+    private final int minBatchSize;
+    private final long minTimeWindow;
+    private final long maxTimeWindow;
+
+    private int maxBatchSize;
+    private long timeWindow;
+
+    // exponentially weighted averages of the recent batches
+    private long acquisitionLatency;
+    private long fireLateness;
+    private int threadPoolOccupancy;
+    private boolean lastBatchFull;
+
+    private int onTimeBatches;
+    private long increases;
+    private long decreases;
+    private String lastDecision = "none";
+
+    BatchAcquisitionController(QuartzSchedulerResources qsRsrcs) {
+        this.adaptive = qsRsrcs.isAdaptiveBatchAcquisition();
+        this.minBatchSize = qsRsrcs.getMaxBatchSize();
+        this.minTimeWindow = qsRsrcs.getBatchTimeWindow();
+        this.maxTimeWindow = Math.max(minTimeWindow, qsRsrcs.getAdaptiveMaxBatchTimeWindow());
+        this.maxBatchSize = minBatchSize;
+        this.timeWindow = minTimeWindow;
+    }
+
+    boolean isAdaptive() {
+        return adaptive;
+    }
+
+    synchronized int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    synchronized long getBatchTimeWindow() {
+        return timeWindow;
+    }
+
+    synchronized String getLastDecision() {
+        return lastDecision;
+    }
+
+    /**
+     * <p>
+     * Records the acquisition of a batch.
+     * </p>
+     *
+     * @param requested the number of triggers asked for.
+     * @param acquired the number of triggers acquired.
+     * @param latency how long acquiring them took, in milliseconds.
+     * @param availThreads the free threads of the pool before acquiring.
+     * @param poolSize the size of the pool.
+     */
+    void batchAcquired(int requested, int acquired, long latency, int availThreads, int poolSize) {
+        if (!adaptive) {
+            return;
+        }
+        int occupancy = (poolSize <= 0) ? 0 : Math.max(0, 100 - availThreads * 100 / poolSize);
+        synchronized (this) {
+            acquisitionLatency = average(acquisitionLatency, latency);
+            threadPoolOccupancy = (int) average(threadPoolOccupancy, occupancy);
+            lastBatchFull = acquired > 0 && acquired >= requested;
+        }
+    }
+
+    /**
+     * <p>
+     * Records a batch fired, and resizes the following ones.
+     * </p>
+     *
+     * @param lateness how long after the fire time of its earliest trigger
+     *        the batch was fired, in milliseconds.
+     * @param poolSize the size of the pool, the limit for the batch size.
+     */
+    void batchFired(long lateness, int poolSize) {
+        if (!adaptive) {
+            return;
+        }
+        String decision = null;
+        synchronized (this) {
+            fireLateness = average(fireLateness, Math.max(0L, lateness));
+
+            if (lateness > LATE_THRESHOLD) {
+                onTimeBatches = 0;
+                int oldBatchSize = maxBatchSize;
+                long oldTimeWindow = timeWindow;
+                if (threadPoolOccupancy >= BUSY_OCCUPANCY) {
+                    timeWindow = Math.max(minTimeWindow, timeWindow / 2);
+                } else {
+                    if (lastBatchFull) {
+                        maxBatchSize = Math.max(minBatchSize, Math.min(Math.max(poolSize, 1), maxBatchSize * 2));
+                    }
+                    timeWindow = Math.min(maxTimeWindow, Math.max(timeWindow, 2 * acquisitionLatency));
+                }
+                if (maxBatchSize != oldBatchSize || timeWindow != oldTimeWindow) {
+                    boolean increase = maxBatchSize > oldBatchSize || timeWindow > oldTimeWindow;
+                    if (increase) {
+                        increases++;
+                    } else {
+                        decreases++;
+                    }
+                    decision = (increase ? "increased" : "decreased") + " to " + maxBatchSize + " triggers and "
+                            + timeWindow + " ms: batch fired " + lateness + " ms late, acquisition took "
+                            + acquisitionLatency + " ms, thread pool " + threadPoolOccupancy + "% busy";
+                }
+            } else if (++onTimeBatches >= ON_TIME_BATCHES_BEFORE_DECREASE) {
+                onTimeBatches = 0;
+                if (maxBatchSize > minBatchSize || timeWindow > minTimeWindow) {
+                    maxBatchSize = Math.max(minBatchSize, maxBatchSize - Math.max(1, maxBatchSize / 4));
+                    timeWindow = Math.max(minTimeWindow, timeWindow - Math.max(1L, timeWindow / 4));
+                    decreases++;
+                    decision = "decreased to " + maxBatchSize + " triggers and " + timeWindow + " ms: "
+                            + ON_TIME_BATCHES_BEFORE_DECREASE + " batches fired on time";
+                }
+            }
+            if (decision != null) {
+                lastDecision = decision;
+            }
+        }
+        if (decision != null && log.isDebugEnabled()) {
+            log.debug("Batch trigger acquisition " + decision);
+        }
+    }
+
+    /**
+     * @return the averages the decisions are based on, and the number of
+     *         decisions taken each way.
+     */
+    synchronized Map<String, Long> getMetrics() {
+        Map<String, Long> result = new HashMap<String, Long>();
+        result.put("MaxCount", Long.valueOf(maxBatchSize));
+        result.put("FireAheadTimeWindow", Long.valueOf(timeWindow));
+        result.put("FireLateness", Long.valueOf(fireLateness));
+        result.put("AcquisitionLatency", Long.valueOf(acquisitionLatency));
+        result.put("ThreadPoolOccupancy", Long.valueOf(threadPoolOccupancy));
+        result.put("Increases", Long.valueOf(increases));
+        result.put("Decreases", Long.valueOf(decreases));
+        return result;
+    }
+
+    private static long average(long average, long sample) {
+        return (3 * average + sample) / 4;
+    }
+}
@@ -221,6 +221,9 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
         this.schedThread = new QuartzSchedulerThread(this, resources);
         ThreadExecutor schedThreadExecutor = resources.getThreadExecutor();
         schedThreadExecutor.execute(this.schedThread);
+        for (QuartzSchedulerThread partitionThread : this.schedThread.getPartitionThreads()) {
+            schedThreadExecutor.execute(partitionThread);
+        }
         if (idleWaitTime > 0) {
             this.schedThread.setIdleWaitTime(idleWaitTime);
         }
@@ -654,6 +657,10 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
         return resources.getThreadPool().getPoolSize();
     }
 
+    BatchAcquisitionController getBatchAcquisitionController() {
+        return schedThread.getBatchAcquisitionController();
+    }
+
     /**
      * <p>
      * Halts the <code>QuartzScheduler</code>'s firing of <code>{@link org.quartz.Trigger}s</code>,
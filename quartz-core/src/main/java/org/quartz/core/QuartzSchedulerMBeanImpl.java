@@ -552,6 +552,26 @@ public class QuartzSchedulerMBeanImpl extends StandardMBean implements
         return scheduler.getThreadPoolSize();
     }
 
+    public boolean isBatchTriggerAcquisitionAdaptive() {
+        return scheduler.getBatchAcquisitionController().isAdaptive();
+    }
+
+    public int getBatchTriggerAcquisitionMaxCount() {
+        return scheduler.getBatchAcquisitionController().getMaxBatchSize();
+    }
+
+    public long getBatchTriggerAcquisitionFireAheadTimeWindow() {
+        return scheduler.getBatchAcquisitionController().getBatchTimeWindow();
+    }
+
+    public String getBatchTriggerAcquisitionLastDecision() {
+        return scheduler.getBatchAcquisitionController().getLastDecision();
+    }
+
+    public Map<String, Long> getBatchTriggerAcquisitionMetrics() {
+        return scheduler.getBatchAcquisitionController().getMetrics();
+    }
+
     public void pauseJob(String jobName, String jobGroup) throws Exception {
         try {
             scheduler.pauseJob(jobKey(jobName, jobGroup));
@@ -95,6 +95,18 @@ public class QuartzSchedulerResources {
 
     private int maxBatchSize = 1;
 
+    private boolean pipelinedTriggerAcquisition = false;
+
+    private boolean prefireAcquiredTriggers = false;
+
+    private int schedulerThreadCount = 1;
+
+    private boolean adaptiveBatchAcquisition = false;
+
+    private long adaptiveMaxBatchTimeWindow = 1000L;
+
+    private boolean timingWheelDispatch = false;
+
     private boolean interruptJobsOnShutdown = false;
     private boolean interruptJobsOnShutdownWithWait = false;
     
@@ -565,6 +577,103 @@ public class QuartzSchedulerResources {
     public void setMaxBatchSize(int maxBatchSize) {
       this.maxBatchSize = maxBatchSize;
     }
+
+    /**
+     * Whether the next batch of triggers is acquired by a separate thread
+     * while the scheduler thread waits for, fires and dispatches the current
+     * one.
+     */
+    public boolean isPipelinedTriggerAcquisition() {
+        return pipelinedTriggerAcquisition;
+    }
+
+    public void setPipelinedTriggerAcquisition(boolean pipelinedTriggerAcquisition) {
+        this.pipelinedTriggerAcquisition = pipelinedTriggerAcquisition;
+    }
+
+    /**
+     * Whether, with pipelined trigger acquisition, the batches acquired ahead
+     * that are already due are fired together with the current batch, in a
+     * single call to the job store.
+     */
+    public boolean isPrefireAcquiredTriggers() {
+        return prefireAcquiredTriggers;
+    }
+
+    public void setPrefireAcquiredTriggers(boolean prefireAcquiredTriggers) {
+        this.prefireAcquiredTriggers = prefireAcquiredTriggers;
+    }
+
+    /**
+     * Whether the batch size and fire-ahead time window are adapted to the
+     * observed fire lateness, acquisition latency and thread pool occupancy,
+     * starting from (and never going below) the configured values.
+     *
+     * @see BatchAcquisitionController
+     */
+    public boolean isAdaptiveBatchAcquisition() {
+        return adaptiveBatchAcquisition;
+    }
+
+    public void setAdaptiveBatchAcquisition(boolean adaptiveBatchAcquisition) {
+        this.adaptiveBatchAcquisition = adaptiveBatchAcquisition;
+    }
+
+    /**
+     * The widest fire-ahead time window adaptive batch acquisition may use,
+     * in milliseconds: how early a trigger may be fired at most.
+     */
+    public long getAdaptiveMaxBatchTimeWindow() {
+        return adaptiveMaxBatchTimeWindow;
+    }
+
+    /**
+     * @exception IllegalArgumentException
+     *              if the time window is negative.
+     */
+    public void setAdaptiveMaxBatchTimeWindow(long adaptiveMaxBatchTimeWindow) {
+        if (adaptiveMaxBatchTimeWindow < 0) {
+            throw new IllegalArgumentException(
+                    "Adaptive max batch time window must not be negative.");
+        }
+        this.adaptiveMaxBatchTimeWindow = adaptiveMaxBatchTimeWindow;
+    }
+
+    /**
+     * Whether triggers fired ahead of time, within the batch time window or
+     * just before their fire time, are handed to the thread pool at their
+     * exact fire time by a timing wheel, rather than all at once.
+     *
+     * @see TimingWheelDispatcher
+     */
+    public boolean isTimingWheelDispatch() {
+        return timingWheelDispatch;
+    }
+
+    public void setTimingWheelDispatch(boolean timingWheelDispatch) {
+        this.timingWheelDispatch = timingWheelDispatch;
+    }
+
+    /**
+     * The number of scheduler threads firing triggers in parallel, each of
+     * them for a partition of the triggers by the hash of their group.  Only
+     * effective with a <code>{@link org.quartz.spi.PartitionedJobStore}</code>.
+     */
+    public int getSchedulerThreadCount() {
+        return schedulerThreadCount;
+    }
+
+    /**
+     * @exception IllegalArgumentException
+     *              if the count is less than one.
+     */
+    public void setSchedulerThreadCount(int schedulerThreadCount) {
+        if (schedulerThreadCount < 1) {
+            throw new IllegalArgumentException(
+                    "Scheduler thread count must be positive.");
+        }
+        this.schedulerThreadCount = schedulerThreadCount;
+    }
     
     public boolean isInterruptJobsOnShutdown() {
         return interruptJobsOnShutdown;
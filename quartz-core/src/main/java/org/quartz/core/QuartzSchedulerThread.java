@@ -19,6 +19,7 @@
 package org.quartz.core;
 
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -28,6 +29,7 @@ import org.quartz.SchedulerException;
 import org.quartz.Trigger;
 import org.quartz.Trigger.CompletedExecutionInstruction;
 import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.PartitionedJobStore;
 import org.quartz.spi.TriggerFiredBundle;
 import org.quartz.spi.TriggerFiredResult;
 import org.slf4j.Logger;
@@ -57,13 +59,44 @@ public class QuartzSchedulerThread extends Thread {
 
     private QuartzSchedulerResources qsRsrcs;
 
-    private final Object sigLock = new Object();
+    // shared with the threads of the other partitions, if any
+    private final Object sigLock;
 
     private boolean signaled;
     private long signaledNextFireTime;
 
     private boolean paused;
 
+    // With pipelined trigger acquisition: the batches acquired ahead by the
+    // TriggerAcquirer, the number of triggers they hold (including the batch
+    // the scheduler thread is working on), a signal flag of the acquirer's own,
+    // and a count of scheduling change signals so that a batch can tell
+    // whether the schedule changed after it was acquired.  Guarded by sigLock.
+    private final LinkedList<AcquiredBatch> acquiredBatches = new LinkedList<AcquiredBatch>();
+    private int pipelinedTriggerCount;
+    private boolean acquireSignaled;
+    private long signalCount;
+
+    // With several scheduler threads, each acquires the triggers of its own
+    // partition of the job store, and the first one holds the others.  Each
+    // bounds its batches by the free threads of the pool on its own: a batch
+    // waiting for its fire time must not hold back the due triggers of other
+    // partitions, so dispatching may occasionally wait for a thread instead.
+    private final int partition;
+    private final int partitionCount;
+    private final List<QuartzSchedulerThread> partitionThreads = new ArrayList<QuartzSchedulerThread>();
+
+    // sizes the batches of all partitions
+    private final BatchAcquisitionController batchController;
+
+    // hands the shells of all partitions to the thread pool at their fire
+    // time, if enabled; run by the thread of the first partition
+    private final TimingWheelDispatcher timingWheel;
+
+    // how long before the fire time a batch is fired when the timing wheel
+    // dispatches it, so that it is ready in the wheel on time
+    private static final long TIMING_WHEEL_LEAD = 10L;
+
     private AtomicBoolean halted;
 
     private Random random = new Random(System.currentTimeMillis());
@@ -121,6 +154,45 @@ public class QuartzSchedulerThread extends Thread {
         // so processing doesn't start yet...
         paused = true;
         halted = new AtomicBoolean(false);
+
+        sigLock = new Object();
+        batchController = new BatchAcquisitionController(qsRsrcs);
+        timingWheel = qsRsrcs.isTimingWheelDispatch() ? new TimingWheelDispatcher(this, qsRsrcs) : null;
+        int threadCount = qsRsrcs.getSchedulerThreadCount();
+        if (threadCount > 1 && !(qsRsrcs.getJobStore() instanceof PartitionedJobStore)) {
+            log.warn("JobStore " + qsRsrcs.getJobStore().getClass().getName()
+                    + " cannot be partitioned, using a single scheduler thread instead of " + threadCount + ".");
+            threadCount = 1;
+        }
+        partition = 0;
+        partitionCount = threadCount;
+        for (int p = 1; p < partitionCount; p++) {
+            partitionThreads.add(new QuartzSchedulerThread(this, p));
+        }
+    }
+
+    /**
+     * <p>
+     * Construct the <code>QuartzSchedulerThread</code> of the given partition,
+     * sharing the state of the first one.
+     * </p>
+     */
+    private QuartzSchedulerThread(QuartzSchedulerThread first, int partition) {
+        super(first.getThreadGroup(), first.getName() + "_" + partition);
+        this.qs = first.qs;
+        this.qsRsrcs = first.qsRsrcs;
+        this.setDaemon(first.isDaemon());
+        this.setContextClassLoader(first.getContextClassLoader());
+        this.setPriority(first.getPriority());
+
+        paused = true;
+        halted = new AtomicBoolean(false);
+
+        sigLock = first.sigLock;
+        batchController = first.batchController;
+        timingWheel = first.timingWheel;
+        this.partition = partition;
+        this.partitionCount = first.partitionCount;
     }
 
     /*
@@ -134,6 +206,23 @@ public class QuartzSchedulerThread extends Thread {
     void setIdleWaitTime(long waitTime) {
         idleWaitTime = waitTime;
         idleWaitVariablness = (int) (waitTime * 0.2);
+        for (QuartzSchedulerThread partitionThread : partitionThreads) {
+            partitionThread.setIdleWaitTime(waitTime);
+        }
+    }
+
+    /**
+     * <p>
+     * The threads firing the triggers of the other partitions, to be run
+     * alongside this one.
+     * </p>
+     */
+    List<QuartzSchedulerThread> getPartitionThreads() {
+        return partitionThreads;
+    }
+
+    BatchAcquisitionController getBatchAcquisitionController() {
+        return batchController;
     }
 
     private long getRandomizedIdleWaitTime() {
@@ -148,6 +237,9 @@ public class QuartzSchedulerThread extends Thread {
     void togglePause(boolean pause) {
         synchronized (sigLock) {
             paused = pause;
+            for (QuartzSchedulerThread partitionThread : partitionThreads) {
+                partitionThread.paused = pause;
+            }
 
             if (paused) {
                 signalSchedulingChange(0);
@@ -165,6 +257,9 @@ public class QuartzSchedulerThread extends Thread {
     void halt(boolean wait) {
         synchronized (sigLock) {
             halted.set(true);
+            for (QuartzSchedulerThread partitionThread : partitionThreads) {
+                partitionThread.halted.set(true);
+            }
 
             if (paused) {
                 sigLock.notifyAll();
@@ -174,21 +269,28 @@ public class QuartzSchedulerThread extends Thread {
         }
         
         if (wait) {
-            boolean interrupted = false;
-            try {
-                while (true) {
-                    try {
-                        join();
-                        break;
-                    } catch (InterruptedException _) {
-                        interrupted = true;
-                    }
-                }
-            } finally {
-                if (interrupted) {
-                    Thread.currentThread().interrupt();
+            joinUninterruptibly(this);
+            for (QuartzSchedulerThread partitionThread : partitionThreads) {
+                joinUninterruptibly(partitionThread);
+            }
+        }
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException ignore) {
+                    interrupted = true;
                 }
             }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -209,12 +311,22 @@ public class QuartzSchedulerThread extends Thread {
      */
     public void signalSchedulingChange(long candidateNewNextFireTime) {
         synchronized(sigLock) {
-            signaled = true;
-            signaledNextFireTime = candidateNewNextFireTime;
+            markScheduleChanged(candidateNewNextFireTime);
+            // the candidate may belong to any partition
+            for (QuartzSchedulerThread partitionThread : partitionThreads) {
+                partitionThread.markScheduleChanged(candidateNewNextFireTime);
+            }
             sigLock.notifyAll();
         }
     }
 
+    private void markScheduleChanged(long candidateNewNextFireTime) {
+        signaled = true;
+        signaledNextFireTime = candidateNewNextFireTime;
+        acquireSignaled = true;
+        signalCount++;
+    }
+
     public void clearSignaledSchedulingChange() {
         synchronized(sigLock) {
             signaled = false;
@@ -241,10 +353,25 @@ public class QuartzSchedulerThread extends Thread {
      */
     @Override
     public void run() {
+        if (timingWheel != null && partition == 0) {
+            timingWheel.start();
+        }
+
+        TriggerAcquirer acquirer = null;
+        if (qsRsrcs.isPipelinedTriggerAcquisition()) {
+            acquirer = new TriggerAcquirer();
+            acquirer.start();
+        }
+
         boolean lastAcquireFailed = false;
 
         while (!halted.get()) {
             try {
+                // don't keep triggers acquired ahead while paused...
+                if (acquirer != null && isPaused()) {
+                    drainAcquiredBatches();
+                }
+
                 // check if we're supposed to pause...
                 synchronized (sigLock) {
                     while (paused && !halted.get()) {
@@ -260,7 +387,27 @@ public class QuartzSchedulerThread extends Thread {
                     }
                 }
 
-                int availThreadCount = qsRsrcs.getThreadPool().blockForAvailableThreads();
+                if (acquirer != null) {
+                    AcquiredBatch batch = takeAcquiredBatch();
+                    if (batch != null) {
+                        try {
+                            fireAndDispatch(batch.triggers);
+                        } finally {
+                            batchDone(batch);
+                        }
+                    }
+                    continue; // while (!halted)
+                }
+
+                // the shells held by the timing wheel are about to take threads
+                // too - read first, so that a thread taken by a dispatch in
+                // between is never counted as free
+                int wheelPending = (timingWheel == null) ? 0 : timingWheel.getPendingCount();
+                int availThreadCount = qsRsrcs.getThreadPool().blockForAvailableThreads() - wheelPending;
+                if (availThreadCount <= 0 && wheelPending > 0) {
+                    timingWheel.awaitDispatch(wheelPending);
+                    continue; // while (!halted)
+                }
                 if(availThreadCount > 0) { // will always be true, due to semantics of blockForAvailableThreads...
 
                     List<OperableTrigger> triggers = null;
@@ -269,8 +416,7 @@ public class QuartzSchedulerThread extends Thread {
 
                     clearSignaledSchedulingChange();
                     try {
-                        triggers = qsRsrcs.getJobStore().acquireNextTriggers(
-                                now + idleWaitTime, Math.min(availThreadCount, qsRsrcs.getMaxBatchSize()), qsRsrcs.getBatchTimeWindow());
+                        triggers = acquireNextTriggers(now + idleWaitTime, availThreadCount);
                         lastAcquireFailed = false;
                         if (log.isDebugEnabled()) 
                             log.debug("batch acquisition of " + (triggers == null ? 0 : triggers.size()) + " triggers");
@@ -292,103 +438,7 @@ public class QuartzSchedulerThread extends Thread {
                     }
 
                     if (triggers != null && !triggers.isEmpty()) {
-
-                        now = System.currentTimeMillis();
-                        long triggerTime = triggers.get(0).getNextFireTime().getTime();
-                        long timeUntilTrigger = triggerTime - now;
-                        while(timeUntilTrigger > 2) {
-                            synchronized (sigLock) {
-                                if (halted.get()) {
-                                    break;
-                                }
-                                if (!isCandidateNewTimeEarlierWithinReason(triggerTime, false)) {
-                                    try {
-                                        // we could have blocked a long while
-                                        // on 'synchronize', so we must recompute
-                                        now = System.currentTimeMillis();
-                                        timeUntilTrigger = triggerTime - now;
-                                        if(timeUntilTrigger >= 1)
-                                            sigLock.wait(timeUntilTrigger);
-                                    } catch (InterruptedException ignore) {
-                                    }
-                                }
-                            }
-                            if(releaseIfScheduleChangedSignificantly(triggers, triggerTime)) {
-                                break;
-                            }
-                            now = System.currentTimeMillis();
-                            timeUntilTrigger = triggerTime - now;
-                        }
-
-                        // this happens if releaseIfScheduleChangedSignificantly decided to release triggers
-                        if(triggers.isEmpty())
-                            continue;
-
-                        // set triggers to 'executing'
-                        List<TriggerFiredResult> bndles = new ArrayList<TriggerFiredResult>();
-
-                        boolean goAhead = true;
-                        synchronized(sigLock) {
-                            goAhead = !halted.get();
-                        }
-                        if(goAhead) {
-                            try {
-                                List<TriggerFiredResult> res = qsRsrcs.getJobStore().triggersFired(triggers);
-                                if(res != null)
-                                    bndles = res;
-                            } catch (SchedulerException se) {
-                                qs.notifySchedulerListenersError(
-                                        "An error occurred while firing triggers '"
-                                                + triggers + "'", se);
-                                //QTZ-179 : a problem occurred interacting with the triggers from the db
-                                //we release them and loop again
-                                for (int i = 0; i < triggers.size(); i++) {
-                                    qsRsrcs.getJobStore().releaseAcquiredTrigger(triggers.get(i));
-                                }
-                                continue;
-                            }
-
-                        }
-
-                        for (int i = 0; i < bndles.size(); i++) {
-                            TriggerFiredResult result =  bndles.get(i);
-                            TriggerFiredBundle bndle =  result.getTriggerFiredBundle();
-                            Exception exception = result.getException();
-
-                            if (exception instanceof RuntimeException) {
-                                getLog().error("RuntimeException while firing trigger " + triggers.get(i), exception);
-                                qsRsrcs.getJobStore().releaseAcquiredTrigger(triggers.get(i));
-                                continue;
-                            }
-
-                            // it's possible to get 'null' if the triggers was paused,
-                            // blocked, or other similar occurrences that prevent it being
-                            // fired at this time...  or if the scheduler was shutdown (halted)
-                            if (bndle == null) {
-                                qsRsrcs.getJobStore().releaseAcquiredTrigger(triggers.get(i));
-                                continue;
-                            }
-
-                            JobRunShell shell = null;
-                            try {
-                                shell = qsRsrcs.getJobRunShellFactory().createJobRunShell(bndle);
-                                shell.initialize(qs);
-                            } catch (SchedulerException se) {
-                                qsRsrcs.getJobStore().triggeredJobComplete(triggers.get(i), bndle.getJobDetail(), CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR);
-                                continue;
-                            }
-
-                            if (qsRsrcs.getThreadPool().runInThread(shell) == false) {
-                                // this case should never happen, as it is indicative of the
-                                // scheduler being shutdown or a bug in the thread pool or
-                                // a thread pool being used concurrently - which the docs
-                                // say not to do...
-                                getLog().error("ThreadPool.runInThread() return false!");
-                                qsRsrcs.getJobStore().triggeredJobComplete(triggers.get(i), bndle.getJobDetail(), CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR);
-                            }
-
-                        }
-
+                        fireAndDispatch(triggers);
                         continue; // while (!halted)
                     }
                 } else { // if(availThreadCount > 0)
@@ -419,11 +469,241 @@ public class QuartzSchedulerThread extends Thread {
             }
         } // while (!halted)
 
+        if (acquirer != null) {
+            // wait for the acquirer to stop, as it was halted along with us
+            joinUninterruptibly(acquirer);
+            drainAcquiredBatches();
+        }
+
+        if (timingWheel != null && partition == 0) {
+            // dispatches the shells it still holds
+            timingWheel.halt();
+            joinUninterruptibly(timingWheel);
+        }
+
         // drop references to scheduler stuff to aid garbage collection...
         qs = null;
         qsRsrcs = null;
     }
 
+    /**
+     * <p>
+     * Waits for the fire time of the given acquired triggers, fires them and
+     * hands the resulting <code>JobRunShell</code>s to the thread pool.
+     * </p>
+     */
+    private void fireAndDispatch(List<OperableTrigger> triggers) {
+        long now = System.currentTimeMillis();
+        long triggerTime = triggers.get(0).getNextFireTime().getTime();
+        long timeUntilTrigger = triggerTime - now;
+        long dispatchLead = (timingWheel == null) ? 2 : TIMING_WHEEL_LEAD;
+        while(timeUntilTrigger > dispatchLead) {
+            synchronized (sigLock) {
+                if (halted.get()) {
+                    break;
+                }
+                if (!isCandidateNewTimeEarlierWithinReason(triggerTime, false)) {
+                    try {
+                        // we could have blocked a long while
+                        // on 'synchronize', so we must recompute
+                        now = System.currentTimeMillis();
+                        timeUntilTrigger = triggerTime - now;
+                        if(timeUntilTrigger >= 1)
+                            sigLock.wait(timeUntilTrigger);
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+            }
+            if(releaseIfScheduleChangedSignificantly(triggers, triggerTime)) {
+                break;
+            }
+            now = System.currentTimeMillis();
+            timeUntilTrigger = triggerTime - now;
+        }
+
+        // this happens if releaseIfScheduleChangedSignificantly decided to release triggers
+        if(triggers.isEmpty())
+            return;
+
+        // set triggers to 'executing'
+        List<TriggerFiredResult> bndles = new ArrayList<TriggerFiredResult>();
+
+        boolean goAhead = true;
+        synchronized(sigLock) {
+            goAhead = !halted.get();
+        }
+        if(goAhead) {
+            try {
+                List<TriggerFiredResult> res = qsRsrcs.getJobStore().triggersFired(triggers);
+                if(res != null)
+                    bndles = res;
+            } catch (SchedulerException se) {
+                qs.notifySchedulerListenersError(
+                        "An error occurred while firing triggers '"
+                                + triggers + "'", se);
+                //QTZ-179 : a problem occurred interacting with the triggers from the db
+                //we release them and loop again
+                for (int i = 0; i < triggers.size(); i++) {
+                    qsRsrcs.getJobStore().releaseAcquiredTrigger(triggers.get(i));
+                }
+                return;
+            }
+
+        }
+
+        for (int i = 0; i < bndles.size(); i++) {
+            TriggerFiredResult result =  bndles.get(i);
+            TriggerFiredBundle bndle =  result.getTriggerFiredBundle();
+            Exception exception = result.getException();
+
+            if (exception instanceof RuntimeException) {
+                getLog().error("RuntimeException while firing trigger " + triggers.get(i), exception);
+                qsRsrcs.getJobStore().releaseAcquiredTrigger(triggers.get(i));
+                continue;
+            }
+
+            // it's possible to get 'null' if the triggers was paused,
+            // blocked, or other similar occurrences that prevent it being
+            // fired at this time...  or if the scheduler was shutdown (halted)
+            if (bndle == null) {
+                qsRsrcs.getJobStore().releaseAcquiredTrigger(triggers.get(i));
+                continue;
+            }
+
+            JobRunShell shell = null;
+            try {
+                shell = qsRsrcs.getJobRunShellFactory().createJobRunShell(bndle);
+                shell.initialize(qs);
+            } catch (SchedulerException se) {
+                qsRsrcs.getJobStore().triggeredJobComplete(triggers.get(i), bndle.getJobDetail(), CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR);
+                continue;
+            }
+
+            if (timingWheel != null && timingWheel.schedule(shell, triggers.get(i), bndle)) {
+                continue;
+            }
+
+            if (qsRsrcs.getThreadPool().runInThread(shell) == false) {
+                // this case should never happen, as it is indicative of the
+                // scheduler being shutdown or a bug in the thread pool or
+                // a thread pool being used concurrently - which the docs
+                // say not to do...
+                getLog().error("ThreadPool.runInThread() return false!");
+                qsRsrcs.getJobStore().triggeredJobComplete(triggers.get(i), bndle.getJobDetail(), CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR);
+            }
+
+        }
+
+        batchController.batchFired(System.currentTimeMillis() - triggerTime, qsRsrcs.getThreadPool().getPoolSize());
+    }
+
+    /**
+     * <p>
+     * Waits for the <code>TriggerAcquirer</code> to hand over a batch of
+     * triggers, returning <code>null</code> if the scheduler was paused or
+     * halted in the mean time.
+     * </p>
+     */
+    private AcquiredBatch takeAcquiredBatch() {
+        synchronized (sigLock) {
+            while (acquiredBatches.isEmpty() && !paused && !halted.get()) {
+                try {
+                    sigLock.wait(1000L);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            if (acquiredBatches.isEmpty() || paused || halted.get()) {
+                return null;
+            }
+
+            AcquiredBatch batch = acquiredBatches.removeFirst();
+            if (qsRsrcs.isPrefireAcquiredTriggers()) {
+                // fire the batches acquired ahead that are due along with this one
+                List<OperableTrigger> triggers = null;
+                long dueBy = System.currentTimeMillis() + 2;
+                while (!acquiredBatches.isEmpty()
+                        && acquiredBatches.getFirst().triggers.get(0).getNextFireTime().getTime() <= dueBy) {
+                    if (triggers == null) {
+                        triggers = new ArrayList<OperableTrigger>(batch.triggers);
+                    }
+                    triggers.addAll(acquiredBatches.removeFirst().triggers);
+                }
+                if (triggers != null) {
+                    batch = new AcquiredBatch(triggers, batch.signalCount);
+                }
+            }
+
+            // only signals given since the batch was acquired may concern it
+            if (batch.signalCount == signalCount) {
+                clearSignaledSchedulingChange();
+            } else {
+                signaled = true;
+            }
+            return batch;
+        }
+    }
+
+    private void batchDone(AcquiredBatch batch) {
+        synchronized (sigLock) {
+            pipelinedTriggerCount -= batch.size;
+            sigLock.notifyAll();
+        }
+    }
+
+    /**
+     * <p>
+     * Acquires the next batch of triggers, for as many of the given free
+     * threads as the <code>BatchAcquisitionController</code> allows.
+     * </p>
+     */
+    private List<OperableTrigger> acquireNextTriggers(long noLaterThan, int availThreadCount) throws JobPersistenceException {
+        int maxCount = Math.min(availThreadCount, batchController.getMaxBatchSize());
+        long timeWindow = batchController.getBatchTimeWindow();
+        long start = System.currentTimeMillis();
+        List<OperableTrigger> triggers;
+        if (partitionCount > 1) {
+            triggers = ((PartitionedJobStore) qsRsrcs.getJobStore()).acquireNextTriggers(
+                    noLaterThan, maxCount, timeWindow, partition, partitionCount);
+        } else {
+            triggers = qsRsrcs.getJobStore().acquireNextTriggers(noLaterThan, maxCount, timeWindow);
+        }
+        batchController.batchAcquired(maxCount, (triggers == null) ? 0 : triggers.size(),
+                System.currentTimeMillis() - start, availThreadCount, qsRsrcs.getThreadPool().getPoolSize());
+        return triggers;
+    }
+
+    /**
+     * <p>
+     * Releases the triggers of the batches acquired ahead.
+     * </p>
+     */
+    private void drainAcquiredBatches() {
+        List<AcquiredBatch> batches;
+        synchronized (sigLock) {
+            if (acquiredBatches.isEmpty()) {
+                return;
+            }
+            batches = new ArrayList<AcquiredBatch>(acquiredBatches);
+            acquiredBatches.clear();
+        }
+
+        for (AcquiredBatch batch : batches) {
+            try {
+                for (OperableTrigger trigger : batch.triggers) {
+                    qsRsrcs.getJobStore().releaseAcquiredTrigger(trigger);
+                }
+            } finally {
+                batchDone(batch);
+            }
+        }
+
+        // have the acquirer take up what was released
+        synchronized (sigLock) {
+            acquireSignaled = true;
+            sigLock.notifyAll();
+        }
+    }
+
     private boolean releaseIfScheduleChangedSignificantly(
             List<OperableTrigger> triggers, long triggerTime) {
         if (isCandidateNewTimeEarlierWithinReason(triggerTime, true)) {
@@ -432,6 +712,8 @@ public class QuartzSchedulerThread extends Thread {
                 qsRsrcs.getJobStore().releaseAcquiredTrigger(trigger);
             }
             triggers.clear();
+            // triggers acquired ahead are no earlier than these
+            drainAcquiredBatches();
             return true;
         }
         return false;
@@ -488,4 +770,147 @@ public class QuartzSchedulerThread extends Thread {
         return log;
     }
 
+    /**
+     * <p>
+     * A batch of triggers acquired ahead by the <code>TriggerAcquirer</code>.
+     * </p>
+     */
+    private static final class AcquiredBatch {
+        private final List<OperableTrigger> triggers;
+        private final int size;
+        private final long signalCount;
+
+        private AcquiredBatch(List<OperableTrigger> triggers, long signalCount) {
+            this.triggers = triggers;
+            this.size = triggers.size();
+            this.signalCount = signalCount;
+        }
+    }
+
+    /**
+     * <p>
+     * Acquires the next batches of triggers while the scheduler thread waits
+     * for, fires and dispatches the current one, so that the job store round
+     * trips of the two overlap.  The triggers held ahead are bounded by the
+     * free capacity of the thread pool, so that dispatching them never has to
+     * wait for a thread.
+     * </p>
+     */
+    private class TriggerAcquirer extends Thread {
+
+        TriggerAcquirer() {
+            super(QuartzSchedulerThread.this.getThreadGroup(), QuartzSchedulerThread.this.getName() + "_Acquirer");
+            this.setDaemon(QuartzSchedulerThread.this.isDaemon());
+            this.setPriority(QuartzSchedulerThread.this.getPriority());
+            this.setContextClassLoader(QuartzSchedulerThread.this.getContextClassLoader());
+        }
+
+        @Override
+        public void run() {
+            boolean lastAcquireFailed = false;
+
+            while (!halted.get()) {
+                try {
+                    int pending;
+                    synchronized (sigLock) {
+                        while (paused && !halted.get()) {
+                            try {
+                                sigLock.wait(1000L);
+                            } catch (InterruptedException ignore) {
+                            }
+                        }
+
+                        if (halted.get()) {
+                            break;
+                        }
+                        pending = pipelinedTriggerCount;
+                    }
+
+                    // read after the pending counts, so that a thread taken by a
+                    // dispatch in between is never counted as free
+                    int wheelPending = (timingWheel == null) ? 0 : timingWheel.getPendingCount();
+                    int room = qsRsrcs.getThreadPool().blockForAvailableThreads() - pending - wheelPending;
+                    if (room <= 0 && wheelPending > 0) {
+                        timingWheel.awaitDispatch(wheelPending);
+                        continue;
+                    }
+                    if (room <= 0) {
+                        // every free thread is spoken for - wait for the
+                        // scheduler thread to dispatch (or release) some triggers
+                        synchronized (sigLock) {
+                            if (pipelinedTriggerCount >= pending && !halted.get()) {
+                                try {
+                                    sigLock.wait(1000L);
+                                } catch (InterruptedException ignore) {
+                                }
+                            }
+                        }
+                        continue;
+                    }
+
+                    long batchSignalCount;
+                    synchronized (sigLock) {
+                        acquireSignaled = false;
+                        batchSignalCount = signalCount;
+                    }
+
+                    List<OperableTrigger> triggers = null;
+                    long now = System.currentTimeMillis();
+                    try {
+                        triggers = acquireNextTriggers(now + idleWaitTime, room);
+                        lastAcquireFailed = false;
+                        if (log.isDebugEnabled())
+                            log.debug("pipelined batch acquisition of " + (triggers == null ? 0 : triggers.size()) + " triggers");
+                    } catch (JobPersistenceException jpe) {
+                        if(!lastAcquireFailed) {
+                            qs.notifySchedulerListenersError(
+                                "An error occurred while scanning for the next triggers to fire.",
+                                jpe);
+                        }
+                        lastAcquireFailed = true;
+                        continue;
+                    } catch (RuntimeException e) {
+                        if(!lastAcquireFailed) {
+                            getLog().error("quartzSchedulerThreadLoop: RuntimeException "
+                                    +e.getMessage(), e);
+                        }
+                        lastAcquireFailed = true;
+                        continue;
+                    }
+
+                    if (triggers == null || triggers.isEmpty()) {
+                        synchronized (sigLock) {
+                            try {
+                                if (!halted.get() && !acquireSignaled) {
+                                    sigLock.wait(getRandomizedIdleWaitTime());
+                                }
+                            } catch (InterruptedException ignore) {
+                            }
+                        }
+                        continue;
+                    }
+
+                    // once halted, the scheduler thread releases what is queued
+                    boolean queued;
+                    synchronized (sigLock) {
+                        queued = !paused;
+                        if (queued) {
+                            AcquiredBatch batch = new AcquiredBatch(triggers, batchSignalCount);
+                            acquiredBatches.add(batch);
+                            pipelinedTriggerCount += batch.size;
+                            sigLock.notifyAll();
+                        }
+                    }
+                    if (!queued) {
+                        for (OperableTrigger trigger : triggers) {
+                            qsRsrcs.getJobStore().releaseAcquiredTrigger(trigger);
+                        }
+                    }
+                } catch(RuntimeException re) {
+                    getLog().error("Runtime error occurred in trigger acquisition loop.", re);
+                }
+            }
+        }
+    }
+
 } // end of QuartzSchedulerThread
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2001-2013 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A hashed timing wheel between the <code>{@link QuartzSchedulerThread}</code>
+ * and the thread pool, holding the <code>{@link JobRunShell}</code>s of
+ * triggers fired ahead of time until their exact scheduled fire time.
+ * </p>
+ *
+ * <p>
+ * The wheel has a slot per millisecond, as fire times have a millisecond
+ * resolution, so all the shells of a slot are due at the same instant.  The
+ * wheel thread sleeps until the start of the next slot (on
+ * <code>System.nanoTime()</code>, not the coarser <code>Object.wait()</code>),
+ * then hands its due shells to the thread pool.  Shells due more than a turn
+ * of the wheel ahead stay in their slot until their turn comes.  The thread
+ * only ticks while shells are pending.
+ * </p>
+ *
+ * <p>
+ * Once halted, the wheel dispatches all the shells it holds at once, and
+ * refuses new ones, so no fired trigger is left behind at shutdown.
+ * </p>
+ */
+class TimingWheelDispatcher extends Thread {
+
+    // a turn of the wheel, in milliseconds - a power of two
+    private static final int WHEEL_SIZE = 1024;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    // the step in which the clocks are read while synchronizing them
+    private static final long SYNC_PARK_NANOS = 50000L;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final QuartzSchedulerResources qsRsrcs;
+
+    private final Object lock = new Object();
+
+    // guarded by lock
+    private final List<List<Entry>> slots;
+    private long processedTick;
+    private int pendingCount;
+    private boolean halted;
+
+    // a reading of both clocks at the turn of a millisecond, to tell the
+    // nanoTime of a fire time - taken again by the wheel thread when it 
+    // resumes from idle and finds that they drifted apart
+    private long baseNanos;
+    private long baseMillis;
+
+    TimingWheelDispatcher(Thread schedThread, QuartzSchedulerResources qsRsrcs) {
+        super(schedThread.getThreadGroup(), schedThread.getName() + "_TimingWheel");
+        this.qsRsrcs = qsRsrcs;
+        setDaemon(schedThread.isDaemon());
+        setContextClassLoader(schedThread.getContextClassLoader());
+        setPriority(Thread.MAX_PRIORITY);
+
+        slots = new ArrayList<List<Entry>>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            slots.add(new ArrayList<Entry>());
+        }
+        processedTick = System.currentTimeMillis() - 1;
+    }
+
+    /**
+     * <p>
+     * Holds the given shell until the scheduled fire time of its bundle.
+     * </p>
+     *
+     * @return <code>false</code> if it is due already, or the wheel was
+     *         halted: the caller must dispatch it itself.
+     */
+    boolean schedule(JobRunShell shell, OperableTrigger trigger, TriggerFiredBundle bndle) {
+        if (bndle.getScheduledFireTime() == null) {
+            return false;
+        }
+        long dueTick = bndle.getScheduledFireTime().getTime();
+        synchronized (lock) {
+            if (halted) {
+                return false;
+            }
+            if (pendingCount == 0) {
+                // the wheel thread was idle - catch up with the clock
+                processedTick = Math.max(processedTick, System.currentTimeMillis() - 1);
+            }
+            if (dueTick <= processedTick) {
+                return false;
+            }
+            slots.get((int) (dueTick & (WHEEL_SIZE - 1))).add(new Entry(shell, trigger, bndle, dueTick));
+            if (pendingCount++ == 0) {
+                lock.notifyAll();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return the number of shells held, each soon to take a thread of the
+     *         pool.
+     */
+    int getPendingCount() {
+        synchronized (lock) {
+            return pendingCount;
+        }
+    }
+
+    /**
+     * <p>
+     * Waits (up to a second) for fewer than the given number of shells to be
+     * held.
+     * </p>
+     */
+    void awaitDispatch(int pending) {
+        synchronized (lock) {
+            if (pendingCount >= pending && !halted) {
+                try {
+                    lock.wait(1000L);
+                } catch (InterruptedException ignore) {
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Dispatches the shells held at once, and makes the wheel thread exit.
+     * </p>
+     */
+    void halt() {
+        synchronized (lock) {
+            halted = true;
+            lock.notifyAll();
+        }
+        LockSupport.unpark(this);
+    }
+
+    @Override
+    public void run() {
+        boolean idle = true;
+        while (true) {
+            long tick;
+            synchronized (lock) {
+                while (pendingCount == 0 && !halted) {
+                    idle = true;
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+                if (halted) {
+                    break;
+                }
+                tick = processedTick + 1;
+            }
+            if (idle) {
+                if (baseMillis == 0L || clocksDrifted()) {
+                    synchronizeClocks();
+                }
+                idle = false;
+            }
+
+            parkUntil(baseNanos + (tick - baseMillis) * NANOS_PER_MILLI);
+
+            List<Entry> due = new ArrayList<Entry>();
+            synchronized (lock) {
+                if (halted) {
+                    break;
+                }
+                for (Iterator<Entry> it = slots.get((int) (tick & (WHEEL_SIZE - 1))).iterator(); it.hasNext();) {
+                    Entry entry = it.next();
+                    // the slot also holds the shells of later turns
+                    if (entry.dueTick == tick) {
+                        due.add(entry);
+                        it.remove();
+                    }
+                }
+                processedTick = tick;
+                pendingCount -= due.size();
+                if (!due.isEmpty()) {
+                    lock.notifyAll();
+                }
+            }
+            for (Entry entry : due) {
+                dispatch(entry);
+            }
+        }
+
+        List<Entry> remaining = new ArrayList<Entry>();
+        synchronized (lock) {
+            for (List<Entry> slot : slots) {
+                remaining.addAll(slot);
+                slot.clear();
+            }
+            pendingCount = 0;
+            lock.notifyAll();
+        }
+        for (Entry entry : remaining) {
+            dispatch(entry);
+        }
+    }
+
+    private void dispatch(Entry entry) {
+        try {
+            if (qsRsrcs.getThreadPool().runInThread(entry.shell) == false) {
+                // as for the shells dispatched by the scheduler thread itself
+                log.error("ThreadPool.runInThread() return false!");
+                qsRsrcs.getJobStore().triggeredJobComplete(entry.trigger, entry.bndle.getJobDetail(),
+                        CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR);
+            }
+        } catch (RuntimeException e) {
+            log.error("Runtime error occurred dispatching trigger " + entry.trigger.getKey(), e);
+        }
+    }
+
+    private void parkUntil(long deadlineNanos) {
+        while (true) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            synchronized (lock) {
+                if (halted) {
+                    return;
+                }
+            }
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * @return whether the wall clock has moved away from the nanoTime since
+     *         they were last read together, by more than the millisecond 
+     *         that telling a fire time's nanoTime allows for.
+     */
+    private boolean clocksDrifted() {
+        long expectedMillis = baseMillis + (System.nanoTime() - baseNanos) / NANOS_PER_MILLI;
+        return Math.abs(System.currentTimeMillis() - expectedMillis) > 1L;
+    }
+
+    private void synchronizeClocks() {
+        // park in short steps until the turn of the millisecond, rather than
+        // spin through it at the thread's priority
+        long millis = System.currentTimeMillis();
+        long now;
+        while ((now = System.currentTimeMillis()) == millis) {
+            LockSupport.parkNanos(SYNC_PARK_NANOS);
+        }
+        baseNanos = System.nanoTime();
+        baseMillis = now;
+    }
+
+    private static final class Entry {
+        final JobRunShell shell;
+        final OperableTrigger trigger;
+        final TriggerFiredBundle bndle;
+        final long dueTick;
+
+        Entry(JobRunShell shell, OperableTrigger trigger, TriggerFiredBundle bndle, long dueTick) {
+            this.shell = shell;
+            this.trigger = trigger;
+            this.bndle = bndle;
+            this.dueTick = dueTick;
+        }
+    }
+}
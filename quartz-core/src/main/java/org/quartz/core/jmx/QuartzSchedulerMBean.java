@@ -52,6 +52,35 @@ public interface QuartzSchedulerMBean {
 
     int getThreadPoolSize();
 
+    /**
+     * @return whether the batch trigger acquisition is adapted to the load.
+     */
+    boolean isBatchTriggerAcquisitionAdaptive();
+
+    /**
+     * @return the current maximum number of triggers acquired in a batch.
+     */
+    int getBatchTriggerAcquisitionMaxCount();
+
+    /**
+     * @return the current fire-ahead time window of batch trigger
+     *         acquisition, in milliseconds.
+     */
+    long getBatchTriggerAcquisitionFireAheadTimeWindow();
+
+    /**
+     * @return the last change made to the batch size and time window by
+     *         adaptive batch trigger acquisition, and why.
+     */
+    String getBatchTriggerAcquisitionLastDecision();
+
+    /**
+     * @return the recent fire lateness and acquisition latency (ms), thread
+     *         pool occupancy (%) the adaptive batch trigger acquisition goes
+     *         by, and the number of increases and decreases it made.
+     */
+    Map<String, Long> getBatchTriggerAcquisitionMetrics();
+
     long getJobsScheduledMostRecentSample();
 
     long getJobsExecutedMostRecentSample();
@@ -127,6 +127,18 @@ public class StdSchedulerFactory implements SchedulerFactory {
 
     public static final String PROP_SCHED_MAX_BATCH_SIZE = "org.quartz.scheduler.batchTriggerAcquisitionMaxCount";
 
+    public static final String PROP_SCHED_PIPELINED_TRIGGER_ACQUISITION = "org.quartz.scheduler.pipelinedTriggerAcquisition";
+
+    public static final String PROP_SCHED_PREFIRE_ACQUIRED_TRIGGERS = "org.quartz.scheduler.pipelinedTriggerAcquisitionPrefire";
+
+    public static final String PROP_SCHED_SCHEDULER_THREAD_COUNT = "org.quartz.scheduler.schedulerThreadCount";
+
+    public static final String PROP_SCHED_ADAPTIVE_BATCH = "org.quartz.scheduler.batchTriggerAcquisitionAdaptive";
+
+    public static final String PROP_SCHED_ADAPTIVE_MAX_BATCH_TIME_WINDOW = "org.quartz.scheduler.batchTriggerAcquisitionAdaptiveMaxFireAheadTimeWindow";
+
+    public static final String PROP_SCHED_TIMING_WHEEL_DISPATCH = "org.quartz.scheduler.timingWheelDispatch";
+
     public static final String PROP_SCHED_JMX_EXPORT = "org.quartz.scheduler.jmx.export";
 
     public static final String PROP_SCHED_JMX_OBJECT_NAME = "org.quartz.scheduler.jmx.objectName";
@@ -662,6 +674,12 @@ public class StdSchedulerFactory implements SchedulerFactory {
         boolean skipUpdateCheck = cfg.getBooleanProperty(PROP_SCHED_SKIP_UPDATE_CHECK, false);
         long batchTimeWindow = cfg.getLongProperty(PROP_SCHED_BATCH_TIME_WINDOW, 0L);
         int maxBatchSize = cfg.getIntProperty(PROP_SCHED_MAX_BATCH_SIZE, 1);
+        boolean pipelinedTriggerAcquisition = cfg.getBooleanProperty(PROP_SCHED_PIPELINED_TRIGGER_ACQUISITION, false);
+        boolean prefireAcquiredTriggers = cfg.getBooleanProperty(PROP_SCHED_PREFIRE_ACQUIRED_TRIGGERS, false);
+        int schedulerThreadCount = cfg.getIntProperty(PROP_SCHED_SCHEDULER_THREAD_COUNT, 1);
+        boolean adaptiveBatchAcquisition = cfg.getBooleanProperty(PROP_SCHED_ADAPTIVE_BATCH, false);
+        long adaptiveMaxBatchTimeWindow = cfg.getLongProperty(PROP_SCHED_ADAPTIVE_MAX_BATCH_TIME_WINDOW, 1000L);
+        boolean timingWheelDispatch = cfg.getBooleanProperty(PROP_SCHED_TIMING_WHEEL_DISPATCH, false);
 
         boolean interruptJobsOnShutdown = cfg.getBooleanProperty(PROP_SCHED_INTERRUPT_JOBS_ON_SHUTDOWN, false);
         boolean interruptJobsOnShutdownWithWait = cfg.getBooleanProperty(PROP_SCHED_INTERRUPT_JOBS_ON_SHUTDOWN_WITH_WAIT, false);
@@ -1243,6 +1261,12 @@ public class StdSchedulerFactory implements SchedulerFactory {
             rsrcs.setRunUpdateCheck(!skipUpdateCheck);
             rsrcs.setBatchTimeWindow(batchTimeWindow);
             rsrcs.setMaxBatchSize(maxBatchSize);
+            rsrcs.setPipelinedTriggerAcquisition(pipelinedTriggerAcquisition);
+            rsrcs.setPrefireAcquiredTriggers(prefireAcquiredTriggers);
+            rsrcs.setSchedulerThreadCount(schedulerThreadCount);
+            rsrcs.setAdaptiveBatchAcquisition(adaptiveBatchAcquisition);
+            rsrcs.setAdaptiveMaxBatchTimeWindow(adaptiveMaxBatchTimeWindow);
+            rsrcs.setTimingWheelDispatch(timingWheelDispatch);
             rsrcs.setInterruptJobsOnShutdown(interruptJobsOnShutdown);
             rsrcs.setInterruptJobsOnShutdownWithWait(interruptJobsOnShutdownWithWait);
             rsrcs.setJMXExport(jmxExport);
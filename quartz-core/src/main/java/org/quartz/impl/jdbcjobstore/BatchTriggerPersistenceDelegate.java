@@ -0,0 +1,62 @@
+package org.quartz.impl.jdbcjobstore;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.quartz.JobDetail;
+import org.quartz.TriggerKey;
+import org.quartz.spi.OperableTrigger;
+
+/**
+ * An optional extension of <code>{@link TriggerPersistenceDelegate}</code>
+ * for delegates that can load the extended properties of several triggers
+ * in a single round-trip, and insert or update them as a JDBC batch.
+ * <code>StdJDBCDelegate</code> uses it for batches of triggers, and falls
+ * back to handling one trigger at a time for delegates that do not
+ * implement it.
+ *
+ * @see StdJDBCDelegate#selectTriggers(Connection, List)
+ * @see StdJDBCDelegate#insertTriggers(Connection, List, List, List)
+ * @see StdJDBCDelegate#updateTriggers(Connection, List, List, List)
+ * @see StdJDBCDelegate#deleteTriggers(Connection, List)
+ */
+public interface BatchTriggerPersistenceDelegate extends TriggerPersistenceDelegate {
+
+    /**
+     * Load the extended properties of the given triggers.  The list is
+     * never empty, and is short enough to be selected in one statement.
+     *
+     * @return the properties of each trigger that has an extended
+     *         properties record; triggers without one are absent from the
+     *         map.
+     */
+    public Map<TriggerKey, TriggerPropertyBundle> loadExtendedTriggerProperties(Connection conn, List<TriggerKey> triggerKeys) throws SQLException;
+
+    /**
+     * Insert the extended properties of the given triggers, as a single
+     * JDBC batch.  The lists are parallel, and never empty.
+     *
+     * @return the number of rows inserted for each trigger, in order.
+     */
+    public int[] insertExtendedTriggerProperties(Connection conn, List<OperableTrigger> triggers, List<String> states, List<JobDetail> jobDetails) throws SQLException, IOException;
+
+    /**
+     * Update the extended properties of the given triggers, as a single
+     * JDBC batch.  The lists are parallel, and never empty.
+     *
+     * @return the number of rows updated for each trigger, in order.
+     */
+    public int[] updateExtendedTriggerProperties(Connection conn, List<OperableTrigger> triggers, List<String> states, List<JobDetail> jobDetails) throws SQLException, IOException;
+
+    /**
+     * Delete the extended properties of the given triggers, as a single
+     * JDBC batch.  The list is never empty, and may hold triggers of other
+     * types, which have no record to delete.
+     *
+     * @return the number of rows deleted for each trigger, in order.
+     */
+    public int[] deleteExtendedTriggerProperties(Connection conn, List<TriggerKey> triggerKeys) throws SQLException;
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.impl.jdbcjobstore;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.quartz.Calendar;
+import org.quartz.JobDataMap;
+import org.quartz.impl.calendar.AnnualCalendar;
+import org.quartz.impl.calendar.BaseCalendar;
+import org.quartz.impl.calendar.CronCalendar;
+import org.quartz.impl.calendar.HolidayCalendar;
+import org.quartz.impl.calendar.MonthlyCalendar;
+import org.quartz.impl.calendar.WeeklyCalendar;
+
+/**
+ * <p>
+ * A compact binary <code>{@link JobDataSerializer}</code>, which writes no
+ * class descriptors, only a tag per value.
+ * </p>
+ *
+ * <p>
+ * It represents <code>JobDataMap</code>s whose values are <code>null</code>,
+ * <code>String</code>s, boxed primitives or <code>Date</code>s, and the
+ * built-in calendars other than <code>DailyCalendar</code> (exactly those
+ * classes, not subclasses) whose base calendars it can also represent, and
+ * whose time zones are known by their ids.  Anything else is left to Java
+ * serialization.
+ * </p>
+ *
+ * @see JobDataSerializer
+ */
+public class CompactJobDataSerializer implements JobDataSerializer {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private static final byte[] HEADER = { 'Q', 'Z', 'C', 1 };
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_BOOLEAN = 2;
+    private static final byte TAG_INTEGER = 3;
+    private static final byte TAG_LONG = 4;
+    private static final byte TAG_DOUBLE = 5;
+    private static final byte TAG_FLOAT = 6;
+    private static final byte TAG_SHORT = 7;
+    private static final byte TAG_BYTE = 8;
+    private static final byte TAG_CHARACTER = 9;
+    private static final byte TAG_DATE = 10;
+
+    private static final byte TAG_JOB_DATA_MAP = 20;
+
+    private static final byte TAG_BASE_CALENDAR = 30;
+    private static final byte TAG_HOLIDAY_CALENDAR = 31;
+    private static final byte TAG_WEEKLY_CALENDAR = 32;
+    private static final byte TAG_MONTHLY_CALENDAR = 33;
+    private static final byte TAG_ANNUAL_CALENDAR = 34;
+    private static final byte TAG_CRON_CALENDAR = 35;
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public boolean canSerialize(Object obj) {
+        if (obj == null) {
+            return false;
+        }
+        if (obj.getClass() == JobDataMap.class) {
+            for (Map.Entry<String, Object> entry : ((JobDataMap) obj).entrySet()) {
+                if (entry.getKey() == null || !isValue(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return isCalendar(obj);
+    }
+
+    public void serialize(Object obj, OutputStream out) throws IOException {
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.write(HEADER);
+        if (obj instanceof JobDataMap) {
+            JobDataMap map = (JobDataMap) obj;
+            dos.writeByte(TAG_JOB_DATA_MAP);
+            dos.writeInt(map.size());
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                writeString(dos, entry.getKey());
+                writeValue(dos, entry.getValue());
+            }
+        } else {
+            writeCalendar(dos, (Calendar) obj);
+        }
+        dos.flush();
+    }
+
+    public boolean isSerializedForm(byte[] header) {
+        if (header.length < HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (header[i] != HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Object deserialize(InputStream in) throws IOException, ClassNotFoundException {
+        DataInputStream dis = new DataInputStream(in);
+        byte[] header = new byte[HEADER.length];
+        dis.readFully(header);
+        if (!isSerializedForm(header)) {
+            throw new StreamCorruptedException("Not a compact job data stream.");
+        }
+
+        byte tag = dis.readByte();
+        if (tag == TAG_JOB_DATA_MAP) {
+            int size = dis.readInt();
+            JobDataMap map = new JobDataMap();
+            for (int i = 0; i < size; i++) {
+                String key = readString(dis);
+                map.put(key, readValue(dis));
+            }
+            map.clearDirtyFlag();
+            return map;
+        }
+        return readCalendar(dis, tag);
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Values.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private static boolean isValue(Object value) {
+        if (value == null) {
+            return true;
+        }
+        Class<?> c = value.getClass();
+        return c == String.class || c == Boolean.class || c == Integer.class
+            || c == Long.class || c == Double.class || c == Float.class
+            || c == Short.class || c == Byte.class || c == Character.class
+            || c == Date.class;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TAG_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TAG_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(TAG_CHARACTER);
+            out.writeChar((Character) value);
+        } else if (value instanceof Date) {
+            out.writeByte(TAG_DATE);
+            out.writeLong(((Date) value).getTime());
+        } else {
+            throw new IOException("Cannot write a " + value.getClass().getName() + " in the compact format.");
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL: return null;
+            case TAG_STRING: return readString(in);
+            case TAG_BOOLEAN: return in.readBoolean();
+            case TAG_INTEGER: return in.readInt();
+            case TAG_LONG: return in.readLong();
+            case TAG_DOUBLE: return in.readDouble();
+            case TAG_FLOAT: return in.readFloat();
+            case TAG_SHORT: return in.readShort();
+            case TAG_BYTE: return in.readByte();
+            case TAG_CHARACTER: return in.readChar();
+            case TAG_DATE: return new Date(in.readLong());
+            default: throw new StreamCorruptedException("Unknown value tag: " + tag);
+        }
+    }
+
+    /**
+     * Unlike <code>writeUTF</code>, not limited to 64K bytes.
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private static void writeNullableString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            writeString(out, s);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Calendars.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private static boolean isCalendar(Object obj) {
+        Class<?> c = obj.getClass();
+        if (c != BaseCalendar.class && c != HolidayCalendar.class && c != WeeklyCalendar.class
+                && c != MonthlyCalendar.class && c != AnnualCalendar.class && c != CronCalendar.class) {
+            return false;
+        }
+        BaseCalendar calendar = (BaseCalendar) obj;
+        if (calendar.getBaseCalendar() != null && !isCalendar(calendar.getBaseCalendar())) {
+            return false;
+        }
+        if (!isKnownTimeZone(calendar.getTimeZone())) {
+            return false;
+        }
+        if (obj instanceof AnnualCalendar) {
+            for (java.util.Calendar day : ((AnnualCalendar) obj).getDaysExcluded()) {
+                if (day.getClass() != GregorianCalendar.class || !isKnownTimeZone(day.getTimeZone())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isKnownTimeZone(TimeZone timeZone) {
+        return timeZone == null || TimeZone.getTimeZone(timeZone.getID()).equals(timeZone);
+    }
+
+    private static void writeCalendar(DataOutputStream out, Calendar calendar) throws IOException {
+        if (calendar instanceof HolidayCalendar) {
+            out.writeByte(TAG_HOLIDAY_CALENDAR);
+            writeBaseCalendar(out, (BaseCalendar) calendar);
+            HolidayCalendar holidays = (HolidayCalendar) calendar;
+            out.writeInt(holidays.getExcludedDates().size());
+            for (Date date : holidays.getExcludedDates()) {
+                out.writeLong(date.getTime());
+            }
+        } else if (calendar instanceof WeeklyCalendar) {
+            out.writeByte(TAG_WEEKLY_CALENDAR);
+            writeBaseCalendar(out, (BaseCalendar) calendar);
+            writeBooleans(out, ((WeeklyCalendar) calendar).getDaysExcluded());
+        } else if (calendar instanceof MonthlyCalendar) {
+            out.writeByte(TAG_MONTHLY_CALENDAR);
+            writeBaseCalendar(out, (BaseCalendar) calendar);
+            writeBooleans(out, ((MonthlyCalendar) calendar).getDaysExcluded());
+        } else if (calendar instanceof AnnualCalendar) {
+            out.writeByte(TAG_ANNUAL_CALENDAR);
+            writeBaseCalendar(out, (BaseCalendar) calendar);
+            ArrayList<java.util.Calendar> days = ((AnnualCalendar) calendar).getDaysExcluded();
+            out.writeInt(days.size());
+            for (java.util.Calendar day : days) {
+                out.writeLong(day.getTimeInMillis());
+                writeString(out, day.getTimeZone().getID());
+            }
+        } else if (calendar instanceof CronCalendar) {
+            out.writeByte(TAG_CRON_CALENDAR);
+            writeString(out, ((CronCalendar) calendar).getCronExpression().getCronExpression());
+            writeBaseCalendar(out, (BaseCalendar) calendar);
+        } else {
+            out.writeByte(TAG_BASE_CALENDAR);
+            writeBaseCalendar(out, (BaseCalendar) calendar);
+        }
+    }
+
+    private static Calendar readCalendar(DataInputStream in, byte tag) throws IOException {
+        switch (tag) {
+            case TAG_HOLIDAY_CALENDAR: {
+                HolidayCalendar holidays = readBaseCalendar(in, new HolidayCalendar());
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    holidays.addExcludedDate(new Date(in.readLong()));
+                }
+                return holidays;
+            }
+            case TAG_WEEKLY_CALENDAR: {
+                WeeklyCalendar weekly = readBaseCalendar(in, new WeeklyCalendar());
+                weekly.setDaysExcluded(readBooleans(in));
+                return weekly;
+            }
+            case TAG_MONTHLY_CALENDAR: {
+                MonthlyCalendar monthly = readBaseCalendar(in, new MonthlyCalendar());
+                monthly.setDaysExcluded(readBooleans(in));
+                return monthly;
+            }
+            case TAG_ANNUAL_CALENDAR: {
+                AnnualCalendar annual = readBaseCalendar(in, new AnnualCalendar());
+                int count = in.readInt();
+                ArrayList<java.util.Calendar> days = new ArrayList<java.util.Calendar>(count);
+                for (int i = 0; i < count; i++) {
+                    long millis = in.readLong();
+                    java.util.Calendar day = new GregorianCalendar(TimeZone.getTimeZone(readString(in)));
+                    day.setTimeInMillis(millis);
+                    days.add(day);
+                }
+                annual.setDaysExcluded(days);
+                return annual;
+            }
+            case TAG_CRON_CALENDAR: {
+                String expression = readString(in);
+                try {
+                    return readBaseCalendar(in, new CronCalendar(expression));
+                } catch (ParseException e) {
+                    throw new StreamCorruptedException("Invalid cron expression: " + expression);
+                }
+            }
+            case TAG_BASE_CALENDAR:
+                return readBaseCalendar(in, new BaseCalendar());
+            default:
+                throw new StreamCorruptedException("Unknown calendar tag: " + tag);
+        }
+    }
+
+    private static void writeBaseCalendar(DataOutputStream out, BaseCalendar calendar) throws IOException {
+        Calendar base = calendar.getBaseCalendar();
+        out.writeBoolean(base != null);
+        if (base != null) {
+            writeCalendar(out, base);
+        }
+        writeNullableString(out, calendar.getDescription());
+        TimeZone timeZone = calendar.getTimeZone();
+        writeNullableString(out, (timeZone == null) ? null : timeZone.getID());
+    }
+
+    private static <T extends BaseCalendar> T readBaseCalendar(DataInputStream in, T calendar) throws IOException {
+        if (in.readBoolean()) {
+            calendar.setBaseCalendar(readCalendar(in, in.readByte()));
+        }
+        calendar.setDescription(readNullableString(in));
+        String timeZoneId = readNullableString(in);
+        if (timeZoneId != null) {
+            calendar.setTimeZone(TimeZone.getTimeZone(timeZoneId));
+        }
+        return calendar;
+    }
+
+    private static void writeBooleans(DataOutputStream out, boolean[] values) throws IOException {
+        out.writeInt(values.length);
+        for (boolean value : values) {
+            out.writeBoolean(value);
+        }
+    }
+
+    private static boolean[] readBooleans(DataInputStream in) throws IOException {
+        boolean[] values = new boolean[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readBoolean();
+        }
+        return values;
+    }
+}
@@ -58,6 +58,8 @@ public interface Constants {
 
     String TABLE_SCHEDULER_STATE = "SCHEDULER_STATE";
 
+    String TABLE_CHANGE_COUNTERS = "CHANGE_COUNTERS";
+
     // TABLE_JOB_DETAILS columns names
     
     String COL_SCHEDULER_NAME = "SCHED_NAME";
@@ -103,6 +105,8 @@ public interface Constants {
 
     String COL_MISFIRE_INSTRUCTION = "MISFIRE_INSTR";
 
+    String COL_KEY_HASH = "KEY_HASH";
+
     String ALIAS_COL_NEXT_FIRE_TIME = "ALIAS_NXT_FR_TM";
 
     // TABLE_SIMPLE_TRIGGERS columns names
@@ -144,6 +148,11 @@ public interface Constants {
 
     String COL_CHECKIN_INTERVAL = "CHECKIN_INTERVAL";
 
+    // TABLE_CHANGE_COUNTERS columns names
+    String COL_COUNTER_NAME = "COUNTER_NAME";
+
+    String COL_COUNTER_VALUE = "COUNTER_VALUE";
+
     // MISC CONSTANTS
     String DEFAULT_TABLE_PREFIX = "QRTZ_";
 
@@ -175,6 +184,13 @@ public interface Constants {
 
     String ALL_GROUPS_PAUSED = "_$_ALL_GROUPS_PAUSED_$_";
 
+    // CHANGE COUNTERS, kept as TABLE_CHANGE_COUNTERS rows
+    String COUNTER_JOB_DETAILS = "JOB_DETAILS_VERSION";
+
+    String COUNTER_CALENDARS = "CALENDARS_VERSION";
+
+    String COUNTER_SCHEDULE = "SCHEDULE_VERSION";
+
     // TRIGGER TYPES
     /** Simple Trigger type. */
     String TTYPE_SIMPLE = "SIMPLE";
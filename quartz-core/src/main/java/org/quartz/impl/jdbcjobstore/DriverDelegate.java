@@ -20,7 +20,9 @@ package org.quartz.impl.jdbcjobstore;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.quartz.Calendar;
@@ -142,6 +144,20 @@ public interface DriverDelegate {
      */
     boolean hasMisfiredTriggersInState(Connection conn, String state1, 
         long ts, int count, List<TriggerKey> resultList) throws SQLException;
+
+    /**
+     * <p>
+     * Get the names of the triggers in the given state that have misfired,
+     * as <code>{@link #hasMisfiredTriggersInState}</code> does, among those
+     * whose key hash is in the given range.
+     * </p>
+     * 
+     * @param minKeyHash the lowest key hash of the triggers
+     * @param maxKeyHash the highest key hash of the triggers (inclusive)
+     * @see TriggerPartitions#keyHashOf(TriggerKey)
+     */
+    boolean hasMisfiredTriggersInStateInKeyHashRange(Connection conn, String state1, 
+        long ts, int count, int minKeyHash, int maxKeyHash, List<TriggerKey> resultList) throws SQLException;
     
     /**
      * <p>
@@ -236,6 +252,22 @@ public interface DriverDelegate {
     int insertJobDetail(Connection conn, JobDetail job)
         throws IOException, SQLException;
 
+    /**
+     * <p>
+     * Insert the job detail records of the given jobs, as a JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param jobs
+     *          the jobs to insert
+     * @return the number of rows inserted for each job, in order
+     * @throws IOException
+     *           if there were problems serializing a JobDataMap
+     */
+    int[] insertJobDetails(Connection conn, List<JobDetail> jobs)
+        throws IOException, SQLException;
+
     /**
      * <p>
      * Update the job detail record.
@@ -265,6 +297,18 @@ public interface DriverDelegate {
      */
     List<TriggerKey> selectTriggerKeysForJob(Connection conn, JobKey jobKey) throws SQLException;
 
+    /**
+     * <p>
+     * Get the names of all of the triggers associated with the given jobs.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * 
+     * @return the keys of the jobs' triggers
+     */
+    List<TriggerKey> selectTriggerKeysForJobs(Connection conn, Collection<JobKey> jobKeys) throws SQLException;
+
     /**
      * <p>
      * Delete the job detail record for the given job.
@@ -278,6 +322,33 @@ public interface DriverDelegate {
     int deleteJobDetail(Connection conn, JobKey jobKey)
         throws SQLException;
 
+    /**
+     * <p>
+     * Delete the job detail records for the given jobs, as a JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * 
+     * @return the number of rows deleted for each job, in order
+     */
+    int[] deleteJobDetails(Connection conn, List<JobKey> jobKeys)
+        throws SQLException;
+
+    /**
+     * <p>
+     * Delete those of the given jobs that are not durable and no longer
+     * have any triggers, as a JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * 
+     * @return the number of rows deleted for each job, in iteration order
+     */
+    int[] deleteOrphanedJobDetails(Connection conn, Collection<JobKey> jobKeys)
+        throws SQLException;
+
     /**
      * <p>
      * Check whether or not the given job disallows concurrent execution.
@@ -290,6 +361,19 @@ public interface DriverDelegate {
      */
     boolean isJobNonConcurrent(Connection conn, JobKey jobKey) throws SQLException;
 
+    /**
+     * <p>
+     * Select those of the given jobs that disallow concurrent execution, in
+     * as few statements as possible.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * 
+     * @return the keys of the jobs that exist and disallow concurrent execution
+     */
+    Set<JobKey> selectNonConcurrentJobs(Connection conn, Collection<JobKey> jobKeys) throws SQLException;
+
     /**
      * <p>
      * Check whether or not the given job exists.
@@ -303,6 +387,18 @@ public interface DriverDelegate {
     boolean jobExists(Connection conn, JobKey jobKey)
         throws SQLException;
 
+    /**
+     * <p>
+     * Select those of the given jobs that exist.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the keys of the jobs that exist
+     */
+    Set<JobKey> selectExistingJobs(Connection conn, Collection<JobKey> jobKeys)
+        throws SQLException;
+
     /**
      * <p>
      * Update the job data map for the given job.
@@ -410,6 +506,44 @@ public interface DriverDelegate {
     int updateTrigger(Connection conn, OperableTrigger trigger, String state,
         JobDetail jobDetail) throws SQLException, IOException;
 
+    /**
+     * <p>
+     * Insert the given triggers, and their extended properties, using JDBC
+     * batches where possible.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers to insert
+     * @param states
+     *          the state to store each trigger in
+     * @param jobDetails
+     *          the job of each trigger
+     * @return the number of trigger rows inserted for each trigger, in order
+     */
+    int[] insertTriggers(Connection conn, List<OperableTrigger> triggers, List<String> states,
+        List<JobDetail> jobDetails) throws SQLException, IOException;
+
+    /**
+     * <p>
+     * Update the given triggers, and their extended properties, using JDBC
+     * batches where possible.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers to update
+     * @param states
+     *          the state to store each trigger in
+     * @param jobDetails
+     *          the job of each trigger
+     * @return the number of trigger rows updated for each trigger, in order
+     */
+    int[] updateTriggers(Connection conn, List<OperableTrigger> triggers, List<String> states,
+        List<JobDetail> jobDetails) throws SQLException, IOException;
+
     /**
      * <p>
      * Check whether or not a trigger exists.
@@ -456,6 +590,28 @@ public interface DriverDelegate {
     int updateTriggerStateFromOtherState(Connection conn,
         TriggerKey triggerKey, String newState, String oldState) throws SQLException;
 
+    /**
+     * <p>
+     * Update each of the given triggers to the given new state, if it is in
+     * the given old state, as a single JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB connection
+     * 
+     * @param newState
+     *          the new state for the triggers
+     * @param oldState
+     *          the old state the triggers must be in
+     * @return the number of rows updated for each trigger, in order; 
+     *         <code>Statement.SUCCESS_NO_INFO</code> where the driver does
+     *         not report it
+     * @throws SQLException
+     */
+    int[] updateTriggerStatesFromOtherState(Connection conn,
+        List<TriggerKey> triggerKeys, String newState, String oldState)
+        throws SQLException;
+
     /**
      * <p>
      * Update the given trigger to the given new state, if it is one of the
@@ -561,6 +717,43 @@ public interface DriverDelegate {
         JobKey jobKey, String state, String oldState)
         throws SQLException;
 
+    /**
+     * <p>
+     * Update the states of the triggers of each of the given jobs that are
+     * in the given old state, as a single JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param state
+     *          the new state for the triggers
+     * @param oldState
+     *          the state the triggers must be in
+     * @return the number of rows updated for each job, in iteration order
+     */
+    int[] updateTriggerStatesForJobsFromOtherState(Connection conn,
+        Collection<JobKey> jobKeys, String state, String oldState)
+        throws SQLException;
+
+    /**
+     * <p>
+     * Update the triggers of all of the jobs matching the given
+     * groupMatcher to the given new state, if they are in one of the given
+     * old states.
+     * </p>
+     * 
+     * @param conn
+     *          the DB connection
+     * @param matcher
+     *          the groupMatcher to evaluate the jobs against
+     * @param newState
+     *          the new state for the triggers
+     * @return int the number of rows updated
+     */
+    int updateTriggerStatesForJobGroupFromOtherStates(Connection conn,
+        GroupMatcher<JobKey> matcher, String newState, String oldState1,
+        String oldState2, String oldState3) throws SQLException;
+
     /**
      * <p>
      * Delete the base trigger data for a trigger.
@@ -573,6 +766,19 @@ public interface DriverDelegate {
      */
     int deleteTrigger(Connection conn, TriggerKey triggerKey) throws SQLException;
 
+    /**
+     * <p>
+     * Delete the given triggers, and their extended properties, as JDBC
+     * batches.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * 
+     * @return the number of rows deleted for each trigger, in order
+     */
+    int[] deleteTriggers(Connection conn, List<TriggerKey> triggerKeys) throws SQLException;
+
     /**
      * <p>
      * Select the number of triggers associated with a given job.
@@ -654,6 +860,22 @@ public interface DriverDelegate {
     OperableTrigger selectTrigger(Connection conn, TriggerKey triggerKey) throws SQLException, ClassNotFoundException,
         IOException, JobPersistenceException;
 
+    /**
+     * <p>
+     * Select the given triggers, in as few statements as possible: one for
+     * the trigger records of the whole list, plus one per trigger type for
+     * the types' extended properties.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * 
+     * @return the triggers that exist, by key
+     * @throws JobPersistenceException 
+     */
+    Map<TriggerKey, OperableTrigger> selectTriggers(Connection conn, List<TriggerKey> triggerKeys) throws SQLException, ClassNotFoundException,
+        IOException, JobPersistenceException;
+
     /**
      * <p>
      * Select a trigger's JobDataMap.
@@ -684,6 +906,19 @@ public interface DriverDelegate {
      */
     String selectTriggerState(Connection conn, TriggerKey triggerKey) throws SQLException;
 
+    /**
+     * <p>
+     * Select the states of the given triggers, in as few statements as
+     * possible.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the state of each trigger that exists, by key
+     */
+    Map<TriggerKey, String> selectTriggerStates(Connection conn, List<TriggerKey> triggerKeys)
+        throws SQLException;
+
     /**
      * <p>
      * Select a trigger' status (state & next fire time).
@@ -697,6 +932,47 @@ public interface DriverDelegate {
     TriggerStatus selectTriggerStatus(Connection conn,
         TriggerKey triggerKey) throws SQLException;
 
+    /**
+     * <p>
+     * Select the statuses of the given triggers.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * 
+     * @return the status of each of the triggers that exists
+     */
+    Map<TriggerKey, TriggerStatus> selectTriggerStatuses(Connection conn,
+        List<TriggerKey> triggerKeys) throws SQLException;
+
+    /**
+     * <p>
+     * Select the statuses of all of the triggers matching the given
+     * groupMatcher.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * 
+     * @return the statuses of the triggers
+     */
+    List<TriggerStatus> selectTriggerStatusesInGroup(Connection conn,
+        GroupMatcher<TriggerKey> matcher) throws SQLException;
+
+    /**
+     * <p>
+     * Select the statuses of all of the triggers of the jobs matching the
+     * given groupMatcher.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * 
+     * @return the statuses of the triggers
+     */
+    List<TriggerStatus> selectTriggerStatusesForJobGroup(Connection conn,
+        GroupMatcher<JobKey> matcher) throws SQLException;
+
     /**
      * <p>
      * Select the total number of triggers stored.
@@ -910,6 +1186,20 @@ public interface DriverDelegate {
      */
     long selectNextFireTime(Connection conn) throws SQLException;
 
+    /**
+     * <p>
+     * Select the earliest next fire time of the waiting triggers, leaving 
+     * out those that are due before the given time, such as misfired ones.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param noEarlierThan
+     *          the earliest fire time to consider
+     * @return the earliest next fire time, or 0 if no trigger is due then
+     */
+    long selectEarliestNextFireTime(Connection conn, long noEarlierThan) throws SQLException;
+
     /**
      * <p>
      * Select the trigger that will be fired at the given fire time.
@@ -966,6 +1256,47 @@ public interface DriverDelegate {
     public List<TriggerKey> selectTriggerToAcquire(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
         throws SQLException;
 
+    /**
+     * <p>
+     * Select the next triggers to acquire, as 
+     * <code>{@link #selectTriggerToAcquire(Connection, long, long, int)}</code>
+     * does, but locking the selected rows until the end of the transaction
+     * and skipping rows already locked by other transactions, so that nodes
+     * acquiring concurrently select disjoint triggers.
+     * </p>
+     * 
+     * @return the keys of the triggers selected, or <code>null</code> if the
+     *         database cannot skip locked rows.
+     */
+    public List<TriggerKey> selectTriggerToAcquireSkipLocked(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+        throws SQLException;
+
+    /**
+     * <p>
+     * Select the next triggers to acquire, as 
+     * <code>{@link #selectTriggerToAcquire(Connection, long, long, int)}</code>
+     * does, among those whose key hash is in the given range.
+     * </p>
+     * 
+     * @param minKeyHash
+     *          the lowest key hash of the triggers
+     * @param maxKeyHash
+     *          the highest key hash of the triggers (inclusive)
+     * @see TriggerPartitions#keyHashOf(TriggerKey)
+     */
+    public List<TriggerKey> selectTriggerToAcquireInKeyHashRange(Connection conn, long noLaterThan, long noEarlierThan, int maxCount,
+            int minKeyHash, int maxKeyHash) throws SQLException;
+
+    /**
+     * <p>
+     * Store the key hash of the triggers that were stored without one, by
+     * a version of the schema that had no <code>KEY_HASH</code> column.
+     * </p>
+     * 
+     * @return the number of triggers found without a key hash
+     */
+    public int updateMissingTriggerKeyHashes(Connection conn) throws SQLException;
+
     /**
      * <p>
      * Insert a fired trigger.
@@ -982,6 +1313,23 @@ public interface DriverDelegate {
     int insertFiredTrigger(Connection conn, OperableTrigger trigger,
         String state, JobDetail jobDetail) throws SQLException;
 
+    /**
+     * <p>
+     * Insert fired trigger records for the given triggers, without job
+     * details, as a single JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers, with their fire instance ids set
+     * @param state
+     *          the state that the triggers should be stored in
+     * @return the number of rows inserted for each trigger, in order
+     */
+    int[] insertFiredTriggers(Connection conn, List<OperableTrigger> triggers,
+        String state) throws SQLException;
+
     /**
      * <p>
      * Update a fired trigger record.  Will update the fields  
@@ -999,6 +1347,25 @@ public interface DriverDelegate {
     int updateFiredTrigger(Connection conn, OperableTrigger trigger,
         String state, JobDetail jobDetail) throws SQLException;
 
+    /**
+     * <p>
+     * Update the fired trigger records of the given triggers, as a single
+     * JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers
+     * @param state
+     *          the state that the records should be stored in
+     * @param jobs
+     *          the job of each trigger
+     * @return the number of rows updated for each trigger, in order
+     */
+    int[] updateFiredTriggers(Connection conn, List<OperableTrigger> triggers,
+        String state, List<JobDetail> jobs) throws SQLException;
+
     /**
      * <p>
      * Select the states of all fired-trigger records for a given trigger, or
@@ -1060,6 +1427,20 @@ public interface DriverDelegate {
     int deleteFiredTrigger(Connection conn, String entryId)
         throws SQLException;
 
+    /**
+     * <p>
+     * Delete the given fired triggers, as a JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param entryIds
+     *          the fired trigger entries to delete
+     * @return the number of rows deleted for each entry, in order
+     */
+    int[] deleteFiredTriggers(Connection conn, List<String> entryIds)
+        throws SQLException;
+
     /**
      * <p>
      * Get the number instances of the identified job currently executing.
@@ -1072,6 +1453,19 @@ public interface DriverDelegate {
      */
     int selectJobExecutionCount(Connection conn, JobKey jobKey) throws SQLException;
 
+    /**
+     * <p>
+     * Select the jobs that disallow concurrent execution and are currently
+     * executing, so that their triggers are to be blocked.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * 
+     * @return the keys of the blocked jobs
+     */
+    Set<JobKey> selectBlockedJobs(Connection conn) throws SQLException;
+
     /**
      * <p>
      * Insert a scheduler-instance state record.
@@ -1097,6 +1491,46 @@ public interface DriverDelegate {
     int deleteSchedulerState(Connection conn, String instanceId)
         throws SQLException;
 
+    /**
+     * <p>
+     * Select a change counter, such as 
+     * <code>{@link Constants#COUNTER_JOB_DETAILS}</code>, which is shared 
+     * by the instances of a cluster.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the counter's value, or zero if it was never created.
+     */
+    long selectChangeCounter(Connection conn, String counterName)
+        throws SQLException;
+
+    /**
+     * <p>
+     * Create a change counter with the given value.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the number of rows inserted.
+     */
+    int insertChangeCounter(Connection conn, String counterName, long value)
+        throws SQLException;
+
+    /**
+     * <p>
+     * Increment a change counter.  Its row stays locked until the
+     * transaction ends, so that concurrent updates wait for each other.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the number of rows updated, which is zero if the counter does
+     *         not exist.
+     */
+    int updateChangeCounter(Connection conn, String counterName)
+        throws SQLException;
+
     
     /**
      * <p>
@@ -1134,6 +1568,17 @@ public interface DriverDelegate {
      */
     void clearData(Connection conn)
         throws SQLException;
+
+    /**
+     * <p>
+     * Close the statements this delegate has kept open for reuse on the
+     * given connection, if any, before the connection is closed.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     */
+    void closeCachedStatements(Connection conn);
     
 }
 
@@ -20,7 +20,6 @@ package org.quartz.impl.jdbcjobstore;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
@@ -69,12 +68,7 @@ public class HSQLDBDelegate extends StdJDBCDelegate {
         
         Object obj = null;
         
-        ObjectInputStream in = new ObjectInputStream(binaryInput);
-        try {
-            obj = in.readObject();
-        } finally {
-            in.close();
-        }
+        obj = readObject(binaryInput);
 
         return obj;
     }
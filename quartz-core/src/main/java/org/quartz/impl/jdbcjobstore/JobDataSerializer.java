@@ -0,0 +1,77 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.impl.jdbcjobstore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <p>
+ * A format for the BLOBs of the JDBC job store, other than Java
+ * serialization, for the <code>JobDataMap</code>s of jobs and triggers and
+ * for calendars.  <code>StdJDBCDelegate</code> writes the objects that the
+ * format can represent with it, and everything else with Java serialization,
+ * and reads each BLOB in whichever of the two formats it was written, so
+ * that a serializer can be configured for an existing database.
+ * </p>
+ *
+ * <p>
+ * A serializer is configured with the <code>jobDataSerializerClass</code>
+ * setting of the delegate's init string, e.g.
+ * <code>org.quartz.jobStore.driverDelegateInitString =
+ * jobDataSerializerClass=org.quartz.impl.jdbcjobstore.CompactJobDataSerializer</code>.
+ * It must be the same on every instance of a cluster.
+ * </p>
+ *
+ * @see CompactJobDataSerializer
+ */
+public interface JobDataSerializer {
+
+    /**
+     * The number of leading bytes of a BLOB that are passed to
+     * <code>{@link #isSerializedForm(byte[])}</code>.
+     */
+    int HEADER_LENGTH = 4;
+
+    /**
+     * Whether the given object, and everything it refers to, can be
+     * represented in this format.
+     */
+    boolean canSerialize(Object obj);
+
+    /**
+     * Write an object for which <code>{@link #canSerialize(Object)}</code> is
+     * <code>true</code>, starting with a header that identifies the format.
+     */
+    void serialize(Object obj, OutputStream out) throws IOException;
+
+    /**
+     * Whether a BLOB that starts with the given bytes was written in this
+     * format.  The array holds <code>{@link #HEADER_LENGTH}</code> bytes, or
+     * fewer if the BLOB is shorter than that.  It must not accept the
+     * header of a Java serialization stream, <code>0xACED</code>.
+     */
+    boolean isSerializedForm(byte[] header);
+
+    /**
+     * Read an object written by <code>{@link #serialize(Object, OutputStream)}</code>,
+     * header included.
+     */
+    Object deserialize(InputStream in) throws IOException, ClassNotFoundException;
+}
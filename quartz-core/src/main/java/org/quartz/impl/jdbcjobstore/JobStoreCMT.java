@@ -242,7 +242,9 @@ public class JobStoreCMT extends JobStoreSupport {
                 conn = getConnection();
             }
 
-            return txCallback.execute(conn);
+            Object result = txCallback.execute(conn);
+            publishScheduleChangeOnTxCompletion();
+            return result;
         } finally {
             try {
                 releaseLock(LOCK_TRIGGER_ACCESS, transOwner);
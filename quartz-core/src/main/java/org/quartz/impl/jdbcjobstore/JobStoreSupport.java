@@ -22,14 +22,21 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.quartz.Calendar;
 import org.quartz.Job;
@@ -95,6 +102,8 @@ public abstract class JobStoreSupport implements JobStore, Constants {
 
     protected String dsName;
 
+    protected String readDsName;
+
     protected String tablePrefix = DEFAULT_TABLE_PREFIX;
 
     protected boolean useProperties = false;
@@ -110,6 +119,8 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     protected Class<? extends DriverDelegate> delegateClass = StdJDBCDelegate.class;
 
     protected HashMap<String, Calendar> calendarCache = new HashMap<String, Calendar>();
+    
+    private long calendarCacheVersion = 0L; // guarded by calendarCache, when clustered
 
     private DriverDelegate delegate;
 
@@ -133,16 +144,72 @@ public abstract class JobStoreSupport implements JobStore, Constants {
 
     private MisfireHandler misfireHandler = null;
 
+    private ScheduleChangeWatcher scheduleChangeWatcher = null;
+
     private ClassLoadHelper classLoadHelper;
 
     private SchedulerSignaler schedSignaler;
 
     protected int maxToRecoverAtATime = 20;
+
+    /**
+     * The most misfired triggers recovered in one batch, bounding the 
+     * memory used when all misfires are recovered at once on start up.
+     */
+    private static final int MISFIRE_RECOVERY_BATCH_SIZE = 500;
+    
+    /**
+     * The time the cluster manager waits between check-ins while a limit
+     * on the fired triggers to recover at a time leaves some to recover.
+     */
+    private static final long CLUSTER_RECOVERY_PAUSE = 50L;
     
     private boolean setTxIsolationLevelSequential = false;
     
     private boolean acquireTriggersWithinLock = false;
     
+    private boolean acquireTriggersWithoutLock = false;
+    
+    private boolean groupCommitJobCompletions = false;
+    
+    private int triggerPartitionCount = 0;
+    
+    private volatile TriggerPartitions triggerPartitions = null;
+    
+    private boolean cacheJobDetails = false;
+    
+    private boolean cacheCalendarsWhenClustered = false;
+    
+    private boolean batchMisfireRecovery = false;
+    
+    private int maxFiredTriggersToRecoverAtATime = 0;
+    
+    private int maxTriggersToStoreAtATime = 0;
+    
+    private volatile boolean clusterRecoveryIncomplete = false;
+    
+    private long scheduleChangePollInterval = 0L;
+    
+    private long readCacheTimeToLive = 0L;
+    
+    private final ConcurrentHashMap<List<Object>, ReadCacheEntry> readCache = new ConcurrentHashMap<List<Object>, ReadCacheEntry>();
+
+    /**
+     * The most results kept by the read cache, which is cleared when full,
+     * bounding the memory used by callers that vary their group matchers.
+     */
+    private static final int MAX_READ_CACHE_ENTRIES = 1000;
+    
+    private final HashMap<JobKey, JobDetail> jobDetailCache = new HashMap<JobKey, JobDetail>();
+    
+    private long jobDetailCacheVersion = 0L; // guarded by jobDetailCache
+    
+    private final Object jobCompletionLock = new Object();
+    
+    private List<JobCompletion> pendingJobCompletions = new ArrayList<JobCompletion>();
+    
+    private boolean committingJobCompletions = false;
+    
     private long dbRetryInterval = 15000L; // 15 secs
     
     private boolean makeThreadsDaemons = false;
@@ -187,6 +254,33 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         return dsName;
     }
 
+    /**
+     * <p>
+     * Set the name of the <code>DataSource</code> that read-only monitoring
+     * queries, such as <code>{@link #getJobKeys(GroupMatcher)}</code> or 
+     * <code>{@link #getNumberOfTriggers()}</code>, should be run on, so that
+     * they do not compete with the firing of triggers for the connections 
+     * of the main <code>DataSource</code>.  It may be a smaller pool for 
+     * the same database, or a replica of it, in which case those queries 
+     * see its replication lag.  If not set, the default, they use the main 
+     * <code>DataSource</code>.
+     * </p>
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setReadDataSource(String readDsName) {
+        this.readDsName = readDsName;
+    }
+
+    /**
+     * <p>
+     * Get the name of the <code>DataSource</code> that read-only monitoring
+     * queries are run on, or <code>null</code> if they use the main one.
+     * </p>
+     */
+    public String getReadDataSource() {
+        return readDsName;
+    }
+
     /**
      * <p>
      * Set the prefix that should be pre-pended to all table names.
@@ -482,6 +576,281 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         this.acquireTriggersWithinLock = acquireTriggersWithinLock;
     }
 
+    /**
+     * Whether triggers are acquired without taking the 
+     * <code>TRIGGER_ACCESS</code> lock, even in batches.
+     */
+    public boolean isAcquireTriggersWithoutLock() {
+        return acquireTriggersWithoutLock;
+    }
+
+    /**
+     * Whether triggers should be acquired without taking the
+     * <code>TRIGGER_ACCESS</code> lock, even in batches, so that the nodes
+     * of a cluster acquire disjoint triggers concurrently rather than one
+     * at a time.  Takes precedence over 
+     * <code>{@link #setAcquireTriggersWithinLock(boolean)}</code>.
+     * 
+     * If the delegate's database can skip locked rows (see 
+     * <code>{@link DriverDelegate#selectTriggerToAcquireSkipLocked}</code>),
+     * the triggers are selected with their rows locked, so that other 
+     * nodes skip them.  Otherwise each trigger is claimed optimistically, 
+     * with an update conditional on it still being <code>WAITING</code>, 
+     * and is left to another node if that update finds it taken.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setAcquireTriggersWithoutLock(boolean acquireTriggersWithoutLock) {
+        this.acquireTriggersWithoutLock = acquireTriggersWithoutLock;
+    }
+
+    /**
+     * Whether the completions of jobs that finish at about the same time
+     * on different worker threads are coalesced into one transaction.
+     */
+    public boolean isGroupCommitJobCompletions() {
+        return groupCommitJobCompletions;
+    }
+
+    /**
+     * Whether the completions of jobs that finish at about the same time
+     * on different worker threads should be coalesced into one transaction,
+     * taking the <code>TRIGGER_ACCESS</code> lock once for the whole group
+     * rather than once per job.  A worker thread still returns only once
+     * its own completion has been committed.
+     * 
+     * Worth enabling when many jobs complete per second; the default is
+     * <code>false</code>.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setGroupCommitJobCompletions(boolean groupCommitJobCompletions) {
+        this.groupCommitJobCompletions = groupCommitJobCompletions;
+    }
+
+    /**
+     * The number of partitions the triggers of a cluster are divided into,
+     * or zero if they are not partitioned.
+     */
+    public int getTriggerPartitionCount() {
+        return triggerPartitionCount;
+    }
+
+    /**
+     * Divide the triggers of a cluster into the given number of partitions, 
+     * by a hash of their keys, and deal the partitions out among the live 
+     * instances, so that each instance only acquires, and recovers the 
+     * misfires and failed-over fired triggers of, the triggers in its own 
+     * partitions.  The partitions are re-dealt whenever a check-in finds 
+     * that an instance has joined or failed.  Zero, the default, leaves the 
+     * triggers unpartitioned.  Has no effect unless clustered.
+     * 
+     * The count should be the same on every instance, and a multiple of the
+     * number of instances, as instances beyond the count own no triggers.
+     * Best combined with <code>{@link #setAcquireTriggersWithoutLock(boolean)}</code>,
+     * as the instances otherwise still acquire their triggers one at a time.
+     * Each instance selects its triggers by the range of the 
+     * <code>KEY_HASH</code> column that its partitions cover.
+     * 
+     * @see TriggerPartitions
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setTriggerPartitionCount(int triggerPartitionCount) {
+        if (triggerPartitionCount < 0) {
+            throw new IllegalArgumentException("triggerPartitionCount must not be negative.");
+        }
+        this.triggerPartitionCount = triggerPartitionCount;
+    }
+
+    /**
+     * Whether the details of jobs are cached across the acquisition and 
+     * firing of their triggers.
+     */
+    public boolean isCacheJobDetails() {
+        return cacheJobDetails;
+    }
+
+    /**
+     * Whether the details of jobs should be cached across the acquisition 
+     * and firing of their triggers, rather than each time selected, and 
+     * their <code>JobDataMap</code> deserialized.  Jobs that are 
+     * <code>@PersistJobDataAfterExecution</code> are never cached, as their 
+     * data changes as they execute.
+     * 
+     * Changes to jobs bump a change counter in the database, which every 
+     * use of the cache checks first, so that the instances of a cluster see
+     * each other's changes; it must then be enabled on all of them, or on 
+     * none.  The objects in a cached <code>JobDataMap</code> are shared by 
+     * the executions of the job, so jobs must not modify them.  The default
+     * is <code>false</code>.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setCacheJobDetails(boolean cacheJobDetails) {
+        this.cacheJobDetails = cacheJobDetails;
+    }
+
+    /**
+     * Whether calendars are cached while clustered.
+     */
+    public boolean isCacheCalendarsWhenClustered() {
+        return cacheCalendarsWhenClustered;
+    }
+
+    /**
+     * Whether calendars should be cached while clustered, as they always
+     * are otherwise, rather than selected and deserialized each time a 
+     * trigger that uses them fires.  Changes to calendars bump a change 
+     * counter in the database, which every use of the cache checks first, 
+     * so it must be enabled on all of the instances of a cluster, or on 
+     * none.  The default is <code>false</code>.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setCacheCalendarsWhenClustered(boolean cacheCalendarsWhenClustered) {
+        this.cacheCalendarsWhenClustered = cacheCalendarsWhenClustered;
+    }
+
+    /**
+     * Whether misfired triggers are recovered in batches.
+     */
+    public boolean isBatchMisfireRecovery() {
+        return batchMisfireRecovery;
+    }
+
+    /**
+     * Whether misfired triggers should be recovered in batches: with their
+     * jobs, calendars, paused groups and blocked states looked up once per 
+     * batch, and written back as JDBC batches, rather than each stored on 
+     * its own, which takes about nine statements per trigger.  Triggers 
+     * are still updated with their own misfire instructions, and their 
+     * listeners notified, so this only changes the number of statements 
+     * run while the <code>TRIGGER_ACCESS</code> lock is held, which makes 
+     * a larger <code>maxMisfiresToHandleAtATime</code> affordable.  The 
+     * default is <code>false</code>.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setBatchMisfireRecovery(boolean batchMisfireRecovery) {
+        this.batchMisfireRecovery = batchMisfireRecovery;
+    }
+
+    /**
+     * The most fired triggers of a failed instance recovered in one 
+     * transaction, or zero if they are all recovered at once.
+     */
+    public int getMaxFiredTriggersToRecoverAtATime() {
+        return maxFiredTriggersToRecoverAtATime;
+    }
+
+    /**
+     * The most fired triggers of a failed instance that a check-in should
+     * recover while holding the <code>TRIGGER_ACCESS</code> lock, so that 
+     * the recovery of an instance that had many jobs in progress does not 
+     * hold up the acquisition of triggers until it is done.  The rest are
+     * recovered by the following check-ins, which are run straight away 
+     * rather than after the <code>clusterCheckinInterval</code>, and the 
+     * failed instance's state record is only removed with its last fired 
+     * trigger.  With <code>{@link #setTriggerPartitionCount(int)}</code>,
+     * each live instance recovers the fired triggers of its own partitions.
+     * Zero, the default, recovers all of them in one transaction.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setMaxFiredTriggersToRecoverAtATime(int maxFiredTriggersToRecoverAtATime) {
+        if (maxFiredTriggersToRecoverAtATime < 0) {
+            throw new IllegalArgumentException("maxFiredTriggersToRecoverAtATime must not be negative.");
+        }
+        this.maxFiredTriggersToRecoverAtATime = maxFiredTriggersToRecoverAtATime;
+    }
+
+    /**
+     * The most triggers that <code>storeJobsAndTriggers</code> stores in
+     * one transaction, or zero if they are all stored in one.
+     */
+    public int getMaxTriggersToStoreAtATime() {
+        return maxTriggersToStoreAtATime;
+    }
+
+    /**
+     * The most triggers that 
+     * <code>{@link #storeJobsAndTriggers(Map, boolean)}</code> stores in
+     * one transaction, so that bulk loading a large schedule neither holds
+     * the <code>TRIGGER_ACCESS</code> lock nor grows a transaction for the
+     * whole of it.  Each job is stored with the chunk of its first trigger.
+     * A chunk that fails leaves the chunks before it stored.  Zero, the 
+     * default, stores everything in one transaction.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setMaxTriggersToStoreAtATime(int maxTriggersToStoreAtATime) {
+        if (maxTriggersToStoreAtATime < 0) {
+            throw new IllegalArgumentException("maxTriggersToStoreAtATime must not be negative.");
+        }
+        this.maxTriggersToStoreAtATime = maxTriggersToStoreAtATime;
+    }
+
+    /**
+     * How often, in milliseconds, the schedule change counter of the 
+     * cluster is polled, or zero if it is not.
+     */
+    public long getScheduleChangePollInterval() {
+        return scheduleChangePollInterval;
+    }
+
+    /**
+     * How often, in milliseconds, a clustered instance should poll for the
+     * triggers that other instances store or resume, so that its scheduler
+     * thread does not sleep through them for up to its 
+     * <code>idleWaitTime</code>.  A background thread of each instance 
+     * then bumps a change counter in the database at most once per 
+     * interval, after transactions of the instance that stored or resumed 
+     * triggers have completed, and selects the counter at this interval, 
+     * waking the scheduler thread with the earliest next fire time of the 
+     * waiting triggers whenever another instance has changed it.  The 
+     * transactions themselves never write the counter, so they are not 
+     * serialized on it.  With container managed transactions the counter 
+     * is bumped at the next poll after the changes were made.  This bounds the latency with which a newly scheduled 
+     * trigger is picked up by the other instances, so that the idle wait 
+     * time can be raised.  It must be enabled on all of the instances of a 
+     * cluster, or on none.  Zero, the default, disables it; has no effect
+     * unless clustered.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setScheduleChangePollInterval(long scheduleChangePollInterval) {
+        if (scheduleChangePollInterval < 0) {
+            throw new IllegalArgumentException("scheduleChangePollInterval must not be negative.");
+        }
+        this.scheduleChangePollInterval = scheduleChangePollInterval;
+    }
+
+    /**
+     * How long, in milliseconds, counts and key listings are cached for,
+     * or zero if they are not.
+     */
+    public long getReadCacheTimeToLive() {
+        return readCacheTimeToLive;
+    }
+
+    /**
+     * How long, in milliseconds, the results of the counting and listing 
+     * methods, such as <code>{@link #getNumberOfJobs()}</code>, 
+     * <code>{@link #getTriggerKeys(GroupMatcher)}</code> or 
+     * <code>{@link #getTriggerGroupNames()}</code>, should be cached for, 
+     * so that dashboards polling them do not each run their queries.  They
+     * may then miss changes, including this instance's own, for up to that 
+     * long.  Zero, the default, disables the cache.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setReadCacheTimeToLive(long readCacheTimeToLive) {
+        if (readCacheTimeToLive < 0) {
+            throw new IllegalArgumentException("readCacheTimeToLive must not be negative.");
+        }
+        this.readCacheTimeToLive = readCacheTimeToLive;
+        readCache.clear();
+    }
+
+    /**
+     * The share of the triggers owned by this instance, as of its last
+     * check-in, or <code>null</code> if the triggers are not partitioned.
+     */
+    protected TriggerPartitions getTriggerPartitions() {
+        return triggerPartitions;
+    }
+
     
     /**
      * <p>
@@ -698,6 +1067,13 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         if(initializersLoader != null)
             misfireHandler.setContextClassLoader(initializersLoader);
         misfireHandler.initialize();
+
+        if (isClustered() && getScheduleChangePollInterval() > 0) {
+            scheduleChangeWatcher = new ScheduleChangeWatcher();
+            if(initializersLoader != null)
+                scheduleChangeWatcher.setContextClassLoader(initializersLoader);
+            scheduleChangeWatcher.initialize();
+        }
         schedulerRunning = true;
         
         getLog().debug("JobStore background threads started (as scheduler was started).");
@@ -737,11 +1113,27 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             }
         }
 
+        if (scheduleChangeWatcher != null) {
+            scheduleChangeWatcher.shutdown();
+            try {
+                scheduleChangeWatcher.join();
+            } catch (InterruptedException ignore) {
+            }
+        }
+
         try {
             DBConnectionManager.getInstance().shutdown(getDataSource());
         } catch (SQLException sqle) {
             getLog().warn("Database connection shutdown unsuccessful.", sqle);
         }        
+
+        if (getReadDataSource() != null) {
+            try {
+                DBConnectionManager.getInstance().shutdown(getReadDataSource());
+            } catch (SQLException sqle) {
+                getLog().warn("Read database connection shutdown unsuccessful.", sqle);
+            }
+        }
         
         getLog().debug("JobStore background threads shutdown.");
     }
@@ -770,24 +1162,38 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     }
     
     protected Connection getConnection() throws JobPersistenceException {
+        return getConnection(getDataSource());
+    }
+
+    /**
+     * Get a connection from the read <code>DataSource</code>, set up as 
+     * those of the main one are.
+     * 
+     * @see #setReadDataSource(String)
+     */
+    protected Connection getReadConnection() throws JobPersistenceException {
+        return getConnection(getReadDataSource());
+    }
+
+    private Connection getConnection(String dataSource) throws JobPersistenceException {
         Connection conn;
         try {
             conn = DBConnectionManager.getInstance().getConnection(
-                    getDataSource());
+                    dataSource);
         } catch (SQLException sqle) {
             throw new JobPersistenceException(
                     "Failed to obtain DB connection from data source '"
-                    + getDataSource() + "': " + sqle.toString(), sqle);
+                    + dataSource + "': " + sqle.toString(), sqle);
         } catch (Throwable e) {
             throw new JobPersistenceException(
                     "Failed to obtain DB connection from data source '"
-                    + getDataSource() + "': " + e.toString(), e);
+                    + dataSource + "': " + e.toString(), e);
         }
 
         if (conn == null) { 
             throw new JobPersistenceException(
                 "Could not get connection from DataSource '"
-                + getDataSource() + "'"); 
+                + dataSource + "'"); 
         }
 
         // Protect connection attributes we might change.
@@ -952,12 +1358,21 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         
         List<TriggerKey> misfiredTriggers = new LinkedList<TriggerKey>();
         long earliestNewTime = Long.MAX_VALUE;
+        // Only the misfires of our own partitions are handled.
+        TriggerPartitions partitions = getTriggerPartitions();
         // We must still look for the MISFIRED state in case triggers were left 
         // in this state when upgrading to this version that does not support it. 
-        boolean hasMoreMisfiredTriggers =
-            getDelegate().hasMisfiredTriggersInState(
+        boolean hasMoreMisfiredTriggers = false;
+        if (partitions == null) {
+            hasMoreMisfiredTriggers = getDelegate().hasMisfiredTriggersInState(
                 conn, STATE_WAITING, getMisfireTime(), 
                 maxMisfiresToHandleAtATime, misfiredTriggers);
+        } else if (partitions.getOwnedPartitionCount() > 0) {
+            hasMoreMisfiredTriggers = getDelegate().hasMisfiredTriggersInStateInKeyHashRange(
+                conn, STATE_WAITING, getMisfireTime(), 
+                maxMisfiresToHandleAtATime, partitions.getMinOwnedKeyHash(), partitions.getMaxOwnedKeyHash(), 
+                misfiredTriggers);
+        }
 
         if (hasMoreMisfiredTriggers) {
             getLog().info(
@@ -974,19 +1389,25 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             return RecoverMisfiredJobsResult.NO_OP; 
         }
 
-        for (TriggerKey triggerKey: misfiredTriggers) {
-            
-            OperableTrigger trig = 
-                retrieveTrigger(conn, triggerKey);
-
-            if (trig == null) {
-                continue;
+        if (isBatchMisfireRecovery()) {
+            for (List<TriggerKey> batch : Util.partition(misfiredTriggers, MISFIRE_RECOVERY_BATCH_SIZE)) {
+                earliestNewTime = Math.min(earliestNewTime, doUpdateOfMisfiredTriggers(conn, batch));
+            }
+        } else {
+            for (TriggerKey triggerKey: misfiredTriggers) {
+                
+                OperableTrigger trig = 
+                    retrieveTrigger(conn, triggerKey);
+    
+                if (trig == null) {
+                    continue;
+                }
+    
+                doUpdateOfMisfiredTrigger(conn, trig, false, STATE_WAITING, recovering);
+    
+                if(trig.getNextFireTime() != null && trig.getNextFireTime().getTime() < earliestNewTime)
+                    earliestNewTime = trig.getNextFireTime().getTime();
             }
-
-            doUpdateOfMisfiredTrigger(conn, trig, false, STATE_WAITING, recovering);
-
-            if(trig.getNextFireTime() != null && trig.getNextFireTime().getTime() < earliestNewTime)
-                earliestNewTime = trig.getNextFireTime().getTime();
         }
 
         return new RecoverMisfiredJobsResult(
@@ -1019,6 +1440,115 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         }
     }
 
+    /**
+     * <p>
+     * Update the given misfired triggers as 
+     * <code>{@link #doUpdateOfMisfiredTrigger(Connection, OperableTrigger, boolean, String, boolean)}</code>
+     * does each of them, leaving them <code>WAITING</code> unless their 
+     * group is paused or their job is blocked, but storing them together.
+     * The triggers are still selected one at a time, by primary key, as a
+     * predicate matching many keys is not used as an index lookup by 
+     * every database.
+     * </p>
+     * 
+     * @return the earliest of the triggers' new next fire times, or 
+     *         <code>Long.MAX_VALUE</code> if none of them has one
+     */
+    private long doUpdateOfMisfiredTriggers(Connection conn, List<TriggerKey> triggerKeys)
+        throws JobPersistenceException {
+        long earliestNewTime = Long.MAX_VALUE;
+        try {
+            long jobDetailsVersion = selectJobDetailsVersion(conn);
+            Set<String> pausedGroups = getDelegate().selectPausedTriggerGroups(conn);
+            boolean allGroupsPaused = pausedGroups.contains(ALL_GROUPS_PAUSED);
+
+            Map<JobKey, JobDetail> jobs = new HashMap<JobKey, JobDetail>();
+            Map<JobKey, Boolean> blockedJobs = new HashMap<JobKey, Boolean>();
+            Map<String, Calendar> calendars = new HashMap<String, Calendar>();
+            List<OperableTrigger> updatedTriggers = new ArrayList<OperableTrigger>(triggerKeys.size());
+            List<String> updatedStates = new ArrayList<String>(triggerKeys.size());
+            List<JobDetail> updatedJobs = new ArrayList<JobDetail>(triggerKeys.size());
+            List<OperableTrigger> finalizedTriggers = new ArrayList<OperableTrigger>();
+
+            for (TriggerKey triggerKey : triggerKeys) {
+                OperableTrigger trig = retrieveTrigger(conn, triggerKey);
+                if (trig == null) {
+                    continue;
+                }
+
+                JobDetail job = jobs.get(trig.getJobKey());
+                if (job == null) {
+                    job = retrieveJob(conn, trig.getJobKey(), jobDetailsVersion);
+                    if (job == null) {
+                        throw new JobPersistenceException("The job ("
+                                + trig.getJobKey()
+                                + ") referenced by the trigger does not exist.");
+                    }
+                    jobs.put(job.getKey(), job);
+                }
+
+                Calendar cal = null;
+                if (trig.getCalendarName() != null) {
+                    cal = calendars.get(trig.getCalendarName());
+                    if (cal == null) {
+                        cal = retrieveCalendar(conn, trig.getCalendarName());
+                        calendars.put(trig.getCalendarName(), cal);
+                    }
+                }
+
+                schedSignaler.notifyTriggerListenersMisfired(trig);
+
+                trig.updateAfterMisfire(cal);
+
+                String state;
+                if (trig.getNextFireTime() == null) {
+                    state = STATE_COMPLETE;
+                    finalizedTriggers.add(trig);
+                } else {
+                    state = STATE_WAITING;
+                    earliestNewTime = Math.min(earliestNewTime, trig.getNextFireTime().getTime());
+
+                    String group = trig.getKey().getGroup();
+                    if (pausedGroups.contains(group)) {
+                        state = STATE_PAUSED;
+                    } else if (allGroupsPaused) {
+                        getDelegate().insertPausedTriggerGroup(conn, group);
+                        pausedGroups.add(group);
+                        state = STATE_PAUSED;
+                    }
+
+                    if (job.isConcurrentExectionDisallowed()) {
+                        Boolean blocked = blockedJobs.get(job.getKey());
+                        if (blocked == null) {
+                            blocked = STATE_BLOCKED.equals(checkBlockedState(conn, job.getKey(), STATE_WAITING));
+                            blockedJobs.put(job.getKey(), blocked);
+                        }
+                        if (blocked) {
+                            state = STATE_PAUSED.equals(state) ? STATE_PAUSED_BLOCKED : STATE_BLOCKED;
+                        }
+                    }
+                }
+
+                updatedTriggers.add(trig);
+                updatedStates.add(state);
+                updatedJobs.add(job);
+            }
+
+            if (!updatedTriggers.isEmpty()) {
+                getDelegate().updateTriggers(conn, updatedTriggers, updatedStates, updatedJobs);
+            }
+            for (OperableTrigger trig : finalizedTriggers) {
+                schedSignaler.notifySchedulerListenersFinalized(trig);
+            }
+        } catch (JobPersistenceException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JobPersistenceException(
+                    "Couldn't update misfired triggers: " + e.getMessage(), e);
+        }
+        return earliestNewTime;
+    }
+
     private void doUpdateOfMisfiredTrigger(Connection conn, OperableTrigger trig, boolean forceState, String newStateIfNotComplete, boolean recovering) throws JobPersistenceException {
         Calendar cal = null;
         if (trig.getCalendarName() != null) {
@@ -1062,6 +1592,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                     storeJob(conn, newJob, false);
                     storeTrigger(conn, newTrigger, newJob, false,
                             Constants.STATE_WAITING, false, false);
+                    scheduleChanged(conn);
                 }
             });
     }
@@ -1108,6 +1639,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                     throw new ObjectAlreadyExistsException(newJob); 
                 }
                 getDelegate().updateJobDetail(conn, newJob);
+                jobDetailsChanged(conn);
             } else {
                 getDelegate().insertJobDetail(conn, newJob);
             }
@@ -1158,6 +1690,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                 public void executeVoid(Connection conn) throws JobPersistenceException {
                     storeTrigger(conn, newTrigger, null, replaceExisting,
                         STATE_WAITING, false, false);
+                    scheduleChanged(conn);
                 }
             });
     }
@@ -1288,16 +1821,47 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                 LOCK_TRIGGER_ACCESS,
                 new TransactionCallback() {
                     public Object execute(Connection conn) throws JobPersistenceException {
-                        boolean allFound = true;
-
-                        // FUTURE_TODO: make this more efficient with a true bulk operation...
-                        for (JobKey jobKey : jobKeys)
-                            allFound = removeJob(conn, jobKey) && allFound;
-
-                        return allFound ? Boolean.TRUE : Boolean.FALSE;
+                        return removeJobs(conn, jobKeys) ?
+                                Boolean.TRUE : Boolean.FALSE;
                     }
                 });
     }
+
+    /**
+     * <p>
+     * Remove the given jobs, and their triggers, as 
+     * <code>{@link #removeJob(Connection, JobKey)}</code> does each of them,
+     * but with one JDBC batch per table.
+     * </p>
+     * 
+     * @return <code>true</code> if all of the jobs were found and removed.
+     */
+    protected boolean removeJobs(Connection conn, List<JobKey> jobKeys)
+        throws JobPersistenceException {
+
+        try {
+            getDelegate().deleteTriggers(conn, 
+                    getDelegate().selectTriggerKeysForJobs(conn, jobKeys));
+
+            int[] rows = getDelegate().deleteJobDetails(conn, jobKeys);
+            boolean allFound = true;
+            boolean anyFound = false;
+            for (int row : rows) {
+                if (row == 0 || row == Statement.EXECUTE_FAILED) {
+                    allFound = false;
+                } else {
+                    anyFound = true;
+                }
+            }
+            if (anyFound) {
+                jobDetailsChanged(conn);
+            }
+            return allFound;
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't remove jobs: "
+                    + e.getMessage(), e);
+        }
+    }
         
     public boolean removeTriggers(final List<TriggerKey> triggerKeys)
             throws JobPersistenceException {
@@ -1305,37 +1869,223 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                 LOCK_TRIGGER_ACCESS,
                 new TransactionCallback() {
                     public Object execute(Connection conn) throws JobPersistenceException {
-                        boolean allFound = true;
-
-                        // FUTURE_TODO: make this more efficient with a true bulk operation...
-                        for (TriggerKey triggerKey : triggerKeys)
-                            allFound = removeTrigger(conn, triggerKey) && allFound;
-
-                        return allFound ? Boolean.TRUE : Boolean.FALSE;
+                        return removeTriggers(conn, triggerKeys) ?
+                                Boolean.TRUE : Boolean.FALSE;
                     }
                 });
     }
-        
-    public void storeJobsAndTriggers(
-            final Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, final boolean replace)
-            throws JobPersistenceException {
 
-        executeInLock(
-                (isLockOnInsert() || replace) ? LOCK_TRIGGER_ACCESS : null,
-                new VoidTransactionCallback() {
-                    public void executeVoid(Connection conn) throws JobPersistenceException {
-                        
-                        // FUTURE_TODO: make this more efficient with a true bulk operation...
-                        for(JobDetail job: triggersAndJobs.keySet()) {
-                            storeJob(conn, job, replace);
-                            for(Trigger trigger: triggersAndJobs.get(job)) {
-                                storeTrigger(conn, (OperableTrigger) trigger, job, replace,
-                                        Constants.STATE_WAITING, false, false);
-                            }
-                        }
-                    }
-                });
+    /**
+     * <p>
+     * Remove the given triggers as 
+     * <code>{@link #removeTrigger(Connection, TriggerKey)}</code> does each
+     * of them, but with one JDBC batch per table, and removing the 
+     * non-durable jobs left without triggers with a single batch.
+     * </p>
+     * 
+     * @return <code>true</code> if all of the triggers were found and removed.
+     */
+    protected boolean removeTriggers(Connection conn, List<TriggerKey> triggerKeys)
+        throws JobPersistenceException {
+
+        try {
+            // this must be called before we delete the triggers, obviously
+            Map<TriggerKey, TriggerStatus> statuses = 
+                getDelegate().selectTriggerStatuses(conn, triggerKeys);
+
+            int[] rows = getDelegate().deleteTriggers(conn, triggerKeys);
+            boolean allFound = true;
+            for (int row : rows) {
+                if (row == 0 || row == Statement.EXECUTE_FAILED) {
+                    allFound = false;
+                }
+            }
+
+            Set<JobKey> jobKeys = new HashSet<JobKey>();
+            for (TriggerStatus status : statuses.values()) {
+                jobKeys.add(status.getJobKey());
+            }
+            for (int row : getDelegate().deleteOrphanedJobDetails(conn, jobKeys)) {
+                if (row != 0 && row != Statement.EXECUTE_FAILED) {
+                    jobDetailsChanged(conn);
+                    break;
+                }
+            }
+            return allFound;
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't remove triggers: "
+                    + e.getMessage(), e);
+        }
+    }
+        
+    public void storeJobsAndTriggers(
+            final Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, final boolean replace)
+            throws JobPersistenceException {
+
+        List<OperableTrigger> triggers = new ArrayList<OperableTrigger>();
+        List<JobDetail> triggerJobs = new ArrayList<JobDetail>();
+        List<JobDetail> jobsWithoutTriggers = new ArrayList<JobDetail>();
+        for(JobDetail job: triggersAndJobs.keySet()) {
+            Set<? extends Trigger> jobTriggers = triggersAndJobs.get(job);
+            if (jobTriggers == null || jobTriggers.isEmpty()) {
+                jobsWithoutTriggers.add(job);
+            }
+            if (jobTriggers != null) {
+                for(Trigger trigger: jobTriggers) {
+                    triggers.add((OperableTrigger) trigger);
+                    triggerJobs.add(job);
+                }
+            }
+        }
+
+        int chunkSize = getMaxTriggersToStoreAtATime() > 0 ? getMaxTriggersToStoreAtATime() : triggers.size();
+        Set<JobKey> storedJobs = new HashSet<JobKey>();
+        int from = 0;
+        do {
+            int to = Math.min(from + chunkSize, triggers.size());
+            final List<OperableTrigger> chunkTriggers = triggers.subList(from, to);
+            final List<JobDetail> chunkTriggerJobs = triggerJobs.subList(from, to);
+            final List<JobDetail> chunkJobs = new ArrayList<JobDetail>();
+            if (from == 0) {
+                chunkJobs.addAll(jobsWithoutTriggers);
+            }
+            for (JobDetail job : chunkTriggerJobs) {
+                if (storedJobs.add(job.getKey())) {
+                    chunkJobs.add(job);
+                }
+            }
+
+            executeInLock(
+                    (isLockOnInsert() || replace) ? LOCK_TRIGGER_ACCESS : null,
+                    new VoidTransactionCallback() {
+                        public void executeVoid(Connection conn) throws JobPersistenceException {
+                            storeJobsAndTriggers(conn, chunkJobs, chunkTriggers, chunkTriggerJobs, replace);
+                            scheduleChanged(conn);
+                        }
+                    });
+            from = to;
+        } while (from < triggers.size());
     }    
+
+    /**
+     * <p>
+     * Store the given jobs and triggers as 
+     * <code>{@link #storeJob(Connection, JobDetail, boolean)}</code> and
+     * <code>{@link #storeTrigger(Connection, OperableTrigger, JobDetail, boolean, String, boolean, boolean)}</code>
+     * do each of them, but checking which of them exist with one reused
+     * statement, as a predicate matching many keys is not used as an index
+     * lookup by every database, and inserting the new ones with one JDBC
+     * batch per table.
+     * </p>
+     * 
+     * @param triggerJobs
+     *          the job of each trigger, each of which is either among 
+     *          <code>jobs</code> or already stored
+     */
+    protected void storeJobsAndTriggers(Connection conn, List<JobDetail> jobs, 
+            List<OperableTrigger> triggers, List<JobDetail> triggerJobs, boolean replaceExisting)
+        throws JobPersistenceException {
+
+        try {
+            List<JobKey> jobKeys = new ArrayList<JobKey>(jobs.size());
+            for (JobDetail job : jobs) {
+                jobKeys.add(job.getKey());
+            }
+            Set<JobKey> existingJobs = getDelegate().selectExistingJobs(conn, jobKeys);
+            List<JobDetail> newJobs = new ArrayList<JobDetail>(jobs.size());
+            for (JobDetail job : jobs) {
+                if (!existingJobs.contains(job.getKey())) {
+                    newJobs.add(job);
+                } else if (!replaceExisting) { 
+                    throw new ObjectAlreadyExistsException(job); 
+                }
+            }
+            if (newJobs.size() < jobs.size()) {
+                for (JobDetail job : jobs) {
+                    if (existingJobs.contains(job.getKey())) {
+                        getDelegate().updateJobDetail(conn, job);
+                    }
+                }
+                jobDetailsChanged(conn);
+            }
+            getDelegate().insertJobDetails(conn, newJobs);
+
+            // a trigger given more than once is stored as it was given last
+            Map<TriggerKey, Integer> lastIndexes = new HashMap<TriggerKey, Integer>();
+            for (int i = 0; i < triggers.size(); i++) {
+                if (lastIndexes.put(triggers.get(i).getKey(), i) != null && !replaceExisting) {
+                    throw new ObjectAlreadyExistsException(triggers.get(i)); 
+                }
+            }
+            List<TriggerKey> triggerKeys = new ArrayList<TriggerKey>(lastIndexes.keySet());
+            Set<TriggerKey> existingTriggers = getDelegate().selectTriggerStatuses(conn, triggerKeys).keySet();
+            if (!existingTriggers.isEmpty() && !replaceExisting) {
+                for (OperableTrigger trigger : triggers) {
+                    if (existingTriggers.contains(trigger.getKey())) {
+                        throw new ObjectAlreadyExistsException(trigger); 
+                    }
+                }
+            }
+
+            Set<String> pausedGroups = getDelegate().selectPausedTriggerGroups(conn);
+            boolean allGroupsPaused = pausedGroups.contains(ALL_GROUPS_PAUSED);
+            Set<JobKey> blockedJobs = null;
+
+            List<OperableTrigger> insertTriggers = new ArrayList<OperableTrigger>();
+            List<String> insertStates = new ArrayList<String>();
+            List<JobDetail> insertJobs = new ArrayList<JobDetail>();
+            List<OperableTrigger> updateTriggers = new ArrayList<OperableTrigger>();
+            List<String> updateStates = new ArrayList<String>();
+            List<JobDetail> updateJobs = new ArrayList<JobDetail>();
+            for (int i = 0; i < triggers.size(); i++) {
+                OperableTrigger trigger = triggers.get(i);
+                if (lastIndexes.get(trigger.getKey()) != i) {
+                    continue;
+                }
+
+                String state = STATE_WAITING;
+                String group = trigger.getKey().getGroup();
+                if (pausedGroups.contains(group)) {
+                    state = STATE_PAUSED;
+                } else if (allGroupsPaused) {
+                    getDelegate().insertPausedTriggerGroup(conn, group);
+                    pausedGroups.add(group);
+                    state = STATE_PAUSED;
+                }
+
+                JobDetail job = triggerJobs.get(i);
+                if (job.isConcurrentExectionDisallowed()) {
+                    if (blockedJobs == null) {
+                        blockedJobs = getDelegate().selectBlockedJobs(conn);
+                    }
+                    if (blockedJobs.contains(job.getKey())) {
+                        state = STATE_PAUSED.equals(state) ? STATE_PAUSED_BLOCKED : STATE_BLOCKED;
+                    }
+                }
+
+                if (existingTriggers.contains(trigger.getKey())) {
+                    updateTriggers.add(trigger);
+                    updateStates.add(state);
+                    updateJobs.add(job);
+                } else {
+                    insertTriggers.add(trigger);
+                    insertStates.add(state);
+                    insertJobs.add(job);
+                }
+            }
+
+            if (!updateTriggers.isEmpty()) {
+                getDelegate().updateTriggers(conn, updateTriggers, updateStates, updateJobs);
+            }
+            getDelegate().insertTriggers(conn, insertTriggers, insertStates, insertJobs);
+        } catch (IOException e) {
+            throw new JobPersistenceException("Couldn't store jobs and triggers: "
+                    + e.getMessage(), e);
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't store jobs and triggers: "
+                    + e.getMessage(), e);
+        }
+    }
     
     /**
      * Delete a job and its listeners.
@@ -1344,9 +2094,13 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      * @see #removeTrigger(Connection, TriggerKey)
      */
     private boolean deleteJobAndChildren(Connection conn, JobKey key)
-        throws NoSuchDelegateException, SQLException {
+        throws JobPersistenceException, SQLException {
 
-        return (getDelegate().deleteJobDetail(conn, key) > 0);
+        if (getDelegate().deleteJobDetail(conn, key) > 0) {
+            jobDetailsChanged(conn);
+            return true;
+        }
+        return false;
     }
     
     /**
@@ -1398,6 +2152,134 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         }
     }
 
+    /**
+     * <p>
+     * Select the change counter of the job details, for 
+     * <code>{@link #retrieveJob(Connection, JobKey, long)}</code> to check 
+     * its cache against, or -1 if job details are not cached.
+     * </p>
+     */
+    protected long selectJobDetailsVersion(Connection conn) throws JobPersistenceException {
+        if (!isCacheJobDetails()) {
+            return -1L;
+        }
+        return selectChangeCounter(conn, COUNTER_JOB_DETAILS);
+    }
+
+    /**
+     * <p>
+     * Retrieve a job, from the cache if it was cached at the given version
+     * of the job details, as selected earlier in the same transaction.  The 
+     * transaction must not itself have changed any job, or else jobs it has
+     * yet to commit might be cached.
+     * </p>
+     */
+    protected JobDetail retrieveJob(Connection conn, JobKey key, long jobDetailsVersion) throws JobPersistenceException {
+        if (jobDetailsVersion < 0L) {
+            return retrieveJob(conn, key);
+        }
+
+        synchronized (jobDetailCache) {
+            if (jobDetailsVersion > jobDetailCacheVersion) {
+                jobDetailCache.clear();
+                jobDetailCacheVersion = jobDetailsVersion;
+            } else if (jobDetailsVersion == jobDetailCacheVersion) {
+                JobDetail job = jobDetailCache.get(key);
+                if (job != null) {
+                    return (JobDetail) job.clone();
+                }
+            }
+        }
+
+        JobDetail job = retrieveJob(conn, key);
+        if (job != null && !job.isPersistJobDataAfterExecution()) {
+            synchronized (jobDetailCache) {
+                // unless the cache has moved on to a later version meanwhile
+                if (jobDetailsVersion == jobDetailCacheVersion) {
+                    jobDetailCache.put(key, (JobDetail) job.clone());
+                }
+            }
+        }
+        return job;
+    }
+
+    /**
+     * <p>
+     * Bump the change counter of the job details, so that every instance 
+     * drops its cached jobs once the transaction commits.
+     * </p>
+     */
+    protected void jobDetailsChanged(Connection conn) throws JobPersistenceException {
+        if (isCacheJobDetails()) {
+            updateChangeCounter(conn, COUNTER_JOB_DETAILS);
+        }
+    }
+
+    /**
+     * <p>
+     * Note that the transaction stores or resumes triggers, so that once it
+     * commits the schedule change watcher bumps the schedule change counter,
+     * waking the scheduler threads of the other instances of the cluster.
+     * Nothing is written in the transaction itself, which would otherwise
+     * serialize all of them on the counter's row.
+     * </p>
+     */
+    protected void scheduleChanged(Connection conn) throws JobPersistenceException {
+        if (isClustered() && getScheduleChangePollInterval() > 0) {
+            scheduleChangedOnTxCompletion.set(Boolean.TRUE);
+        }
+    }
+
+    /**
+     * <p>
+     * Have the schedule change watcher publish the schedule changes of the
+     * transaction just completed, if any, at its next poll.
+     * </p>
+     */
+    protected void publishScheduleChangeOnTxCompletion() {
+        if (scheduleChangedOnTxCompletion.get() != null) {
+            scheduleChangedOnTxCompletion.remove();
+            scheduleChangePending.set(true);
+        }
+    }
+
+    private long selectChangeCounter(Connection conn, String counterName) throws JobPersistenceException {
+        try {
+            return getDelegate().selectChangeCounter(conn, counterName);
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't select change counter " + counterName + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * <p>
+     * Increment a change counter, creating it on its first update.  Should
+     * another transaction create it at the same time, the insert fails with
+     * a duplicate key once that one commits, and is rolled back to a
+     * savepoint so that the update can be retried in the same transaction.
+     * </p>
+     */
+    private void updateChangeCounter(Connection conn, String counterName) throws JobPersistenceException {
+        try {
+            if (getDelegate().updateChangeCounter(conn, counterName) > 0) {
+                return;
+            }
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                getDelegate().insertChangeCounter(conn, counterName, 1L);
+            } catch (SQLException e) {
+                conn.rollback(savepoint);
+                if (getDelegate().updateChangeCounter(conn, counterName) == 0) {
+                    throw e;
+                }
+            }
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't update change counter " + counterName + ": "
+                    + e.getMessage(), e);
+        }
+    }
+
     /**
      * <p>
      * Remove (delete) the <code>{@link org.quartz.Trigger}</code> with the
@@ -1470,8 +2352,11 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                 LOCK_TRIGGER_ACCESS,
                 new TransactionCallback() {
                     public Object execute(Connection conn) throws JobPersistenceException {
-                        return replaceTrigger(conn, triggerKey, newTrigger) ?
-                                Boolean.TRUE : Boolean.FALSE;
+                        if (replaceTrigger(conn, triggerKey, newTrigger)) {
+                            scheduleChanged(conn);
+                            return Boolean.TRUE;
+                        }
+                        return Boolean.FALSE;
                     }
                 });
     }
@@ -1547,7 +2432,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      * @see TriggerState#NONE
      */
     public TriggerState getTriggerState(final TriggerKey triggerKey) throws JobPersistenceException {
-        return (TriggerState)executeWithoutLock( // no locks necessary for read...
+        return (TriggerState)executeReadOnly(null, // no locks necessary for read...
                 new TransactionCallback() {
                     public Object execute(Connection conn) throws JobPersistenceException {
                         return getTriggerState(conn, triggerKey);
@@ -1658,6 +2543,8 @@ public abstract class JobStoreSupport implements JobStore, Constants {
 
             if (!isClustered) {
                 calendarCache.put(calName, calendar); // lazy-cache
+            } else {
+                calendarsChanged(conn);
             }
 
         } catch (IOException e) {
@@ -1673,6 +2560,18 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         }
     }
     
+    /**
+     * <p>
+     * Bump the change counter of the calendars, so that every instance of 
+     * the cluster drops its cached calendars once the transaction commits.
+     * </p>
+     */
+    protected void calendarsChanged(Connection conn) throws JobPersistenceException {
+        if (isCacheCalendarsWhenClustered()) {
+            updateChangeCounter(conn, COUNTER_CALENDARS);
+        }
+    }
+
     protected boolean calendarExists(Connection conn, String calName)
         throws JobPersistenceException {
         try {
@@ -1721,6 +2620,8 @@ public abstract class JobStoreSupport implements JobStore, Constants {
 
             if (!isClustered) {
                 calendarCache.remove(calName);
+            } else {
+                calendarsChanged(conn);
             }
 
             return (getDelegate().deleteCalendar(conn, calName) > 0);
@@ -1754,8 +2655,23 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             String calName)
         throws JobPersistenceException {
         // all calendars are persistent, but we can lazy-cache them during run
-        // time as long as we aren't running clustered.
-        Calendar cal = (isClustered) ? null : calendarCache.get(calName);
+        // time as long as we aren't running clustered, or check the cache 
+        // against the calendars' change counter when we are.
+        long calendarsVersion = -1L;
+        Calendar cal = null;
+        if (!isClustered) {
+            cal = calendarCache.get(calName);
+        } else if (isCacheCalendarsWhenClustered()) {
+            calendarsVersion = selectChangeCounter(conn, COUNTER_CALENDARS);
+            synchronized (calendarCache) {
+                if (calendarsVersion > calendarCacheVersion) {
+                    calendarCache.clear();
+                    calendarCacheVersion = calendarsVersion;
+                } else if (calendarsVersion == calendarCacheVersion) {
+                    cal = calendarCache.get(calName);
+                }
+            }
+        }
         if (cal != null) {
             return cal;
         }
@@ -1764,6 +2680,13 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             cal = getDelegate().selectCalendar(conn, calName);
             if (!isClustered) {
                 calendarCache.put(calName, cal); // lazy-cache...
+            } else if (cal != null && calendarsVersion >= 0L) {
+                synchronized (calendarCache) {
+                    // unless the cache has moved on to a later version meanwhile
+                    if (calendarsVersion == calendarCacheVersion) {
+                        calendarCache.put(calName, cal);
+                    }
+                }
             }
             return cal;
         } catch (ClassNotFoundException e) {
@@ -1788,7 +2711,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      */
     public int getNumberOfJobs()
         throws JobPersistenceException {
-        return (Integer) executeWithoutLock( // no locks necessary for read...
+        return (Integer) executeReadOnly(Arrays.<Object>asList("getNumberOfJobs"), // no locks necessary for read...
                 new TransactionCallback() {
                     public Object execute(Connection conn) throws JobPersistenceException {
                         return getNumberOfJobs(conn);
@@ -1814,7 +2737,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      */
     public int getNumberOfTriggers()
         throws JobPersistenceException {
-        return (Integer) executeWithoutLock( // no locks necessary for read...
+        return (Integer) executeReadOnly(Arrays.<Object>asList("getNumberOfTriggers"), // no locks necessary for read...
                 new TransactionCallback() {
                     public Object execute(Connection conn) throws JobPersistenceException {
                         return getNumberOfTriggers(conn);
@@ -1840,7 +2763,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      */
     public int getNumberOfCalendars()
         throws JobPersistenceException {
-        return (Integer) executeWithoutLock( // no locks necessary for read...
+        return (Integer) executeReadOnly(Arrays.<Object>asList("getNumberOfCalendars"), // no locks necessary for read...
                 new TransactionCallback() {
                     public Object execute(Connection conn) throws JobPersistenceException {
                         return getNumberOfCalendars(conn);
@@ -1871,7 +2794,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     @SuppressWarnings("unchecked")
     public Set<JobKey> getJobKeys(final GroupMatcher<JobKey> matcher)
         throws JobPersistenceException {
-        return (Set<JobKey>)executeWithoutLock( // no locks necessary for read...
+        return (Set<JobKey>)executeReadOnly(Arrays.<Object>asList("getJobKeys", matcher), // no locks necessary for read...
             new TransactionCallback() {
                 public Object execute(Connection conn) throws JobPersistenceException {
                     return getJobNames(conn, matcher);
@@ -1965,6 +2888,10 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     protected void clearAllSchedulingData(Connection conn) throws JobPersistenceException {
         try {
             getDelegate().clearData(conn);
+            jobDetailsChanged(conn);
+            if (isClustered) {
+                calendarsChanged(conn);
+            }
         } catch (SQLException e) {
             throw new JobPersistenceException("Error clearing scheduling data: " + e.getMessage(), e);
         }
@@ -1984,7 +2911,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     @SuppressWarnings("unchecked")
     public Set<TriggerKey> getTriggerKeys(final GroupMatcher<TriggerKey> matcher)
         throws JobPersistenceException {
-        return (Set<TriggerKey>)executeWithoutLock( // no locks necessary for read...
+        return (Set<TriggerKey>)executeReadOnly(Arrays.<Object>asList("getTriggerKeys", matcher), // no locks necessary for read...
             new TransactionCallback() {
                 public Object execute(Connection conn) throws JobPersistenceException {
                     return getTriggerNames(conn, matcher);
@@ -2022,7 +2949,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     @SuppressWarnings("unchecked")
     public List<String> getJobGroupNames()
         throws JobPersistenceException {
-        return (List<String>)executeWithoutLock( // no locks necessary for read...
+        return (List<String>)executeReadOnly(Arrays.<Object>asList("getJobGroupNames"), // no locks necessary for read...
             new TransactionCallback() {
                 public Object execute(Connection conn) throws JobPersistenceException {
                     return getJobGroupNames(conn);
@@ -2059,7 +2986,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     @SuppressWarnings("unchecked")
     public List<String> getTriggerGroupNames()
         throws JobPersistenceException {
-        return (List<String>)executeWithoutLock( // no locks necessary for read...
+        return (List<String>)executeReadOnly(Arrays.<Object>asList("getTriggerGroupNames"), // no locks necessary for read...
             new TransactionCallback() {
                 public Object execute(Connection conn) throws JobPersistenceException {
                     return getTriggerGroupNames(conn);
@@ -2095,7 +3022,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     @SuppressWarnings("unchecked")
     public List<String> getCalendarNames()
         throws JobPersistenceException {
-        return (List<String>)executeWithoutLock( // no locks necessary for read...
+        return (List<String>)executeReadOnly(Arrays.<Object>asList("getCalendarNames"), // no locks necessary for read...
             new TransactionCallback() {
                 public Object execute(Connection conn) throws JobPersistenceException {
                     return getCalendarNames(conn);
@@ -2232,16 +3159,23 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             new TransactionCallback() {
                 public Set<String> execute(final Connection conn) throws JobPersistenceException {
                     Set<String> groupNames = new HashSet<String>();
-                    Set<JobKey> jobNames = getJobNames(conn, matcher);
-
-                    for (JobKey jobKey : jobNames) {
-                        List<OperableTrigger> triggers = getTriggersForJob(conn, jobKey);
-                        for (OperableTrigger trigger : triggers) {
-                            pauseTrigger(conn, trigger.getKey());
-                        }
+                    for (JobKey jobKey : getJobNames(conn, matcher)) {
                         groupNames.add(jobKey.getGroup());
                     }
 
+                    try {
+                        getDelegate().updateTriggerStatesForJobGroupFromOtherStates(
+                                conn, matcher, STATE_PAUSED, STATE_ACQUIRED,
+                                STATE_WAITING, STATE_WAITING);
+
+                        getDelegate().updateTriggerStatesForJobGroupFromOtherStates(
+                                conn, matcher, STATE_PAUSED_BLOCKED, STATE_BLOCKED,
+                                STATE_BLOCKED, STATE_BLOCKED);
+                    } catch (SQLException e) {
+                        throw new JobPersistenceException("Couldn't pause jobs '"
+                                + matcher + "': " + e.getMessage(), e);
+                    }
+
                     return groupNames;
                 }
             }
@@ -2305,6 +3239,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             new VoidTransactionCallback() {
                 public void executeVoid(Connection conn) throws JobPersistenceException {
                     resumeTrigger(conn, triggerKey);
+                    scheduleChanged(conn);
                 }
             });
     }
@@ -2364,6 +3299,72 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         }
     }
 
+    /**
+     * <p>
+     * Resume the triggers with the given statuses as 
+     * <code>{@link #resumeTrigger(Connection, TriggerKey)}</code> does each
+     * of them, but finding the blocked jobs with a single query, and moving
+     * the triggers out of their paused states with one JDBC batch per
+     * transition.  Only the triggers whose next fire time is past the 
+     * misfire threshold are loaded, to apply their misfire instruction.
+     * </p>
+     */
+    protected void resumeTriggers(Connection conn, List<TriggerStatus> statuses)
+        throws JobPersistenceException {
+        try {
+            Set<JobKey> blockedJobs = null;
+            long misfireTime = getMisfireTime();
+
+            List<TriggerKey> pausedToWaiting = new ArrayList<TriggerKey>();
+            List<TriggerKey> pausedToBlocked = new ArrayList<TriggerKey>();
+            List<TriggerKey> pausedBlockedToWaiting = new ArrayList<TriggerKey>();
+            List<TriggerKey> pausedBlockedToBlocked = new ArrayList<TriggerKey>();
+
+            for (TriggerStatus status : statuses) {
+                if (status.getNextFireTime() == null) {
+                    continue;
+                }
+
+                boolean misfired = schedulerRunning 
+                    && status.getNextFireTime().getTime() <= misfireTime;
+                boolean blocked = STATE_PAUSED_BLOCKED.equals(status.getStatus());
+                if (!misfired && !blocked && !STATE_PAUSED.equals(status.getStatus())) {
+                    continue;
+                }
+
+                if (blockedJobs == null) {
+                    blockedJobs = getDelegate().selectBlockedJobs(conn);
+                }
+                boolean jobBlocked = blockedJobs.contains(status.getJobKey());
+
+                if (misfired) {
+                    updateMisfiredTrigger(conn, status.getKey(), 
+                        jobBlocked ? STATE_BLOCKED : STATE_WAITING, true);
+                } else if (blocked && jobBlocked) {
+                    pausedBlockedToBlocked.add(status.getKey());
+                } else if (blocked) {
+                    pausedBlockedToWaiting.add(status.getKey());
+                } else if (jobBlocked) {
+                    pausedToBlocked.add(status.getKey());
+                } else {
+                    pausedToWaiting.add(status.getKey());
+                }
+            }
+
+            getDelegate().updateTriggerStatesFromOtherState(conn, 
+                    pausedToWaiting, STATE_WAITING, STATE_PAUSED);
+            getDelegate().updateTriggerStatesFromOtherState(conn, 
+                    pausedToBlocked, STATE_BLOCKED, STATE_PAUSED);
+            getDelegate().updateTriggerStatesFromOtherState(conn, 
+                    pausedBlockedToWaiting, STATE_WAITING, STATE_PAUSED_BLOCKED);
+            getDelegate().updateTriggerStatesFromOtherState(conn, 
+                    pausedBlockedToBlocked, STATE_BLOCKED, STATE_PAUSED_BLOCKED);
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't resume triggers: "
+                    + e.getMessage(), e);
+        }
+    }
+
     /**
      * <p>
      * Resume (un-pause) the <code>{@link org.quartz.Job}</code> with the
@@ -2387,6 +3388,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                     for (OperableTrigger trigger: triggers) {
                         resumeTrigger(conn, trigger.getKey());
                     }
+                    scheduleChanged(conn);
                 }
             });
     }
@@ -2412,16 +3414,19 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             LOCK_TRIGGER_ACCESS,
             new TransactionCallback() {
                 public Set<String> execute(Connection conn) throws JobPersistenceException {
-                    Set<JobKey> jobKeys = getJobNames(conn, matcher);
                     Set<String> groupNames = new HashSet<String>();
-
-                    for (JobKey jobKey: jobKeys) {
-                        List<OperableTrigger> triggers = getTriggersForJob(conn, jobKey);
-                        for (OperableTrigger trigger: triggers) {
-                            resumeTrigger(conn, trigger.getKey());
-                        }
+                    for (JobKey jobKey: getJobNames(conn, matcher)) {
                         groupNames.add(jobKey.getGroup());
                     }
+
+                    try {
+                        resumeTriggers(conn, 
+                                getDelegate().selectTriggerStatusesForJobGroup(conn, matcher));
+                    } catch (SQLException e) {
+                        throw new JobPersistenceException("Couldn't resume jobs '"
+                                + matcher + "': " + e.getMessage(), e);
+                    }
+                    scheduleChanged(conn);
                     return groupNames;
                 }
             });
@@ -2492,7 +3497,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     @SuppressWarnings("unchecked")
     public Set<String> getPausedTriggerGroups() 
         throws JobPersistenceException {
-        return (Set<String>)executeWithoutLock( // no locks necessary for read...
+        return (Set<String>)executeReadOnly(Arrays.<Object>asList("getPausedTriggerGroups"), // no locks necessary for read...
             new TransactionCallback() {
                 public Object execute(Connection conn) throws JobPersistenceException {
                     return getPausedTriggerGroups(conn);
@@ -2539,7 +3544,9 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             LOCK_TRIGGER_ACCESS,
             new TransactionCallback() {
                 public Set<String> execute(Connection conn) throws JobPersistenceException {
-                    return resumeTriggerGroup(conn, matcher);
+                    Set<String> groupNames = resumeTriggerGroup(conn, matcher);
+                    scheduleChanged(conn);
+                    return groupNames;
                 }
             });
 
@@ -2566,49 +3573,15 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             getDelegate().deletePausedTriggerGroup(conn, matcher);
             HashSet<String> groups = new HashSet<String>();
 
-            Set<TriggerKey> keys = getDelegate().selectTriggersInGroup(conn,
-                    matcher);
-
-            for (TriggerKey key: keys) {
-                resumeTrigger(conn, key);
-                groups.add(key.getGroup());
+            List<TriggerStatus> statuses = 
+                getDelegate().selectTriggerStatusesInGroup(conn, matcher);
+            for (TriggerStatus status : statuses) {
+                groups.add(status.getKey().getGroup());
             }
+            resumeTriggers(conn, statuses);
 
             return groups;
 
-            // FUTURE_TODO: find an efficient way to resume triggers (better than the
-            // above)... logic below is broken because of
-            // findTriggersToBeBlocked()
-            /*
-             * int res =
-             * getDelegate().updateTriggerGroupStateFromOtherState(conn,
-             * groupName, STATE_WAITING, PAUSED);
-             * 
-             * if(res > 0) {
-             * 
-             * long misfireTime = System.currentTimeMillis();
-             * if(getMisfireThreshold() > 0) misfireTime -=
-             * getMisfireThreshold();
-             * 
-             * Key[] misfires =
-             * getDelegate().selectMisfiredTriggersInGroupInState(conn,
-             * groupName, STATE_WAITING, misfireTime);
-             * 
-             * List blockedTriggers = findTriggersToBeBlocked(conn,
-             * groupName);
-             * 
-             * Iterator itr = blockedTriggers.iterator(); while(itr.hasNext()) {
-             * Key key = (Key)itr.next();
-             * getDelegate().updateTriggerState(conn, key.getName(),
-             * key.getGroup(), BLOCKED); }
-             * 
-             * for(int i=0; i < misfires.length; i++) {               String
-             * newState = STATE_WAITING;
-             * if(blockedTriggers.contains(misfires[i])) newState =
-             * BLOCKED; updateMisfiredTrigger(conn,
-             * misfires[i].getName(), misfires[i].getGroup(), newState, true); } }
-             */
-
         } catch (SQLException e) {
             throw new JobPersistenceException("Couldn't pause trigger group '"
                     + matcher + "': " + e.getMessage(), e);
@@ -2694,6 +3667,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             new VoidTransactionCallback() {
                 public void executeVoid(Connection conn) throws JobPersistenceException {
                     resumeAll(conn);
+                    scheduleChanged(conn);
                 }
             });
     }
@@ -2748,7 +3722,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         throws JobPersistenceException {
         
         String lockName;
-        if(isAcquireTriggersWithinLock() || maxCount > 1) { 
+        if(!isAcquireTriggersWithoutLock() && (isAcquireTriggersWithinLock() || maxCount > 1)) { 
             lockName = LOCK_TRIGGER_ACCESS;
         } else {
             lockName = null;
@@ -2797,43 +3771,69 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         do {
             currentLoopCount ++;
             try {
-                List<TriggerKey> keys = getDelegate().selectTriggerToAcquire(conn, noLaterThan + timeWindow, getMisfireTime(), maxCount);
+                List<TriggerKey> keys = null;
+                // whether neither the TRIGGER_ACCESS lock nor the row locks are held
+                boolean optimistic = false;
+                TriggerPartitions partitions = getTriggerPartitions();
+                if (partitions != null) {
+                    // Only the triggers of our own partitions, whose key hashes are one
+                    // range, are selected; no other instance looks at them.
+                    if (partitions.getOwnedPartitionCount() == 0) {
+                        return acquiredTriggers;
+                    }
+                    keys = getDelegate().selectTriggerToAcquireInKeyHashRange(conn, noLaterThan + timeWindow, getMisfireTime(), 
+                            maxCount, partitions.getMinOwnedKeyHash(), partitions.getMaxOwnedKeyHash());
+                    optimistic = isAcquireTriggersWithoutLock();
+                } else {
+                    if (isAcquireTriggersWithoutLock()) {
+                        keys = getDelegate().selectTriggerToAcquireSkipLocked(conn, noLaterThan + timeWindow, getMisfireTime(), maxCount);
+                        optimistic = (keys == null);
+                    }
+                    if (keys == null) {
+                        keys = getDelegate().selectTriggerToAcquire(conn, noLaterThan + timeWindow, getMisfireTime(), maxCount);
+                    }
+                }
                 
                 // No trigger is ready to fire yet.
                 if (keys == null || keys.size() == 0)
                     return acquiredTriggers;
                 
-                for(TriggerKey triggerKey: keys) {
-                    // If our trigger is no longer available, try a new one.
-                    OperableTrigger nextTrigger = retrieveTrigger(conn, triggerKey);
-                    if(nextTrigger == null) {
-                        continue; // next trigger
-                    }
-                    
-                    // If trigger's job is set as @DisallowConcurrentExecution, and it has already been added to result, then
-                    // put it back into the timeTriggers set and continue to search for next trigger.
-                    JobKey jobKey = nextTrigger.getJobKey();
-                    JobDetail job = getDelegate().selectJobDetail(conn, jobKey, getClassLoadHelper());
-                    if (job.isConcurrentExectionDisallowed()) {
-                        if (acquiredJobKeysForNoConcurrentExec.contains(jobKey)) {
+                if (maxCount > 1) {
+                    acquireTriggerBatch(conn, keys, acquiredTriggers, acquiredJobKeysForNoConcurrentExec, optimistic);
+                } else {
+                    long jobDetailsVersion = selectJobDetailsVersion(conn);
+                    for(TriggerKey triggerKey: keys) {
+                        // If our trigger is no longer available, try a new one.
+                        OperableTrigger nextTrigger = retrieveTrigger(conn, triggerKey);
+                        if(nextTrigger == null) {
                             continue; // next trigger
-                        } else {
-                            acquiredJobKeysForNoConcurrentExec.add(jobKey);
                         }
-                    }
                     
-                    // We now have a acquired trigger, let's add to return list.
-                    // If our trigger was no longer in the expected state, try a new one.
-                    int rowsUpdated = getDelegate().updateTriggerStateFromOtherState(conn, triggerKey, STATE_ACQUIRED, STATE_WAITING);
-                    if (rowsUpdated <= 0) {
-                        continue; // next trigger
-                    }
-                    nextTrigger.setFireInstanceId(getFiredTriggerRecordId());
-                    getDelegate().insertFiredTrigger(conn, nextTrigger, STATE_ACQUIRED, null);
+                        // If trigger's job is set as @DisallowConcurrentExecution, and it has already been added to result, then
+                        // put it back into the timeTriggers set and continue to search for next trigger.
+                        JobKey jobKey = nextTrigger.getJobKey();
+                        JobDetail job = retrieveJob(conn, jobKey, jobDetailsVersion);
+                        if (job.isConcurrentExectionDisallowed()) {
+                            if (acquiredJobKeysForNoConcurrentExec.contains(jobKey)) {
+                                continue; // next trigger
+                            } else {
+                                acquiredJobKeysForNoConcurrentExec.add(jobKey);
+                            }
+                        }
+                    
+                        // We now have a acquired trigger, let's add to return list.
+                        // If our trigger was no longer in the expected state, try a new one.
+                        int rowsUpdated = getDelegate().updateTriggerStateFromOtherState(conn, triggerKey, STATE_ACQUIRED, STATE_WAITING);
+                        if (rowsUpdated <= 0) {
+                            continue; // next trigger
+                        }
+                        nextTrigger.setFireInstanceId(getFiredTriggerRecordId());
+                        getDelegate().insertFiredTrigger(conn, nextTrigger, STATE_ACQUIRED, null);
 
-                    acquiredTriggers.add(nextTrigger);
-                    if(firstAcquiredTriggerFireTime == 0)
-                        firstAcquiredTriggerFireTime = nextTrigger.getNextFireTime().getTime();
+                        acquiredTriggers.add(nextTrigger);
+                        if(firstAcquiredTriggerFireTime == 0)
+                            firstAcquiredTriggerFireTime = nextTrigger.getNextFireTime().getTime();
+                    }
                 }
 
                 // if we didn't end up with any trigger to fire from that first
@@ -2853,6 +3853,86 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         // Return the acquired trigger list
         return acquiredTriggers;
     }
+
+    /**
+     * <p>
+     * Acquire the triggers with the given keys as a batch: the triggers and
+     * their jobs' concurrency flags are loaded with set-based selects, and
+     * the state updates and fired trigger inserts are each sent as a single
+     * JDBC batch, so that a batch costs a handful of round-trips to the
+     * database rather than several per trigger.
+     * </p>
+     * 
+     * <p>
+     * Unless <code>optimistic</code>, the caller must hold the 
+     * <code>TRIGGER_ACCESS</code> lock or the triggers' row locks, as 
+     * drivers that do not report per-statement update counts for a batch
+     * leave no other way of knowing that a trigger was still 
+     * <code>WAITING</code>.  Optimistic claims are made one trigger at a
+     * time, as their update counts tell which triggers another node took.
+     * </p>
+     */
+    protected void acquireTriggerBatch(Connection conn, List<TriggerKey> keys, 
+            List<OperableTrigger> acquiredTriggers, Set<JobKey> acquiredJobKeysForNoConcurrentExec,
+            boolean optimistic) 
+        throws SQLException, ClassNotFoundException, IOException, JobPersistenceException {
+        Map<TriggerKey, OperableTrigger> triggers = getDelegate().selectTriggers(conn, keys);
+        if (triggers.isEmpty()) {
+            return;
+        }
+        
+        Set<JobKey> jobKeys = new HashSet<JobKey>();
+        for (OperableTrigger trigger : triggers.values()) {
+            jobKeys.add(trigger.getJobKey());
+        }
+        Set<JobKey> nonConcurrentJobKeys = getDelegate().selectNonConcurrentJobs(conn, jobKeys);
+
+        List<OperableTrigger> candidates = new ArrayList<OperableTrigger>(triggers.size());
+        List<TriggerKey> candidateKeys = new ArrayList<TriggerKey>(triggers.size());
+        for (TriggerKey triggerKey : keys) {
+            // If our trigger is no longer available, try a new one.
+            OperableTrigger nextTrigger = triggers.get(triggerKey);
+            if (nextTrigger == null) {
+                continue; // next trigger
+            }
+            
+            // Skip triggers of a @DisallowConcurrentExecution job that has already been added to the result.
+            JobKey jobKey = nextTrigger.getJobKey();
+            if (nonConcurrentJobKeys.contains(jobKey)) {
+                if (acquiredJobKeysForNoConcurrentExec.contains(jobKey)) {
+                    continue; // next trigger
+                } else {
+                    acquiredJobKeysForNoConcurrentExec.add(jobKey);
+                }
+            }
+            
+            candidates.add(nextTrigger);
+            candidateKeys.add(triggerKey);
+        }
+        
+        // If a trigger was no longer in the expected state, skip it.
+        int[] rowsUpdated;
+        if (optimistic) {
+            rowsUpdated = new int[candidateKeys.size()];
+            for (int i = 0; i < candidateKeys.size(); i++) {
+                rowsUpdated[i] = getDelegate().updateTriggerStateFromOtherState(conn, candidateKeys.get(i), STATE_ACQUIRED, STATE_WAITING);
+            }
+        } else {
+            rowsUpdated = getDelegate().updateTriggerStatesFromOtherState(conn, candidateKeys, STATE_ACQUIRED, STATE_WAITING);
+        }
+        List<OperableTrigger> acquired = new ArrayList<OperableTrigger>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            if (rowsUpdated[i] == 0 || rowsUpdated[i] == Statement.EXECUTE_FAILED) {
+                continue; // next trigger
+            }
+            OperableTrigger nextTrigger = candidates.get(i);
+            nextTrigger.setFireInstanceId(getFiredTriggerRecordId());
+            acquired.add(nextTrigger);
+        }
+        getDelegate().insertFiredTriggers(conn, acquired, STATE_ACQUIRED);
+
+        acquiredTriggers.addAll(acquired);
+    }
     
     /**
      * <p>
@@ -2900,6 +3980,10 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         return executeInNonManagedTXLock(LOCK_TRIGGER_ACCESS,
                 new TransactionCallback<List<TriggerFiredResult>>() {
                     public List<TriggerFiredResult> execute(Connection conn) throws JobPersistenceException {
+                        if (triggers.size() > 1) {
+                            return triggersFired(conn, triggers);
+                        }
+                        
                         List<TriggerFiredResult> results = new ArrayList<TriggerFiredResult>();
 
                         TriggerFiredResult result;
@@ -2942,6 +4026,213 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                 });
     }
 
+    /**
+     * <p>
+     * Fire the given triggers as a batch, with the same outcome for each as
+     * <code>{@link #triggerFired(Connection, OperableTrigger)}</code> but 
+     * with the trigger states selected in one query, each job and calendar
+     * retrieved once, and the fired trigger records, blocked states and
+     * triggers themselves written as JDBC batches - cutting the time the
+     * <code>TRIGGER_ACCESS</code> lock is held at high fire rates.
+     * </p>
+     * 
+     * <p>
+     * Failures particular to a trigger (a missing job or calendar, or an
+     * exception from the trigger) are reported in its result, as they are
+     * by <code>triggerFired</code>; failures of the batched writes fail the
+     * whole batch.
+     * </p>
+     */
+    protected List<TriggerFiredResult> triggersFired(Connection conn,
+            List<OperableTrigger> triggers)
+        throws JobPersistenceException {
+        TriggerFiredResult[] results = new TriggerFiredResult[triggers.size()];
+        
+        Map<TriggerKey, String> states;
+        List<TriggerKey> keys = new ArrayList<TriggerKey>(triggers.size());
+        for (OperableTrigger trigger : triggers) {
+            keys.add(trigger.getKey());
+        }
+        // Make sure the triggers weren't deleted, paused, or completed...
+        try { 
+            states = getDelegate().selectTriggerStates(conn, keys);
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't select trigger states: "
+                    + e.getMessage(), e);
+        }
+        
+        long jobDetailsVersion = selectJobDetailsVersion(conn);
+        Map<JobKey, JobDetail> jobs = new HashMap<JobKey, JobDetail>();
+        Map<JobKey, JobPersistenceException> jobFailures = new HashMap<JobKey, JobPersistenceException>();
+        Map<String, Calendar> calendars = new HashMap<String, Calendar>();
+        Set<JobKey> nonConcurrentJobKeys = new HashSet<JobKey>();
+        
+        List<Integer> firing = new ArrayList<Integer>();
+        List<JobDetail> firingJobs = new ArrayList<JobDetail>();
+        List<Calendar> firingCalendars = new ArrayList<Calendar>();
+        
+        for (int i = 0; i < triggers.size(); i++) {
+            OperableTrigger trigger = triggers.get(i);
+            results[i] = new TriggerFiredResult((TriggerFiredBundle) null);
+            
+            if (!STATE_ACQUIRED.equals(states.get(trigger.getKey()))) {
+                continue;
+            }
+            
+            // an earlier trigger of a non-concurrent job has blocked this one
+            JobKey jobKey = trigger.getJobKey();
+            if (nonConcurrentJobKeys.contains(jobKey)) {
+                continue;
+            }
+            
+            JobDetail job;
+            try {
+                if (jobFailures.containsKey(jobKey)) {
+                    throw jobFailures.get(jobKey);
+                }
+                if (jobs.containsKey(jobKey)) {
+                    job = jobs.get(jobKey);
+                    if (job != null) {
+                        job = (JobDetail) job.clone();
+                    }
+                } else {
+                    try {
+                        job = retrieveJob(conn, jobKey, jobDetailsVersion);
+                    } catch (JobPersistenceException jpe) {
+                        jobFailures.put(jobKey, jpe);
+                        throw jpe;
+                    }
+                    jobs.put(jobKey, job);
+                }
+                if (job == null) {
+                    continue;
+                }
+            } catch (JobPersistenceException jpe) {
+                try {
+                    getLog().error("Error retrieving job, setting trigger state to ERROR.", jpe);
+                    getDelegate().updateTriggerState(conn, trigger.getKey(),
+                            STATE_ERROR);
+                } catch (SQLException sqle) {
+                    getLog().error("Unable to set trigger state to ERROR.", sqle);
+                }
+                results[i] = new TriggerFiredResult(jpe);
+                continue;
+            }
+            
+            Calendar cal = null;
+            if (trigger.getCalendarName() != null) {
+                try {
+                    if (calendars.containsKey(trigger.getCalendarName())) {
+                        cal = calendars.get(trigger.getCalendarName());
+                    } else {
+                        cal = retrieveCalendar(conn, trigger.getCalendarName());
+                        calendars.put(trigger.getCalendarName(), cal);
+                    }
+                } catch (JobPersistenceException jpe) {
+                    results[i] = new TriggerFiredResult(jpe);
+                    continue;
+                }
+                if (cal == null) {
+                    continue;
+                }
+            }
+            
+            if (job.isConcurrentExectionDisallowed()) {
+                nonConcurrentJobKeys.add(jobKey);
+            }
+            
+            firing.add(i);
+            firingJobs.add(job);
+            firingCalendars.add(cal);
+        }
+        
+        List<OperableTrigger> firingTriggers = new ArrayList<OperableTrigger>(firing.size());
+        for (Integer i : firing) {
+            firingTriggers.add(triggers.get(i));
+        }
+        try {
+            getDelegate().updateFiredTriggers(conn, firingTriggers, STATE_EXECUTING, firingJobs);
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't insert fired triggers: "
+                    + e.getMessage(), e);
+        }
+        
+        List<Integer> fired = new ArrayList<Integer>(firing.size());
+        List<OperableTrigger> firedTriggers = new ArrayList<OperableTrigger>(firing.size());
+        List<String> firedStates = new ArrayList<String>(firing.size());
+        List<JobDetail> firedJobs = new ArrayList<JobDetail>(firing.size());
+        List<Calendar> firedCalendars = new ArrayList<Calendar>(firing.size());
+        List<Date> prevFireTimes = new ArrayList<Date>(firing.size());
+        Set<JobKey> blockedJobKeys = new HashSet<JobKey>();
+        
+        for (int k = 0; k < firing.size(); k++) {
+            int i = firing.get(k);
+            OperableTrigger trigger = triggers.get(i);
+            JobDetail job = firingJobs.get(k);
+            Calendar cal = firingCalendars.get(k);
+            
+            Date prevFireTime = trigger.getPreviousFireTime();
+
+            // call triggered - to update the trigger's next-fire-time state...
+            try {
+                trigger.triggered(cal);
+            } catch (RuntimeException re) {
+                results[i] = new TriggerFiredResult(re);
+                continue;
+            }
+
+            String state = STATE_WAITING;
+            if (job.isConcurrentExectionDisallowed()) {
+                state = STATE_BLOCKED;
+                blockedJobKeys.add(job.getKey());
+            }
+            if (trigger.getNextFireTime() == null) {
+                state = STATE_COMPLETE;
+            }
+            
+            fired.add(i);
+            firedTriggers.add(trigger);
+            firedStates.add(state);
+            firedJobs.add(job);
+            firedCalendars.add(cal);
+            prevFireTimes.add(prevFireTime);
+        }
+        
+        try {
+            getDelegate().updateTriggerStatesForJobsFromOtherState(conn, blockedJobKeys,
+                    STATE_BLOCKED, STATE_WAITING);
+            getDelegate().updateTriggerStatesForJobsFromOtherState(conn, blockedJobKeys,
+                    STATE_BLOCKED, STATE_ACQUIRED);
+            getDelegate().updateTriggerStatesForJobsFromOtherState(conn, blockedJobKeys,
+                    STATE_PAUSED_BLOCKED, STATE_PAUSED);
+        } catch (SQLException e) {
+            throw new JobPersistenceException(
+                    "Couldn't update states of blocked triggers: "
+                            + e.getMessage(), e);
+        }
+        
+        try {
+            getDelegate().updateTriggers(conn, firedTriggers, firedStates, firedJobs);
+        } catch (Exception e) {
+            throw new JobPersistenceException("Couldn't store fired triggers: " 
+                    + e.getMessage(), e);
+        }
+        
+        for (int k = 0; k < fired.size(); k++) {
+            OperableTrigger trigger = firedTriggers.get(k);
+            JobDetail job = firedJobs.get(k);
+            
+            job.getJobDataMap().clearDirtyFlag();
+            
+            results[fired.get(k)] = new TriggerFiredResult(new TriggerFiredBundle(job, trigger, 
+                    firedCalendars.get(k), trigger.getKey().getGroup()
+                    .equals(Scheduler.DEFAULT_RECOVERY_GROUP), new Date(), trigger
+                    .getPreviousFireTime(), prevFireTimes.get(k), trigger.getNextFireTime()));
+        }
+        
+        return new ArrayList<TriggerFiredResult>(Arrays.asList(results));
+    }
+
     protected TriggerFiredBundle triggerFired(Connection conn,
             OperableTrigger trigger)
         throws JobPersistenceException {
@@ -2960,8 +4251,9 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                     + e.getMessage(), e);
         }
 
+        long jobDetailsVersion = selectJobDetailsVersion(conn);
         try {
-            job = retrieveJob(conn, trigger.getJobKey());
+            job = retrieveJob(conn, trigger.getJobKey(), jobDetailsVersion);
             if (job == null) { return null; }
         } catch (JobPersistenceException jpe) {
             try {
@@ -3036,6 +4328,11 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      */
     public void triggeredJobComplete(final OperableTrigger trigger,
             final JobDetail jobDetail, final CompletedExecutionInstruction triggerInstCode) {
+        if (isGroupCommitJobCompletions()) {
+            groupCommitTriggeredJobComplete(new JobCompletion(trigger, jobDetail, triggerInstCode));
+            return;
+        }
+        
         retryExecuteInNonManagedTXLock(
             LOCK_TRIGGER_ACCESS,
             new VoidTransactionCallback() {
@@ -3045,6 +4342,77 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             });    
     }
     
+    /**
+     * Queue the completion, and either wait for the thread committing the
+     * current group to commit it, or - if no group is being committed -
+     * commit every queued completion in one transaction.
+     */
+    private void groupCommitTriggeredJobComplete(JobCompletion completion) {
+        List<JobCompletion> group;
+        synchronized (jobCompletionLock) {
+            pendingJobCompletions.add(completion);
+            boolean interrupted = false;
+            while (committingJobCompletions && !completion.committed) {
+                try {
+                    jobCompletionLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (completion.committed) {
+                return;
+            }
+            committingJobCompletions = true;
+            group = pendingJobCompletions;
+            pendingJobCompletions = new ArrayList<JobCompletion>();
+        }
+        
+        try {
+            commitJobCompletions(group);
+        } finally {
+            synchronized (jobCompletionLock) {
+                for (JobCompletion c : group) {
+                    c.committed = true;
+                }
+                committingJobCompletions = false;
+                jobCompletionLock.notifyAll();
+            }
+        }
+    }
+
+    private void commitJobCompletions(final List<JobCompletion> group) {
+        if (group.size() > 1) {
+            try {
+                executeInNonManagedTXLock(
+                    LOCK_TRIGGER_ACCESS,
+                    new VoidTransactionCallback() {
+                        public void executeVoid(Connection conn) throws JobPersistenceException {
+                            for (JobCompletion c : group) {
+                                triggeredJobComplete(conn, c.trigger, c.jobDetail, c.triggerInstCode);
+                            }
+                        }
+                    }, null);
+                return;
+            } catch (JobPersistenceException e) {
+                getLog().warn("Couldn't complete " + group.size() 
+                        + " jobs together, completing them one at a time: " + e.getMessage(), e);
+            }
+        }
+        
+        for (final JobCompletion c : group) {
+            retryExecuteInNonManagedTXLock(
+                LOCK_TRIGGER_ACCESS,
+                new VoidTransactionCallback() {
+                    public void executeVoid(Connection conn) throws JobPersistenceException {
+                        triggeredJobComplete(conn, c.trigger, c.jobDetail, c.triggerInstCode);
+                    }
+                });
+        }
+    }
+    
     protected void triggeredJobComplete(Connection conn,
             OperableTrigger trigger, JobDetail jobDetail,
             CompletedExecutionInstruction triggerInstCode) throws JobPersistenceException {
@@ -3209,6 +4577,9 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     }
 
     protected ThreadLocal<Long> sigChangeForTxCompletion = new ThreadLocal<Long>();
+    private final ThreadLocal<Boolean> scheduleChangedOnTxCompletion = new ThreadLocal<Boolean>();
+    private final AtomicBoolean scheduleChangePending = new AtomicBoolean();
+
     protected void signalSchedulingChangeOnTxCompletion(long candidateNewNextFireTime) {
         Long sigTime = sigChangeForTxCompletion.get();
         if(sigTime == null && candidateNewNextFireTime >= 0L)
@@ -3241,6 +4612,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         boolean transOwner = false;
         boolean transStateOwner = false;
         boolean recovered = false;
+        clusterRecoveryIncomplete = false;
 
         Connection conn = getNonManagedTXConnection();
         try {
@@ -3301,6 +4673,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         throws JobPersistenceException {
         try {
             List<SchedulerStateRecord> failedInstances = new LinkedList<SchedulerStateRecord>();
+            List<String> liveInstanceIds = new ArrayList<String>();
             boolean foundThisScheduler = false;
             long timeNow = System.currentTimeMillis();
             
@@ -3318,8 +4691,22 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                     // find failed instances...
                     if (calcFailedIfAfter(rec) < timeNow) {
                         failedInstances.add(rec);
+                    } else {
+                        liveInstanceIds.add(rec.getSchedulerInstanceId());
+                    }
+                }
+            }
+            
+            if (getTriggerPartitionCount() > 0) {
+                // Triggers stored before the KEY_HASH column existed have none,
+                // and would be in no partition.
+                if (firstCheckIn) {
+                    int updated = getDelegate().updateMissingTriggerKeyHashes(conn);
+                    if (updated > 0) {
+                        getLog().info("ClusterManager: stored the key hash of " + updated + " trigger(s).");
                     }
                 }
+                assignTriggerPartitions(liveInstanceIds);
             }
             
             // The first time through, also check for orphaned fired triggers.
@@ -3380,6 +4767,22 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         return orphanedInstances;
     }
     
+    /**
+     * Re-deal the trigger partitions if the live instances of the cluster,
+     * other than this one, are not those they were last dealt among.
+     */
+    protected void assignTriggerPartitions(List<String> liveInstanceIds) {
+        TriggerPartitions current = getTriggerPartitions();
+        TriggerPartitions assigned = new TriggerPartitions(getTriggerPartitionCount(), liveInstanceIds, getInstanceId());
+        if (current == null || !current.getInstanceIds().equals(assigned.getInstanceIds())) {
+            triggerPartitions = assigned;
+            getLog().info(
+                "ClusterManager: instance \"" + getInstanceId() + "\" now owns " 
+                + assigned.getOwnedPartitionCount() + " of " + assigned.getPartitionCount() 
+                + " trigger partitions, shared among " + assigned.getInstanceIds().size() + " instance(s).");
+        }
+    }
+    
     protected long calcFailedIfAfter(SchedulerStateRecord rec) {
         return rec.getCheckinTimestamp() +
             Math.max(rec.getCheckinInterval(), 
@@ -3416,7 +4819,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
 
         if (failedInstances.size() > 0) {
 
-            long recoverIds = System.currentTimeMillis();
+            boolean incomplete = false;
 
             logWarnIfNonZero(failedInstances.size(),
                     "ClusterManager: detected " + failedInstances.size()
@@ -3432,11 +4835,43 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                             .selectInstancesFiredTriggerRecords(conn,
                                     rec.getSchedulerInstanceId());
 
+                    // With partitioned triggers, each live instance recovers the fired
+                    // triggers of its own partitions, and with a limit on the fired triggers
+                    // to recover at a time, the rest are left to the next check-in.  The 
+                    // last one to recover any removes the failed instance's state record.  
+                    // This instance's own records, and orphaned ones, are only found at a 
+                    // first check-in, and so are recovered in full.
+                    boolean failedOver = rec.getCheckinTimestamp() > 0 
+                            && !rec.getSchedulerInstanceId().equals(getInstanceId());
+                    TriggerPartitions partitions = getTriggerPartitions();
+                    boolean partial = failedOver 
+                            && (partitions != null || getMaxFiredTriggersToRecoverAtATime() > 0);
+                    if (failedOver && partitions != null) {
+                        List<FiredTriggerRecord> ownedRecs = new ArrayList<FiredTriggerRecord>();
+                        for (FiredTriggerRecord ftRec : firedTriggerRecs) {
+                            if (partitions.isOwned(ftRec.getTriggerKey())) {
+                                ownedRecs.add(ftRec);
+                            }
+                        }
+                        firedTriggerRecs = ownedRecs;
+                    }
+                    if (failedOver && getMaxFiredTriggersToRecoverAtATime() > 0 
+                            && firedTriggerRecs.size() > getMaxFiredTriggersToRecoverAtATime()) {
+                        firedTriggerRecs = firedTriggerRecs.subList(0, getMaxFiredTriggersToRecoverAtATime());
+                        incomplete = true;
+                    }
+
                     int acquiredCount = 0;
                     int recoveredCount = 0;
                     int otherCount = 0;
 
                     Set<TriggerKey> triggerKeys = new HashSet<TriggerKey>();
+                    List<TriggerKey> acquiredKeys = new ArrayList<TriggerKey>();
+                    Set<JobKey> blockedJobKeys = new LinkedHashSet<JobKey>();
+                    Set<JobKey> pausedBlockedJobKeys = new LinkedHashSet<JobKey>();
+                    Map<JobKey, JobDetail> jobs = new HashMap<JobKey, JobDetail>();
+                    List<OperableTrigger> rcvryTrigs = new ArrayList<OperableTrigger>();
+                    List<JobDetail> rcvryJobs = new ArrayList<JobDetail>();
 
                     for (FiredTriggerRecord ftRec : firedTriggerRecs) {
 
@@ -3447,33 +4882,28 @@ public abstract class JobStoreSupport implements JobStore, Constants {
 
                         // release blocked triggers..
                         if (ftRec.getFireInstanceState().equals(STATE_BLOCKED)) {
-                            getDelegate()
-                                    .updateTriggerStatesForJobFromOtherState(
-                                            conn, jKey,
-                                            STATE_WAITING, STATE_BLOCKED);
+                            blockedJobKeys.add(jKey);
                         } else if (ftRec.getFireInstanceState().equals(STATE_PAUSED_BLOCKED)) {
-                            getDelegate()
-                                    .updateTriggerStatesForJobFromOtherState(
-                                            conn, jKey,
-                                            STATE_PAUSED, STATE_PAUSED_BLOCKED);
+                            pausedBlockedJobKeys.add(jKey);
                         }
 
                         // release acquired triggers..
                         if (ftRec.getFireInstanceState().equals(STATE_ACQUIRED)) {
-                            getDelegate().updateTriggerStateFromOtherState(
-                                    conn, tKey, STATE_WAITING,
-                                    STATE_ACQUIRED);
+                            acquiredKeys.add(tKey);
                             acquiredCount++;
                         } else if (ftRec.isJobRequestsRecovery()) {
                             // handle jobs marked for recovery that were not fully
                             // executed..
-                            if (jobExists(conn, jKey)) {
+                            if (!jobs.containsKey(jKey)) {
+                                jobs.put(jKey, getDelegate().selectJobDetail(conn, jKey, getClassLoadHelper()));
+                            }
+                            JobDetail job = jobs.get(jKey);
+                            if (job != null) {
+                                // named after the fire instance id, which is unique within the cluster,
+                                // as other instances may be recovering the same failed instance
                                 @SuppressWarnings("deprecation")
                                 SimpleTriggerImpl rcvryTrig = new SimpleTriggerImpl(
-                                        "recover_"
-                                                + rec.getSchedulerInstanceId()
-                                                + "_"
-                                                + String.valueOf(recoverIds++),
+                                        "recover_" + ftRec.getFireInstanceId(),
                                         Scheduler.DEFAULT_RECOVERY_GROUP,
                                         new Date(ftRec.getScheduleTimestamp()));
                                 rcvryTrig.setJobName(jKey.getName());
@@ -3488,8 +4918,8 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                                 rcvryTrig.setJobDataMap(jd);
 
                                 rcvryTrig.computeFirstFireTime(null);
-                                storeTrigger(conn, rcvryTrig, null, false,
-                                        STATE_WAITING, false, true);
+                                rcvryTrigs.add(rcvryTrig);
+                                rcvryJobs.add(job);
                                 recoveredCount++;
                             } else {
                                 getLog()
@@ -3505,19 +4935,33 @@ public abstract class JobStoreSupport implements JobStore, Constants {
 
                         // free up stateful job's triggers
                         if (ftRec.isJobDisallowsConcurrentExecution()) {
-                            getDelegate()
-                                    .updateTriggerStatesForJobFromOtherState(
-                                            conn, jKey,
-                                            STATE_WAITING, STATE_BLOCKED);
-                            getDelegate()
-                                    .updateTriggerStatesForJobFromOtherState(
-                                            conn, jKey,
-                                            STATE_PAUSED, STATE_PAUSED_BLOCKED);
+                            blockedJobKeys.add(jKey);
+                            pausedBlockedJobKeys.add(jKey);
                         }
                     }
 
-                    getDelegate().deleteFiredTriggers(conn,
-                            rec.getSchedulerInstanceId());
+                    getDelegate().updateTriggerStatesForJobsFromOtherState(conn, 
+                            blockedJobKeys, STATE_WAITING, STATE_BLOCKED);
+                    getDelegate().updateTriggerStatesForJobsFromOtherState(conn, 
+                            pausedBlockedJobKeys, STATE_PAUSED, STATE_PAUSED_BLOCKED);
+                    if (!acquiredKeys.isEmpty()) {
+                        getDelegate().updateTriggerStatesFromOtherState(conn, 
+                                acquiredKeys, STATE_WAITING, STATE_ACQUIRED);
+                    }
+                    if (!rcvryTrigs.isEmpty()) {
+                        storeRecoveryTriggers(conn, rcvryTrigs, rcvryJobs);
+                    }
+
+                    if (partial) {
+                        List<String> fireInstanceIds = new ArrayList<String>();
+                        for (FiredTriggerRecord ftRec : firedTriggerRecs) {
+                            fireInstanceIds.add(ftRec.getFireInstanceId());
+                        }
+                        getDelegate().deleteFiredTriggers(conn, fireInstanceIds);
+                    } else {
+                        getDelegate().deleteFiredTriggers(conn,
+                                rec.getSchedulerInstanceId());
+                    }
 
                     // Check if any of the fired triggers we just deleted were the last fired trigger
                     // records of a COMPLETE trigger.
@@ -3550,7 +4994,9 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                             "ClusterManager: ......Cleaned-up " + otherCount
                                     + " other failed job(s).");
 
-                    if (!rec.getSchedulerInstanceId().equals(getInstanceId())) {
+                    if (!rec.getSchedulerInstanceId().equals(getInstanceId()) 
+                            && (!partial || getDelegate().selectInstancesFiredTriggerRecords(
+                                    conn, rec.getSchedulerInstanceId()).isEmpty())) {
                         getDelegate().deleteSchedulerState(conn,
                                 rec.getSchedulerInstanceId());
                     }
@@ -3559,7 +5005,29 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                 throw new JobPersistenceException("Failure recovering jobs: "
                         + e.getMessage(), e);
             }
+
+            clusterRecoveryIncomplete = incomplete;
+        }
+    }
+
+    /**
+     * Insert the recovery triggers of failed jobs, in the 
+     * <code>WAITING</code> state unless the recovery group is paused, as 
+     * <code>{@link #storeTrigger(Connection, OperableTrigger, JobDetail, boolean, String, boolean, boolean)}</code>
+     * would, but as a single batch.
+     */
+    private void storeRecoveryTriggers(Connection conn, List<OperableTrigger> triggers, List<JobDetail> jobs)
+        throws SQLException, IOException, JobPersistenceException {
+        String state = STATE_WAITING;
+        if (getDelegate().isTriggerGroupPaused(conn, Scheduler.DEFAULT_RECOVERY_GROUP)) {
+            state = STATE_PAUSED;
+        } else if (getDelegate().isTriggerGroupPaused(conn, ALL_GROUPS_PAUSED)) {
+            getDelegate().insertPausedTriggerGroup(conn, Scheduler.DEFAULT_RECOVERY_GROUP);
+            state = STATE_PAUSED;
         }
+
+        getDelegate().insertTriggers(conn, triggers, Collections.nCopies(triggers.size(), state), jobs);
+        scheduleChanged(conn);
     }
 
     protected void logWarnIfNonZero(int val, String warning) {
@@ -3588,6 +5056,10 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      */
     protected void cleanupConnection(Connection conn) {
         if (conn != null) {
+            if (delegate != null) {
+                delegate.closeCachedStatements(conn);
+            }
+
             if (conn instanceof Proxy) {
                 Proxy connProxy = (Proxy)conn;
                 
@@ -3723,6 +5195,83 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         return executeInLock(null, txCallback);
     }
 
+    /**
+     * Execute the given read-only callback in a transaction of its own on 
+     * the read <code>DataSource</code>, if one is set, or else as 
+     * <code>{@link #executeWithoutLock(TransactionCallback)}</code> does.
+     * 
+     * @param cacheKey If not null, the result is cached under this key for
+     * the read cache's time to live, and copies of it are returned.
+     * 
+     * @see #setReadDataSource(String)
+     * @see #setReadCacheTimeToLive(long)
+     */
+    protected <T> T executeReadOnly(List<Object> cacheKey,
+        TransactionCallback<T> txCallback) throws JobPersistenceException {
+        if (cacheKey == null || getReadCacheTimeToLive() <= 0) {
+            return executeReadOnly(txCallback);
+        }
+
+        ReadCacheEntry entry = readCache.get(cacheKey);
+        if (entry == null || entry.expires <= System.currentTimeMillis()) {
+            entry = new ReadCacheEntry(executeReadOnly(txCallback), System.currentTimeMillis() + getReadCacheTimeToLive());
+            if (readCache.size() >= MAX_READ_CACHE_ENTRIES) {
+                readCache.clear();
+            }
+            readCache.put(cacheKey, entry);
+        }
+        @SuppressWarnings("unchecked")
+        T result = (T) copyOf(entry.value);
+        return result;
+    }
+
+    private <T> T executeReadOnly(TransactionCallback<T> txCallback) throws JobPersistenceException {
+        if (getReadDataSource() == null) {
+            return executeWithoutLock(txCallback);
+        }
+
+        Connection conn = getReadConnection();
+        try {
+            T result = txCallback.execute(conn);
+            commitConnection(conn);
+            return result;
+        } catch (JobPersistenceException e) {
+            rollbackConnection(conn);
+            throw e;
+        } catch (RuntimeException e) {
+            rollbackConnection(conn);
+            throw new JobPersistenceException("Unexpected runtime exception: "
+                    + e.getMessage(), e);
+        } finally {
+            cleanupConnection(conn);
+        }
+    }
+
+    /**
+     * Copy a cached result, so that callers may modify what they are given.
+     */
+    private static Object copyOf(Object value) {
+        if (value instanceof Set) {
+            return new HashSet<Object>((Set<?>) value);
+        } else if (value instanceof List) {
+            return new ArrayList<Object>((List<?>) value);
+        }
+        return value;
+    }
+
+    /**
+     * A result of the read cache, and when it expires.
+     */
+    private static class ReadCacheEntry {
+        final Object value;
+        final long expires;
+
+        ReadCacheEntry(Object value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
     /**
      * Execute the given callback having acquired the given lock.
      * Depending on the JobStore, the surrounding transaction may be 
@@ -3803,13 +5352,16 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             if(sigTime != null && sigTime >= 0) {
                 signalSchedulingChangeImmediately(sigTime);
             }
+            publishScheduleChangeOnTxCompletion();
             
             return result;
         } catch (JobPersistenceException e) {
             rollbackConnection(conn);
+            scheduleChangedOnTxCompletion.remove();
             throw e;
         } catch (RuntimeException e) {
             rollbackConnection(conn);
+            scheduleChangedOnTxCompletion.remove();
             throw new JobPersistenceException("Unexpected runtime exception: "
                     + e.getMessage(), e);
         } finally {
@@ -3884,6 +5436,10 @@ public abstract class JobStoreSupport implements JobStore, Constants {
 
                     if(numFails > 0) {
                         timeToSleep = Math.max(getDbRetryInterval(), timeToSleep);
+                    } else if (clusterRecoveryIncomplete) {
+                        // carry on with the recovery, after letting other 
+                        // threads have the locks for a moment
+                        timeToSleep = Math.min(CLUSTER_RECOVERY_PAUSE, timeToSleep);
                     }
                     
                     try {
@@ -3980,6 +5536,120 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             }
         }
     }
+
+    /////////////////////////////////////////////////////////////////////////////
+    //
+    // ScheduleChangeWatcher Thread
+    //
+    /////////////////////////////////////////////////////////////////////////////
+
+    class ScheduleChangeWatcher extends Thread {
+
+        private volatile boolean shutdown = false;
+
+        private int numFails = 0;
+
+        private long scheduleVersion = -1L;
+
+        ScheduleChangeWatcher() {
+            this.setName("QuartzScheduler_" + instanceName + "-" + instanceId + "_ScheduleChangeWatcher");
+            this.setDaemon(getMakeThreadsDaemons());
+        }
+
+        public void initialize() {
+            this.manage();
+
+            ThreadExecutor executor = getThreadExecutor();
+            executor.execute(ScheduleChangeWatcher.this);
+        }
+
+        public void shutdown() {
+            shutdown = true;
+            this.interrupt();
+        }
+
+        /**
+         * Bump the schedule change counter if this instance has committed 
+         * schedule changes since the last poll, then select it, and if some
+         * other instance has changed it since it was last selected, the 
+         * earliest next fire time of the waiting triggers; returns that 
+         * time, or -1 if there is nothing to signal.
+         */
+        private long manage() {
+            boolean publish = scheduleChangePending.getAndSet(false);
+            Connection conn = null;
+            try {
+                conn = getNonManagedTXConnection();
+                if (publish) {
+                    updateChangeCounter(conn, COUNTER_SCHEDULE);
+                }
+                long version = getDelegate().selectChangeCounter(conn, COUNTER_SCHEDULE);
+                long nextFireTime = -1L;
+                if (scheduleVersion >= 0 && version != scheduleVersion + (publish ? 1 : 0)) {
+                    nextFireTime = getDelegate().selectEarliestNextFireTime(conn, 
+                            System.currentTimeMillis() - getMisfireThreshold());
+                }
+                commitConnection(conn);
+                scheduleVersion = version;
+                numFails = 0;
+                return nextFireTime > 0 ? nextFireTime : -1L;
+            } catch (Exception e) {
+                rollbackConnection(conn);
+                if (publish) {
+                    scheduleChangePending.set(true);
+                }
+                if(numFails % 4 == 0) {
+                    getLog().error(
+                        "ScheduleChangeWatcher: Error checking for schedule changes: "
+                                + e.getMessage(), e);
+                }
+                numFails++;
+                return -1L;
+            } finally {
+                cleanupConnection(conn);
+            }
+        }
+
+        @Override
+        public void run() {
+
+            while (!shutdown) {
+
+                long nextFireTime = manage();
+                if (!shutdown && nextFireTime > 0) {
+                    signalSchedulingChangeImmediately(nextFireTime);
+                }
+
+                if (!shutdown) {
+                    long timeToSleep = getScheduleChangePollInterval();
+                    if(numFails > 0) {
+                        timeToSleep = Math.max(getDbRetryInterval(), timeToSleep);
+                    }
+
+                    try {
+                        Thread.sleep(timeToSleep);
+                    } catch (Exception ignore) {
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A job completion waiting to be group committed.
+     */
+    private static class JobCompletion {
+        final OperableTrigger trigger;
+        final JobDetail jobDetail;
+        final CompletedExecutionInstruction triggerInstCode;
+        boolean committed;
+
+        JobCompletion(OperableTrigger trigger, JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+            this.trigger = trigger;
+            this.jobDetail = jobDetail;
+            this.triggerInstCode = triggerInstCode;
+        }
+    }
 }
 
 // EOF
@@ -21,12 +21,12 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 import org.quartz.Calendar;
 import org.quartz.JobDetail;
@@ -92,6 +92,22 @@ public class PointbaseDelegate extends StdJDBCDelegate {
         return insertResult;
     }
 
+    /**
+     * <p>
+     * Insert the given jobs one at a time, as each writes its job data
+     * BLOB with its own statements.
+     * </p>
+     */
+    @Override
+    public int[] insertJobDetails(Connection conn, List<JobDetail> jobs)
+        throws IOException, SQLException {
+        int[] results = new int[jobs.size()];
+        for (int i = 0; i < jobs.size(); i++) {
+            results[i] = insertJobDetail(conn, jobs.get(i));
+        }
+        return results;
+    }
+
     /**
      * <p>
      * Update the job detail record.
@@ -183,6 +199,7 @@ public class PointbaseDelegate extends StdJDBCDelegate {
             ps.setInt(13, trigger.getMisfireInstruction());
             ps.setBinaryStream(14, bais, len);
             ps.setInt(15, trigger.getPriority());
+            ps.setInt(16, TriggerPartitions.keyHashOf(trigger.getKey()));
             
             insertResult = ps.executeUpdate();
             
@@ -266,6 +283,38 @@ public class PointbaseDelegate extends StdJDBCDelegate {
         return insertResult;
     }
 
+    /**
+     * <p>
+     * Insert the given triggers one at a time, as each writes its job data
+     * BLOB with its own statements.
+     * </p>
+     */
+    @Override
+    public int[] insertTriggers(Connection conn, List<OperableTrigger> triggers, List<String> states,
+            List<JobDetail> jobDetails) throws SQLException, IOException {
+        int[] results = new int[triggers.size()];
+        for (int i = 0; i < triggers.size(); i++) {
+            results[i] = insertTrigger(conn, triggers.get(i), states.get(i), jobDetails.get(i));
+        }
+        return results;
+    }
+
+    /**
+     * <p>
+     * Update the given triggers one at a time, as each writes its job data
+     * BLOB with its own statements.
+     * </p>
+     */
+    @Override
+    public int[] updateTriggers(Connection conn, List<OperableTrigger> triggers, List<String> states,
+            List<JobDetail> jobDetails) throws SQLException, IOException {
+        int[] results = new int[triggers.size()];
+        for (int i = 0; i < triggers.size(); i++) {
+            results[i] = updateTrigger(conn, triggers.get(i), states.get(i), jobDetails.get(i));
+        }
+        return results;
+    }
+
     /**
      * <p>
      * Update the job data map for the given job.
@@ -411,12 +460,7 @@ public class PointbaseDelegate extends StdJDBCDelegate {
         InputStream binaryInput = new ByteArrayInputStream(binaryData);
 
         if (null != binaryInput && binaryInput.available() != 0) {
-            ObjectInputStream in = new ObjectInputStream(binaryInput);
-            try {
-                obj = in.readObject();
-            } finally {
-                in.close();
-            }
+            obj = readObject(binaryInput);
         }
 
         return obj;
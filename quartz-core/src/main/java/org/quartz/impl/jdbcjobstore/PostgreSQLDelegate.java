@@ -20,7 +20,6 @@ package org.quartz.impl.jdbcjobstore;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
@@ -68,12 +67,7 @@ public class PostgreSQLDelegate extends StdJDBCDelegate {
         if(bytes != null && bytes.length != 0) {
             binaryInput = new ByteArrayInputStream(bytes);
         
-            ObjectInputStream in = new ObjectInputStream(binaryInput);
-            try {
-                obj = in.readObject();
-            } finally {
-                in.close();
-            }
+            obj = readObject(binaryInput);
 
         }
         
@@ -94,6 +88,17 @@ public class PostgreSQLDelegate extends StdJDBCDelegate {
         }
         return getObjectFromBlob(rs, colName);
     }
+
+    /**
+     * <p>
+     * Select with <code>FOR UPDATE SKIP LOCKED</code>, which requires
+     * PostgreSQL 9.5 or later.
+     * </p>
+     */
+    @Override
+    protected String getSelectNextTriggerToAcquireSkipLockedSql(int maxCount) {
+        return rtp(SELECT_NEXT_TRIGGER_TO_ACQUIRE) + " LIMIT " + maxCount + " FOR UPDATE SKIP LOCKED";
+    }
 }
 
 // EOF
@@ -99,6 +99,16 @@ public interface StdJDBCConstants extends Constants {
         + "AND " + COL_TRIGGER_STATE + " = ? "
         + "ORDER BY " + COL_NEXT_FIRE_TIME + " ASC, " + COL_PRIORITY + " DESC";
 
+    String SELECT_HAS_MISFIRED_TRIGGERS_IN_STATE_IN_KEY_HASH_RANGE = "SELECT "
+        + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + " FROM "
+        + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+        + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST + " AND NOT ("
+        + COL_MISFIRE_INSTRUCTION + " = " + Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY + ") AND " 
+        + COL_NEXT_FIRE_TIME + " < ? " 
+        + "AND " + COL_TRIGGER_STATE + " = ? "
+        + "AND " + COL_KEY_HASH + " BETWEEN ? AND ? "
+        + "ORDER BY " + COL_NEXT_FIRE_TIME + " ASC, " + COL_PRIORITY + " DESC";
+
     String SELECT_MISFIRED_TRIGGERS_IN_GROUP_IN_STATE = "SELECT "
         + COL_TRIGGER_NAME
         + " FROM "
@@ -159,6 +169,15 @@ public interface StdJDBCConstants extends Constants {
             + " AND " + COL_JOB_NAME
             + " = ? AND " + COL_JOB_GROUP + " = ?";
 
+    String DELETE_ORPHANED_JOB_DETAIL = "DELETE FROM "
+            + TABLE_PREFIX_SUBST + TABLE_JOB_DETAILS + " WHERE " 
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST 
+            + " AND " + COL_JOB_NAME + " = ? AND " + COL_JOB_GROUP + " = ? AND "
+            + COL_IS_DURABLE + " = ? AND NOT EXISTS (SELECT " + COL_TRIGGER_NAME 
+            + " FROM " + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_JOB_NAME + " = ? AND " + COL_JOB_GROUP + " = ?)";
+
     String SELECT_JOB_NONCONCURRENT = "SELECT "
             + COL_IS_NONCONCURRENT + " FROM " + TABLE_PREFIX_SUBST
             + TABLE_JOB_DETAILS + " WHERE " 
@@ -166,6 +185,12 @@ public interface StdJDBCConstants extends Constants {
             + " AND " + COL_JOB_NAME
             + " = ? AND " + COL_JOB_GROUP + " = ?";
 
+    // followed by Util.keysPredicate(COL_JOB_NAME, COL_JOB_GROUP, n)
+    String SELECT_JOBS_NONCONCURRENT = "SELECT "
+            + COL_JOB_NAME + ", " + COL_JOB_GROUP + ", " + COL_IS_NONCONCURRENT
+            + " FROM " + TABLE_PREFIX_SUBST + TABLE_JOB_DETAILS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST + " AND ";
+
     String SELECT_JOB_EXISTENCE = "SELECT " + COL_JOB_NAME
             + " FROM " + TABLE_PREFIX_SUBST + TABLE_JOB_DETAILS + " WHERE "
             + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST 
@@ -212,8 +237,8 @@ public interface StdJDBCConstants extends Constants {
             + ", " + COL_NEXT_FIRE_TIME + ", " + COL_PREV_FIRE_TIME + ", "
             + COL_TRIGGER_STATE + ", " + COL_TRIGGER_TYPE + ", "
             + COL_START_TIME + ", " + COL_END_TIME + ", " + COL_CALENDAR_NAME
-            + ", " + COL_MISFIRE_INSTRUCTION + ", " + COL_JOB_DATAMAP + ", " + COL_PRIORITY + ") "
-            + " VALUES(" + SCHED_NAME_SUBST + ", ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            + ", " + COL_MISFIRE_INSTRUCTION + ", " + COL_JOB_DATAMAP + ", " + COL_PRIORITY + ", " + COL_KEY_HASH + ") "
+            + " VALUES(" + SCHED_NAME_SUBST + ", ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     String INSERT_SIMPLE_TRIGGER = "INSERT INTO "
             + TABLE_PREFIX_SUBST + TABLE_SIMPLE_TRIGGERS + " ("
@@ -336,6 +361,18 @@ public interface StdJDBCConstants extends Constants {
             + " = ? OR "
             + COL_TRIGGER_STATE + " = ?)";
 
+    String UPDATE_JOB_GROUP_TRIGGER_STATES_FROM_STATES = "UPDATE "
+            + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " SET " + COL_TRIGGER_STATE
+            + " = ? WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_JOB_GROUP + " = ? AND (" + COL_TRIGGER_STATE + " = ? OR "
+            + COL_TRIGGER_STATE + " = ? OR " + COL_TRIGGER_STATE + " = ?)";
+
+    String UPDATE_JOB_GROUP_TRIGGER_STATES_FROM_STATES_LIKE = "UPDATE "
+            + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " SET " + COL_TRIGGER_STATE
+            + " = ? WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_JOB_GROUP + " LIKE ? AND (" + COL_TRIGGER_STATE + " = ? OR "
+            + COL_TRIGGER_STATE + " = ? OR " + COL_TRIGGER_STATE + " = ?)";
+
     String UPDATE_JOB_TRIGGER_STATES = "UPDATE "
             + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " SET " + COL_TRIGGER_STATE
             + " = ? WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
@@ -396,6 +433,11 @@ public interface StdJDBCConstants extends Constants {
             + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
             + " AND " + COL_TRIGGER_NAME + " = ? AND " + COL_TRIGGER_GROUP + " = ?";
 
+    // followed by Util.keysPredicate(COL_TRIGGER_NAME, COL_TRIGGER_GROUP, n)
+    String SELECT_TRIGGERS = "SELECT * FROM "
+            + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST + " AND ";
+
     String SELECT_TRIGGER_DATA = "SELECT " + 
             COL_JOB_DATAMAP + " FROM "
             + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
@@ -408,6 +450,12 @@ public interface StdJDBCConstants extends Constants {
             + " AND " + COL_TRIGGER_NAME + " = ? AND "
             + COL_TRIGGER_GROUP + " = ?";
 
+    // followed by Util.keysPredicate(COL_TRIGGER_NAME, COL_TRIGGER_GROUP, n)
+    String SELECT_TRIGGER_STATES = "SELECT "
+            + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", " + COL_TRIGGER_STATE
+            + " FROM " + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST + " AND ";
+
     String SELECT_TRIGGER_STATUS = "SELECT "
             + COL_TRIGGER_STATE + ", " + COL_NEXT_FIRE_TIME + ", "
             + COL_JOB_NAME + ", " + COL_JOB_GROUP + " FROM "
@@ -415,21 +463,68 @@ public interface StdJDBCConstants extends Constants {
             + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
             + " AND " + COL_TRIGGER_NAME + " = ? AND " + COL_TRIGGER_GROUP + " = ?";
 
+    String SELECT_TRIGGER_STATUSES_IN_GROUP = "SELECT "
+            + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", "
+            + COL_TRIGGER_STATE + ", " + COL_NEXT_FIRE_TIME + ", "
+            + COL_JOB_NAME + ", " + COL_JOB_GROUP + " FROM "
+            + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_TRIGGER_GROUP + " = ?";
+
+    String SELECT_TRIGGER_STATUSES_IN_GROUP_LIKE = "SELECT "
+            + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", "
+            + COL_TRIGGER_STATE + ", " + COL_NEXT_FIRE_TIME + ", "
+            + COL_JOB_NAME + ", " + COL_JOB_GROUP + " FROM "
+            + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_TRIGGER_GROUP + " LIKE ?";
+
+    String SELECT_TRIGGER_STATUSES_FOR_JOB_GROUP = "SELECT "
+            + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", "
+            + COL_TRIGGER_STATE + ", " + COL_NEXT_FIRE_TIME + ", "
+            + COL_JOB_NAME + ", " + COL_JOB_GROUP + " FROM "
+            + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_JOB_GROUP + " = ?";
+
+    String SELECT_TRIGGER_STATUSES_FOR_JOB_GROUP_LIKE = "SELECT "
+            + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", "
+            + COL_TRIGGER_STATE + ", " + COL_NEXT_FIRE_TIME + ", "
+            + COL_JOB_NAME + ", " + COL_JOB_GROUP + " FROM "
+            + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_JOB_GROUP + " LIKE ?";
+
     String SELECT_SIMPLE_TRIGGER = "SELECT *" + " FROM "
             + TABLE_PREFIX_SUBST + TABLE_SIMPLE_TRIGGERS + " WHERE "
             + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
             + " AND " + COL_TRIGGER_NAME + " = ? AND " + COL_TRIGGER_GROUP + " = ?";
 
+    // followed by Util.keysPredicate(COL_TRIGGER_NAME, COL_TRIGGER_GROUP, n)
+    String SELECT_SIMPLE_TRIGGERS = "SELECT *" + " FROM "
+            + TABLE_PREFIX_SUBST + TABLE_SIMPLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST + " AND ";
+
     String SELECT_CRON_TRIGGER = "SELECT *" + " FROM "
             + TABLE_PREFIX_SUBST + TABLE_CRON_TRIGGERS + " WHERE "
             + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
             + " AND " + COL_TRIGGER_NAME + " = ? AND " + COL_TRIGGER_GROUP + " = ?";
 
+    // followed by Util.keysPredicate(COL_TRIGGER_NAME, COL_TRIGGER_GROUP, n)
+    String SELECT_CRON_TRIGGERS = "SELECT *" + " FROM "
+            + TABLE_PREFIX_SUBST + TABLE_CRON_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST + " AND ";
+
     String SELECT_BLOB_TRIGGER = "SELECT *" + " FROM "
             + TABLE_PREFIX_SUBST + TABLE_BLOB_TRIGGERS + " WHERE "
             + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
             + " AND " + COL_TRIGGER_NAME + " = ? AND " + COL_TRIGGER_GROUP + " = ?";
 
+    // followed by Util.keysPredicate(COL_TRIGGER_NAME, COL_TRIGGER_GROUP, n)
+    String SELECT_BLOB_TRIGGERS = "SELECT *" + " FROM "
+            + TABLE_PREFIX_SUBST + TABLE_BLOB_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST + " AND ";
+
     String SELECT_NUM_TRIGGERS = "SELECT COUNT("
             + COL_TRIGGER_NAME + ") " + " FROM " + TABLE_PREFIX_SUBST
             + TABLE_TRIGGERS + " WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST;
@@ -500,6 +595,12 @@ public interface StdJDBCConstants extends Constants {
             + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
             + " AND " + COL_TRIGGER_STATE + " = ? AND " + COL_NEXT_FIRE_TIME + " >= 0";
 
+    String SELECT_EARLIEST_NEXT_FIRE_TIME = "SELECT MIN("
+            + COL_NEXT_FIRE_TIME + ") AS " + ALIAS_COL_NEXT_FIRE_TIME
+            + " FROM " + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_TRIGGER_STATE + " = ? AND " + COL_NEXT_FIRE_TIME + " >= ?";
+
     String SELECT_TRIGGER_FOR_FIRE_TIME = "SELECT "
             + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + " FROM "
             + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
@@ -515,6 +616,26 @@ public interface StdJDBCConstants extends Constants {
         + "AND (" + COL_MISFIRE_INSTRUCTION + " = -1 OR (" +COL_MISFIRE_INSTRUCTION+ " != -1 AND "+ COL_NEXT_FIRE_TIME + " >= ?)) "
         + "ORDER BY "+ COL_NEXT_FIRE_TIME + " ASC, " + COL_PRIORITY + " DESC";
     
+    String SELECT_NEXT_TRIGGER_TO_ACQUIRE_IN_KEY_HASH_RANGE = "SELECT "
+        + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", "
+        + COL_NEXT_FIRE_TIME + ", " + COL_PRIORITY + " FROM "
+        + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+        + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+        + " AND " + COL_TRIGGER_STATE + " = ? AND " + COL_NEXT_FIRE_TIME + " <= ? " 
+        + "AND (" + COL_MISFIRE_INSTRUCTION + " = -1 OR (" +COL_MISFIRE_INSTRUCTION+ " != -1 AND "+ COL_NEXT_FIRE_TIME + " >= ?)) "
+        + "AND " + COL_KEY_HASH + " BETWEEN ? AND ? "
+        + "ORDER BY "+ COL_NEXT_FIRE_TIME + " ASC, " + COL_PRIORITY + " DESC";
+
+    String SELECT_TRIGGERS_WITHOUT_KEY_HASH = "SELECT "
+        + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + " FROM "
+        + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+        + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+        + " AND " + COL_KEY_HASH + " IS NULL";
+
+    String UPDATE_TRIGGER_KEY_HASH = "UPDATE "
+        + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " SET " + COL_KEY_HASH + " = ? WHERE "
+        + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+        + " AND " + COL_TRIGGER_NAME + " = ? AND " + COL_TRIGGER_GROUP + " = ? AND " + COL_KEY_HASH + " IS NULL";
     
     String INSERT_FIRED_TRIGGER = "INSERT INTO "
             + TABLE_PREFIX_SUBST + TABLE_FIRED_TRIGGERS + " (" + COL_SCHEDULER_NAME + ", " + COL_ENTRY_ID
@@ -553,6 +674,11 @@ public interface StdJDBCConstants extends Constants {
             + " AND " + COL_JOB_NAME + " = ? AND "
             + COL_JOB_GROUP + " = ?";
 
+    String SELECT_BLOCKED_JOBS = "SELECT DISTINCT "
+            + COL_JOB_NAME + ", " + COL_JOB_GROUP + " FROM " + TABLE_PREFIX_SUBST
+            + TABLE_FIRED_TRIGGERS + " WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_ENTRY_STATE + " = ? AND " + COL_IS_NONCONCURRENT + " = ?";
+
     String SELECT_FIRED_TRIGGERS = "SELECT * FROM "
             + TABLE_PREFIX_SUBST + TABLE_FIRED_TRIGGERS
             + " WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST;
@@ -637,6 +763,22 @@ public interface StdJDBCConstants extends Constants {
         + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
         + " AND " + COL_INSTANCE_NAME + " = ?";
 
+    String SELECT_CHANGE_COUNTER = "SELECT "
+            + COL_COUNTER_VALUE + " FROM " + TABLE_PREFIX_SUBST + TABLE_CHANGE_COUNTERS 
+            + " WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_COUNTER_NAME + " = ?";
+
+    String INSERT_CHANGE_COUNTER = "INSERT INTO "
+            + TABLE_PREFIX_SUBST + TABLE_CHANGE_COUNTERS + " ("
+            + COL_SCHEDULER_NAME + ", " + COL_COUNTER_NAME + ", " + COL_COUNTER_VALUE
+            + ") VALUES(" + SCHED_NAME_SUBST + ", ?, ?)";
+
+    String UPDATE_CHANGE_COUNTER = "UPDATE "
+            + TABLE_PREFIX_SUBST + TABLE_CHANGE_COUNTERS + " SET " 
+            + COL_COUNTER_VALUE + " = " + COL_COUNTER_VALUE + " + 1 WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_COUNTER_NAME + " = ?";
+
     String INSERT_PAUSED_TRIGGER_GROUP = "INSERT INTO "
             + TABLE_PREFIX_SUBST + TABLE_PAUSED_TRIGGERS + " ("
             + COL_SCHEDULER_NAME + ", "
@@ -21,6 +21,7 @@ import static org.quartz.JobKey.jobKey;
 import static org.quartz.TriggerBuilder.newTrigger;
 import static org.quartz.TriggerKey.triggerKey;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -35,6 +36,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -44,6 +47,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.quartz.Calendar;
 import org.quartz.Job;
@@ -100,6 +105,46 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
 
     protected List<TriggerPersistenceDelegate> triggerPersistenceDelegates = new LinkedList<TriggerPersistenceDelegate>();
 
+    /**
+     * The format of the BLOBs it can represent, or <code>null</code> to
+     * write every BLOB with Java serialization.
+     */
+    protected JobDataSerializer jobDataSerializer;
+
+    /**
+     * Whether the statements that a transaction runs once per trigger are
+     * kept open for reuse on their connection until the job store cleans it
+     * up, set with the <code>cachePreparedStatements</code> setting of the 
+     * init string.  Reusing statements across transactions is left to the
+     * connection pool's statement cache (see 
+     * <code>maxCachedStatementsPerConnection</code>), as pools hand out a
+     * new connection handle, and close its statements, on every checkout.
+     */
+    protected boolean cachePreparedStatements;
+
+    /**
+     * The expanded SQL of each query passed to <code>rtp(String)</code>.
+     */
+    private final ConcurrentHashMap<String, String> expandedSql = new ConcurrentHashMap<String, String>();
+
+    /**
+     * The statements kept open for reuse, by connection and SQL.  Each is
+     * removed from the map while it is in use.
+     */
+    private final Map<Connection, Map<String, PreparedStatement>> cachedStatements = new WeakHashMap<Connection, Map<String, PreparedStatement>>();
+
+    /**
+     * The most keys matched by a single set-based statement, keeping the
+     * number of bind parameters well within the limits of every database.
+     */
+    protected static final int MAX_KEYS_PER_STATEMENT = 100;
+
+    /**
+     * The most queries whose expanded SQL is kept, in case a subclass
+     * expands SQL built on the fly.
+     */
+    private static final int MAX_EXPANDED_SQL = 1000;
+
     
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -137,6 +182,7 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         this.instanceId = instanceId;
         this.useProperties = useProperties;
         this.classLoadHelper = classLoadHelper;
+        this.expandedSql.clear();
         addDefaultTriggerPersistenceDelegates();
 
         if(initString == null)
@@ -163,6 +209,17 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
                     } 
                 }
             }
+            else if(name.equals("cachePreparedStatements")) {
+                cachePreparedStatements = Boolean.valueOf(parts[1]);
+            }
+            else if(name.equals("jobDataSerializerClass")) {
+                try {
+                    Class<?> serializerClass = classLoadHelper.loadClass(parts[1]);
+                    jobDataSerializer = (JobDataSerializer) serializerClass.newInstance();
+                } catch (Exception e) {
+                    throw new NoSuchDelegateException("Error instantiating JobDataSerializer of type: " + parts[1], e);
+                }
+            }
             else
                 throw new NoSuchDelegateException("Unknown setting: '" + name + "'");
         }
@@ -347,12 +404,44 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
     public boolean hasMisfiredTriggersInState(Connection conn, String state1, 
         long ts, int count, List<TriggerKey> resultList) throws SQLException {
         PreparedStatement ps = null;
-        ResultSet rs = null;
 
         try {
             ps = conn.prepareStatement(rtp(SELECT_HAS_MISFIRED_TRIGGERS_IN_STATE));
             ps.setBigDecimal(1, new BigDecimal(String.valueOf(ts)));
             ps.setString(2, state1);
+            return selectMisfiredTriggers(ps, count, resultList);
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Get the names of the triggers in the given state that have misfired,
+     * as <code>{@link #hasMisfiredTriggersInState}</code> does, among those
+     * whose key hash is in the given range.
+     * </p>
+     */
+    public boolean hasMisfiredTriggersInStateInKeyHashRange(Connection conn, String state1, 
+        long ts, int count, int minKeyHash, int maxKeyHash, List<TriggerKey> resultList) throws SQLException {
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(SELECT_HAS_MISFIRED_TRIGGERS_IN_STATE_IN_KEY_HASH_RANGE));
+            ps.setBigDecimal(1, new BigDecimal(String.valueOf(ts)));
+            ps.setString(2, state1);
+            ps.setInt(3, minKeyHash);
+            ps.setInt(4, maxKeyHash);
+            return selectMisfiredTriggers(ps, count, resultList);
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    private boolean selectMisfiredTriggers(PreparedStatement ps, int count, List<TriggerKey> resultList) throws SQLException {
+        ResultSet rs = null;
+
+        try {
             rs = ps.executeQuery();
 
             boolean hasReachedLimit = false;
@@ -369,7 +458,6 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
             return hasReachedLimit;
         } finally {
             closeResultSet(rs);
-            closeStatement(ps);
         }
     }
     
@@ -611,15 +699,7 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
 
         try {
             ps = conn.prepareStatement(rtp(INSERT_JOB_DETAIL));
-            ps.setString(1, job.getKey().getName());
-            ps.setString(2, job.getKey().getGroup());
-            ps.setString(3, job.getDescription());
-            ps.setString(4, job.getJobClass().getName());
-            setBoolean(ps, 5, job.isDurable());
-            setBoolean(ps, 6, job.isConcurrentExectionDisallowed());
-            setBoolean(ps, 7, job.isPersistJobDataAfterExecution());
-            setBoolean(ps, 8, job.requestsRecovery());
-            setBytes(ps, 9, baos);
+            setInsertJobDetailParameters(ps, job, baos);
 
             insertResult = ps.executeUpdate();
         } finally {
@@ -629,6 +709,53 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         return insertResult;
     }
 
+    /**
+     * <p>
+     * Insert the job detail records of the given jobs, as a JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param jobs
+     *          the jobs to insert
+     * @return the number of rows inserted for each job, in order
+     * @throws IOException
+     *           if there were problems serializing a JobDataMap
+     */
+    public int[] insertJobDetails(Connection conn, List<JobDetail> jobs)
+        throws IOException, SQLException {
+        if (jobs.isEmpty()) {
+            return new int[0];
+        }
+
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(INSERT_JOB_DETAIL));
+            for (JobDetail job : jobs) {
+                setInsertJobDetailParameters(ps, job, serializeJobData(job.getJobDataMap()));
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    private void setInsertJobDetailParameters(PreparedStatement ps, JobDetail job, 
+            ByteArrayOutputStream baos) throws SQLException {
+        ps.setString(1, job.getKey().getName());
+        ps.setString(2, job.getKey().getGroup());
+        ps.setString(3, job.getDescription());
+        ps.setString(4, job.getJobClass().getName());
+        setBoolean(ps, 5, job.isDurable());
+        setBoolean(ps, 6, job.isConcurrentExectionDisallowed());
+        setBoolean(ps, 7, job.isPersistJobDataAfterExecution());
+        setBoolean(ps, 8, job.requestsRecovery());
+        setBytes(ps, 9, baos);
+    }
+
     /**
      * <p>
      * Update the job detail record.
@@ -703,6 +830,43 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }
     }
 
+    /**
+     * <p>
+     * Get the names of all of the triggers associated with the given jobs,
+     * reusing one statement for all of them.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the keys of the jobs' triggers
+     */
+    public List<TriggerKey> selectTriggerKeysForJobs(Connection conn, Collection<JobKey> jobKeys) throws SQLException {
+        List<TriggerKey> list = new ArrayList<TriggerKey>();
+        if (jobKeys.isEmpty()) {
+            return list;
+        }
+
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(SELECT_TRIGGERS_FOR_JOB));
+            for (JobKey jobKey : jobKeys) {
+                ps.setString(1, jobKey.getName());
+                ps.setString(2, jobKey.getGroup());
+                ResultSet rs = ps.executeQuery();
+                try {
+                    while (rs.next()) {
+                        list.add(triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP)));
+                    }
+                } finally {
+                    closeResultSet(rs);
+                }
+            }
+            return list;
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
     /**
      * <p>
      * Delete the job detail record for the given job.
@@ -729,6 +893,70 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }
     }
 
+    /**
+     * <p>
+     * Delete the job detail records for the given jobs, as a JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the number of rows deleted for each job, in order
+     */
+    public int[] deleteJobDetails(Connection conn, List<JobKey> jobKeys)
+        throws SQLException {
+        if (jobKeys.isEmpty()) {
+            return new int[0];
+        }
+        
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(DELETE_JOB_DETAIL));
+            for (JobKey jobKey : jobKeys) {
+                ps.setString(1, jobKey.getName());
+                ps.setString(2, jobKey.getGroup());
+                ps.addBatch();
+            }
+            return ps.executeBatch();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Delete those of the given jobs that are not durable and no longer
+     * have any triggers, as a JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the number of rows deleted for each job, in iteration order
+     */
+    public int[] deleteOrphanedJobDetails(Connection conn, Collection<JobKey> jobKeys)
+        throws SQLException {
+        if (jobKeys.isEmpty()) {
+            return new int[0];
+        }
+        
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(DELETE_ORPHANED_JOB_DETAIL));
+            for (JobKey jobKey : jobKeys) {
+                ps.setString(1, jobKey.getName());
+                ps.setString(2, jobKey.getGroup());
+                setBoolean(ps, 3, false);
+                ps.setString(4, jobKey.getName());
+                ps.setString(5, jobKey.getGroup());
+                ps.addBatch();
+            }
+            return ps.executeBatch();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
     /**
      * <p>
      * Check whether or not the given job is stateful.
@@ -755,6 +983,42 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }
     }
 
+    /**
+     * <p>
+     * Select those of the given jobs that disallow concurrent execution, in
+     * one statement per chunk of the collection.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the keys of the jobs that exist and disallow concurrent execution
+     */
+    public Set<JobKey> selectNonConcurrentJobs(Connection conn, Collection<JobKey> jobKeys) throws SQLException {
+        Set<JobKey> nonConcurrent = new HashSet<JobKey>();
+        List<JobKey> keys = new ArrayList<JobKey>(new HashSet<JobKey>(jobKeys));
+        
+        for (List<JobKey> chunk : Util.partition(keys, MAX_KEYS_PER_STATEMENT)) {
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+
+            try {
+                ps = conn.prepareStatement(rtp(SELECT_JOBS_NONCONCURRENT) 
+                        + Util.keysPredicate(COL_JOB_NAME, COL_JOB_GROUP, chunk.size()));
+                Util.setKeyParameters(ps, 1, chunk);
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    if (getBoolean(rs, COL_IS_NONCONCURRENT)) {
+                        nonConcurrent.add(jobKey(rs.getString(COL_JOB_NAME), rs.getString(COL_JOB_GROUP)));
+                    }
+                }
+            } finally {
+                closeResultSet(rs);
+                closeStatement(ps);
+            }
+        }
+        return nonConcurrent;
+    }
+
     /**
      * <p>
      * Check whether or not the given job exists.
@@ -786,6 +1050,43 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
 
     }
 
+    /**
+     * <p>
+     * Select those of the given jobs that exist, reusing one statement for
+     * all of them.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the keys of the jobs that exist
+     */
+    public Set<JobKey> selectExistingJobs(Connection conn, Collection<JobKey> jobKeys) throws SQLException {
+        Set<JobKey> existing = new HashSet<JobKey>();
+        if (jobKeys.isEmpty()) {
+            return existing;
+        }
+
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(SELECT_JOB_EXISTENCE));
+            for (JobKey jobKey : jobKeys) {
+                ps.setString(1, jobKey.getName());
+                ps.setString(2, jobKey.getGroup());
+                ResultSet rs = ps.executeQuery();
+                try {
+                    if (rs.next()) {
+                        existing.add(jobKey);
+                    }
+                } finally {
+                    closeResultSet(rs);
+                }
+            }
+            return existing;
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
     /**
      * <p>
      * Update the job data map for the given job.
@@ -1054,41 +1355,10 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
 
         try {
             ps = conn.prepareStatement(rtp(INSERT_TRIGGER));
-            ps.setString(1, trigger.getKey().getName());
-            ps.setString(2, trigger.getKey().getGroup());
-            ps.setString(3, trigger.getJobKey().getName());
-            ps.setString(4, trigger.getJobKey().getGroup());
-            ps.setString(5, trigger.getDescription());
-            if(trigger.getNextFireTime() != null)
-                ps.setBigDecimal(6, new BigDecimal(String.valueOf(trigger
-                        .getNextFireTime().getTime())));
-            else
-                ps.setBigDecimal(6, null);
-            long prevFireTime = -1;
-            if (trigger.getPreviousFireTime() != null) {
-                prevFireTime = trigger.getPreviousFireTime().getTime();
-            }
-            ps.setBigDecimal(7, new BigDecimal(String.valueOf(prevFireTime)));
-            ps.setString(8, state);
             
             TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(trigger);
             
-            String type = TTYPE_BLOB;
-            if(tDel != null)
-                type = tDel.getHandledTriggerTypeDiscriminator();
-            ps.setString(9, type);
-            
-            ps.setBigDecimal(10, new BigDecimal(String.valueOf(trigger
-                    .getStartTime().getTime())));
-            long endTime = 0;
-            if (trigger.getEndTime() != null) {
-                endTime = trigger.getEndTime().getTime();
-            }
-            ps.setBigDecimal(11, new BigDecimal(String.valueOf(endTime)));
-            ps.setString(12, trigger.getCalendarName());
-            ps.setInt(13, trigger.getMisfireInstruction());
-            setBytes(ps, 14, baos);
-            ps.setInt(15, trigger.getPriority());
+            setInsertTriggerParameters(ps, trigger, state, tDel, baos);
             
             insertResult = ps.executeUpdate();
             
@@ -1104,6 +1374,132 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         return insertResult;
     }
 
+    /**
+     * <p>
+     * Insert the given triggers, and their extended properties, as JDBC
+     * batches: one for the triggers, and one per trigger type for the
+     * extended properties of types whose delegate is a
+     * <code>{@link BatchTriggerPersistenceDelegate}</code>.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers to insert
+     * @param states
+     *          the state to store each trigger in
+     * @param jobDetails
+     *          the job of each trigger
+     * @return the number of trigger rows inserted for each trigger, in order
+     */
+    public int[] insertTriggers(Connection conn, List<OperableTrigger> triggers, List<String> states,
+            List<JobDetail> jobDetails) throws SQLException, IOException {
+        int[] results = new int[triggers.size()];
+        if (triggers.isEmpty()) {
+            return results;
+        }
+        
+        Map<TriggerPersistenceDelegate, List<Integer>> indexesByDelegate = new HashMap<TriggerPersistenceDelegate, List<Integer>>();
+        List<Integer> blobIndexes = new ArrayList<Integer>();
+        
+        PreparedStatement ps = null;
+        
+        try {
+            ps = conn.prepareStatement(rtp(INSERT_TRIGGER));
+            for (int i = 0; i < triggers.size(); i++) {
+                OperableTrigger trigger = triggers.get(i);
+                
+                ByteArrayOutputStream baos = null;
+                if(trigger.getJobDataMap().size() > 0) {
+                    baos = serializeJobData(trigger.getJobDataMap());
+                }
+                
+                TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(trigger);
+                
+                setInsertTriggerParameters(ps, trigger, states.get(i), tDel, baos);
+                ps.addBatch();
+                
+                if (tDel == null) {
+                    blobIndexes.add(i);
+                } else {
+                    List<Integer> indexes = indexesByDelegate.get(tDel);
+                    if (indexes == null) {
+                        indexes = new ArrayList<Integer>();
+                        indexesByDelegate.put(tDel, indexes);
+                    }
+                    indexes.add(i);
+                }
+            }
+            
+            int[] counts = ps.executeBatch();
+            System.arraycopy(counts, 0, results, 0, Math.min(counts.length, results.length));
+        } finally {
+            closeStatement(ps);
+        }
+        
+        for (Integer i : blobIndexes) {
+            insertBlobTrigger(conn, triggers.get(i));
+        }
+        for (Map.Entry<TriggerPersistenceDelegate, List<Integer>> entry : indexesByDelegate.entrySet()) {
+            TriggerPersistenceDelegate tDel = entry.getKey();
+            if (tDel instanceof BatchTriggerPersistenceDelegate) {
+                List<OperableTrigger> batchTriggers = new ArrayList<OperableTrigger>();
+                List<String> batchStates = new ArrayList<String>();
+                List<JobDetail> batchJobDetails = new ArrayList<JobDetail>();
+                for (Integer i : entry.getValue()) {
+                    batchTriggers.add(triggers.get(i));
+                    batchStates.add(states.get(i));
+                    batchJobDetails.add(jobDetails.get(i));
+                }
+                ((BatchTriggerPersistenceDelegate) tDel).insertExtendedTriggerProperties(conn, batchTriggers, batchStates, batchJobDetails);
+            } else {
+                for (Integer i : entry.getValue()) {
+                    tDel.insertExtendedTriggerProperties(conn, triggers.get(i), states.get(i), jobDetails.get(i));
+                }
+            }
+        }
+        
+        return results;
+    }
+
+    private void setInsertTriggerParameters(PreparedStatement ps, OperableTrigger trigger, String state, 
+            TriggerPersistenceDelegate tDel, ByteArrayOutputStream baos) throws SQLException, IOException {
+        ps.setString(1, trigger.getKey().getName());
+        ps.setString(2, trigger.getKey().getGroup());
+        ps.setString(3, trigger.getJobKey().getName());
+        ps.setString(4, trigger.getJobKey().getGroup());
+        ps.setString(5, trigger.getDescription());
+        if(trigger.getNextFireTime() != null)
+            ps.setBigDecimal(6, new BigDecimal(String.valueOf(trigger
+                    .getNextFireTime().getTime())));
+        else
+            ps.setBigDecimal(6, null);
+        long prevFireTime = -1;
+        if (trigger.getPreviousFireTime() != null) {
+            prevFireTime = trigger.getPreviousFireTime().getTime();
+        }
+        ps.setBigDecimal(7, new BigDecimal(String.valueOf(prevFireTime)));
+        ps.setString(8, state);
+        
+        String type = TTYPE_BLOB;
+        if(tDel != null)
+            type = tDel.getHandledTriggerTypeDiscriminator();
+        ps.setString(9, type);
+        
+        ps.setBigDecimal(10, new BigDecimal(String.valueOf(trigger
+                .getStartTime().getTime())));
+        long endTime = 0;
+        if (trigger.getEndTime() != null) {
+            endTime = trigger.getEndTime().getTime();
+        }
+        ps.setBigDecimal(11, new BigDecimal(String.valueOf(endTime)));
+        ps.setString(12, trigger.getCalendarName());
+        ps.setInt(13, trigger.getMisfireInstruction());
+        setBytes(ps, 14, baos);
+        ps.setInt(15, trigger.getPriority());
+        ps.setInt(16, TriggerPartitions.keyHashOf(trigger.getKey()));
+    }
+
     /**
      * <p>
      * Insert the blob trigger data.
@@ -1165,59 +1561,17 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }
                 
         PreparedStatement ps = null;
+        String sql = updateJobData ? rtp(UPDATE_TRIGGER) : rtp(UPDATE_TRIGGER_SKIP_DATA);
 
         int insertResult = 0;
 
 
         try {
-            if(updateJobData) {
-                ps = conn.prepareStatement(rtp(UPDATE_TRIGGER));
-            } else {
-                ps = conn.prepareStatement(rtp(UPDATE_TRIGGER_SKIP_DATA));
-            }
+            ps = prepareCachedStatement(conn, sql);
                 
-            ps.setString(1, trigger.getJobKey().getName());
-            ps.setString(2, trigger.getJobKey().getGroup());
-            ps.setString(3, trigger.getDescription());
-            long nextFireTime = -1;
-            if (trigger.getNextFireTime() != null) {
-                nextFireTime = trigger.getNextFireTime().getTime();
-            }
-            ps.setBigDecimal(4, new BigDecimal(String.valueOf(nextFireTime)));
-            long prevFireTime = -1;
-            if (trigger.getPreviousFireTime() != null) {
-                prevFireTime = trigger.getPreviousFireTime().getTime();
-            }
-            ps.setBigDecimal(5, new BigDecimal(String.valueOf(prevFireTime)));
-            ps.setString(6, state);
-            
             TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(trigger);
             
-            String type = TTYPE_BLOB;
-            if(tDel != null)
-                type = tDel.getHandledTriggerTypeDiscriminator();
-
-            ps.setString(7, type);
-            
-            ps.setBigDecimal(8, new BigDecimal(String.valueOf(trigger
-                    .getStartTime().getTime())));
-            long endTime = 0;
-            if (trigger.getEndTime() != null) {
-                endTime = trigger.getEndTime().getTime();
-            }
-            ps.setBigDecimal(9, new BigDecimal(String.valueOf(endTime)));
-            ps.setString(10, trigger.getCalendarName());
-            ps.setInt(11, trigger.getMisfireInstruction());
-            ps.setInt(12, trigger.getPriority());
-
-            if(updateJobData) {
-                setBytes(ps, 13, baos);
-                ps.setString(14, trigger.getKey().getName());
-                ps.setString(15, trigger.getKey().getGroup());
-            } else {
-                ps.setString(13, trigger.getKey().getName());
-                ps.setString(14, trigger.getKey().getGroup());
-            }
+            setUpdateTriggerParameters(ps, trigger, state, tDel, updateJobData, baos);
 
             insertResult = ps.executeUpdate();
             
@@ -1227,7 +1581,7 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
                 tDel.updateExtendedTriggerProperties(conn, trigger, state, jobDetail);
             
         } finally {
-            closeStatement(ps);
+            releaseCachedStatement(conn, sql, ps);
         }
 
         return insertResult;
@@ -1235,37 +1589,199 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
 
     /**
      * <p>
-     * Update the blob trigger data.
+     * Update the given triggers, and their extended properties, as JDBC
+     * batches: one for the triggers whose job data is unchanged, one for
+     * those whose job data is dirty, and one per trigger type for the
+     * extended properties of types whose delegate is a
+     * <code>{@link BatchTriggerPersistenceDelegate}</code>.
      * </p>
      * 
      * @param conn
      *          the DB Connection
-     * @param trigger
-     *          the trigger to insert
-     * @return the number of rows updated
+     * @param triggers
+     *          the triggers to update
+     * @param states
+     *          the state to store each trigger in
+     * @param jobDetails
+     *          the job of each trigger
+     * @return the number of trigger rows updated for each trigger, in order
      */
-    public int updateBlobTrigger(Connection conn, OperableTrigger trigger)
-        throws SQLException, IOException {
-        PreparedStatement ps = null;
-        ByteArrayOutputStream os = null;
-
+    public int[] updateTriggers(Connection conn, List<OperableTrigger> triggers, List<String> states,
+            List<JobDetail> jobDetails) throws SQLException, IOException {
+        int[] results = new int[triggers.size()];
+        if (triggers.isEmpty()) {
+            return results;
+        }
+        
+        List<Integer> dataIndexes = new ArrayList<Integer>();
+        List<Integer> skipDataIndexes = new ArrayList<Integer>();
+        Map<TriggerPersistenceDelegate, List<Integer>> indexesByDelegate = new HashMap<TriggerPersistenceDelegate, List<Integer>>();
+        List<Integer> blobIndexes = new ArrayList<Integer>();
+        
+        PreparedStatement psData = null;
+        PreparedStatement psSkipData = null;
+        
         try {
-            // update the blob
-            os = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(os);
-            oos.writeObject(trigger);
-            oos.close();
-
-            byte[] buf = os.toByteArray();
-            ByteArrayInputStream is = new ByteArrayInputStream(buf);
-
-            ps = conn.prepareStatement(rtp(UPDATE_BLOB_TRIGGER));
-            ps.setBinaryStream(1, is, buf.length);
-            ps.setString(2, trigger.getKey().getName());
-            ps.setString(3, trigger.getKey().getGroup());
-
-            return ps.executeUpdate();
-        } finally {
+            for (int i = 0; i < triggers.size(); i++) {
+                OperableTrigger trigger = triggers.get(i);
+                
+                boolean updateJobData = trigger.getJobDataMap().isDirty();
+                ByteArrayOutputStream baos = null;
+                if(updateJobData && trigger.getJobDataMap().size() > 0) {
+                    baos = serializeJobData(trigger.getJobDataMap());
+                }
+                
+                PreparedStatement ps;
+                if (updateJobData) {
+                    if (psData == null) {
+                        psData = conn.prepareStatement(rtp(UPDATE_TRIGGER));
+                    }
+                    ps = psData;
+                    dataIndexes.add(i);
+                } else {
+                    if (psSkipData == null) {
+                        psSkipData = conn.prepareStatement(rtp(UPDATE_TRIGGER_SKIP_DATA));
+                    }
+                    ps = psSkipData;
+                    skipDataIndexes.add(i);
+                }
+                
+                TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(trigger);
+                
+                setUpdateTriggerParameters(ps, trigger, states.get(i), tDel, updateJobData, baos);
+                ps.addBatch();
+                
+                if (tDel == null) {
+                    blobIndexes.add(i);
+                } else {
+                    List<Integer> indexes = indexesByDelegate.get(tDel);
+                    if (indexes == null) {
+                        indexes = new ArrayList<Integer>();
+                        indexesByDelegate.put(tDel, indexes);
+                    }
+                    indexes.add(i);
+                }
+            }
+            
+            if (psData != null) {
+                copyBatchResults(psData.executeBatch(), dataIndexes, results);
+            }
+            if (psSkipData != null) {
+                copyBatchResults(psSkipData.executeBatch(), skipDataIndexes, results);
+            }
+        } finally {
+            closeStatement(psData);
+            closeStatement(psSkipData);
+        }
+        
+        for (Integer i : blobIndexes) {
+            updateBlobTrigger(conn, triggers.get(i));
+        }
+        for (Map.Entry<TriggerPersistenceDelegate, List<Integer>> entry : indexesByDelegate.entrySet()) {
+            TriggerPersistenceDelegate tDel = entry.getKey();
+            if (tDel instanceof BatchTriggerPersistenceDelegate) {
+                List<OperableTrigger> batchTriggers = new ArrayList<OperableTrigger>();
+                List<String> batchStates = new ArrayList<String>();
+                List<JobDetail> batchJobDetails = new ArrayList<JobDetail>();
+                for (Integer i : entry.getValue()) {
+                    batchTriggers.add(triggers.get(i));
+                    batchStates.add(states.get(i));
+                    batchJobDetails.add(jobDetails.get(i));
+                }
+                ((BatchTriggerPersistenceDelegate) tDel).updateExtendedTriggerProperties(conn, batchTriggers, batchStates, batchJobDetails);
+            } else {
+                for (Integer i : entry.getValue()) {
+                    tDel.updateExtendedTriggerProperties(conn, triggers.get(i), states.get(i), jobDetails.get(i));
+                }
+            }
+        }
+        
+        return results;
+    }
+
+    private void setUpdateTriggerParameters(PreparedStatement ps, OperableTrigger trigger, String state, 
+            TriggerPersistenceDelegate tDel, boolean updateJobData, ByteArrayOutputStream baos) throws SQLException, IOException {
+        ps.setString(1, trigger.getJobKey().getName());
+        ps.setString(2, trigger.getJobKey().getGroup());
+        ps.setString(3, trigger.getDescription());
+        long nextFireTime = -1;
+        if (trigger.getNextFireTime() != null) {
+            nextFireTime = trigger.getNextFireTime().getTime();
+        }
+        ps.setBigDecimal(4, new BigDecimal(String.valueOf(nextFireTime)));
+        long prevFireTime = -1;
+        if (trigger.getPreviousFireTime() != null) {
+            prevFireTime = trigger.getPreviousFireTime().getTime();
+        }
+        ps.setBigDecimal(5, new BigDecimal(String.valueOf(prevFireTime)));
+        ps.setString(6, state);
+        
+        String type = TTYPE_BLOB;
+        if(tDel != null)
+            type = tDel.getHandledTriggerTypeDiscriminator();
+
+        ps.setString(7, type);
+        
+        ps.setBigDecimal(8, new BigDecimal(String.valueOf(trigger
+                .getStartTime().getTime())));
+        long endTime = 0;
+        if (trigger.getEndTime() != null) {
+            endTime = trigger.getEndTime().getTime();
+        }
+        ps.setBigDecimal(9, new BigDecimal(String.valueOf(endTime)));
+        ps.setString(10, trigger.getCalendarName());
+        ps.setInt(11, trigger.getMisfireInstruction());
+        ps.setInt(12, trigger.getPriority());
+
+        if(updateJobData) {
+            setBytes(ps, 13, baos);
+            ps.setString(14, trigger.getKey().getName());
+            ps.setString(15, trigger.getKey().getGroup());
+        } else {
+            ps.setString(13, trigger.getKey().getName());
+            ps.setString(14, trigger.getKey().getGroup());
+        }
+    }
+
+    private static void copyBatchResults(int[] batchResults, List<Integer> indexes, int[] results) {
+        for (int i = 0; i < batchResults.length; i++) {
+            results[indexes.get(i)] = batchResults[i];
+        }
+    }
+
+    /**
+     * <p>
+     * Update the blob trigger data.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param trigger
+     *          the trigger to insert
+     * @return the number of rows updated
+     */
+    public int updateBlobTrigger(Connection conn, OperableTrigger trigger)
+        throws SQLException, IOException {
+        PreparedStatement ps = null;
+        ByteArrayOutputStream os = null;
+
+        try {
+            // update the blob
+            os = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(os);
+            oos.writeObject(trigger);
+            oos.close();
+
+            byte[] buf = os.toByteArray();
+            ByteArrayInputStream is = new ByteArrayInputStream(buf);
+
+            ps = conn.prepareStatement(rtp(UPDATE_BLOB_TRIGGER));
+            ps.setBinaryStream(1, is, buf.length);
+            ps.setString(2, trigger.getKey().getName());
+            ps.setString(3, trigger.getKey().getGroup());
+
+            return ps.executeUpdate();
+        } finally {
             closeStatement(ps);
             if (os != null) {
                 os.close();
@@ -1428,15 +1944,55 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
     public int updateTriggerStateFromOtherState(Connection conn,
             TriggerKey triggerKey, String newState, String oldState) throws SQLException {
         PreparedStatement ps = null;
+        String sql = rtp(UPDATE_TRIGGER_STATE_FROM_STATE);
 
         try {
-            ps = conn.prepareStatement(rtp(UPDATE_TRIGGER_STATE_FROM_STATE));
+            ps = prepareCachedStatement(conn, sql);
             ps.setString(1, newState);
             ps.setString(2, triggerKey.getName());
             ps.setString(3, triggerKey.getGroup());
             ps.setString(4, oldState);
 
             return ps.executeUpdate();
+        } finally {
+            releaseCachedStatement(conn, sql, ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Update each of the given triggers to the given new state, if it is in
+     * the given old state, as a single JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB connection
+     * @param newState
+     *          the new state for the triggers
+     * @param oldState
+     *          the old state the triggers must be in
+     * @return the number of rows updated for each trigger, in order
+     * @throws SQLException
+     */
+    public int[] updateTriggerStatesFromOtherState(Connection conn,
+            List<TriggerKey> triggerKeys, String newState, String oldState) throws SQLException {
+        if (triggerKeys.isEmpty()) {
+            return new int[0];
+        }
+        
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(UPDATE_TRIGGER_STATE_FROM_STATE));
+            for (TriggerKey triggerKey : triggerKeys) {
+                ps.setString(1, newState);
+                ps.setString(2, triggerKey.getName());
+                ps.setString(3, triggerKey.getGroup());
+                ps.setString(4, oldState);
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
         } finally {
             closeStatement(ps);
         }
@@ -1523,6 +2079,86 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }
     }
 
+    /**
+     * <p>
+     * Update the states of the triggers of each of the given jobs that are
+     * in the given old state, as a single JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param state
+     *          the new state for the triggers
+     * @param oldState
+     *          the state the triggers must be in
+     * @return the number of rows updated for each job, in iteration order
+     */
+    public int[] updateTriggerStatesForJobsFromOtherState(Connection conn,
+            Collection<JobKey> jobKeys, String state, String oldState)
+        throws SQLException {
+        if (jobKeys.isEmpty()) {
+            return new int[0];
+        }
+        
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn
+                    .prepareStatement(rtp(UPDATE_JOB_TRIGGER_STATES_FROM_OTHER_STATE));
+            for (JobKey jobKey : jobKeys) {
+                ps.setString(1, state);
+                ps.setString(2, jobKey.getName());
+                ps.setString(3, jobKey.getGroup());
+                ps.setString(4, oldState);
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Update the triggers of all of the jobs matching the given
+     * groupMatcher to the given new state, if they are in one of the given
+     * old states.
+     * </p>
+     * 
+     * @param conn
+     *          the DB connection
+     * @param matcher
+     *          the groupMatcher to evaluate the jobs against
+     * @param newState
+     *          the new state for the triggers
+     * @return int the number of rows updated
+     */
+    public int updateTriggerStatesForJobGroupFromOtherStates(Connection conn,
+            GroupMatcher<JobKey> matcher, String newState, String oldState1,
+            String oldState2, String oldState3) throws SQLException {
+        PreparedStatement ps = null;
+
+        try {
+            if(isMatcherEquals(matcher)) {
+                ps = conn.prepareStatement(rtp(UPDATE_JOB_GROUP_TRIGGER_STATES_FROM_STATES));
+                ps.setString(2, toSqlEqualsClause(matcher));
+            }
+            else {
+                ps = conn.prepareStatement(rtp(UPDATE_JOB_GROUP_TRIGGER_STATES_FROM_STATES_LIKE));
+                ps.setString(2, toSqlLikeClause(matcher));
+            }
+            ps.setString(1, newState);
+            ps.setString(3, oldState1);
+            ps.setString(4, oldState2);
+            ps.setString(5, oldState3);
+
+            return ps.executeUpdate();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
     /**
      * <p>
      * Delete the cron trigger data for a trigger.
@@ -1581,6 +2217,85 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         deleteBlobTrigger(conn, triggerKey); 
     }
 
+    /**
+     * <p>
+     * Delete the given triggers, and their Simple/Cron/BLOB sub-table
+     * entries, with one JDBC batch per table.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the number of rows deleted for each trigger, in order
+     */
+    public int[] deleteTriggers(Connection conn, List<TriggerKey> triggerKeys) throws SQLException {
+        if (triggerKeys.isEmpty()) {
+            return new int[0];
+        }
+
+        deleteTriggerExtensions(conn, triggerKeys);
+
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(DELETE_TRIGGER));
+            for (TriggerKey triggerKey : triggerKeys) {
+                ps.setString(1, triggerKey.getName());
+                ps.setString(2, triggerKey.getGroup());
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    protected void deleteTriggerExtensions(Connection conn, List<TriggerKey> triggerKeys) throws SQLException {
+
+        // as in deleteTriggerExtension(), a trigger whose record one delegate
+        // deleted is not passed on to the next; a count the driver did not
+        // report leaves the trigger for the others, which find nothing.
+        List<TriggerKey> remaining = triggerKeys;
+        for(TriggerPersistenceDelegate tDel: triggerPersistenceDelegates) {
+            if (remaining.isEmpty()) {
+                return;
+            }
+            List<TriggerKey> notDeleted = new ArrayList<TriggerKey>();
+            if (tDel instanceof BatchTriggerPersistenceDelegate) {
+                int[] rows = ((BatchTriggerPersistenceDelegate) tDel).deleteExtendedTriggerProperties(conn, remaining);
+                for (int i = 0; i < rows.length; i++) {
+                    if (rows[i] <= 0) {
+                        notDeleted.add(remaining.get(i));
+                    }
+                }
+            } else {
+                for (TriggerKey triggerKey : remaining) {
+                    if (tDel.deleteExtendedTriggerProperties(conn, triggerKey) <= 0) {
+                        notDeleted.add(triggerKey);
+                    }
+                }
+            }
+            remaining = notDeleted;
+        }
+        if (remaining.isEmpty()) {
+            return;
+        }
+
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(DELETE_BLOB_TRIGGER));
+            for (TriggerKey triggerKey : remaining) {
+                ps.setString(1, triggerKey.getName());
+                ps.setString(2, triggerKey.getGroup());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
     /**
      * <p>
      * Select the number of triggers associated with a given job.
@@ -1761,41 +2476,9 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
             rs = ps.executeQuery();
 
             if (rs.next()) {
-                String jobName = rs.getString(COL_JOB_NAME);
-                String jobGroup = rs.getString(COL_JOB_GROUP);
-                String description = rs.getString(COL_DESCRIPTION);
-                long nextFireTime = rs.getLong(COL_NEXT_FIRE_TIME);
-                long prevFireTime = rs.getLong(COL_PREV_FIRE_TIME);
-                String triggerType = rs.getString(COL_TRIGGER_TYPE);
-                long startTime = rs.getLong(COL_START_TIME);
-                long endTime = rs.getLong(COL_END_TIME);
-                String calendarName = rs.getString(COL_CALENDAR_NAME);
-                int misFireInstr = rs.getInt(COL_MISFIRE_INSTRUCTION);
-                int priority = rs.getInt(COL_PRIORITY);
+                TriggerRecord record = readTriggerRecord(rs);
 
-                Map<?, ?> map = null;
-                if (canUseProperties()) {
-                    map = getMapFromProperties(rs);
-                } else {
-                    map = (Map<?, ?>) getObjectFromBlob(rs, COL_JOB_DATAMAP);
-                }
-                
-                Date nft = null;
-                if (nextFireTime > 0) {
-                    nft = new Date(nextFireTime);
-                }
-
-                Date pft = null;
-                if (prevFireTime > 0) {
-                    pft = new Date(prevFireTime);
-                }
-                Date startTimeD = new Date(startTime);
-                Date endTimeD = null;
-                if (endTime > 0) {
-                    endTimeD = new Date(endTime);
-                }
-
-                if (triggerType.equals(TTYPE_BLOB)) {
+                if (record.triggerType.equals(TTYPE_BLOB)) {
                     rs.close(); rs = null;
                     ps.close(); ps = null;
 
@@ -1809,10 +2492,10 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
                     }
                 }
                 else {
-                    TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(triggerType);
+                    TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(record.triggerType);
                     
                     if(tDel == null)
-                        throw new JobPersistenceException("No TriggerPersistenceDelegate for trigger discriminator type: " + triggerType);
+                        throw new JobPersistenceException("No TriggerPersistenceDelegate for trigger discriminator type: " + record.triggerType);
 
                     TriggerPropertyBundle triggerProps = null;
                     try {
@@ -1826,27 +2509,7 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
                         }
                     }
 
-                    TriggerBuilder<?> tb = newTrigger()
-                        .withDescription(description)
-                        .withPriority(priority)
-                        .startAt(startTimeD)
-                        .endAt(endTimeD)
-                        .withIdentity(triggerKey)
-                        .modifiedByCalendar(calendarName)
-                        .withSchedule(triggerProps.getScheduleBuilder())
-                        .forJob(jobKey(jobName, jobGroup));
-    
-                    if (null != map) {
-                        tb.usingJobData(new JobDataMap(map));
-                    }
-    
-                    trigger = (OperableTrigger) tb.build();
-                    
-                    trigger.setMisfireInstruction(misFireInstr);
-                    trigger.setNextFireTime(nft);
-                    trigger.setPreviousFireTime(pft);
-                    
-                    setTriggerStateProperties(trigger, triggerProps);
+                    trigger = buildTrigger(triggerKey, record, triggerProps);
                 }                
             }
 
@@ -1857,6 +2520,187 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }
     }
 
+    /**
+     * <p>
+     * Select the given triggers, in as few statements as possible: one for
+     * the trigger records of each chunk of the list, plus one per trigger
+     * type for the types' extended properties.
+     * </p>
+     * 
+     * <p>
+     * Triggers whose <code>{@link TriggerPersistenceDelegate}</code> is not
+     * a <code>{@link BatchTriggerPersistenceDelegate}</code> are selected
+     * one at a time, as are any that lack their extended properties record,
+     * so that those cases are treated exactly as by 
+     * <code>{@link #selectTrigger(Connection, TriggerKey)}</code>.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * 
+     * @return the triggers that exist, by key
+     */
+    public Map<TriggerKey, OperableTrigger> selectTriggers(Connection conn, List<TriggerKey> triggerKeys) throws SQLException, ClassNotFoundException,
+            IOException, JobPersistenceException {
+        Map<TriggerKey, OperableTrigger> triggers = new HashMap<TriggerKey, OperableTrigger>();
+        for (List<TriggerKey> chunk : Util.partition(triggerKeys, MAX_KEYS_PER_STATEMENT)) {
+            selectTriggers(conn, chunk, triggers);
+        }
+        return triggers;
+    }
+
+    private void selectTriggers(Connection conn, List<TriggerKey> triggerKeys, Map<TriggerKey, OperableTrigger> triggers) 
+        throws SQLException, ClassNotFoundException, IOException, JobPersistenceException {
+        Map<TriggerKey, TriggerRecord> records = new HashMap<TriggerKey, TriggerRecord>();
+        Map<String, List<TriggerKey>> keysByType = new HashMap<String, List<TriggerKey>>();
+
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(SELECT_TRIGGERS) 
+                    + Util.keysPredicate(COL_TRIGGER_NAME, COL_TRIGGER_GROUP, triggerKeys.size()));
+            Util.setKeyParameters(ps, 1, triggerKeys);
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                TriggerKey key = triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP));
+                TriggerRecord record = readTriggerRecord(rs);
+                records.put(key, record);
+
+                List<TriggerKey> keys = keysByType.get(record.triggerType);
+                if (keys == null) {
+                    keys = new ArrayList<TriggerKey>();
+                    keysByType.put(record.triggerType, keys);
+                }
+                keys.add(key);
+            }
+        } finally {
+            closeResultSet(rs);
+            closeStatement(ps);
+        }
+
+        for (Map.Entry<String, List<TriggerKey>> entry : keysByType.entrySet()) {
+            String triggerType = entry.getKey();
+            List<TriggerKey> keys = entry.getValue();
+
+            if (triggerType.equals(TTYPE_BLOB)) {
+                selectBlobTriggers(conn, keys, triggers);
+                continue;
+            }
+
+            TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(triggerType);
+            
+            if(tDel == null)
+                throw new JobPersistenceException("No TriggerPersistenceDelegate for trigger discriminator type: " + triggerType);
+
+            Map<TriggerKey, TriggerPropertyBundle> bundles = null;
+            if (tDel instanceof BatchTriggerPersistenceDelegate) {
+                bundles = ((BatchTriggerPersistenceDelegate) tDel).loadExtendedTriggerProperties(conn, keys);
+            }
+
+            for (TriggerKey key : keys) {
+                TriggerPropertyBundle triggerProps = (bundles == null) ? null : bundles.get(key);
+
+                OperableTrigger trigger;
+                if (triggerProps != null) {
+                    trigger = buildTrigger(key, records.get(key), triggerProps);
+                } else {
+                    trigger = selectTrigger(conn, key);
+                }
+                if (trigger != null) {
+                    triggers.put(key, trigger);
+                }
+            }
+        }
+    }
+
+    private void selectBlobTriggers(Connection conn, List<TriggerKey> triggerKeys, Map<TriggerKey, OperableTrigger> triggers) 
+        throws SQLException, ClassNotFoundException, IOException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(SELECT_BLOB_TRIGGERS) 
+                    + Util.keysPredicate(COL_TRIGGER_NAME, COL_TRIGGER_GROUP, triggerKeys.size()));
+            Util.setKeyParameters(ps, 1, triggerKeys);
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                OperableTrigger trigger = (OperableTrigger) getObjectFromBlob(rs, COL_BLOB);
+                if (trigger != null) {
+                    triggers.put(triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP)), trigger);
+                }
+            }
+        } finally {
+            closeResultSet(rs);
+            closeStatement(ps);
+        }
+    }
+
+    private TriggerRecord readTriggerRecord(ResultSet rs) throws SQLException, ClassNotFoundException, IOException {
+        TriggerRecord record = new TriggerRecord();
+        record.jobName = rs.getString(COL_JOB_NAME);
+        record.jobGroup = rs.getString(COL_JOB_GROUP);
+        record.description = rs.getString(COL_DESCRIPTION);
+        record.nextFireTime = rs.getLong(COL_NEXT_FIRE_TIME);
+        record.prevFireTime = rs.getLong(COL_PREV_FIRE_TIME);
+        record.triggerType = rs.getString(COL_TRIGGER_TYPE);
+        record.startTime = rs.getLong(COL_START_TIME);
+        record.endTime = rs.getLong(COL_END_TIME);
+        record.calendarName = rs.getString(COL_CALENDAR_NAME);
+        record.misFireInstr = rs.getInt(COL_MISFIRE_INSTRUCTION);
+        record.priority = rs.getInt(COL_PRIORITY);
+
+        if (canUseProperties()) {
+            record.map = getMapFromProperties(rs);
+        } else {
+            record.map = (Map<?, ?>) getObjectFromBlob(rs, COL_JOB_DATAMAP);
+        }
+        return record;
+    }
+
+    private OperableTrigger buildTrigger(TriggerKey triggerKey, TriggerRecord record, TriggerPropertyBundle triggerProps) throws JobPersistenceException {
+        Date nft = null;
+        if (record.nextFireTime > 0) {
+            nft = new Date(record.nextFireTime);
+        }
+
+        Date pft = null;
+        if (record.prevFireTime > 0) {
+            pft = new Date(record.prevFireTime);
+        }
+        Date startTimeD = new Date(record.startTime);
+        Date endTimeD = null;
+        if (record.endTime > 0) {
+            endTimeD = new Date(record.endTime);
+        }
+
+        TriggerBuilder<?> tb = newTrigger()
+            .withDescription(record.description)
+            .withPriority(record.priority)
+            .startAt(startTimeD)
+            .endAt(endTimeD)
+            .withIdentity(triggerKey)
+            .modifiedByCalendar(record.calendarName)
+            .withSchedule(triggerProps.getScheduleBuilder())
+            .forJob(jobKey(record.jobName, record.jobGroup));
+
+        if (null != record.map) {
+            tb.usingJobData(new JobDataMap(record.map));
+        }
+
+        OperableTrigger trigger = (OperableTrigger) tb.build();
+        
+        trigger.setMisfireInstruction(record.misFireInstr);
+        trigger.setNextFireTime(nft);
+        trigger.setPreviousFireTime(pft);
+        
+        setTriggerStateProperties(trigger, triggerProps);
+        
+        return trigger;
+    }
+
     private boolean isTriggerStillPresent(PreparedStatement ps) throws SQLException {
         ResultSet rs = null;
         try {
@@ -1938,12 +2782,13 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
      */
     public String selectTriggerState(Connection conn, TriggerKey triggerKey) throws SQLException {
         PreparedStatement ps = null;
+        String sql = rtp(SELECT_TRIGGER_STATE);
         ResultSet rs = null;
 
         try {
             String state = null;
 
-            ps = conn.prepareStatement(rtp(SELECT_TRIGGER_STATE));
+            ps = prepareCachedStatement(conn, sql);
             ps.setString(1, triggerKey.getName());
             ps.setString(2, triggerKey.getGroup());
             rs = ps.executeQuery();
@@ -1957,11 +2802,45 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
             return state.intern();
         } finally {
             closeResultSet(rs);
-            closeStatement(ps);
+            releaseCachedStatement(conn, sql, ps);
         }
 
     }
 
+    /**
+     * <p>
+     * Select the states of the given triggers, in one statement per chunk
+     * of the list.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the state of each trigger that exists, by key
+     */
+    public Map<TriggerKey, String> selectTriggerStates(Connection conn, List<TriggerKey> triggerKeys) throws SQLException {
+        Map<TriggerKey, String> states = new HashMap<TriggerKey, String>();
+        
+        for (List<TriggerKey> chunk : Util.partition(triggerKeys, MAX_KEYS_PER_STATEMENT)) {
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+
+            try {
+                ps = conn.prepareStatement(rtp(SELECT_TRIGGER_STATES) 
+                        + Util.keysPredicate(COL_TRIGGER_NAME, COL_TRIGGER_GROUP, chunk.size()));
+                Util.setKeyParameters(ps, 1, chunk);
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    states.put(triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP)), 
+                            rs.getString(COL_TRIGGER_STATE).intern());
+                }
+            } finally {
+                closeResultSet(rs);
+                closeStatement(ps);
+            }
+        }
+        return states;
+    }
+
     /**
      * <p>
      * Select a trigger' status (state & next fire time).
@@ -2008,6 +2887,114 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
 
     }
 
+    /**
+     * <p>
+     * Select the statuses of the given triggers, reusing one statement for
+     * all of them.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the status of each of the triggers that exists
+     */
+    public Map<TriggerKey, TriggerStatus> selectTriggerStatuses(Connection conn,
+            List<TriggerKey> triggerKeys) throws SQLException {
+        Map<TriggerKey, TriggerStatus> statuses = new HashMap<TriggerKey, TriggerStatus>();
+        if (triggerKeys.isEmpty()) {
+            return statuses;
+        }
+
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(SELECT_TRIGGER_STATUS));
+            for (TriggerKey triggerKey : triggerKeys) {
+                ps.setString(1, triggerKey.getName());
+                ps.setString(2, triggerKey.getGroup());
+                ResultSet rs = ps.executeQuery();
+                try {
+                    if (rs.next()) {
+                        statuses.put(triggerKey, readTriggerStatus(rs, triggerKey));
+                    }
+                } finally {
+                    closeResultSet(rs);
+                }
+            }
+            return statuses;
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Select the statuses of all of the triggers matching the given
+     * groupMatcher, in one statement.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the statuses of the triggers
+     */
+    public List<TriggerStatus> selectTriggerStatusesInGroup(Connection conn,
+            GroupMatcher<TriggerKey> matcher) throws SQLException {
+        return selectTriggerStatuses(conn, matcher, 
+                SELECT_TRIGGER_STATUSES_IN_GROUP, SELECT_TRIGGER_STATUSES_IN_GROUP_LIKE);
+    }
+
+    /**
+     * <p>
+     * Select the statuses of all of the triggers of the jobs matching the
+     * given groupMatcher, in one statement.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the statuses of the triggers
+     */
+    public List<TriggerStatus> selectTriggerStatusesForJobGroup(Connection conn,
+            GroupMatcher<JobKey> matcher) throws SQLException {
+        return selectTriggerStatuses(conn, matcher, 
+                SELECT_TRIGGER_STATUSES_FOR_JOB_GROUP, SELECT_TRIGGER_STATUSES_FOR_JOB_GROUP_LIKE);
+    }
+
+    private List<TriggerStatus> selectTriggerStatuses(Connection conn, GroupMatcher<?> matcher,
+            String equalsQuery, String likeQuery) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            if(isMatcherEquals(matcher)) {
+                ps = conn.prepareStatement(rtp(equalsQuery));
+                ps.setString(1, toSqlEqualsClause(matcher));
+            }
+            else {
+                ps = conn.prepareStatement(rtp(likeQuery));
+                ps.setString(1, toSqlLikeClause(matcher));
+            }
+            rs = ps.executeQuery();
+
+            List<TriggerStatus> statuses = new ArrayList<TriggerStatus>();
+            while (rs.next()) {
+                statuses.add(readTriggerStatus(rs, 
+                        triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP))));
+            }
+            return statuses;
+        } finally {
+            closeResultSet(rs);
+            closeStatement(ps);
+        }
+    }
+
+    private TriggerStatus readTriggerStatus(ResultSet rs, TriggerKey triggerKey) throws SQLException {
+        long nextFireTime = rs.getLong(COL_NEXT_FIRE_TIME);
+
+        TriggerStatus status = new TriggerStatus(rs.getString(COL_TRIGGER_STATE), 
+                nextFireTime > 0 ? new Date(nextFireTime) : null);
+        status.setKey(triggerKey);
+        status.setJobKey(jobKey(rs.getString(COL_JOB_NAME), rs.getString(COL_JOB_GROUP)));
+        return status;
+    }
+
     /**
      * <p>
      * Select the total number of triggers stored.
@@ -2472,34 +3459,66 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
                 list.add(rs.getString(1));
             }
 
-            return list;
+            return list;
+        } finally {
+            closeResultSet(rs);
+            closeStatement(ps);
+        }
+    }
+
+    //---------------------------------------------------------------------------
+    // trigger firing
+    //---------------------------------------------------------------------------
+
+    /**
+     * <p>
+     * Select the next time that a trigger will be fired.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the next fire time, or 0 if no trigger will be fired
+     * 
+     * @deprecated Does not account for misfires.
+     */
+    public long selectNextFireTime(Connection conn) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = conn.prepareStatement(rtp(SELECT_NEXT_FIRE_TIME));
+            ps.setString(1, STATE_WAITING);
+            rs = ps.executeQuery();
+
+            if (rs.next()) {
+                return rs.getLong(ALIAS_COL_NEXT_FIRE_TIME);
+            } else {
+                return 0l;
+            }
         } finally {
             closeResultSet(rs);
             closeStatement(ps);
         }
     }
 
-    //---------------------------------------------------------------------------
-    // trigger firing
-    //---------------------------------------------------------------------------
-
     /**
      * <p>
-     * Select the next time that a trigger will be fired.
+     * Select the earliest next fire time of the waiting triggers, leaving 
+     * out those that are due before the given time, such as misfired ones.
      * </p>
      * 
      * @param conn
      *          the DB Connection
-     * @return the next fire time, or 0 if no trigger will be fired
-     * 
-     * @deprecated Does not account for misfires.
+     * @param noEarlierThan
+     *          the earliest fire time to consider
+     * @return the earliest next fire time, or 0 if no trigger is due then
      */
-    public long selectNextFireTime(Connection conn) throws SQLException {
+    public long selectEarliestNextFireTime(Connection conn, long noEarlierThan) throws SQLException {
         PreparedStatement ps = null;
         ResultSet rs = null;
         try {
-            ps = conn.prepareStatement(rtp(SELECT_NEXT_FIRE_TIME));
+            ps = conn.prepareStatement(rtp(SELECT_EARLIEST_NEXT_FIRE_TIME));
             ps.setString(1, STATE_WAITING);
+            ps.setBigDecimal(2, new BigDecimal(String.valueOf(noEarlierThan)));
             rs = ps.executeQuery();
 
             if (rs.next()) {
@@ -2592,15 +3611,82 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
      */
     public List<TriggerKey> selectTriggerToAcquire(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
         throws SQLException {
+        if (maxCount < 1)
+            maxCount = 1; // we want at least one trigger back.
+        return selectTriggerToAcquire(conn, rtp(SELECT_NEXT_TRIGGER_TO_ACQUIRE), noLaterThan, noEarlierThan, maxCount);
+    }
+
+    /**
+     * <p>
+     * Select the next triggers to acquire, as 
+     * <code>{@link #selectTriggerToAcquire(Connection, long, long, int)}</code>
+     * does, but locking the selected rows until the end of the transaction
+     * and skipping rows already locked by other transactions - so that 
+     * nodes acquiring concurrently select disjoint triggers without taking
+     * the <code>TRIGGER_ACCESS</code> lock.
+     * </p>
+     * 
+     * @return the keys of the triggers selected, or <code>null</code> if 
+     *         this delegate's database cannot skip locked rows
+     * @see #getSelectNextTriggerToAcquireSkipLockedSql(int)
+     */
+    public List<TriggerKey> selectTriggerToAcquireSkipLocked(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+        throws SQLException {
+        if (maxCount < 1)
+            maxCount = 1; // we want at least one trigger back.
+        String sql = getSelectNextTriggerToAcquireSkipLockedSql(maxCount);
+        if (sql == null) {
+            return null;
+        }
+        return selectTriggerToAcquire(conn, sql, noLaterThan, noEarlierThan, maxCount);
+    }
+
+    /**
+     * <p>
+     * Get the query selecting the next triggers to acquire that locks the
+     * rows it returns and skips rows locked by other transactions (e.g. 
+     * with <code>FOR UPDATE SKIP LOCKED</code>), taking the same parameters
+     * as <code>SELECT_NEXT_TRIGGER_TO_ACQUIRE</code>.  Delegate subclasses
+     * for databases that support it should override this; the default
+     * implementation returns <code>null</code>.
+     * </p>
+     * 
+     * @param maxCount
+     *          the most rows the query should lock
+     */
+    protected String getSelectNextTriggerToAcquireSkipLockedSql(int maxCount) {
+        return null;
+    }
+
+    /**
+     * <p>
+     * Select the next triggers to acquire, as 
+     * <code>{@link #selectTriggerToAcquire(Connection, long, long, int)}</code>
+     * does, among those whose key hash is in the given range.
+     * </p>
+     */
+    public List<TriggerKey> selectTriggerToAcquireInKeyHashRange(Connection conn, long noLaterThan, long noEarlierThan, int maxCount,
+            int minKeyHash, int maxKeyHash) throws SQLException {
+        if (maxCount < 1)
+            maxCount = 1; // we want at least one trigger back.
+        return selectTriggerToAcquire(conn, rtp(SELECT_NEXT_TRIGGER_TO_ACQUIRE_IN_KEY_HASH_RANGE), noLaterThan, noEarlierThan, maxCount,
+                new int[] {minKeyHash, maxKeyHash});
+    }
+
+    private List<TriggerKey> selectTriggerToAcquire(Connection conn, String sql, long noLaterThan, long noEarlierThan, int maxCount)
+        throws SQLException {
+        return selectTriggerToAcquire(conn, sql, noLaterThan, noEarlierThan, maxCount, null);
+    }
+
+    private List<TriggerKey> selectTriggerToAcquire(Connection conn, String sql, long noLaterThan, long noEarlierThan, int maxCount,
+            int[] keyHashRange) throws SQLException {
         PreparedStatement ps = null;
         ResultSet rs = null;
         List<TriggerKey> nextTriggers = new LinkedList<TriggerKey>();
         try {
-            ps = conn.prepareStatement(rtp(SELECT_NEXT_TRIGGER_TO_ACQUIRE));
+            ps = conn.prepareStatement(sql);
             
             // Set max rows to retrieve
-            if (maxCount < 1)
-                maxCount = 1; // we want at least one trigger back.
             ps.setMaxRows(maxCount);
             
             // Try to give jdbc driver a hint to hopefully not pull over more than the few rows we actually need.
@@ -2610,6 +3696,10 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
             ps.setString(1, STATE_WAITING);
             ps.setBigDecimal(2, new BigDecimal(String.valueOf(noLaterThan)));
             ps.setBigDecimal(3, new BigDecimal(String.valueOf(noEarlierThan)));
+            if (keyHashRange != null) {
+                ps.setInt(4, keyHashRange[0]);
+                ps.setInt(5, keyHashRange[1]);
+            }
             rs = ps.executeQuery();
             
             while (rs.next() && nextTriggers.size() <= maxCount) {
@@ -2625,6 +3715,47 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }      
     }
 
+    /**
+     * <p>
+     * Store the key hash of the triggers that were stored without one, by
+     * a version of the schema that had no <code>KEY_HASH</code> column.
+     * </p>
+     * 
+     * @return the number of triggers found without a key hash
+     */
+    public int updateMissingTriggerKeyHashes(Connection conn) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        List<TriggerKey> keys = new ArrayList<TriggerKey>();
+        try {
+            ps = conn.prepareStatement(rtp(SELECT_TRIGGERS_WITHOUT_KEY_HASH));
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                keys.add(triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP)));
+            }
+        } finally {
+            closeResultSet(rs);
+            closeStatement(ps);
+        }
+        if (keys.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            ps = conn.prepareStatement(rtp(UPDATE_TRIGGER_KEY_HASH));
+            for (TriggerKey key : keys) {
+                ps.setInt(1, TriggerPartitions.keyHashOf(key));
+                ps.setString(2, key.getName());
+                ps.setString(3, key.getGroup());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            return keys.size();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
     /**
      * <p>
      * Insert a fired trigger.
@@ -2669,6 +3800,52 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }
     }
 
+    /**
+     * <p>
+     * Insert fired trigger records for the given triggers, without job
+     * details, as a single JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers, with their fire instance ids set
+     * @param state
+     *          the state that the triggers should be stored in
+     * @return the number of rows inserted for each trigger, in order
+     */
+    public int[] insertFiredTriggers(Connection conn, List<OperableTrigger> triggers,
+            String state) throws SQLException {
+        if (triggers.isEmpty()) {
+            return new int[0];
+        }
+        
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(INSERT_FIRED_TRIGGER));
+            BigDecimal firedTime = new BigDecimal(String.valueOf(System.currentTimeMillis()));
+            for (OperableTrigger trigger : triggers) {
+                ps.setString(1, trigger.getFireInstanceId());
+                ps.setString(2, trigger.getKey().getName());
+                ps.setString(3, trigger.getKey().getGroup());
+                ps.setString(4, instanceId);
+                ps.setBigDecimal(5, firedTime);
+                ps.setBigDecimal(6, new BigDecimal(String.valueOf(trigger.getNextFireTime().getTime())));
+                ps.setString(7, state);
+                ps.setString(8, null);
+                ps.setString(9, null);
+                setBoolean(ps, 10, false);
+                setBoolean(ps, 11, false);
+                ps.setInt(12, trigger.getPriority());
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
     /**
      * <p>
      * Update a fired trigger.
@@ -2688,32 +3865,73 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         try {
             ps = conn.prepareStatement(rtp(UPDATE_FIRED_TRIGGER));
             
-            ps.setString(1, instanceId);
+            setUpdateFiredTriggerParameters(ps, trigger, state, job, System.currentTimeMillis());
 
-            ps.setBigDecimal(2, new BigDecimal(String.valueOf(System.currentTimeMillis())));
-            ps.setBigDecimal(3, new BigDecimal(String.valueOf(trigger.getNextFireTime().getTime())));
-            ps.setString(4, state);
+            return ps.executeUpdate();
+        } finally {
+            closeStatement(ps);
+        }
+    }
 
-            if (job != null) {
-                ps.setString(5, trigger.getJobKey().getName());
-                ps.setString(6, trigger.getJobKey().getGroup());
-                setBoolean(ps, 7, job.isConcurrentExectionDisallowed());
-                setBoolean(ps, 8, job.requestsRecovery());
-            } else {
-                ps.setString(5, null);
-                ps.setString(6, null);
-                setBoolean(ps, 7, false);
-                setBoolean(ps, 8, false);
+    /**
+     * <p>
+     * Update the fired trigger records of the given triggers, as a single
+     * JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers
+     * @param state
+     *          the state that the records should be stored in
+     * @param jobs
+     *          the job of each trigger
+     * @return the number of rows updated for each trigger, in order
+     */
+    public int[] updateFiredTriggers(Connection conn, List<OperableTrigger> triggers,
+            String state, List<JobDetail> jobs) throws SQLException {
+        if (triggers.isEmpty()) {
+            return new int[0];
+        }
+        
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(UPDATE_FIRED_TRIGGER));
+            long firedTime = System.currentTimeMillis();
+            for (int i = 0; i < triggers.size(); i++) {
+                setUpdateFiredTriggerParameters(ps, triggers.get(i), state, jobs.get(i), firedTime);
+                ps.addBatch();
             }
 
-            ps.setString(9, trigger.getFireInstanceId());
-
-
-            return ps.executeUpdate();
+            return ps.executeBatch();
         } finally {
             closeStatement(ps);
         }
     }
+
+    private void setUpdateFiredTriggerParameters(PreparedStatement ps, OperableTrigger trigger,
+            String state, JobDetail job, long firedTime) throws SQLException {
+        ps.setString(1, instanceId);
+
+        ps.setBigDecimal(2, new BigDecimal(String.valueOf(firedTime)));
+        ps.setBigDecimal(3, new BigDecimal(String.valueOf(trigger.getNextFireTime().getTime())));
+        ps.setString(4, state);
+
+        if (job != null) {
+            ps.setString(5, trigger.getJobKey().getName());
+            ps.setString(6, trigger.getJobKey().getGroup());
+            setBoolean(ps, 7, job.isConcurrentExectionDisallowed());
+            setBoolean(ps, 8, job.requestsRecovery());
+        } else {
+            ps.setString(5, null);
+            ps.setString(6, null);
+            setBoolean(ps, 7, false);
+            setBoolean(ps, 8, false);
+        }
+
+        ps.setString(9, trigger.getFireInstanceId());
+    }
     
     /**
      * <p>
@@ -2917,6 +4135,37 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }
     }
 
+    /**
+     * <p>
+     * Delete the given fired triggers, as a JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param entryIds
+     *          the fired trigger entries to delete
+     * @return the number of rows deleted for each entry, in order
+     */
+    public int[] deleteFiredTriggers(Connection conn, List<String> entryIds)
+        throws SQLException {
+        if (entryIds.isEmpty()) {
+            return new int[0];
+        }
+        
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(DELETE_FIRED_TRIGGER));
+            for (String entryId : entryIds) {
+                ps.setString(1, entryId);
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
     public int selectJobExecutionCount(Connection conn, JobKey jobKey) throws SQLException {
         PreparedStatement ps = null;
         ResultSet rs = null;
@@ -2934,6 +4183,37 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
             closeStatement(ps);
         }
     }
+
+    /**
+     * <p>
+     * Select the jobs that disallow concurrent execution and are currently
+     * executing, so that their triggers are to be blocked.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the keys of the blocked jobs
+     */
+    public Set<JobKey> selectBlockedJobs(Connection conn) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(SELECT_BLOCKED_JOBS));
+            ps.setString(1, STATE_EXECUTING);
+            setBoolean(ps, 2, true);
+            rs = ps.executeQuery();
+
+            Set<JobKey> jobKeys = new HashSet<JobKey>();
+            while (rs.next()) {
+                jobKeys.add(jobKey(rs.getString(COL_JOB_NAME), rs.getString(COL_JOB_GROUP)));
+            }
+            return jobKeys;
+        } finally {
+            closeResultSet(rs);
+            closeStatement(ps);
+        }
+    }
     
     public int insertSchedulerState(Connection conn, String theInstanceId,
             long checkInTime, long interval)
@@ -2964,6 +4244,50 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }
     }
 
+    public long selectChangeCounter(Connection conn, String counterName)
+        throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = conn.prepareStatement(rtp(SELECT_CHANGE_COUNTER));
+            ps.setString(1, counterName);
+            rs = ps.executeQuery();
+
+            if (rs.next()) {
+                return rs.getLong(COL_COUNTER_VALUE);
+            }
+            return 0L;
+        } finally {
+            closeResultSet(rs);
+            closeStatement(ps);
+        }
+    }
+
+    public int insertChangeCounter(Connection conn, String counterName, long value)
+        throws SQLException {
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(INSERT_CHANGE_COUNTER));
+            ps.setString(1, counterName);
+            ps.setLong(2, value);
+            return ps.executeUpdate();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    public int updateChangeCounter(Connection conn, String counterName)
+        throws SQLException {
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(UPDATE_CHANGE_COUNTER));
+            ps.setString(1, counterName);
+            return ps.executeUpdate();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
     public int updateSchedulerState(Connection conn, String theInstanceId, long checkInTime)
         throws SQLException {
         PreparedStatement ps = null;
@@ -3026,7 +4350,78 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
      * @return the query, with proper table prefix substituted
      */
     protected final String rtp(String query) {
-        return Util.rtp(query, tablePrefix, getSchedulerNameLiteral());
+        String sql = expandedSql.get(query);
+        if (sql == null) {
+            sql = Util.rtp(query, tablePrefix, getSchedulerNameLiteral());
+            if (expandedSql.size() < MAX_EXPANDED_SQL) {
+                expandedSql.put(query, sql);
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * <p>
+     * Prepare a statement for the given (expanded) SQL, reusing one
+     * released earlier on the same connection if 
+     * <code>cachePreparedStatements</code> is set.  It must be released with 
+     * <code>{@link #releaseCachedStatement(Connection, String, PreparedStatement)}</code>
+     * rather than closed.
+     * </p>
+     */
+    protected PreparedStatement prepareCachedStatement(Connection conn, String sql) throws SQLException {
+        if (cachePreparedStatements) {
+            synchronized (cachedStatements) {
+                Map<String, PreparedStatement> statements = cachedStatements.get(conn);
+                PreparedStatement ps = (statements == null) ? null : statements.remove(sql);
+                if (ps != null) {
+                    return ps;
+                }
+            }
+        }
+        return conn.prepareStatement(sql);
+    }
+
+    /**
+     * <p>
+     * Keep a statement from <code>{@link #prepareCachedStatement(Connection, String)}</code>
+     * for reuse on its connection, or close it if statements are not cached.
+     * </p>
+     */
+    protected void releaseCachedStatement(Connection conn, String sql, PreparedStatement ps) {
+        if (ps == null) {
+            return;
+        }
+        if (cachePreparedStatements) {
+            try {
+                ps.clearParameters();
+                synchronized (cachedStatements) {
+                    Map<String, PreparedStatement> statements = cachedStatements.get(conn);
+                    if (statements == null) {
+                        statements = new HashMap<String, PreparedStatement>();
+                        cachedStatements.put(conn, statements);
+                    }
+                    if (!statements.containsKey(sql)) {
+                        statements.put(sql, ps);
+                        return;
+                    }
+                }
+            } catch (SQLException ignore) {
+            }
+        }
+        closeStatement(ps);
+    }
+
+    public void closeCachedStatements(Connection conn) {
+        Map<String, PreparedStatement> statements;
+        synchronized (cachedStatements) {
+            statements = cachedStatements.remove(conn);
+        }
+        if (statements != null) {
+            for (PreparedStatement ps : statements.values()) {
+                closeStatement(ps);
+            }
+        }
     }
 
     private String schedNameLiteral = null;
@@ -3051,7 +4446,9 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
     protected ByteArrayOutputStream serializeObject(Object obj)
         throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        if (null != obj) {
+        if (jobDataSerializer != null && jobDataSerializer.canSerialize(obj)) {
+            jobDataSerializer.serialize(obj, baos);
+        } else if (null != obj) {
             ObjectOutputStream out = new ObjectOutputStream(baos);
             out.writeObject(obj);
             out.flush();
@@ -3196,12 +4593,7 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
                     && ((ByteArrayInputStream) binaryInput).available() == 0 ) {
                     //do nothing
                 } else {
-                    ObjectInputStream in = new ObjectInputStream(binaryInput);
-                    try {
-                        obj = in.readObject();
-                    } finally {
-                        in.close();
-                    }
+                    obj = readObject(binaryInput);
                 }
             }
 
@@ -3209,6 +4601,48 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         return obj;
     }
 
+    /**
+     * <p>
+     * Read an object from the stream of a BLOB, in the format of the
+     * configured <code>{@link JobDataSerializer}</code> if it was written in
+     * that format, and with Java serialization otherwise.  The stream is
+     * closed.
+     * </p>
+     */
+    protected Object readObject(InputStream binaryInput)
+        throws ClassNotFoundException, IOException {
+        InputStream in = binaryInput;
+        try {
+            if (jobDataSerializer != null) {
+                if (!in.markSupported()) {
+                    in = new BufferedInputStream(in);
+                }
+                in.mark(JobDataSerializer.HEADER_LENGTH);
+                byte[] header = new byte[JobDataSerializer.HEADER_LENGTH];
+                int length = 0;
+                while (length < header.length) {
+                    int read = in.read(header, length, header.length - length);
+                    if (read < 0) {
+                        break;
+                    }
+                    length += read;
+                }
+                in.reset();
+                if (length < header.length) {
+                    byte[] shortHeader = new byte[length];
+                    System.arraycopy(header, 0, shortHeader, 0, length);
+                    header = shortHeader;
+                }
+                if (jobDataSerializer.isSerializedForm(header)) {
+                    return jobDataSerializer.deserialize(in);
+                }
+            }
+            return new ObjectInputStream(in).readObject();
+        } finally {
+            in.close();
+        }
+    }
+
     /**
      * <p>
      * This method should be overridden by any delegate subclasses that need
@@ -3334,6 +4768,26 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
     protected void setBytes(PreparedStatement ps, int index, ByteArrayOutputStream baos) throws SQLException {
         ps.setBytes(index, (baos == null) ? new byte[0] : baos.toByteArray());
     }
+
+    /**
+     * The columns of a trigger record, as read before the trigger type's
+     * extended properties are loaded.
+     */
+    private static class TriggerRecord {
+        String jobName;
+        String jobGroup;
+        String description;
+        long nextFireTime;
+        long prevFireTime;
+        String triggerType;
+        long startTime;
+        long endTime;
+        String calendarName;
+        int misFireInstr;
+        int priority;
+        Map<?, ?> map;
+    }
+
 }
 
 // EOF
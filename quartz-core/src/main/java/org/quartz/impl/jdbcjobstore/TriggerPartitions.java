@@ -0,0 +1,192 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.impl.jdbcjobstore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.quartz.TriggerKey;
+
+/**
+ * <p>
+ * The share of a cluster's triggers owned by one scheduler instance.
+ * </p>
+ *
+ * <p>
+ * Triggers are assigned to a fixed number of partitions by a hash of their
+ * name and group, which is stored with each trigger in the
+ * <code>KEY_HASH</code> column.  The partitions split the range of the hash
+ * into equal slices, and the live instances of the cluster, ordered by their
+ * instance ids, each own an equal run of consecutive partitions, so that an
+ * instance owns a single range of hashes that its queries can select by.
+ * Every instance that sees the same live instances therefore computes the
+ * same assignment, with no coordination beyond the cluster check-in.
+ * </p>
+ *
+ * <p>
+ * Ownership only decides which triggers an instance looks at; the claims on
+ * the triggers themselves are still made with conditional updates, so the
+ * instances may briefly disagree about the assignment while one of them
+ * joins or fails.
+ * </p>
+ *
+ * @see JobStoreSupport#setTriggerPartitionCount(int)
+ */
+public class TriggerPartitions {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private final int partitionCount;
+
+    private final List<String> instanceIds;
+
+    private final int firstOwnedPartition;
+
+    private final int endOwnedPartition;
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Assign the partitions among the given live instances, and keep the
+     * ones owned by <code>instanceId</code>, which counts as live whether or
+     * not it is among them.
+     * </p>
+     */
+    public TriggerPartitions(int partitionCount, Collection<String> liveInstanceIds, String instanceId) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount must be positive.");
+        }
+        this.partitionCount = partitionCount;
+
+        TreeSet<String> ids = new TreeSet<String>(liveInstanceIds);
+        ids.add(instanceId);
+        this.instanceIds = new ArrayList<String>(ids);
+
+        int index = instanceIds.indexOf(instanceId);
+        firstOwnedPartition = (int) ((long) index * partitionCount / instanceIds.size());
+        endOwnedPartition = (int) ((long) (index + 1) * partitionCount / instanceIds.size());
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * The hash of the trigger with the given key, stored in its
+     * <code>KEY_HASH</code> column.  It only depends on
+     * <code>String.hashCode()</code>, so it is the same on every instance,
+     * and it is never negative.  Its bits are mixed, as the partitions are
+     * ranges of it and keys like "trigger1", "trigger2" have nearby string
+     * hashes.
+     * </p>
+     */
+    public static int keyHashOf(TriggerKey key) {
+        int hash = 31 * key.getName().hashCode() + key.getGroup().hashCode();
+        // the finalizer of MurmurHash3
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash & Integer.MAX_VALUE;
+    }
+
+    /**
+     * <p>
+     * The partition of the trigger with the given key: the slice of the
+     * range of key hashes that its hash falls in.
+     * </p>
+     */
+    public static int partitionOf(TriggerKey key, int partitionCount) {
+        return (int) (((long) keyHashOf(key) * partitionCount) >>> 31);
+    }
+
+    public int getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * <p>
+     * The ids of the instances the partitions are assigned among, in order.
+     * </p>
+     */
+    public List<String> getInstanceIds() {
+        return instanceIds;
+    }
+
+    public int getOwnedPartitionCount() {
+        return endOwnedPartition - firstOwnedPartition;
+    }
+
+    public boolean isOwned(int partition) {
+        return partition >= firstOwnedPartition && partition < endOwnedPartition;
+    }
+
+    public boolean isOwned(TriggerKey key) {
+        return isOwned(partitionOf(key, partitionCount));
+    }
+
+    /**
+     * <p>
+     * The lowest key hash of the owned partitions, if any partition is owned.
+     * </p>
+     */
+    public int getMinOwnedKeyHash() {
+        return (int) firstKeyHashOf(firstOwnedPartition);
+    }
+
+    /**
+     * <p>
+     * The highest key hash of the owned partitions (inclusive), if any
+     * partition is owned.
+     * </p>
+     */
+    public int getMaxOwnedKeyHash() {
+        return (int) (firstKeyHashOf(endOwnedPartition) - 1);
+    }
+
+    private long firstKeyHashOf(int partition) {
+        // the least hash h with h * partitionCount >= partition * 2^31
+        return (((long) partition << 31) + partitionCount - 1) / partitionCount;
+    }
+
+    @Override
+    public String toString() {
+        return "partitions [" + firstOwnedPartition + ", " + endOwnedPartition + ") of " + partitionCount + " among " + instanceIds;
+    }
+}
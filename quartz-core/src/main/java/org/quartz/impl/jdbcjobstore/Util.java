@@ -21,13 +21,17 @@ package org.quartz.impl.jdbcjobstore;
 import java.beans.BeanInfo;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import org.quartz.JobPersistenceException;
+import org.quartz.utils.Key;
 
 /**
  * <p>
@@ -97,6 +101,73 @@ public final class Util {
     static String getTriggerNameKey(String triggerName, String groupName) {
         return (groupName + "_$x$x$_" + triggerName).intern();
     }
+
+    /**
+     * <p>
+     * Build a predicate matching any of <code>count</code> keys, of the form
+     * <code>((NAME = ? AND GROUP = ?) OR (NAME = ? AND GROUP = ?) ...)</code>,
+     * for selecting a set of rows in one statement.  Unlike row-value
+     * <code>IN</code> lists, this form is understood by every database we
+     * support.
+     * </p>
+     * 
+     * @param nameColumn
+     *          the column holding the key's name
+     * @param groupColumn
+     *          the column holding the key's group
+     * @param count
+     *          the number of keys, which must be at least one
+     * @see #setKeyParameters(PreparedStatement, int, List)
+     */
+    public static String keysPredicate(String nameColumn, String groupColumn, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be at least 1");
+        }
+        
+        StringBuilder sb = new StringBuilder(count * (nameColumn.length() + groupColumn.length() + 20));
+        sb.append('(');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(" OR ");
+            }
+            sb.append('(').append(nameColumn).append(" = ? AND ")
+                .append(groupColumn).append(" = ?)");
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * <p>
+     * Bind the names and groups of the given keys to the parameters of a
+     * predicate built by <code>{@link #keysPredicate(String, String, int)}</code>.
+     * </p>
+     * 
+     * @param index
+     *          the index of the first parameter to bind
+     * @return the index of the parameter following the last one bound
+     */
+    public static int setKeyParameters(PreparedStatement ps, int index, List<? extends Key<?>> keys) throws SQLException {
+        for (Key<?> key : keys) {
+            ps.setString(index++, key.getName());
+            ps.setString(index++, key.getGroup());
+        }
+        return index;
+    }
+
+    /**
+     * <p>
+     * Split the given list into consecutive sub-lists of at most
+     * <code>size</code> elements, so that set-based statements stay within
+     * the parameter limits of the database.
+     * </p>
+     */
+    public static <T> List<List<T>> partition(List<T> list, int size) {
+        List<List<T>> parts = new ArrayList<List<T>>((list.size() + size - 1) / size);
+        for (int i = 0; i < list.size(); i += size) {
+            parts.add(list.subList(i, Math.min(i + size, list.size())));
+        }
+        return parts;
+    }
     
     /**
      * Cleanup helper method that closes the given <code>ResultSet</code>
@@ -335,11 +335,9 @@ public class CronTriggerImpl extends AbstractTrigger<CronTrigger> implements Cro
     
     @Override
     public Object clone() {
-        CronTriggerImpl copy = (CronTriggerImpl) super.clone();
-        if (cronEx != null) {
-            copy.setCronExpression(new CronExpression(cronEx));
-        }
-        return copy;
+        // the parsed expression is shared with the copy rather than re-parsed:
+        // it is never modified in place (see setTimeZone)
+        return super.clone();
     }
 
     public void setCronExpression(String cronExpression) throws ParseException {
@@ -504,7 +502,9 @@ public class CronTriggerImpl extends AbstractTrigger<CronTrigger> implements Cro
      * String cron expression does not carry a time zone!
      */
     public void setTimeZone(TimeZone timeZone) {
-        if(cronEx != null) {
+        if(cronEx != null && (timeZone == null || !timeZone.equals(cronEx.getTimeZone()))) {
+            // the expression may be shared with clones of this trigger
+            cronEx = new CronExpression(cronEx);
             cronEx.setTimeZone(timeZone);
         }
         this.timeZone = timeZone;
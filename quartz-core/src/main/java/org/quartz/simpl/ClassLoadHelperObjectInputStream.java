@@ -0,0 +1,55 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+
+import org.quartz.spi.ClassLoadHelper;
+
+/**
+ * <p>
+ * An <code>ObjectInputStream</code> that resolves classes through the
+ * scheduler's <code>{@link ClassLoadHelper}</code>, as the job classes may
+ * not be visible to the loader of the job store's classes.
+ * </p>
+ */
+class ClassLoadHelperObjectInputStream extends ObjectInputStream {
+
+    private final ClassLoadHelper classLoadHelper;
+
+    ClassLoadHelperObjectInputStream(InputStream in, ClassLoadHelper classLoadHelper) throws IOException {
+        super(in);
+        this.classLoadHelper = classLoadHelper;
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        if (classLoadHelper != null) {
+            try {
+                return classLoadHelper.loadClass(desc.getName());
+            } catch (ClassNotFoundException e) {
+                // fall back to the default resolution, which also
+                // handles primitive and array types
+            }
+        }
+        return super.resolveClass(desc);
+    }
+}
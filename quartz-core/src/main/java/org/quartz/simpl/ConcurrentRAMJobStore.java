@@ -0,0 +1,1803 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.quartz.Calendar;
+import org.quartz.Job;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.impl.matchers.StringMatcher;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.spi.TriggerFiredResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A variant of <code>{@link RAMJobStore}</code> that lets operations on
+ * unrelated jobs and triggers proceed in parallel, instead of serializing
+ * every call on a single monitor.
+ * </p>
+ *
+ * <p>
+ * Jobs, triggers and calendars are held in concurrent maps, and the
+ * time-ordered index of waiting triggers is a concurrent skip list.  Every
+ * operation that reads or mutates a job or one of its triggers holds the lock
+ * stripe selected by the hash of the <code>JobKey</code>, so a job and all of
+ * its triggers are always guarded by the same lock (which keeps the
+ * <code>@DisallowConcurrentExecution</code> bookkeeping local to one stripe).
+ * Operations spanning whole groups, or the entire store (pausing/resuming
+ * groups, storing or removing calendars, bulk stores, clearing) take an
+ * exclusive structure lock, and therefore briefly exclude all other
+ * operations.
+ * </p>
+ *
+ * <p>
+ * The number of lock stripes can be configured with the
+ * <code>org.quartz.jobStore.lockStripes</code> property (rounded up to a
+ * power of two, default 64).
+ * </p>
+ *
+ * <p>
+ * As with <code>RAMJobStore</code> the data is completely volatile.
+ * </p>
+ *
+ * @see RAMJobStore
+ */
+public class ConcurrentRAMJobStore implements JobStore {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public static final int DEFAULT_LOCK_STRIPES = 64;
+
+    protected final ConcurrentHashMap<JobKey, JobWrapper> jobsByKey = new ConcurrentHashMap<JobKey, JobWrapper>(1000);
+
+    protected final ConcurrentHashMap<TriggerKey, TriggerWrapper> triggersByKey = new ConcurrentHashMap<TriggerKey, TriggerWrapper>(1000);
+
+    protected final ConcurrentHashMap<String, ConcurrentHashMap<JobKey, JobWrapper>> jobsByGroup = new ConcurrentHashMap<String, ConcurrentHashMap<JobKey, JobWrapper>>(25);
+
+    protected final ConcurrentHashMap<String, ConcurrentHashMap<TriggerKey, TriggerWrapper>> triggersByGroup = new ConcurrentHashMap<String, ConcurrentHashMap<TriggerKey, TriggerWrapper>>(25);
+
+    /** Triggers of each job; each set is only touched while holding the job's stripe. */
+    protected final ConcurrentHashMap<JobKey, Set<TriggerWrapper>> triggersByJob = new ConcurrentHashMap<JobKey, Set<TriggerWrapper>>(1000);
+
+    protected final ConcurrentSkipListSet<TriggerWrapper> timeTriggers = new ConcurrentSkipListSet<TriggerWrapper>(new TriggerWrapperComparator());
+
+    protected final ConcurrentHashMap<String, Calendar> calendarsByName = new ConcurrentHashMap<String, Calendar>(25);
+
+    protected final Set<String> pausedTriggerGroups = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    protected final Set<String> pausedJobGroups = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    protected final Set<JobKey> blockedJobs = Collections.newSetFromMap(new ConcurrentHashMap<JobKey, Boolean>());
+
+    /**
+     * Held shared by all per-job operations, and exclusively by operations
+     * that span groups or the whole store.
+     */
+    protected final ReentrantReadWriteLock structureLock = new ReentrantReadWriteLock();
+
+    private ReentrantLock[] stripes = newStripes(DEFAULT_LOCK_STRIPES);
+
+    protected long misfireThreshold = 5000l;
+
+    protected SchedulerSignaler signaler;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Create a new <code>ConcurrentRAMJobStore</code>.
+     * </p>
+     */
+    public ConcurrentRAMJobStore() {
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    /**
+     * <p>
+     * Called by the QuartzScheduler before the <code>JobStore</code> is
+     * used, in order to give the it a chance to initialize.
+     * </p>
+     */
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler schedSignaler) {
+
+        this.signaler = schedSignaler;
+
+        getLog().info("ConcurrentRAMJobStore initialized with " + stripes.length + " lock stripes.");
+    }
+
+    public void schedulerStarted() {
+        // nothing to do
+    }
+
+    public void schedulerPaused() {
+        // nothing to do
+    }
+
+    public void schedulerResumed() {
+        // nothing to do
+    }
+
+    public long getMisfireThreshold() {
+        return misfireThreshold;
+    }
+
+    /**
+     * The number of milliseconds by which a trigger must have missed its
+     * next-fire-time, in order for it to be considered "misfired" and thus
+     * have its misfire instruction applied.
+     *
+     * @param misfireThreshold the new misfire threshold
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    public void setMisfireThreshold(long misfireThreshold) {
+        if (misfireThreshold < 1) {
+            throw new IllegalArgumentException("Misfire threshold must be larger than 0");
+        }
+        this.misfireThreshold = misfireThreshold;
+    }
+
+    public int getLockStripes() {
+        return stripes.length;
+    }
+
+    /**
+     * Set the number of locks that jobs (and their triggers) are striped
+     * across.  The value is rounded up to the next power of two.  Must be
+     * called before the store is used.
+     *
+     * @param lockStripes the number of lock stripes
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    public void setLockStripes(int lockStripes) {
+        if (lockStripes < 1) {
+            throw new IllegalArgumentException("Lock stripes must be larger than 0");
+        }
+        this.stripes = newStripes(lockStripes);
+    }
+
+    /**
+     * <p>
+     * Called by the QuartzScheduler to inform the <code>JobStore</code> that
+     * it should free up all of it's resources because the scheduler is
+     * shutting down.
+     * </p>
+     */
+    public void shutdown() {
+    }
+
+    public boolean supportsPersistence() {
+        return false;
+    }
+
+    /**
+     * Clear (delete!) all scheduling data - all {@link Job}s, {@link Trigger}s
+     * {@link Calendar}s.
+     *
+     * @throws JobPersistenceException
+     */
+    public void clearAllSchedulingData() throws JobPersistenceException {
+
+        structureLock.writeLock().lock();
+        try {
+            timeTriggers.clear();
+            triggersByKey.clear();
+            triggersByGroup.clear();
+            triggersByJob.clear();
+            jobsByKey.clear();
+            jobsByGroup.clear();
+            calendarsByName.clear();
+            blockedJobs.clear();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Store the given <code>{@link org.quartz.JobDetail}</code> and <code>{@link org.quartz.Trigger}</code>.
+     * </p>
+     *
+     * @param newJob
+     *          The <code>JobDetail</code> to be stored.
+     * @param newTrigger
+     *          The <code>Trigger</code> to be stored.
+     * @throws ObjectAlreadyExistsException
+     *           if a <code>Job</code> with the same name/group already
+     *           exists.
+     */
+    public void storeJobAndTrigger(JobDetail newJob,
+            OperableTrigger newTrigger) throws JobPersistenceException {
+        storeJob(newJob, false);
+        storeTrigger(newTrigger, false);
+    }
+
+    /**
+     * <p>
+     * Store the given <code>{@link org.quartz.Job}</code>.
+     * </p>
+     *
+     * @param newJob
+     *          The <code>Job</code> to be stored.
+     * @param replaceExisting
+     *          If <code>true</code>, any <code>Job</code> existing in the
+     *          <code>JobStore</code> with the same name & group should be
+     *          over-written.
+     * @throws ObjectAlreadyExistsException
+     *           if a <code>Job</code> with the same name/group already
+     *           exists, and replaceExisting is set to false.
+     */
+    public void storeJob(JobDetail newJob,
+            boolean replaceExisting) throws ObjectAlreadyExistsException {
+        JobWrapper jw = new JobWrapper((JobDetail)newJob.clone());
+
+        structureLock.readLock().lock();
+        ReentrantLock stripe = stripeFor(jw.key);
+        stripe.lock();
+        try {
+            JobWrapper orig = jobsByKey.get(jw.key);
+            if (orig != null) {
+                if (!replaceExisting) {
+                    throw new ObjectAlreadyExistsException(newJob);
+                }
+                // update job detail
+                orig.jobDetail = jw.jobDetail; // already cloned
+            } else {
+                groupMap(jobsByGroup, jw.key.getGroup()).put(jw.key, jw);
+                jobsByKey.put(jw.key, jw);
+            }
+        } finally {
+            stripe.unlock();
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Remove (delete) the <code>{@link org.quartz.Job}</code> with the given
+     * name, and any <code>{@link org.quartz.Trigger}</code> s that reference
+     * it.
+     * </p>
+     *
+     * @return <code>true</code> if a <code>Job</code> with the given name &
+     *         group was found and removed from the store.
+     */
+    public boolean removeJob(JobKey jobKey) {
+
+        structureLock.readLock().lock();
+        ReentrantLock stripe = stripeFor(jobKey);
+        stripe.lock();
+        try {
+            return removeJobInternal(jobKey);
+        } finally {
+            stripe.unlock();
+            structureLock.readLock().unlock();
+        }
+    }
+
+    public boolean removeJobs(List<JobKey> jobKeys)
+            throws JobPersistenceException {
+        boolean allFound = true;
+
+        for(JobKey key: jobKeys)
+            allFound = removeJob(key) && allFound;
+
+        return allFound;
+    }
+
+    public boolean removeTriggers(List<TriggerKey> triggerKeys)
+            throws JobPersistenceException {
+        boolean allFound = true;
+
+        for(TriggerKey key: triggerKeys)
+            allFound = removeTrigger(key) && allFound;
+
+        return allFound;
+    }
+
+    public void storeJobsAndTriggers(
+            Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace)
+            throws JobPersistenceException {
+
+        structureLock.writeLock().lock();
+        try {
+            // make sure there are no collisions...
+            if(!replace) {
+                for(Entry<JobDetail, Set<? extends Trigger>> e: triggersAndJobs.entrySet()) {
+                    if(checkExists(e.getKey().getKey()))
+                        throw new ObjectAlreadyExistsException(e.getKey());
+                    for(Trigger trigger: e.getValue()) {
+                        if(checkExists(trigger.getKey()))
+                            throw new ObjectAlreadyExistsException(trigger);
+                    }
+                }
+            }
+            // do bulk add...
+            for(Entry<JobDetail, Set<? extends Trigger>> e: triggersAndJobs.entrySet()) {
+                storeJob(e.getKey(), true);
+                for(Trigger trigger: e.getValue()) {
+                    storeTrigger((OperableTrigger) trigger, true);
+                }
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Store the given <code>{@link org.quartz.Trigger}</code>.
+     * </p>
+     *
+     * @param newTrigger
+     *          The <code>Trigger</code> to be stored.
+     * @param replaceExisting
+     *          If <code>true</code>, any <code>Trigger</code> existing in
+     *          the <code>JobStore</code> with the same name & group should
+     *          be over-written.
+     * @throws ObjectAlreadyExistsException
+     *           if a <code>Trigger</code> with the same name/group already
+     *           exists, and replaceExisting is set to false.
+     *
+     * @see #pauseTriggers(org.quartz.impl.matchers.GroupMatcher)
+     */
+    public void storeTrigger(OperableTrigger newTrigger,
+            boolean replaceExisting) throws JobPersistenceException {
+        TriggerWrapper tw = new TriggerWrapper((OperableTrigger)newTrigger.clone());
+
+        structureLock.readLock().lock();
+        try {
+            while (true) {
+                // an existing trigger with the same key may belong to another
+                // job, in which case both stripes are needed
+                TriggerWrapper existing = triggersByKey.get(tw.key);
+                int s1 = stripeIndex(tw.jobKey);
+                int s2 = (existing == null) ? s1 : stripeIndex(existing.jobKey);
+                lockStripes(s1, s2);
+                try {
+                    if (triggersByKey.get(tw.key) != existing) {
+                        continue; // changed before we got the locks, try again
+                    }
+                    if (existing != null) {
+                        if (!replaceExisting) {
+                            throw new ObjectAlreadyExistsException(newTrigger);
+                        }
+                    }
+
+                    if (jobsByKey.get(tw.jobKey) == null) {
+                        throw new JobPersistenceException("The job ("
+                                + newTrigger.getJobKey()
+                                + ") referenced by the trigger does not exist.");
+                    }
+
+                    if (existing != null) {
+                        removeTriggerInternal(existing, false);
+                    }
+                    if (triggersByKey.putIfAbsent(tw.key, tw) != null) {
+                        // lost a race with a trigger of the same key on another stripe
+                        if (!replaceExisting) {
+                            throw new ObjectAlreadyExistsException(newTrigger);
+                        }
+                        continue;
+                    }
+                    addTriggerInternal(tw);
+                    return;
+                } finally {
+                    unlockStripes(s1, s2);
+                }
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Remove (delete) the <code>{@link org.quartz.Trigger}</code> with the
+     * given name.
+     * </p>
+     *
+     * @return <code>true</code> if a <code>Trigger</code> with the given
+     *         name & group was found and removed from the store.
+     */
+    public boolean removeTrigger(TriggerKey triggerKey) {
+        structureLock.readLock().lock();
+        try {
+            TriggerWrapper tw = lockTrigger(triggerKey);
+            if (tw == null) {
+                return false;
+            }
+            try {
+                removeTriggerInternal(tw, true);
+                return true;
+            } finally {
+                stripeFor(tw.jobKey).unlock();
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @see org.quartz.spi.JobStore#replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger)
+     */
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+
+        TriggerWrapper newTw = new TriggerWrapper((OperableTrigger)newTrigger.clone());
+
+        structureLock.readLock().lock();
+        try {
+            TriggerWrapper tw = lockTrigger(triggerKey);
+            if (tw == null) {
+                return false;
+            }
+            try {
+                if (!tw.jobKey.equals(newTw.jobKey)) {
+                    throw new JobPersistenceException("New trigger is not related to the same job as the old trigger.");
+                }
+
+                removeTriggerInternal(tw, false);
+
+                if (triggersByKey.putIfAbsent(newTw.key, newTw) != null) {
+                    // put previous trigger back...
+                    triggersByKey.put(tw.key, tw);
+                    addTriggerInternal(tw);
+                    throw new ObjectAlreadyExistsException(newTrigger);
+                }
+                addTriggerInternal(newTw);
+                return true;
+            } finally {
+                stripeFor(tw.jobKey).unlock();
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Retrieve the <code>{@link org.quartz.JobDetail}</code> for the given
+     * <code>{@link org.quartz.Job}</code>.
+     * </p>
+     *
+     * @return The desired <code>Job</code>, or null if there is no match.
+     */
+    public JobDetail retrieveJob(JobKey jobKey) {
+        ReentrantLock stripe = stripeFor(jobKey);
+        stripe.lock();
+        try {
+            JobWrapper jw = jobsByKey.get(jobKey);
+            return (jw != null) ? (JobDetail)jw.jobDetail.clone() : null;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Retrieve the given <code>{@link org.quartz.Trigger}</code>.
+     * </p>
+     *
+     * @return The desired <code>Trigger</code>, or null if there is no
+     *         match.
+     */
+    public OperableTrigger retrieveTrigger(TriggerKey triggerKey) {
+        TriggerWrapper tw = lockTrigger(triggerKey);
+        if (tw == null) {
+            return null;
+        }
+        try {
+            return (OperableTrigger)tw.getTrigger().clone();
+        } finally {
+            stripeFor(tw.jobKey).unlock();
+        }
+    }
+
+    /**
+     * Determine whether a {@link Job} with the given identifier already
+     * exists within the scheduler.
+     *
+     * @param jobKey the identifier to check for
+     * @return true if a Job exists with the given identifier
+     * @throws JobPersistenceException
+     */
+    public boolean checkExists(JobKey jobKey) throws JobPersistenceException {
+        return jobsByKey.containsKey(jobKey);
+    }
+
+    /**
+     * Determine whether a {@link Trigger} with the given identifier already
+     * exists within the scheduler.
+     *
+     * @param triggerKey the identifier to check for
+     * @return true if a Trigger exists with the given identifier
+     * @throws JobPersistenceException
+     */
+    public boolean checkExists(TriggerKey triggerKey) throws JobPersistenceException {
+        return triggersByKey.containsKey(triggerKey);
+    }
+
+    /**
+     * <p>
+     * Get the current state of the identified <code>{@link Trigger}</code>.
+     * </p>
+     *
+     * @see TriggerState#NORMAL
+     * @see TriggerState#PAUSED
+     * @see TriggerState#COMPLETE
+     * @see TriggerState#ERROR
+     * @see TriggerState#BLOCKED
+     * @see TriggerState#NONE
+     */
+    public TriggerState getTriggerState(TriggerKey triggerKey) throws JobPersistenceException {
+        TriggerWrapper tw = lockTrigger(triggerKey);
+        if (tw == null) {
+            return TriggerState.NONE;
+        }
+        int state;
+        try {
+            state = tw.state;
+        } finally {
+            stripeFor(tw.jobKey).unlock();
+        }
+
+        switch (state) {
+            case TriggerWrapper.STATE_COMPLETE:
+                return TriggerState.COMPLETE;
+            case TriggerWrapper.STATE_PAUSED:
+            case TriggerWrapper.STATE_PAUSED_BLOCKED:
+                return TriggerState.PAUSED;
+            case TriggerWrapper.STATE_BLOCKED:
+                return TriggerState.BLOCKED;
+            case TriggerWrapper.STATE_ERROR:
+                return TriggerState.ERROR;
+            default:
+                return TriggerState.NORMAL;
+        }
+    }
+
+    /**
+     * <p>
+     * Store the given <code>{@link org.quartz.Calendar}</code>.
+     * </p>
+     *
+     * @param calendar
+     *          The <code>Calendar</code> to be stored.
+     * @param replaceExisting
+     *          If <code>true</code>, any <code>Calendar</code> existing
+     *          in the <code>JobStore</code> with the same name & group
+     *          should be over-written.
+     * @param updateTriggers
+     *          If <code>true</code>, any <code>Trigger</code>s existing
+     *          in the <code>JobStore</code> that reference an existing
+     *          Calendar with the same name with have their next fire time
+     *          re-computed with the new <code>Calendar</code>.
+     * @throws ObjectAlreadyExistsException
+     *           if a <code>Calendar</code> with the same name already
+     *           exists, and replaceExisting is set to false.
+     */
+    public void storeCalendar(String name,
+            Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+        throws ObjectAlreadyExistsException {
+
+        calendar = (Calendar) calendar.clone();
+
+        structureLock.writeLock().lock();
+        try {
+            Object obj = calendarsByName.get(name);
+
+            if (obj != null && !replaceExisting) {
+                throw new ObjectAlreadyExistsException(
+                    "Calendar with name '" + name + "' already exists.");
+            }
+
+            calendarsByName.put(name, calendar);
+
+            if(obj != null && updateTriggers) {
+                for (TriggerWrapper tw : triggersByKey.values()) {
+                    OperableTrigger trig = tw.getTrigger();
+                    if (!name.equals(trig.getCalendarName())) {
+                        continue;
+                    }
+                    boolean removed = timeTriggers.remove(tw);
+
+                    trig.updateWithNewCalendar(calendar, getMisfireThreshold());
+
+                    if (removed) {
+                        timeTriggers.add(tw);
+                    }
+                }
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Remove (delete) the <code>{@link org.quartz.Calendar}</code> with the
+     * given name.
+     * </p>
+     *
+     * <p>
+     * If removal of the <code>Calendar</code> would result in
+     * <code>Trigger</code>s pointing to non-existent calendars, then a
+     * <code>JobPersistenceException</code> will be thrown.</p>
+     *
+     * @param calName The name of the <code>Calendar</code> to be removed.
+     * @return <code>true</code> if a <code>Calendar</code> with the given name
+     * was found and removed from the store.
+     */
+    public boolean removeCalendar(String calName)
+        throws JobPersistenceException {
+
+        structureLock.writeLock().lock();
+        try {
+            for (TriggerWrapper tw : triggersByKey.values()) {
+                if (calName.equals(tw.trigger.getCalendarName())) {
+                    throw new JobPersistenceException(
+                            "Calender cannot be removed if it referenced by a Trigger!");
+                }
+            }
+
+            return (calendarsByName.remove(calName) != null);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Retrieve the given <code>{@link org.quartz.Trigger}</code>.
+     * </p>
+     *
+     * @param calName
+     *          The name of the <code>Calendar</code> to be retrieved.
+     * @return The desired <code>Calendar</code>, or null if there is no
+     *         match.
+     */
+    public Calendar retrieveCalendar(String calName) {
+        // stored calendars are replaced, never mutated in place
+        Calendar cal = calendarsByName.get(calName);
+        if(cal != null)
+            return (Calendar) cal.clone();
+        return null;
+    }
+
+    /**
+     * <p>
+     * Get the number of <code>{@link org.quartz.JobDetail}</code> s that are
+     * stored in the <code>JobsStore</code>.
+     * </p>
+     */
+    public int getNumberOfJobs() {
+        return jobsByKey.size();
+    }
+
+    /**
+     * <p>
+     * Get the number of <code>{@link org.quartz.Trigger}</code> s that are
+     * stored in the <code>JobsStore</code>.
+     * </p>
+     */
+    public int getNumberOfTriggers() {
+        return triggersByKey.size();
+    }
+
+    /**
+     * <p>
+     * Get the number of <code>{@link org.quartz.Calendar}</code> s that are
+     * stored in the <code>JobsStore</code>.
+     * </p>
+     */
+    public int getNumberOfCalendars() {
+        return calendarsByName.size();
+    }
+
+    /**
+     * <p>
+     * Get the names of all of the <code>{@link org.quartz.Job}</code> s that
+     * match the given groupMatcher.
+     * </p>
+     */
+    public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) {
+        Set<JobKey> outList = new HashSet<JobKey>();
+
+        StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+        String compareToValue = matcher.getCompareToValue();
+
+        switch(operator) {
+            case EQUALS:
+                Map<JobKey, JobWrapper> grpMap = jobsByGroup.get(compareToValue);
+                if (grpMap != null) {
+                    outList.addAll(grpMap.keySet());
+                }
+                break;
+
+            default:
+                for (Map.Entry<String, ConcurrentHashMap<JobKey, JobWrapper>> entry : jobsByGroup.entrySet()) {
+                    if(operator.evaluate(entry.getKey(), compareToValue)) {
+                        outList.addAll(entry.getValue().keySet());
+                    }
+                }
+        }
+
+        return outList;
+    }
+
+    /**
+     * <p>
+     * Get the names of all of the <code>{@link org.quartz.Calendar}</code> s
+     * in the <code>JobStore</code>.
+     * </p>
+     *
+     * <p>
+     * If there are no Calendars in the given group name, the result should be
+     * a zero-length array (not <code>null</code>).
+     * </p>
+     */
+    public List<String> getCalendarNames() {
+        return new LinkedList<String>(calendarsByName.keySet());
+    }
+
+    /**
+     * <p>
+     * Get the names of all of the <code>{@link org.quartz.Trigger}</code> s
+     * that match the given groupMatcher.
+     * </p>
+     */
+    public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) {
+        Set<TriggerKey> outList = new HashSet<TriggerKey>();
+
+        StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+        String compareToValue = matcher.getCompareToValue();
+
+        switch(operator) {
+            case EQUALS:
+                Map<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(compareToValue);
+                if (grpMap != null) {
+                    outList.addAll(grpMap.keySet());
+                }
+                break;
+
+            default:
+                for (Map.Entry<String, ConcurrentHashMap<TriggerKey, TriggerWrapper>> entry : triggersByGroup.entrySet()) {
+                    if(operator.evaluate(entry.getKey(), compareToValue)) {
+                        outList.addAll(entry.getValue().keySet());
+                    }
+                }
+        }
+
+        return outList;
+    }
+
+    /**
+     * <p>
+     * Get the names of all of the <code>{@link org.quartz.Job}</code>
+     * groups.
+     * </p>
+     */
+    public List<String> getJobGroupNames() {
+        return nonEmptyGroups(jobsByGroup);
+    }
+
+    /**
+     * <p>
+     * Get the names of all of the <code>{@link org.quartz.Trigger}</code>
+     * groups.
+     * </p>
+     */
+    public List<String> getTriggerGroupNames() {
+        return nonEmptyGroups(triggersByGroup);
+    }
+
+    /**
+     * <p>
+     * Get all of the Triggers that are associated to the given Job.
+     * </p>
+     *
+     * <p>
+     * If there are no matches, a zero-length array should be returned.
+     * </p>
+     */
+    public List<OperableTrigger> getTriggersForJob(JobKey jobKey) {
+        ArrayList<OperableTrigger> trigList = new ArrayList<OperableTrigger>();
+
+        ReentrantLock stripe = stripeFor(jobKey);
+        stripe.lock();
+        try {
+            for (TriggerWrapper tw : triggerWrappersForJob(jobKey)) {
+                trigList.add((OperableTrigger) tw.trigger.clone());
+            }
+        } finally {
+            stripe.unlock();
+        }
+
+        return trigList;
+    }
+
+    /**
+     * <p>
+     * Pause the <code>{@link Trigger}</code> with the given name.
+     * </p>
+     *
+     */
+    public void pauseTrigger(TriggerKey triggerKey) {
+        structureLock.readLock().lock();
+        try {
+            TriggerWrapper tw = lockTrigger(triggerKey);
+            if (tw == null) {
+                return;
+            }
+            try {
+                pauseTriggerInternal(tw);
+            } finally {
+                stripeFor(tw.jobKey).unlock();
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Pause all of the known <code>{@link Trigger}s</code> matching.
+     * </p>
+     *
+     * <p>
+     * The JobStore should "remember" the groups paused, and impose the
+     * pause on any new triggers that are added to one of these groups while the group is
+     * paused.
+     * </p>
+     *
+     */
+    public List<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) {
+
+        List<String> pausedGroups = new LinkedList<String>();
+        structureLock.writeLock().lock();
+        try {
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            switch (operator) {
+                case EQUALS:
+                    if(pausedTriggerGroups.add(matcher.getCompareToValue())) {
+                        pausedGroups.add(matcher.getCompareToValue());
+                    }
+                    break;
+                default :
+                    for (String group : triggersByGroup.keySet()) {
+                        if(operator.evaluate(group, matcher.getCompareToValue())) {
+                            if(pausedTriggerGroups.add(group)) {
+                                pausedGroups.add(group);
+                            }
+                        }
+                    }
+            }
+
+            for (String pausedGroup : pausedGroups) {
+                Map<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(pausedGroup);
+                if (grpMap != null) {
+                    for (TriggerWrapper tw : grpMap.values()) {
+                        pauseTriggerInternal(tw);
+                    }
+                }
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+
+        return pausedGroups;
+    }
+
+    /**
+     * <p>
+     * Pause the <code>{@link org.quartz.JobDetail}</code> with the given
+     * name - by pausing all of its current <code>Trigger</code>s.
+     * </p>
+     *
+     */
+    public void pauseJob(JobKey jobKey) {
+        structureLock.readLock().lock();
+        ReentrantLock stripe = stripeFor(jobKey);
+        stripe.lock();
+        try {
+            for (TriggerWrapper tw : triggerWrappersForJob(jobKey)) {
+                pauseTriggerInternal(tw);
+            }
+        } finally {
+            stripe.unlock();
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Pause all of the <code>{@link org.quartz.JobDetail}s</code> in the
+     * given group - by pausing all of their <code>Trigger</code>s.
+     * </p>
+     *
+     *
+     * <p>
+     * The JobStore should "remember" that the group is paused, and impose the
+     * pause on any new jobs that are added to the group while the group is
+     * paused.
+     * </p>
+     */
+    public List<String> pauseJobs(GroupMatcher<JobKey> matcher) {
+        List<String> pausedGroups = new LinkedList<String>();
+        structureLock.writeLock().lock();
+        try {
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            switch (operator) {
+                case EQUALS:
+                    if (pausedJobGroups.add(matcher.getCompareToValue())) {
+                        pausedGroups.add(matcher.getCompareToValue());
+                    }
+                    break;
+                default :
+                    for (String group : jobsByGroup.keySet()) {
+                        if(operator.evaluate(group, matcher.getCompareToValue())) {
+                            if (pausedJobGroups.add(group)) {
+                                pausedGroups.add(group);
+                            }
+                        }
+                    }
+            }
+
+            for (String groupName : pausedGroups) {
+                for (JobKey jobKey: getJobKeys(GroupMatcher.jobGroupEquals(groupName))) {
+                    for (TriggerWrapper tw : triggerWrappersForJob(jobKey)) {
+                        pauseTriggerInternal(tw);
+                    }
+                }
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+
+        return pausedGroups;
+    }
+
+    /**
+     * <p>
+     * Resume (un-pause) the <code>{@link Trigger}</code> with the given
+     * key.
+     * </p>
+     *
+     * <p>
+     * If the <code>Trigger</code> missed one or more fire-times, then the
+     * <code>Trigger</code>'s misfire instruction will be applied.
+     * </p>
+     *
+     */
+    public void resumeTrigger(TriggerKey triggerKey) {
+        structureLock.readLock().lock();
+        try {
+            TriggerWrapper tw = lockTrigger(triggerKey);
+            if (tw == null) {
+                return;
+            }
+            try {
+                resumeTriggerInternal(tw);
+            } finally {
+                stripeFor(tw.jobKey).unlock();
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Resume (un-pause) all of the <code>{@link Trigger}s</code> in the
+     * given group.
+     * </p>
+     *
+     * <p>
+     * If any <code>Trigger</code> missed one or more fire-times, then the
+     * <code>Trigger</code>'s misfire instruction will be applied.
+     * </p>
+     *
+     */
+    public List<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) {
+        Set<String> groups = new HashSet<String>();
+
+        structureLock.writeLock().lock();
+        try {
+            Set<TriggerKey> keys = getTriggerKeys(matcher);
+
+            for (TriggerKey triggerKey: keys) {
+                groups.add(triggerKey.getGroup());
+                TriggerWrapper tw = triggersByKey.get(triggerKey);
+                if (tw == null || pausedJobGroups.contains(tw.jobKey.getGroup())) {
+                    continue;
+                }
+                resumeTriggerInternal(tw);
+            }
+            for (String group : groups) {
+                pausedTriggerGroups.remove(group);
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+
+        return new ArrayList<String>(groups);
+    }
+
+    /**
+     * <p>
+     * Resume (un-pause) the <code>{@link org.quartz.JobDetail}</code> with
+     * the given name.
+     * </p>
+     *
+     * <p>
+     * If any of the <code>Job</code>'s<code>Trigger</code> s missed one
+     * or more fire-times, then the <code>Trigger</code>'s misfire
+     * instruction will be applied.
+     * </p>
+     *
+     */
+    public void resumeJob(JobKey jobKey) {
+        structureLock.readLock().lock();
+        ReentrantLock stripe = stripeFor(jobKey);
+        stripe.lock();
+        try {
+            for (TriggerWrapper tw : triggerWrappersForJob(jobKey)) {
+                resumeTriggerInternal(tw);
+            }
+        } finally {
+            stripe.unlock();
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Resume (un-pause) all of the <code>{@link org.quartz.JobDetail}s</code>
+     * in the given group.
+     * </p>
+     *
+     * <p>
+     * If any of the <code>Job</code> s had <code>Trigger</code> s that
+     * missed one or more fire-times, then the <code>Trigger</code>'s
+     * misfire instruction will be applied.
+     * </p>
+     *
+     */
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) {
+        Set<String> resumedGroups = new HashSet<String>();
+        structureLock.writeLock().lock();
+        try {
+            Set<JobKey> keys = getJobKeys(matcher);
+
+            for (String pausedJobGroup : pausedJobGroups) {
+                if(matcher.getCompareWithOperator().evaluate(pausedJobGroup, matcher.getCompareToValue())) {
+                    resumedGroups.add(pausedJobGroup);
+                }
+            }
+
+            pausedJobGroups.removeAll(resumedGroups);
+
+            for (JobKey key: keys) {
+                for (TriggerWrapper tw : triggerWrappersForJob(key)) {
+                    resumeTriggerInternal(tw);
+                }
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+        return resumedGroups;
+    }
+
+    /**
+     * <p>
+     * Pause all triggers - equivalent of calling <code>pauseTriggerGroup(group)</code>
+     * on every group.
+     * </p>
+     *
+     * <p>
+     * When <code>resumeAll()</code> is called (to un-pause), trigger misfire
+     * instructions WILL be applied.
+     * </p>
+     *
+     * @see #resumeAll()
+     * @see #pauseTrigger(org.quartz.TriggerKey)
+     * @see #pauseTriggers(org.quartz.impl.matchers.GroupMatcher)
+     */
+    public void pauseAll() {
+
+        structureLock.writeLock().lock();
+        try {
+            for (String name: getTriggerGroupNames()) {
+                pauseTriggers(GroupMatcher.triggerGroupEquals(name));
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Resume (un-pause) all triggers - equivalent of calling <code>resumeTriggerGroup(group)</code>
+     * on every group.
+     * </p>
+     *
+     * <p>
+     * If any <code>Trigger</code> missed one or more fire-times, then the
+     * <code>Trigger</code>'s misfire instruction will be applied.
+     * </p>
+     *
+     * @see #pauseAll()
+     */
+    public void resumeAll() {
+
+        structureLock.writeLock().lock();
+        try {
+            pausedJobGroups.clear();
+            resumeTriggers(GroupMatcher.anyTriggerGroup());
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Must be called while holding the stripe of the trigger's job, and
+     * with the trigger not present in the time index.
+     */
+    protected boolean applyMisfire(TriggerWrapper tw) {
+
+        long misfireTime = System.currentTimeMillis();
+        if (getMisfireThreshold() > 0) {
+            misfireTime -= getMisfireThreshold();
+        }
+
+        Date tnft = tw.trigger.getNextFireTime();
+        if (tnft == null || tnft.getTime() > misfireTime
+                || tw.trigger.getMisfireInstruction() == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
+            return false;
+        }
+
+        // the calendar is only read here, so there's no need to clone it
+        Calendar cal = null;
+        if (tw.trigger.getCalendarName() != null) {
+            cal = calendarsByName.get(tw.trigger.getCalendarName());
+        }
+
+        signaler.notifyTriggerListenersMisfired((OperableTrigger)tw.trigger.clone());
+
+        tw.trigger.updateAfterMisfire(cal);
+
+        if (tw.trigger.getNextFireTime() == null) {
+            tw.state = TriggerWrapper.STATE_COMPLETE;
+            signaler.notifySchedulerListenersFinalized(tw.trigger);
+            timeTriggers.remove(tw);
+        } else if (tnft.equals(tw.trigger.getNextFireTime())) {
+            return false;
+        }
+
+        return true;
+    }
+
+    private static final AtomicLong ftrCtr = new AtomicLong(System.currentTimeMillis());
+
+    protected String getFiredTriggerRecordId() {
+        return String.valueOf(ftrCtr.incrementAndGet());
+    }
+
+    /**
+     * <p>
+     * Get a handle to the next trigger to be fired, and mark it as 'reserved'
+     * by the calling scheduler.
+     * </p>
+     *
+     * <p>
+     * Candidates are taken off the time index without any lock, and then
+     * claimed under the stripe of their job, so acquisition only contends
+     * with operations on the very jobs it is acquiring.
+     * </p>
+     *
+     * @see #releaseAcquiredTrigger(OperableTrigger)
+     */
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
+        List<OperableTrigger> result = new ArrayList<OperableTrigger>();
+        Set<JobKey> acquiredJobKeysForNoConcurrentExec = new HashSet<JobKey>();
+        Set<TriggerWrapper> excludedTriggers = new HashSet<TriggerWrapper>();
+
+        structureLock.readLock().lock();
+        try {
+            while (true) {
+                TriggerWrapper tw = timeTriggers.pollFirst();
+                if (tw == null) {
+                    break;
+                }
+
+                ReentrantLock stripe = stripeFor(tw.jobKey);
+                stripe.lock();
+                try {
+                    // the trigger may have been removed, replaced or paused since it was polled
+                    if (triggersByKey.get(tw.key) != tw || tw.state != TriggerWrapper.STATE_WAITING) {
+                        continue;
+                    }
+                    // ... or resumed, which would have put it back in the index
+                    timeTriggers.remove(tw);
+
+                    if (tw.trigger.getNextFireTime() == null) {
+                        continue;
+                    }
+
+                    if (applyMisfire(tw)) {
+                        if (tw.trigger.getNextFireTime() != null) {
+                            timeTriggers.add(tw);
+                        }
+                        continue;
+                    }
+
+                    if (tw.getTrigger().getNextFireTime().getTime() > noLaterThan + timeWindow) {
+                        timeTriggers.add(tw);
+                        break;
+                    }
+
+                    // If trigger's job is set as @DisallowConcurrentExecution, and it has already been added to result, then
+                    // put it back into the timeTriggers set and continue to search for next trigger.
+                    JobKey jobKey = tw.jobKey;
+                    JobDetail job = jobsByKey.get(jobKey).jobDetail;
+                    if (job.isConcurrentExectionDisallowed()) {
+                        if (acquiredJobKeysForNoConcurrentExec.contains(jobKey)) {
+                            excludedTriggers.add(tw);
+                            continue; // go to next trigger in store.
+                        } else {
+                            acquiredJobKeysForNoConcurrentExec.add(jobKey);
+                        }
+                    }
+
+                    tw.state = TriggerWrapper.STATE_ACQUIRED;
+                    tw.trigger.setFireInstanceId(getFiredTriggerRecordId());
+                    result.add((OperableTrigger) tw.trigger.clone());
+
+                    if (result.size() == maxCount) {
+                        break;
+                    }
+                } finally {
+                    stripe.unlock();
+                }
+            }
+
+            // If we did excluded triggers to prevent ACQUIRE state due to DisallowConcurrentExecution, we need to add them back to store.
+            for (TriggerWrapper tw : excludedTriggers) {
+                ReentrantLock stripe = stripeFor(tw.jobKey);
+                stripe.lock();
+                try {
+                    if (triggersByKey.get(tw.key) == tw && tw.state == TriggerWrapper.STATE_WAITING) {
+                        timeTriggers.add(tw);
+                    }
+                } finally {
+                    stripe.unlock();
+                }
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Inform the <code>JobStore</code> that the scheduler no longer plans to
+     * fire the given <code>Trigger</code>, that it had previously acquired
+     * (reserved).
+     * </p>
+     */
+    public void releaseAcquiredTrigger(OperableTrigger trigger) {
+        structureLock.readLock().lock();
+        try {
+            TriggerWrapper tw = lockTrigger(trigger.getKey());
+            if (tw == null) {
+                return;
+            }
+            try {
+                if (tw.state == TriggerWrapper.STATE_ACQUIRED) {
+                    tw.state = TriggerWrapper.STATE_WAITING;
+                    timeTriggers.add(tw);
+                }
+            } finally {
+                stripeFor(tw.jobKey).unlock();
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * <p>
+     * Inform the <code>JobStore</code> that the scheduler is now firing the
+     * given <code>Trigger</code> (executing its associated <code>Job</code>),
+     * that it had previously acquired (reserved).
+     * </p>
+     */
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) {
+
+        List<TriggerFiredResult> results = new ArrayList<TriggerFiredResult>();
+
+        structureLock.readLock().lock();
+        try {
+            for (OperableTrigger trigger : firedTriggers) {
+                // was the trigger deleted since being acquired?
+                TriggerWrapper tw = lockTrigger(trigger.getKey());
+                if (tw == null) {
+                    continue;
+                }
+                try {
+                    TriggerFiredBundle bndle = triggerFired(tw);
+                    if (bndle != null) {
+                        results.add(new TriggerFiredResult(bndle));
+                    }
+                } finally {
+                    stripeFor(tw.jobKey).unlock();
+                }
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+        return results;
+    }
+
+    private TriggerFiredBundle triggerFired(TriggerWrapper tw) {
+        // was the trigger completed, paused, blocked, etc. since being acquired?
+        if (tw.state != TriggerWrapper.STATE_ACQUIRED) {
+            return null;
+        }
+        // was another trigger of its non-concurrent job fired since (by a
+        // scheduler thread acquiring ahead, or another partition's)?
+        if (blockedJobs.contains(tw.jobKey)) {
+            tw.state = TriggerWrapper.STATE_BLOCKED;
+            return null;
+        }
+
+        Calendar cal = null;
+        if (tw.trigger.getCalendarName() != null) {
+            cal = calendarsByName.get(tw.trigger.getCalendarName());
+            if(cal == null)
+                return null;
+        }
+        Date prevFireTime = tw.trigger.getPreviousFireTime();
+        // in case trigger was replaced between acquiring and firing
+        timeTriggers.remove(tw);
+        // call triggered on our copy only, and hand the scheduler a
+        // snapshot of the result (its job data map is copy-on-write)
+        tw.trigger.triggered(cal);
+        OperableTrigger firedTrigger = (OperableTrigger) tw.trigger.clone();
+        tw.state = TriggerWrapper.STATE_WAITING;
+
+        TriggerFiredBundle bndle = new TriggerFiredBundle(retrieveJob(
+                tw.jobKey), firedTrigger, (cal == null) ? null : (Calendar) cal.clone(),
+                false, new Date(), firedTrigger.getPreviousFireTime(), prevFireTime,
+                firedTrigger.getNextFireTime());
+
+        JobDetail job = bndle.getJobDetail();
+
+        if (job.isConcurrentExectionDisallowed()) {
+            for (TriggerWrapper ttw : triggerWrappersForJob(job.getKey())) {
+                if (ttw.state == TriggerWrapper.STATE_WAITING) {
+                    ttw.state = TriggerWrapper.STATE_BLOCKED;
+                }
+                if (ttw.state == TriggerWrapper.STATE_PAUSED) {
+                    ttw.state = TriggerWrapper.STATE_PAUSED_BLOCKED;
+                }
+                timeTriggers.remove(ttw);
+            }
+            blockedJobs.add(job.getKey());
+        } else if (tw.trigger.getNextFireTime() != null) {
+            timeTriggers.add(tw);
+        }
+
+        return bndle;
+    }
+
+    /**
+     * <p>
+     * Inform the <code>JobStore</code> that the scheduler has completed the
+     * firing of the given <code>Trigger</code> (and the execution its
+     * associated <code>Job</code>), and that the <code>{@link org.quartz.JobDataMap}</code>
+     * in the given <code>JobDetail</code> should be updated if the <code>Job</code>
+     * is stateful.
+     * </p>
+     */
+    public void triggeredJobComplete(OperableTrigger trigger,
+            JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+
+        structureLock.readLock().lock();
+        ReentrantLock stripe = stripeFor(jobDetail.getKey());
+        stripe.lock();
+        try {
+            JobWrapper jw = jobsByKey.get(jobDetail.getKey());
+            TriggerWrapper tw = triggersByKey.get(trigger.getKey());
+            if (tw != null && !tw.jobKey.equals(jobDetail.getKey())) {
+                tw = null; // replaced by a trigger of another job, which is not ours to touch
+            }
+
+            // It's possible that the job is null if:
+            //   1- it was deleted during execution
+            //   2- RAMJobStore is being used only for volatile jobs / triggers
+            //      from the JDBC job store
+            if (jw != null) {
+                JobDetail jd = jw.jobDetail;
+
+                if (jd.isPersistJobDataAfterExecution()) {
+                    JobDataMap newData = jobDetail.getJobDataMap();
+                    if (newData != null) {
+                        newData = (JobDataMap)newData.clone();
+                        newData.clearDirtyFlag();
+                    }
+                    jd = jd.getJobBuilder().setJobData(newData).build();
+                    jw.jobDetail = jd;
+                }
+                if (jd.isConcurrentExectionDisallowed()) {
+                    blockedJobs.remove(jd.getKey());
+                    for(TriggerWrapper ttw : triggerWrappersForJob(jd.getKey())) {
+                        if (ttw.state == TriggerWrapper.STATE_BLOCKED) {
+                            ttw.state = TriggerWrapper.STATE_WAITING;
+                            timeTriggers.add(ttw);
+                        }
+                        if (ttw.state == TriggerWrapper.STATE_PAUSED_BLOCKED) {
+                            ttw.state = TriggerWrapper.STATE_PAUSED;
+                        }
+                    }
+                    signaler.signalSchedulingChange(0L);
+                }
+            } else { // even if it was deleted, there may be cleanup to do
+                blockedJobs.remove(jobDetail.getKey());
+            }
+
+            // check for trigger deleted during execution...
+            if (tw != null) {
+                if (triggerInstCode == CompletedExecutionInstruction.DELETE_TRIGGER) {
+
+                    if(trigger.getNextFireTime() == null) {
+                        // double check for possible reschedule within job
+                        // execution, which would cancel the need to delete...
+                        if(tw.getTrigger().getNextFireTime() == null) {
+                            removeTriggerInternal(tw, true);
+                        }
+                    } else {
+                        removeTriggerInternal(tw, true);
+                        signaler.signalSchedulingChange(0L);
+                    }
+                } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE) {
+                    tw.state = TriggerWrapper.STATE_COMPLETE;
+                    timeTriggers.remove(tw);
+                    signaler.signalSchedulingChange(0L);
+                } else if(triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
+                    getLog().info("Trigger " + trigger.getKey() + " set to ERROR state.");
+                    tw.state = TriggerWrapper.STATE_ERROR;
+                    signaler.signalSchedulingChange(0L);
+                } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
+                    getLog().info("All triggers of Job "
+                            + trigger.getJobKey() + " set to ERROR state.");
+                    setAllTriggersOfJobToState(trigger.getJobKey(), TriggerWrapper.STATE_ERROR);
+                    signaler.signalSchedulingChange(0L);
+                } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE) {
+                    setAllTriggersOfJobToState(trigger.getJobKey(), TriggerWrapper.STATE_COMPLETE);
+                    signaler.signalSchedulingChange(0L);
+                }
+            }
+        } finally {
+            stripe.unlock();
+            structureLock.readLock().unlock();
+        }
+    }
+
+    protected void setAllTriggersOfJobToState(JobKey jobKey, int state) {
+        for (TriggerWrapper tw : triggerWrappersForJob(jobKey)) {
+            tw.state = state;
+            if (state != TriggerWrapper.STATE_WAITING) {
+                timeTriggers.remove(tw);
+            }
+        }
+    }
+
+    /**
+     * @see org.quartz.spi.JobStore#getPausedTriggerGroups()
+     */
+    public Set<String> getPausedTriggerGroups() throws JobPersistenceException {
+        return new HashSet<String>(pausedTriggerGroups);
+    }
+
+    public void setInstanceId(String schedInstId) {
+        //
+    }
+
+    public void setInstanceName(String schedName) {
+        //
+    }
+
+    public void setThreadPoolSize(final int poolSize) {
+        //
+    }
+
+    public long getEstimatedTimeToReleaseAndAcquireTrigger() {
+        return 5;
+    }
+
+    public boolean isClustered() {
+        return false;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Internals.  Unless noted otherwise, callers must hold the stripe of the
+     * job(s) involved.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private boolean removeJobInternal(JobKey jobKey) {
+        boolean found = false;
+
+        for (TriggerWrapper tw : triggerWrappersForJob(jobKey)) {
+            removeTriggerInternal(tw, false);
+            found = true;
+        }
+
+        JobWrapper jw = jobsByKey.remove(jobKey);
+        if (jw != null) {
+            found = true;
+            Map<JobKey, JobWrapper> grpMap = jobsByGroup.get(jobKey.getGroup());
+            if (grpMap != null) {
+                grpMap.remove(jobKey);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Index a trigger that has just been put into <code>triggersByKey</code>.
+     */
+    private void addTriggerInternal(TriggerWrapper tw) {
+        groupMap(triggersByGroup, tw.key.getGroup()).put(tw.key, tw);
+
+        Set<TriggerWrapper> jobTriggers = triggersByJob.get(tw.jobKey);
+        if (jobTriggers == null) {
+            jobTriggers = new HashSet<TriggerWrapper>(4);
+            triggersByJob.put(tw.jobKey, jobTriggers);
+        }
+        jobTriggers.add(tw);
+
+        if (pausedTriggerGroups.contains(tw.key.getGroup())
+                || pausedJobGroups.contains(tw.jobKey.getGroup())) {
+            tw.state = TriggerWrapper.STATE_PAUSED;
+            if (blockedJobs.contains(tw.jobKey)) {
+                tw.state = TriggerWrapper.STATE_PAUSED_BLOCKED;
+            }
+        } else if (blockedJobs.contains(tw.jobKey)) {
+            tw.state = TriggerWrapper.STATE_BLOCKED;
+        } else {
+            timeTriggers.add(tw);
+        }
+    }
+
+    private void removeTriggerInternal(TriggerWrapper tw, boolean removeOrphanedJob) {
+        triggersByKey.remove(tw.key, tw);
+
+        ConcurrentMap<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(tw.key.getGroup());
+        if (grpMap != null) {
+            grpMap.remove(tw.key, tw);
+        }
+
+        Set<TriggerWrapper> jobTriggers = triggersByJob.get(tw.jobKey);
+        if (jobTriggers != null) {
+            jobTriggers.remove(tw);
+            if (jobTriggers.isEmpty()) {
+                triggersByJob.remove(tw.jobKey);
+            }
+        }
+
+        timeTriggers.remove(tw);
+
+        if (removeOrphanedJob) {
+            JobWrapper jw = jobsByKey.get(tw.jobKey);
+            if (jw != null && !triggersByJob.containsKey(tw.jobKey) && !jw.jobDetail.isDurable()) {
+                if (removeJobInternal(jw.key)) {
+                    signaler.notifySchedulerListenersJobDeleted(jw.key);
+                }
+            }
+        }
+    }
+
+    private void pauseTriggerInternal(TriggerWrapper tw) {
+        // if the trigger is "complete" pausing it does not make sense...
+        if (tw.state == TriggerWrapper.STATE_COMPLETE) {
+            return;
+        }
+
+        if(tw.state == TriggerWrapper.STATE_BLOCKED) {
+            tw.state = TriggerWrapper.STATE_PAUSED_BLOCKED;
+        } else {
+            tw.state = TriggerWrapper.STATE_PAUSED;
+        }
+
+        timeTriggers.remove(tw);
+    }
+
+    private void resumeTriggerInternal(TriggerWrapper tw) {
+        // if the trigger is not paused resuming it does not make sense...
+        if (tw.state != TriggerWrapper.STATE_PAUSED &&
+                tw.state != TriggerWrapper.STATE_PAUSED_BLOCKED) {
+            return;
+        }
+
+        if(blockedJobs.contains(tw.jobKey)) {
+            tw.state = TriggerWrapper.STATE_BLOCKED;
+        } else {
+            tw.state = TriggerWrapper.STATE_WAITING;
+        }
+
+        applyMisfire(tw);
+
+        if (tw.state == TriggerWrapper.STATE_WAITING) {
+            timeTriggers.add(tw);
+        }
+    }
+
+    private Collection<TriggerWrapper> triggerWrappersForJob(JobKey jobKey) {
+        Set<TriggerWrapper> jobTriggers = triggersByJob.get(jobKey);
+        if (jobTriggers == null) {
+            return Collections.emptyList();
+        }
+        // copied, as callers may remove triggers while iterating
+        return new ArrayList<TriggerWrapper>(jobTriggers);
+    }
+
+    /**
+     * Look up a trigger and lock the stripe of its job.  The caller must
+     * unlock that stripe when the returned wrapper is not <code>null</code>.
+     */
+    private TriggerWrapper lockTrigger(TriggerKey triggerKey) {
+        while (true) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+            if (tw == null) {
+                return null;
+            }
+            ReentrantLock stripe = stripeFor(tw.jobKey);
+            stripe.lock();
+            if (triggersByKey.get(triggerKey) == tw) {
+                return tw;
+            }
+            // removed or replaced before we got the lock, try again
+            stripe.unlock();
+        }
+    }
+
+    private ReentrantLock stripeFor(JobKey jobKey) {
+        return stripes[stripeIndex(jobKey)];
+    }
+
+    private int stripeIndex(JobKey jobKey) {
+        int h = jobKey.hashCode();
+        h ^= (h >>> 16);
+        return h & (stripes.length - 1);
+    }
+
+    /** Locks are always taken in ascending index order, to avoid deadlocks. */
+    private void lockStripes(int s1, int s2) {
+        stripes[Math.min(s1, s2)].lock();
+        if (s1 != s2) {
+            stripes[Math.max(s1, s2)].lock();
+        }
+    }
+
+    private void unlockStripes(int s1, int s2) {
+        if (s1 != s2) {
+            stripes[Math.max(s1, s2)].unlock();
+        }
+        stripes[Math.min(s1, s2)].unlock();
+    }
+
+    private static ReentrantLock[] newStripes(int count) {
+        int size = 1;
+        while (size < count) {
+            size <<= 1;
+        }
+        ReentrantLock[] locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    private static <K, V> ConcurrentHashMap<K, V> groupMap(ConcurrentHashMap<String, ConcurrentHashMap<K, V>> groups, String group) {
+        ConcurrentHashMap<K, V> grpMap = groups.get(group);
+        if (grpMap == null) {
+            grpMap = new ConcurrentHashMap<K, V>(16);
+            ConcurrentHashMap<K, V> existing = groups.putIfAbsent(group, grpMap);
+            if (existing != null) {
+                grpMap = existing;
+            }
+        }
+        return grpMap;
+    }
+
+    /**
+     * Group maps are never removed while the store is in use (a concurrent
+     * store could be adding to them), so empty ones are skipped instead.
+     */
+    private static <K, V> List<String> nonEmptyGroups(ConcurrentHashMap<String, ConcurrentHashMap<K, V>> groups) {
+        List<String> outList = new LinkedList<String>();
+        for (Map.Entry<String, ConcurrentHashMap<K, V>> entry : groups.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                outList.add(entry.getKey());
+            }
+        }
+        return outList;
+    }
+}
@@ -0,0 +1,1417 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.quartz.Calendar;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.spi.TriggerFiredResult;
+import org.quartz.utils.Key;
+
+/**
+ * <p>
+ * The <code>{@link RAMJobStore}</code> behind a
+ * <code>{@link JournalingRAMJobStore}</code>, which appends every change made
+ * to its in-memory structures to a journal, and recovers them from the
+ * latest snapshot and the journal on <code>initialize()</code>.
+ * </p>
+ *
+ * <p>
+ * Where an overridden <code>RAMJobStore</code> method does not declare the
+ * checked exception a journal failure calls for, the failure is thrown as a
+ * <code>{@link JournalException}</code>, which
+ * <code>JournalingRAMJobStore</code> unwraps.
+ * </p>
+ *
+ * @see JournalingRAMJobStore
+ */
+class JournaledRAMJobStore extends RAMJobStore {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constants.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private static final byte OP_JOB_STORED = 1;
+    private static final byte OP_JOB_REMOVED = 2;
+    private static final byte OP_TRIGGER_STORED = 3;
+    private static final byte OP_TRIGGER_REMOVED = 4;
+    private static final byte OP_TRIGGER_REPLACED = 5;
+    private static final byte OP_CALENDAR_STORED = 6;
+    private static final byte OP_CALENDAR_REMOVED = 7;
+    private static final byte OP_TRIGGER_PAUSED = 8;
+    private static final byte OP_TRIGGERS_PAUSED = 9;
+    private static final byte OP_JOB_PAUSED = 10;
+    private static final byte OP_JOBS_PAUSED = 11;
+    private static final byte OP_TRIGGER_RESUMED = 12;
+    private static final byte OP_TRIGGERS_RESUMED = 13;
+    private static final byte OP_JOB_RESUMED = 14;
+    private static final byte OP_JOBS_RESUMED = 15;
+    private static final byte OP_ALL_PAUSED = 16;
+    private static final byte OP_ALL_RESUMED = 17;
+    private static final byte OP_ALL_CLEARED = 18;
+    private static final byte OP_TRIGGER_UPDATED = 19;
+    private static final byte OP_TRIGGER_FIRED = 20;
+    private static final byte OP_JOB_COMPLETED = 21;
+    private static final byte OP_JOBS_RECOVERED = 22;
+
+    private static final int SNAPSHOT_MAGIC = 0x51525331; // "QRS1"
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private String journalDirectory;
+
+    private int journalSize = 32 * 1024 * 1024;
+
+    private boolean forceJournalWrites = false;
+
+    private String instanceName = "QuartzScheduler";
+
+    private ClassLoadHelper classLoadHelper;
+
+    private MappedJournal journal;
+
+    private File snapshotFile;
+
+    /** Fired, not yet completed, executions of jobs requesting recovery, by fire instance id. */
+    private final LinkedHashMap<String, InFlightJob> inFlightJobs = new LinkedHashMap<String, InFlightJob>();
+
+    // the journal entry being built by the current (outermost) change
+    private final ByteArrayOutputStream entryBytes = new ByteArrayOutputStream(512);
+    private final DataOutputStream entry = new DataOutputStream(entryBytes);
+
+    private int entryDepth;
+
+    private int opDepth;
+
+    private boolean replaying;
+
+    private boolean snapshotNeeded;
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Create a new <code>JournaledRAMJobStore</code>.
+     * </p>
+     */
+    JournaledRAMJobStore() {
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Configuration.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    String getJournalDirectory() {
+        return journalDirectory;
+    }
+
+    void setJournalDirectory(String journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    int getJournalSize() {
+        return journalSize;
+    }
+
+    void setJournalSize(int journalSize) {
+        this.journalSize = journalSize;
+    }
+
+    boolean isForceJournalWrites() {
+        return forceJournalWrites;
+    }
+
+    void setForceJournalWrites(boolean forceJournalWrites) {
+        this.forceJournalWrites = forceJournalWrites;
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        super.setInstanceName(schedName);
+        this.instanceName = schedName;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Opens the journal and recovers the state it records.  A failure is
+     * thrown as a <code>JournalException</code> wrapping a
+     * <code>SchedulerConfigException</code>.
+     * </p>
+     */
+    @Override
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler schedSignaler) {
+        super.initialize(loadHelper, schedSignaler);
+        this.classLoadHelper = loadHelper;
+
+        try {
+            openJournal();
+        } catch (SchedulerConfigException e) {
+            throw new JournalException(e);
+        }
+    }
+
+    private void openJournal() throws SchedulerConfigException {
+        if (journalDirectory == null) {
+            throw new SchedulerConfigException("The journalDirectory property of the JournalingRAMJobStore must be set.");
+        }
+        File dir = new File(journalDirectory);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new SchedulerConfigException("Could not create journal directory " + dir);
+        }
+        String baseName = instanceName.replaceAll("[^A-Za-z0-9._-]", "_");
+        snapshotFile = new File(dir, baseName + ".snapshot");
+
+        synchronized (lock) {
+            try {
+                journal = new MappedJournal(new File(dir, baseName + ".journal"), journalSize);
+                journal.setForceWrites(forceJournalWrites);
+                recover();
+            } catch (Exception e) {
+                closeJournal();
+                throw new SchedulerConfigException("Could not recover job store from " + dir + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void schedulerStarted() {
+        super.schedulerStarted();
+
+        synchronized (lock) {
+            beginEntry();
+            try {
+                recoverJobs();
+            } finally {
+                endEntry();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (lock) {
+            if (journal != null) {
+                try {
+                    writeSnapshot();
+                } catch (IOException e) {
+                    getLog().error("Could not write snapshot on shutdown; the journal will be replayed on the next start-up.", e);
+                }
+                closeJournal();
+            }
+        }
+        super.shutdown();
+    }
+
+    @Override
+    public boolean supportsPersistence() {
+        return true;
+    }
+
+    @Override
+    public void clearAllSchedulingData() throws JobPersistenceException {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                super.clearAllSchedulingData();
+                if (record) {
+                    op(OP_ALL_CLEARED);
+                }
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger) throws JobPersistenceException {
+        synchronized (lock) {
+            beginEntry();
+            try {
+                super.storeJobAndTrigger(newJob, newTrigger);
+            } finally {
+                endEntry();
+            }
+        }
+    }
+
+    @Override
+    public void storeJobsAndTriggers(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace)
+        throws JobPersistenceException {
+        synchronized (lock) {
+            beginEntry();
+            try {
+                super.storeJobsAndTriggers(triggersAndJobs, replace);
+            } finally {
+                endEntry();
+            }
+        }
+    }
+
+    @Override
+    public void storeJob(JobDetail newJob, boolean replaceExisting) throws ObjectAlreadyExistsException {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                // serialize first, so an object that can't be saved is not stored either
+                byte[] data = record ? serializeUnchecked(newJob, "job " + newJob.getKey()) : null;
+                super.storeJob(newJob, replaceExisting);
+                if (record) {
+                    op(OP_JOB_STORED);
+                    writeBytes(data);
+                }
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public boolean removeJob(JobKey jobKey) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                boolean found = super.removeJob(jobKey);
+                if (record && found) {
+                    op(OP_JOB_REMOVED);
+                    writeKey(jobKey.getName(), jobKey.getGroup());
+                }
+                return found;
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public boolean removeJobs(List<JobKey> jobKeys) throws JobPersistenceException {
+        synchronized (lock) {
+            beginEntry();
+            try {
+                return super.removeJobs(jobKeys);
+            } finally {
+                endEntry();
+            }
+        }
+    }
+
+    @Override
+    public void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting) throws JobPersistenceException {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                // serialize first, so an object that can't be saved is not stored either
+                byte[] data = record ? serialize(newTrigger, "trigger " + newTrigger.getKey()) : null;
+                super.storeTrigger(newTrigger, replaceExisting);
+                if (record) {
+                    op(OP_TRIGGER_STORED);
+                    writeBytes(data);
+                }
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public boolean removeTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                boolean found = super.removeTrigger(triggerKey);
+                if (record && found) {
+                    op(OP_TRIGGER_REMOVED);
+                    writeKey(triggerKey.getName(), triggerKey.getGroup());
+                }
+                return found;
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public boolean removeTriggers(List<TriggerKey> triggerKeys) throws JobPersistenceException {
+        synchronized (lock) {
+            beginEntry();
+            try {
+                return super.removeTriggers(triggerKeys);
+            } finally {
+                endEntry();
+            }
+        }
+    }
+
+    @Override
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                // serialize first, so an object that can't be saved is not stored either
+                byte[] data = record ? serialize(newTrigger, "trigger " + newTrigger.getKey()) : null;
+                boolean found = super.replaceTrigger(triggerKey, newTrigger);
+                if (record && found) {
+                    op(OP_TRIGGER_REPLACED);
+                    writeKey(triggerKey.getName(), triggerKey.getGroup());
+                    writeBytes(data);
+                }
+                return found;
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+        throws ObjectAlreadyExistsException {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                // serialize first, so an object that can't be saved is not stored either
+                byte[] data = record ? serializeUnchecked(calendar, "calendar " + name) : null;
+                super.storeCalendar(name, calendar, replaceExisting, updateTriggers);
+                if (record) {
+                    op(OP_CALENDAR_STORED);
+                    entry.writeUTF(name);
+                    writeBytes(data);
+                    if (updateTriggers) {
+                        // the new fire times depend on the current time, so
+                        // they are recorded rather than re-computed on replay
+                        for (TriggerWrapper tw : getTriggerWrappersForCalendar(name)) {
+                            recordTriggerUpdated(tw);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw journalFailure(e);
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                boolean found = super.removeCalendar(calName);
+                if (record && found) {
+                    op(OP_CALENDAR_REMOVED);
+                    entry.writeUTF(calName);
+                }
+                return found;
+            } catch (IOException e) {
+                throw journalFailure(e);
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public void pauseTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                super.pauseTrigger(triggerKey);
+                if (record) {
+                    op(OP_TRIGGER_PAUSED);
+                    writeKey(triggerKey.getName(), triggerKey.getGroup());
+                }
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public List<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                List<String> groups = super.pauseTriggers(matcher);
+                if (record) {
+                    op(OP_TRIGGERS_PAUSED);
+                    writeMatcher(matcher);
+                }
+                return groups;
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public void pauseJob(JobKey jobKey) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                super.pauseJob(jobKey);
+                if (record) {
+                    op(OP_JOB_PAUSED);
+                    writeKey(jobKey.getName(), jobKey.getGroup());
+                }
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public List<String> pauseJobs(GroupMatcher<JobKey> matcher) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                List<String> groups = super.pauseJobs(matcher);
+                if (record) {
+                    op(OP_JOBS_PAUSED);
+                    writeMatcher(matcher);
+                }
+                return groups;
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public void resumeTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                super.resumeTrigger(triggerKey);
+                if (record) {
+                    op(OP_TRIGGER_RESUMED);
+                    writeKey(triggerKey.getName(), triggerKey.getGroup());
+                }
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public List<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                List<String> groups = super.resumeTriggers(matcher);
+                if (record) {
+                    op(OP_TRIGGERS_RESUMED);
+                    writeMatcher(matcher);
+                }
+                return groups;
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public void resumeJob(JobKey jobKey) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                super.resumeJob(jobKey);
+                if (record) {
+                    op(OP_JOB_RESUMED);
+                    writeKey(jobKey.getName(), jobKey.getGroup());
+                }
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                Collection<String> groups = super.resumeJobs(matcher);
+                if (record) {
+                    op(OP_JOBS_RESUMED);
+                    writeMatcher(matcher);
+                }
+                return groups;
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public void pauseAll() {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                super.pauseAll();
+                if (record) {
+                    op(OP_ALL_PAUSED);
+                }
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public void resumeAll() {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                super.resumeAll();
+                if (record) {
+                    op(OP_ALL_RESUMED);
+                }
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Misfire handling depends on the current time, so its outcome is
+     * recorded as the updated trigger rather than re-computed on replay.
+     * </p>
+     */
+    @Override
+    protected boolean applyMisfire(TriggerWrapper tw) {
+        synchronized (lock) {
+            beginEntry();
+            try {
+                boolean misfired = super.applyMisfire(tw);
+                if (misfired || tw.state == TriggerWrapper.STATE_COMPLETE) {
+                    recordTriggerUpdated(tw);
+                }
+                return misfired;
+            } finally {
+                endEntry();
+            }
+        }
+    }
+
+    @Override
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow, int partition, int partitionCount) {
+        synchronized (lock) {
+            // acquiring is not journaled, but misfires handled on the way are
+            beginEntry();
+            try {
+                return super.acquireNextTriggers(noLaterThan, maxCount, timeWindow, partition, partitionCount);
+            } finally {
+                endEntry();
+            }
+        }
+    }
+
+    @Override
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                List<TriggerFiredResult> results = super.triggersFired(firedTriggers);
+                if (record) {
+                    for (TriggerFiredResult result : results) {
+                        TriggerFiredBundle bndle = result.getTriggerFiredBundle();
+                        if (bndle != null) {
+                            recordTriggerFired(bndle);
+                        }
+                    }
+                }
+                return results;
+            } catch (IOException e) {
+                throw journalFailure(e);
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail,
+            CompletedExecutionInstruction triggerInstCode) {
+        synchronized (lock) {
+            boolean record = beginOp();
+            try {
+                JobWrapper jw = jobsByKey.get(jobDetail.getKey());
+                byte[] data = null;
+                if (jw != null && jw.jobDetail.isPersistJobDataAfterExecution()) {
+                    try {
+                        data = serialize(jobDetail.getJobDataMap(), "job data of " + jobDetail.getKey());
+                    } catch (JobPersistenceException e) {
+                        // keep the stored data, rather than data that would be lost on restart
+                        getLog().error("Updated JobDataMap of job " + jobDetail.getKey() + " was not saved.", e);
+                        signaler.notifySchedulerListenersError(
+                                "Updated JobDataMap of job " + jobDetail.getKey() + " was not saved.", e);
+                        jobDetail = jw.jobDetail;
+                        data = serialize(jobDetail.getJobDataMap(), "job data of " + jobDetail.getKey());
+                    }
+                }
+
+                super.triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+                if (trigger.getFireInstanceId() != null) {
+                    inFlightJobs.remove(trigger.getFireInstanceId());
+                }
+
+                if (record) {
+                    op(OP_JOB_COMPLETED);
+                    writeKey(trigger.getKey().getName(), trigger.getKey().getGroup());
+                    writeKey(jobDetail.getKey().getName(), jobDetail.getKey().getGroup());
+                    writeString(trigger.getFireInstanceId());
+                    entry.writeBoolean(trigger.getNextFireTime() == null);
+                    entry.writeByte(triggerInstCode.ordinal());
+                    entry.writeBoolean(data != null);
+                    if (data != null) {
+                        writeBytes(data);
+                    }
+                }
+            } catch (JobPersistenceException e) {
+                // stored job data that can't be serialized any more
+                throw new IllegalStateException(e.getMessage(), e);
+            } catch (IOException e) {
+                throw journalFailure(e);
+            } finally {
+                endOp();
+            }
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Journaling.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * Start a change that is recorded by the operations nested in it; all
+     * of them end up in the same journal entry.  Must hold the lock.
+     */
+    private void beginEntry() {
+        entryDepth++;
+    }
+
+    /**
+     * Start a change that is recorded as a single operation, which is
+     * replayed by calling the same <code>RAMJobStore</code> method again:
+     * any journaled operations it performs internally are not recorded on
+     * their own.  Must hold the lock.
+     *
+     * @return whether the operation should be recorded.
+     */
+    private boolean beginOp() {
+        beginEntry();
+        return !replaying && journal != null && opDepth++ == 0;
+    }
+
+    private void endOp() {
+        if (!replaying && journal != null) {
+            opDepth--;
+        }
+        endEntry();
+    }
+
+    private void endEntry() {
+        if (--entryDepth > 0 || entryBytes.size() == 0) {
+            return;
+        }
+        if (journal == null) {
+            entryBytes.reset();
+            return;
+        }
+        byte[] bytes = entryBytes.toByteArray();
+        entryBytes.reset();
+
+        if (snapshotNeeded || !journal.append(bytes)) {
+            // the snapshot includes the change just made, so the entry
+            // itself is no longer needed
+            try {
+                writeSnapshot();
+            } catch (IOException e) {
+                snapshotNeeded = true;
+                getLog().error("Could not write snapshot of job store; changes are not being saved.", e);
+                signaler.notifySchedulerListenersError(
+                        "Could not write snapshot of job store; changes are not being saved.",
+                        new SchedulerException(e));
+            }
+        }
+    }
+
+    private void op(byte op) {
+        try {
+            entry.writeByte(op);
+        } catch (IOException e) {
+            throw journalFailure(e);
+        }
+    }
+
+    private void writeKey(String name, String group) {
+        try {
+            entry.writeUTF(name);
+            entry.writeUTF(group);
+        } catch (IOException e) {
+            throw journalFailure(e);
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        entry.writeBoolean(s != null);
+        if (s != null) {
+            entry.writeUTF(s);
+        }
+    }
+
+    private void writeBytes(byte[] data) {
+        try {
+            entry.writeInt(data.length);
+            entry.write(data);
+        } catch (IOException e) {
+            throw journalFailure(e);
+        }
+    }
+
+    private void writeMatcher(GroupMatcher<?> matcher) {
+        try {
+            writeBytes(serialize(matcher, "matcher " + matcher));
+        } catch (JobPersistenceException e) {
+            throw journalFailure(e);
+        }
+    }
+
+    private void recordTriggerUpdated(TriggerWrapper tw) {
+        if (replaying || journal == null) {
+            return;
+        }
+        try {
+            byte[] data = serialize(tw.trigger, "trigger " + tw.key);
+            op(OP_TRIGGER_UPDATED);
+            writeBytes(data);
+            entry.writeByte(tw.state);
+        } catch (JobPersistenceException e) {
+            throw journalFailure(e);
+        } catch (IOException e) {
+            throw journalFailure(e);
+        }
+    }
+
+    private void recordTriggerFired(TriggerFiredBundle bndle) throws IOException {
+        OperableTrigger trigger = bndle.getTrigger();
+        JobDetail job = bndle.getJobDetail();
+
+        op(OP_TRIGGER_FIRED);
+        writeKey(trigger.getKey().getName(), trigger.getKey().getGroup());
+        writeString(trigger.getFireInstanceId());
+        entry.writeBoolean(job.requestsRecovery());
+        if (job.requestsRecovery()) {
+            Date scheduled = (bndle.getScheduledFireTime() != null) ? bndle.getScheduledFireTime() : bndle.getFireTime();
+            InFlightJob inFlight = new InFlightJob(trigger.getKey(), job.getKey(), bndle.getFireTime().getTime(),
+                    scheduled.getTime(), trigger.getPriority());
+            inFlight.write(entry);
+            if (trigger.getFireInstanceId() != null) {
+                inFlightJobs.put(trigger.getFireInstanceId(), inFlight);
+            }
+        }
+    }
+
+    private IllegalStateException journalFailure(Exception e) {
+        snapshotNeeded = true;
+        return new IllegalStateException("Could not record change to job store: " + e.getMessage(), e);
+    }
+
+    private byte[] serialize(Object obj, String what) throws JobPersistenceException {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+            ObjectOutputStream out = new ObjectOutputStream(baos);
+            out.writeObject(obj);
+            out.close();
+            return baos.toByteArray();
+        } catch (IOException e) {
+            throw new JobPersistenceException("Couldn't serialize " + what + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Serialize an object to be stored by a method whose
+     * <code>RAMJobStore</code> signature does not allow a
+     * <code>JobPersistenceException</code>.
+     */
+    private byte[] serializeUnchecked(Object obj, String what) {
+        try {
+            return serialize(obj, what);
+        } catch (JobPersistenceException e) {
+            throw new JournalException(e);
+        }
+    }
+
+    private Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ClassLoadHelperObjectInputStream(new ByteArrayInputStream(data), classLoadHelper);
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            getLog().warn("Could not close journal " + journal.getFile(), e);
+        }
+        journal = null;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Snapshots and recovery.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * Write the whole state to a new snapshot file, then start the next
+     * generation of the journal.  A crash in between leaves a snapshot that
+     * names a later generation than the journal, which is then ignored.
+     */
+    private void writeSnapshot() throws IOException {
+        long generation = journal.getGeneration() + 1;
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        FileOutputStream fos = new FileOutputStream(tmp);
+        try {
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(fos, 64 * 1024));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(generation);
+
+            out.writeInt(calendarsByName.size());
+            for (Map.Entry<String, Calendar> cal : calendarsByName.entrySet()) {
+                out.writeUTF(cal.getKey());
+                out.writeObject(cal.getValue());
+            }
+            out.writeInt(jobsByKey.size());
+            for (JobWrapper jw : jobsByKey.values()) {
+                out.writeObject(jw.jobDetail);
+            }
+            out.writeInt(triggersByKey.size());
+            for (TriggerWrapper tw : triggersByKey.values()) {
+                out.writeObject(tw.trigger);
+                out.writeByte(tw.state);
+            }
+            out.writeObject(new ArrayList<String>(pausedTriggerGroups));
+            out.writeObject(new ArrayList<String>(pausedJobGroups));
+            out.writeInt(inFlightJobs.size());
+            for (Map.Entry<String, InFlightJob> job : inFlightJobs.entrySet()) {
+                out.writeUTF(job.getKey());
+                job.getValue().write(out);
+            }
+            out.flush();
+            fos.getFD().sync();
+            out.close();
+        } finally {
+            fos.close();
+        }
+
+        if (!tmp.renameTo(snapshotFile)) {
+            // not atomic, but some platforms won't rename over an existing file
+            if (!snapshotFile.delete() || !tmp.renameTo(snapshotFile)) {
+                throw new IOException("Could not rename " + tmp + " to " + snapshotFile);
+            }
+        }
+
+        int capacity = journal.getCapacity();
+        if (snapshotFile.length() > capacity / 2) {
+            // the state has outgrown the journal: grow it, or it would need
+            // a new snapshot every few changes
+            capacity = (int) Math.min((long) capacity * 2, Integer.MAX_VALUE);
+        }
+        journal.reset(generation, capacity);
+        snapshotNeeded = false;
+    }
+
+    /**
+     * @return the journal generation that follows the snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    private long readSnapshot() throws IOException, ClassNotFoundException, JobPersistenceException {
+        InputStream is = new BufferedInputStream(new FileInputStream(snapshotFile), 64 * 1024);
+        try {
+            ObjectInputStream in = new ClassLoadHelperObjectInputStream(is, classLoadHelper);
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(snapshotFile + " is not a job store snapshot.");
+            }
+            long generation = in.readLong();
+
+            for (int i = in.readInt(); i > 0; i--) {
+                String name = in.readUTF();
+                super.storeCalendar(name, (Calendar) in.readObject(), true, false);
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                super.storeJob((JobDetail) in.readObject(), true);
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                OperableTrigger trigger = (OperableTrigger) in.readObject();
+                int state = in.readByte();
+                super.storeTrigger(trigger, true);
+                restoreState(triggersByKey.get(trigger.getKey()), state);
+            }
+            pausedTriggerGroups.addAll((List<String>) in.readObject());
+            pausedJobGroups.addAll((List<String>) in.readObject());
+            for (int i = in.readInt(); i > 0; i--) {
+                String fireInstanceId = in.readUTF();
+                inFlightJobs.put(fireInstanceId, InFlightJob.read(in));
+            }
+            return generation;
+        } finally {
+            is.close();
+        }
+    }
+
+    private void recover() throws Exception {
+        long generation = 0;
+        int entries = 0;
+
+        replaying = true;
+        try {
+            if (snapshotFile.exists()) {
+                generation = readSnapshot();
+            }
+            if (journal.getGeneration() == generation) {
+                for (byte[] bytes : journal.readEntries()) {
+                    replay(bytes);
+                    entries++;
+                }
+            } else {
+                getLog().info("Journal generation " + journal.getGeneration()
+                        + " is already contained in the snapshot; ignoring it.");
+            }
+        } finally {
+            replaying = false;
+        }
+
+        // start from a fresh snapshot
+        writeSnapshot();
+
+        getLog().info("JournalingRAMJobStore recovered " + jobsByKey.size() + " jobs, "
+                + triggersByKey.size() + " triggers and " + calendarsByName.size()
+                + " calendars (" + entries + " journal entries replayed).");
+    }
+
+    private void replay(byte[] bytes) throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        while (in.available() > 0) {
+            byte op = in.readByte();
+            switch (op) {
+                case OP_JOB_STORED:
+                    super.storeJob((JobDetail) deserialize(readBytes(in)), true);
+                    break;
+                case OP_JOB_REMOVED:
+                    super.removeJob(new JobKey(in.readUTF(), in.readUTF()));
+                    break;
+                case OP_TRIGGER_STORED:
+                    super.storeTrigger((OperableTrigger) deserialize(readBytes(in)), true);
+                    break;
+                case OP_TRIGGER_REMOVED:
+                    super.removeTrigger(new TriggerKey(in.readUTF(), in.readUTF()));
+                    break;
+                case OP_TRIGGER_REPLACED: {
+                    TriggerKey key = new TriggerKey(in.readUTF(), in.readUTF());
+                    super.replaceTrigger(key, (OperableTrigger) deserialize(readBytes(in)));
+                    break;
+                }
+                case OP_CALENDAR_STORED: {
+                    String name = in.readUTF();
+                    super.storeCalendar(name, (Calendar) deserialize(readBytes(in)), true, false);
+                    break;
+                }
+                case OP_CALENDAR_REMOVED:
+                    super.removeCalendar(in.readUTF());
+                    break;
+                case OP_TRIGGER_PAUSED:
+                    super.pauseTrigger(new TriggerKey(in.readUTF(), in.readUTF()));
+                    break;
+                case OP_TRIGGERS_PAUSED:
+                    super.pauseTriggers(this.<TriggerKey>readMatcher(in));
+                    break;
+                case OP_JOB_PAUSED:
+                    super.pauseJob(new JobKey(in.readUTF(), in.readUTF()));
+                    break;
+                case OP_JOBS_PAUSED:
+                    super.pauseJobs(this.<JobKey>readMatcher(in));
+                    break;
+                case OP_TRIGGER_RESUMED:
+                    super.resumeTrigger(new TriggerKey(in.readUTF(), in.readUTF()));
+                    break;
+                case OP_TRIGGERS_RESUMED:
+                    super.resumeTriggers(this.<TriggerKey>readMatcher(in));
+                    break;
+                case OP_JOB_RESUMED:
+                    super.resumeJob(new JobKey(in.readUTF(), in.readUTF()));
+                    break;
+                case OP_JOBS_RESUMED:
+                    super.resumeJobs(this.<JobKey>readMatcher(in));
+                    break;
+                case OP_ALL_PAUSED:
+                    super.pauseAll();
+                    break;
+                case OP_ALL_RESUMED:
+                    super.resumeAll();
+                    break;
+                case OP_ALL_CLEARED:
+                    super.clearAllSchedulingData();
+                    inFlightJobs.clear();
+                    break;
+                case OP_TRIGGER_UPDATED: {
+                    OperableTrigger trigger = (OperableTrigger) deserialize(readBytes(in));
+                    int state = in.readByte();
+                    if (triggersByKey.containsKey(trigger.getKey())) {
+                        super.storeTrigger(trigger, true);
+                        restoreState(triggersByKey.get(trigger.getKey()), state);
+                    }
+                    break;
+                }
+                case OP_TRIGGER_FIRED:
+                    replayTriggerFired(in);
+                    break;
+                case OP_JOB_COMPLETED:
+                    replayJobCompleted(in);
+                    break;
+                case OP_JOBS_RECOVERED:
+                    inFlightJobs.clear();
+                    break;
+                default:
+                    throw new IOException("Unknown journal operation " + op);
+            }
+        }
+    }
+
+    /**
+     * <code>triggered()</code> only depends on the trigger's own state and
+     * its calendar, so firing is replayed rather than recorded.
+     */
+    private void replayTriggerFired(DataInputStream in) throws IOException {
+        TriggerKey key = new TriggerKey(in.readUTF(), in.readUTF());
+        String fireInstanceId = readString(in);
+        if (in.readBoolean()) {
+            InFlightJob inFlight = InFlightJob.read(in);
+            if (fireInstanceId != null) {
+                inFlightJobs.put(fireInstanceId, inFlight);
+            }
+        }
+
+        TriggerWrapper tw = triggersByKey.get(key);
+        if (tw == null) {
+            return;
+        }
+        Calendar cal = null;
+        if (tw.trigger.getCalendarName() != null) {
+            cal = calendarsByName.get(tw.trigger.getCalendarName());
+        }
+        getTimeTriggers().remove(tw);
+        tw.trigger.triggered(cal);
+        restoreState(tw, tw.state);
+    }
+
+    /**
+     * Mirrors the effect of <code>triggeredJobComplete</code> on the stored
+     * state, without the trigger and job instances it was called with.
+     */
+    private void replayJobCompleted(DataInputStream in) throws IOException, ClassNotFoundException {
+        TriggerKey triggerKey = new TriggerKey(in.readUTF(), in.readUTF());
+        JobKey jobKey = new JobKey(in.readUTF(), in.readUTF());
+        String fireInstanceId = readString(in);
+        boolean noNextFireTime = in.readBoolean();
+        CompletedExecutionInstruction instCode = CompletedExecutionInstruction.values()[in.readByte()];
+        JobDataMap data = in.readBoolean() ? (JobDataMap) deserialize(readBytes(in)) : null;
+
+        if (fireInstanceId != null) {
+            inFlightJobs.remove(fireInstanceId);
+        }
+
+        JobWrapper jw = jobsByKey.get(jobKey);
+        if (jw != null && data != null) {
+            data.clearDirtyFlag();
+            jw.jobDetail = jw.jobDetail.getJobBuilder().setJobData(data).build();
+        }
+
+        TriggerWrapper tw = triggersByKey.get(triggerKey);
+        if (tw == null) {
+            return;
+        }
+        switch (instCode) {
+            case DELETE_TRIGGER:
+                if (!noNextFireTime || tw.trigger.getNextFireTime() == null) {
+                    super.removeTrigger(triggerKey);
+                }
+                break;
+            case SET_TRIGGER_COMPLETE:
+                restoreState(tw, TriggerWrapper.STATE_COMPLETE);
+                break;
+            case SET_TRIGGER_ERROR:
+                restoreState(tw, TriggerWrapper.STATE_ERROR);
+                break;
+            case SET_ALL_JOB_TRIGGERS_ERROR:
+                setAllTriggersOfJobToState(tw.jobKey, TriggerWrapper.STATE_ERROR);
+                break;
+            case SET_ALL_JOB_TRIGGERS_COMPLETE:
+                setAllTriggersOfJobToState(tw.jobKey, TriggerWrapper.STATE_COMPLETE);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Set a recovered trigger's state, releasing it from any state that
+     * only has meaning while the scheduler is running (acquired, executing,
+     * blocked), and put it in or take it out of the time index to match.
+     */
+    private void restoreState(TriggerWrapper tw, int state) {
+        switch (state) {
+            case TriggerWrapper.STATE_ACQUIRED:
+            case TriggerWrapper.STATE_EXECUTING:
+            case TriggerWrapper.STATE_BLOCKED:
+                state = TriggerWrapper.STATE_WAITING;
+                break;
+            case TriggerWrapper.STATE_PAUSED_BLOCKED:
+                state = TriggerWrapper.STATE_PAUSED;
+                break;
+            default:
+                break;
+        }
+        tw.state = state;
+        if (state == TriggerWrapper.STATE_WAITING && tw.trigger.getNextFireTime() != null) {
+            getTimeTriggers().add(tw);
+        } else {
+            getTimeTriggers().remove(tw);
+        }
+    }
+
+    private void recoverJobs() {
+        int recovered = 0;
+        if (!inFlightJobs.isEmpty()) {
+            getLog().info("Recovering " + inFlightJobs.size()
+                    + " jobs that were in-progress at the time of the last shut-down.");
+        }
+        for (InFlightJob inFlight : inFlightJobs.values()) {
+            JobWrapper jw = jobsByKey.get(inFlight.jobKey);
+            if (jw == null) {
+                getLog().warn("Failed job '" + inFlight.jobKey + "' no longer exists, cannot schedule recovery.");
+                continue;
+            }
+            TriggerWrapper original = triggersByKey.get(inFlight.triggerKey);
+
+            @SuppressWarnings("deprecation")
+            SimpleTriggerImpl rcvryTrig = new SimpleTriggerImpl(
+                    "recover_" + inFlight.triggerKey.getName() + "_" + inFlight.scheduledFireTime + "_" + recovered,
+                    Scheduler.DEFAULT_RECOVERY_GROUP, new Date(inFlight.scheduledFireTime));
+            rcvryTrig.setJobName(inFlight.jobKey.getName());
+            rcvryTrig.setJobGroup(inFlight.jobKey.getGroup());
+            rcvryTrig.setMisfireInstruction(SimpleTrigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY);
+            rcvryTrig.setPriority(inFlight.priority);
+            JobDataMap jd = (original == null) ? new JobDataMap() : (JobDataMap) original.trigger.getJobDataMap().clone();
+            jd.put(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_NAME, inFlight.triggerKey.getName());
+            jd.put(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_GROUP, inFlight.triggerKey.getGroup());
+            jd.put(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_FIRETIME_IN_MILLISECONDS, String.valueOf(inFlight.fireTime));
+            jd.put(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_SCHEDULED_FIRETIME_IN_MILLISECONDS, String.valueOf(inFlight.scheduledFireTime));
+            rcvryTrig.setJobDataMap(jd);
+            rcvryTrig.computeFirstFireTime(null);
+            try {
+                storeTrigger(rcvryTrig, false);
+                recovered++;
+            } catch (JobPersistenceException e) {
+                getLog().error("Could not schedule recovery of job " + inFlight.jobKey, e);
+            }
+        }
+        if (!inFlightJobs.isEmpty()) {
+            inFlightJobs.clear();
+            if (journal != null) {
+                op(OP_JOBS_RECOVERED);
+            }
+        }
+
+        // remove lingering 'complete' triggers...
+        int removed = 0;
+        for (TriggerWrapper tw : new ArrayList<TriggerWrapper>(triggersByKey.values())) {
+            if (tw.state == TriggerWrapper.STATE_COMPLETE
+                    || (tw.state == TriggerWrapper.STATE_WAITING && tw.trigger.getNextFireTime() == null)) {
+                removeTrigger(tw.key);
+                removed++;
+            }
+        }
+
+        // ...and handle triggers that misfired while the scheduler was down
+        int misfired = 0;
+        for (TriggerWrapper tw : new ArrayList<TriggerWrapper>(triggersByKey.values())) {
+            if (tw.state != TriggerWrapper.STATE_WAITING) {
+                continue;
+            }
+            // the time index must not hold the trigger while its fire time changes
+            getTimeTriggers().remove(tw);
+            if (applyMisfire(tw)) {
+                misfired++;
+            }
+            if (tw.state == TriggerWrapper.STATE_WAITING && tw.trigger.getNextFireTime() != null) {
+                getTimeTriggers().add(tw);
+            }
+        }
+
+        getLog().info("Recovery complete: " + recovered + " jobs recovered, " + removed
+                + " 'complete' triggers removed, " + misfired + " misfired triggers handled.");
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return data;
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Key<T>> GroupMatcher<T> readMatcher(DataInput in)
+        throws IOException, ClassNotFoundException {
+        return (GroupMatcher<T>) deserialize(readBytes(in));
+    }
+
+    /**
+     * A checked exception thrown by an overridden <code>RAMJobStore</code>
+     * method whose signature does not declare it.
+     */
+    static final class JournalException extends RuntimeException {
+
+        private static final long serialVersionUID = 4521839106527385017L;
+
+        JournalException(JobPersistenceException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        JournalException(SchedulerConfigException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * An execution of a job that requests recovery, which has been fired
+     * but has not completed.
+     */
+    private static final class InFlightJob {
+        final TriggerKey triggerKey;
+        final JobKey jobKey;
+        final long fireTime;
+        final long scheduledFireTime;
+        final int priority;
+
+        InFlightJob(TriggerKey triggerKey, JobKey jobKey, long fireTime, long scheduledFireTime, int priority) {
+            this.triggerKey = triggerKey;
+            this.jobKey = jobKey;
+            this.fireTime = fireTime;
+            this.scheduledFireTime = scheduledFireTime;
+            this.priority = priority;
+        }
+
+        void write(DataOutput out) throws IOException {
+            out.writeUTF(triggerKey.getName());
+            out.writeUTF(triggerKey.getGroup());
+            out.writeUTF(jobKey.getName());
+            out.writeUTF(jobKey.getGroup());
+            out.writeLong(fireTime);
+            out.writeLong(scheduledFireTime);
+            out.writeInt(priority);
+        }
+
+        static InFlightJob read(DataInput in) throws IOException {
+            return new InFlightJob(new TriggerKey(in.readUTF(), in.readUTF()), new JobKey(in.readUTF(), in.readUTF()),
+                    in.readLong(), in.readLong(), in.readInt());
+        }
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.quartz.Calendar;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.JournaledRAMJobStore.JournalException;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.PartitionedJobStore;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+
+/**
+ * <p>
+ * A <code>{@link RAMJobStore}</code> whose state survives a restart of the
+ * scheduler.
+ * </p>
+ *
+ * <p>
+ * The in-memory structures of the <code>RAMJobStore</code> remain the source
+ * of truth, and every change made to them - storing and removing jobs,
+ * triggers and calendars, pausing and resuming, firing triggers and
+ * completing jobs - is also appended to a journal, which is written through
+ * a memory mapping and so costs no system call per change.  When the
+ * journal fills up, the whole state is written to a snapshot file and the
+ * journal is started afresh.
+ * </p>
+ *
+ * <p>
+ * On <code>initialize()</code> the latest snapshot is loaded and the journal
+ * replayed over it.  Triggers that were acquired or blocked are released,
+ * and when the scheduler is started, jobs that were executing and
+ * <code>requestsRecovery()</code> are re-fired in the
+ * <code>{@link Scheduler#DEFAULT_RECOVERY_GROUP}</code>, triggers left
+ * complete are removed, and misfire instructions are applied to triggers
+ * that missed their fire time while the scheduler was down - as
+ * <code>JobStoreSupport</code> does for a JDBC store.
+ * </p>
+ *
+ * <p>
+ * Jobs, triggers and calendars must be <code>Serializable</code>, as with a
+ * JDBC job store.  A journal entry survives a crash of the JVM as soon as the
+ * change it records has been made; set <code>forceJournalWrites</code> to
+ * also have it survive a crash of the operating system, at the cost of a
+ * disk flush per change.  The store is for a single scheduler instance: the
+ * journal file is locked while the store is open.
+ * </p>
+ *
+ * <p>
+ * The store wraps, rather than extends, the <code>RAMJobStore</code> holding
+ * its state, so that it can report a job or calendar it cannot save as a
+ * <code>JobPersistenceException</code>, and a journal it cannot open as a
+ * <code>SchedulerConfigException</code>, which the signatures of
+ * <code>RAMJobStore</code> do not allow.
+ * </p>
+ *
+ * <p>
+ * The store is configured with these properties:
+ * </p>
+ * <pre>
+ * org.quartz.jobStore.class = org.quartz.simpl.JournalingRAMJobStore
+ * org.quartz.jobStore.journalDirectory = /var/lib/quartz
+ * org.quartz.jobStore.journalSize = 33554432
+ * org.quartz.jobStore.forceJournalWrites = false
+ * </pre>
+ *
+ * @see RAMJobStore
+ */
+public class JournalingRAMJobStore implements PartitionedJobStore {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private final JournaledRAMJobStore store = new JournaledRAMJobStore();
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Create a new <code>JournalingRAMJobStore</code>.
+     * </p>
+     */
+    public JournalingRAMJobStore() {
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Configuration.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public String getJournalDirectory() {
+        return store.getJournalDirectory();
+    }
+
+    /**
+     * The directory holding the journal and snapshot files, which are named
+     * after the scheduler instance.  Required.
+     */
+    public void setJournalDirectory(String journalDirectory) {
+        store.setJournalDirectory(journalDirectory);
+    }
+
+    public int getJournalSize() {
+        return store.getJournalSize();
+    }
+
+    /**
+     * The size, in bytes, of the journal file.  A snapshot is taken each
+     * time it fills up.  Defaults to 32MB.
+     */
+    public void setJournalSize(int journalSize) {
+        if (journalSize < 4096) {
+            throw new IllegalArgumentException("Journal size must be at least 4096 bytes");
+        }
+        store.setJournalSize(journalSize);
+    }
+
+    public boolean isForceJournalWrites() {
+        return store.isForceJournalWrites();
+    }
+
+    /**
+     * Whether each journal entry should be flushed to disk as it is written.
+     * Defaults to <code>false</code>.
+     */
+    public void setForceJournalWrites(boolean forceJournalWrites) {
+        store.setForceJournalWrites(forceJournalWrites);
+    }
+
+    public long getMisfireThreshold() {
+        return store.getMisfireThreshold();
+    }
+
+    /**
+     * @see RAMJobStore#setMisfireThreshold(long)
+     */
+    public void setMisfireThreshold(long misfireThreshold) {
+        store.setMisfireThreshold(misfireThreshold);
+    }
+
+    public void setInstanceId(String schedInstId) {
+        store.setInstanceId(schedInstId);
+    }
+
+    public void setInstanceName(String schedName) {
+        store.setInstanceName(schedName);
+    }
+
+    public void setThreadPoolSize(int poolSize) {
+        store.setThreadPoolSize(poolSize);
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Opens the journal, and recovers the state recorded in the latest
+     * snapshot and the journal.
+     * </p>
+     */
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler signaler)
+        throws SchedulerConfigException {
+        try {
+            store.initialize(loadHelper, signaler);
+        } catch (JournalException e) {
+            throw (SchedulerConfigException) e.getCause();
+        }
+    }
+
+    /**
+     * <p>
+     * Re-fires the jobs requesting recovery that were executing when the
+     * scheduler went down, removes complete triggers, and applies misfire
+     * instructions to triggers that missed their fire time.
+     * </p>
+     */
+    public void schedulerStarted() throws SchedulerException {
+        store.schedulerStarted();
+    }
+
+    public void schedulerPaused() {
+        store.schedulerPaused();
+    }
+
+    public void schedulerResumed() {
+        store.schedulerResumed();
+    }
+
+    /**
+     * <p>
+     * Writes a snapshot, so that the next start-up does not have to replay
+     * the journal, and closes the journal.
+     * </p>
+     */
+    public void shutdown() {
+        store.shutdown();
+    }
+
+    public boolean supportsPersistence() {
+        return true;
+    }
+
+    public long getEstimatedTimeToReleaseAndAcquireTrigger() {
+        return store.getEstimatedTimeToReleaseAndAcquireTrigger();
+    }
+
+    public boolean isClustered() {
+        return false;
+    }
+
+    public void clearAllSchedulingData() throws JobPersistenceException {
+        store.clearAllSchedulingData();
+    }
+
+    public void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger)
+        throws ObjectAlreadyExistsException, JobPersistenceException {
+        try {
+            store.storeJobAndTrigger(newJob, newTrigger);
+        } catch (JournalException e) {
+            throw (JobPersistenceException) e.getCause();
+        }
+    }
+
+    public void storeJobsAndTriggers(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace)
+        throws ObjectAlreadyExistsException, JobPersistenceException {
+        try {
+            store.storeJobsAndTriggers(triggersAndJobs, replace);
+        } catch (JournalException e) {
+            throw (JobPersistenceException) e.getCause();
+        }
+    }
+
+    public void storeJob(JobDetail newJob, boolean replaceExisting)
+        throws ObjectAlreadyExistsException, JobPersistenceException {
+        try {
+            store.storeJob(newJob, replaceExisting);
+        } catch (JournalException e) {
+            throw (JobPersistenceException) e.getCause();
+        }
+    }
+
+    public boolean removeJob(JobKey jobKey) throws JobPersistenceException {
+        return store.removeJob(jobKey);
+    }
+
+    public boolean removeJobs(List<JobKey> jobKeys) throws JobPersistenceException {
+        return store.removeJobs(jobKeys);
+    }
+
+    public JobDetail retrieveJob(JobKey jobKey) throws JobPersistenceException {
+        return store.retrieveJob(jobKey);
+    }
+
+    public void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting)
+        throws ObjectAlreadyExistsException, JobPersistenceException {
+        store.storeTrigger(newTrigger, replaceExisting);
+    }
+
+    public boolean removeTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        return store.removeTrigger(triggerKey);
+    }
+
+    public boolean removeTriggers(List<TriggerKey> triggerKeys) throws JobPersistenceException {
+        return store.removeTriggers(triggerKeys);
+    }
+
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        return store.replaceTrigger(triggerKey, newTrigger);
+    }
+
+    public OperableTrigger retrieveTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        return store.retrieveTrigger(triggerKey);
+    }
+
+    public boolean checkExists(JobKey jobKey) throws JobPersistenceException {
+        return store.checkExists(jobKey);
+    }
+
+    public boolean checkExists(TriggerKey triggerKey) throws JobPersistenceException {
+        return store.checkExists(triggerKey);
+    }
+
+    public void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+        throws ObjectAlreadyExistsException, JobPersistenceException {
+        try {
+            store.storeCalendar(name, calendar, replaceExisting, updateTriggers);
+        } catch (JournalException e) {
+            throw (JobPersistenceException) e.getCause();
+        }
+    }
+
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        return store.removeCalendar(calName);
+    }
+
+    public Calendar retrieveCalendar(String calName) throws JobPersistenceException {
+        return store.retrieveCalendar(calName);
+    }
+
+    public int getNumberOfJobs() throws JobPersistenceException {
+        return store.getNumberOfJobs();
+    }
+
+    public int getNumberOfTriggers() throws JobPersistenceException {
+        return store.getNumberOfTriggers();
+    }
+
+    public int getNumberOfCalendars() throws JobPersistenceException {
+        return store.getNumberOfCalendars();
+    }
+
+    public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) throws JobPersistenceException {
+        return store.getJobKeys(matcher);
+    }
+
+    public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        return store.getTriggerKeys(matcher);
+    }
+
+    public List<String> getJobGroupNames() throws JobPersistenceException {
+        return store.getJobGroupNames();
+    }
+
+    public List<String> getTriggerGroupNames() throws JobPersistenceException {
+        return store.getTriggerGroupNames();
+    }
+
+    public List<String> getCalendarNames() throws JobPersistenceException {
+        return store.getCalendarNames();
+    }
+
+    public List<OperableTrigger> getTriggersForJob(JobKey jobKey) throws JobPersistenceException {
+        return store.getTriggersForJob(jobKey);
+    }
+
+    public TriggerState getTriggerState(TriggerKey triggerKey) throws JobPersistenceException {
+        return store.getTriggerState(triggerKey);
+    }
+
+    public void pauseTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        store.pauseTrigger(triggerKey);
+    }
+
+    public Collection<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        return store.pauseTriggers(matcher);
+    }
+
+    public void pauseJob(JobKey jobKey) throws JobPersistenceException {
+        store.pauseJob(jobKey);
+    }
+
+    public Collection<String> pauseJobs(GroupMatcher<JobKey> groupMatcher) throws JobPersistenceException {
+        return store.pauseJobs(groupMatcher);
+    }
+
+    public void resumeTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+        store.resumeTrigger(triggerKey);
+    }
+
+    public Collection<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) throws JobPersistenceException {
+        return store.resumeTriggers(matcher);
+    }
+
+    public Set<String> getPausedTriggerGroups() throws JobPersistenceException {
+        return store.getPausedTriggerGroups();
+    }
+
+    public void resumeJob(JobKey jobKey) throws JobPersistenceException {
+        store.resumeJob(jobKey);
+    }
+
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) throws JobPersistenceException {
+        return store.resumeJobs(matcher);
+    }
+
+    public void pauseAll() throws JobPersistenceException {
+        store.pauseAll();
+    }
+
+    public void resumeAll() throws JobPersistenceException {
+        store.resumeAll();
+    }
+
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow)
+        throws JobPersistenceException {
+        return store.acquireNextTriggers(noLaterThan, maxCount, timeWindow);
+    }
+
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow,
+            int partition, int partitionCount) throws JobPersistenceException {
+        return store.acquireNextTriggers(noLaterThan, maxCount, timeWindow, partition, partitionCount);
+    }
+
+    public void releaseAcquiredTrigger(OperableTrigger trigger) {
+        store.releaseAcquiredTrigger(trigger);
+    }
+
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> triggers) throws JobPersistenceException {
+        return store.triggersFired(triggers);
+    }
+
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail,
+            CompletedExecutionInstruction triggerInstCode) {
+        store.triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+    }
+}
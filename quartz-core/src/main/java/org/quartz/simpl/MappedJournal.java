@@ -0,0 +1,226 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ * An append-only journal file, written through a memory mapping, used by
+ * <code>{@link JournalingRAMJobStore}</code>.
+ * </p>
+ *
+ * <p>
+ * The file starts with a header holding a magic number and the journal's
+ * <i>generation</i>, followed by entries of the form
+ * <code>[length][crc32][payload]</code>.  The unused remainder of the file is
+ * zero, so reading stops at the first zero length - or at the first entry
+ * whose checksum does not match, which is how an entry torn by a crash is
+ * detected and discarded.
+ * </p>
+ *
+ * <p>
+ * Entries written to the mapping survive a crash of the process as soon as
+ * they are written; they survive a crash of the operating system only once
+ * they have been forced to disk (see <code>setForceWrites</code>).
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+final class MappedJournal {
+
+    private static final int MAGIC = 0x51524a31; // "QRJ1"
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int ENTRY_OVERHEAD = 8;
+
+    private final File file;
+
+    private final RandomAccessFile raf;
+
+    private final FileChannel channel;
+
+    private final FileLock fileLock;
+
+    private MappedByteBuffer buffer;
+
+    private long generation;
+
+    /** Everything from here to the end of the file is known to be zero. */
+    private int highWater;
+
+    private boolean forceWrites;
+
+    MappedJournal(File file, int size) throws IOException {
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+
+        FileLock fl;
+        try {
+            fl = channel.tryLock();
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        if (fl == null) {
+            raf.close();
+            throw new IOException("Journal " + file + " is in use by another process.");
+        }
+        this.fileLock = fl;
+
+        int capacity = (int) Math.max(size, Math.min(raf.length(), Integer.MAX_VALUE));
+        boolean fresh = raf.length() < HEADER_SIZE;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (fresh || buffer.getInt(0) != MAGIC) {
+            writeHeader(0L);
+        } else {
+            generation = buffer.getLong(8);
+        }
+        buffer.position(HEADER_SIZE);
+        highWater = capacity;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    void setForceWrites(boolean forceWrites) {
+        this.forceWrites = forceWrites;
+    }
+
+    int getCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Read all intact entries, starting from the beginning of the journal,
+     * and position the journal for appending after the last of them.
+     */
+    List<byte[]> readEntries() {
+        List<byte[]> entries = new ArrayList<byte[]>();
+        CRC32 crc = new CRC32();
+        int pos = HEADER_SIZE;
+        while (pos + ENTRY_OVERHEAD <= buffer.capacity()) {
+            int length = buffer.getInt(pos);
+            if (length <= 0 || pos + ENTRY_OVERHEAD + length > buffer.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.position(pos + ENTRY_OVERHEAD);
+            buffer.get(payload);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(pos + 4)) {
+                break;
+            }
+            entries.add(payload);
+            pos += ENTRY_OVERHEAD + length;
+        }
+        buffer.position(pos);
+        // wipe whatever follows, so a torn entry can never be mistaken for
+        // a valid one once newer entries have been appended in front of it
+        zero(pos, highWater);
+        highWater = pos;
+        return entries;
+    }
+
+    /**
+     * Append an entry.
+     *
+     * @return <code>false</code> if the entry does not fit in the remaining
+     *         space, in which case nothing has been written.
+     */
+    boolean append(byte[] payload) {
+        int pos = buffer.position();
+        if (pos + ENTRY_OVERHEAD + payload.length > buffer.capacity()) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        // write the length last, so a partially written entry reads as
+        // either the end of the journal or a checksum mismatch
+        buffer.putInt(pos + 4, (int) crc.getValue());
+        buffer.position(pos + ENTRY_OVERHEAD);
+        buffer.put(payload);
+        buffer.putInt(pos, payload.length);
+        highWater = Math.max(highWater, buffer.position());
+        if (forceWrites) {
+            buffer.force();
+        }
+        return true;
+    }
+
+    /**
+     * Discard all entries and start a new generation of the journal,
+     * growing it first if it is smaller than <code>minCapacity</code>.
+     */
+    void reset(long newGeneration, int minCapacity) throws IOException {
+        if (minCapacity > buffer.capacity()) {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, minCapacity);
+        }
+        zero(HEADER_SIZE, highWater);
+        highWater = HEADER_SIZE;
+        writeHeader(newGeneration);
+        buffer.position(HEADER_SIZE);
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        try {
+            buffer.force();
+            fileLock.release();
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void writeHeader(long newGeneration) {
+        generation = newGeneration;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, 1);
+        buffer.putLong(8, newGeneration);
+    }
+
+    private void zero(int from, int to) {
+        int position = buffer.position();
+        byte[] zeros = new byte[Math.min(Math.max(to - from, 0), 64 * 1024)];
+        buffer.position(from);
+        while (buffer.position() < to) {
+            buffer.put(zeros, 0, Math.min(zeros.length, to - buffer.position()));
+        }
+        buffer.position(position);
+    }
+}
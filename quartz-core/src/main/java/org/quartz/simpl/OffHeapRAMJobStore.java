@@ -0,0 +1,1630 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UTFDataFormatException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.quartz.Calendar;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.SchedulerConfigException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.impl.matchers.StringMatcher;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.spi.TriggerFiredResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.quartz.simpl.OffHeapTriggerTable.CALENDAR_ID;
+import static org.quartz.simpl.OffHeapTriggerTable.END_TIME;
+import static org.quartz.simpl.OffHeapTriggerTable.GROUP_ID;
+import static org.quartz.simpl.OffHeapTriggerTable.JOB_ID;
+import static org.quartz.simpl.OffHeapTriggerTable.KIND;
+import static org.quartz.simpl.OffHeapTriggerTable.MISFIRE_INSTRUCTION;
+import static org.quartz.simpl.OffHeapTriggerTable.NEXT_FIRE_TIME;
+import static org.quartz.simpl.OffHeapTriggerTable.NEXT_IN_JOB;
+import static org.quartz.simpl.OffHeapTriggerTable.NULL_TIME;
+import static org.quartz.simpl.OffHeapTriggerTable.PREVIOUS_FIRE_TIME;
+import static org.quartz.simpl.OffHeapTriggerTable.PREVIOUS_IN_JOB;
+import static org.quartz.simpl.OffHeapTriggerTable.PRIORITY;
+import static org.quartz.simpl.OffHeapTriggerTable.REPEAT_COUNT;
+import static org.quartz.simpl.OffHeapTriggerTable.REPEAT_INTERVAL;
+import static org.quartz.simpl.OffHeapTriggerTable.START_TIME;
+import static org.quartz.simpl.OffHeapTriggerTable.STATE;
+import static org.quartz.simpl.OffHeapTriggerTable.TIMES_TRIGGERED;
+
+/**
+ * <p>
+ * A <code>{@link org.quartz.spi.JobStore}</code> that, like
+ * <code>{@link RAMJobStore}</code>, keeps everything in memory, but stores
+ * its triggers as compact records outside of the Java heap, so that it can
+ * hold tens of millions of triggers without a correspondingly large heap
+ * for the garbage collector to trace.
+ * </p>
+ *
+ * <p>
+ * Jobs and calendars, of which there are usually few, are kept on the heap.
+ * Each trigger is a fixed-size record of primitive columns plus a small
+ * variable-length blob, and is indexed by key and by next fire time through
+ * primitive arrays only (see <code>{@link OffHeapTriggerTable}</code> and
+ * <code>{@link SlotTimeIndex}</code>).  <code>OperableTrigger</code>
+ * objects are only materialized when a trigger is acquired, fired or
+ * retrieved.
+ * </p>
+ *
+ * <p>
+ * Plain <code>{@link SimpleTriggerImpl}</code>s whose <code>JobDataMap</code>
+ * holds only strings, booleans and boxed numbers are stored field by field,
+ * which typically takes well under 150 bytes per trigger, and firing them
+ * only rewrites their primitive columns.  All other triggers are stored in
+ * serialized form, which is larger and slower to materialize, but keeps the
+ * store general.
+ * </p>
+ *
+ * <p>
+ * Operations on whole trigger groups, and on calendars, scan the trigger
+ * records rather than following per-group indexes.
+ * </p>
+ *
+ * <p>
+ * As with <code>RAMJobStore</code>, all data is lost when the JVM exits.
+ * </p>
+ */
+public class OffHeapRAMJobStore implements JobStore {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constants.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private static final byte KIND_SIMPLE = 1;
+
+    private static final byte KIND_SERIALIZED = 2;
+
+    private static final int FLAG_DESCRIPTION = 1;
+
+    private static final int FLAG_JOB_DATA = 2;
+
+    private static final byte TYPE_STRING = 1;
+
+    private static final byte TYPE_INTEGER = 2;
+
+    private static final byte TYPE_LONG = 3;
+
+    private static final byte TYPE_BOOLEAN = 4;
+
+    private static final byte TYPE_DOUBLE = 5;
+
+    private static final byte TYPE_FLOAT = 6;
+
+    /** Longest string that always fits <code>writeUTF()</code>. */
+    private static final int MAX_COMPACT_STRING = 65535 / 3;
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    protected HashMap<JobKey, JobRecord> jobsByKey = new HashMap<JobKey, JobRecord>(1000);
+
+    protected HashMap<String, HashMap<JobKey, JobRecord>> jobsByGroup = new HashMap<String, HashMap<JobKey, JobRecord>>(25);
+
+    protected HashMap<String, Calendar> calendarsByName = new HashMap<String, Calendar>(25);
+
+    protected final Object lock = new Object();
+
+    protected HashSet<String> pausedTriggerGroups = new HashSet<String>();
+
+    protected HashSet<String> pausedJobGroups = new HashSet<String>();
+
+    protected HashSet<JobKey> blockedJobs = new HashSet<JobKey>();
+
+    protected long misfireThreshold = 5000l;
+
+    protected SchedulerSignaler signaler;
+
+    private final ArrayList<JobRecord> jobsById = new ArrayList<JobRecord>();
+
+    private final LinkedList<Integer> freeJobIds = new LinkedList<Integer>();
+
+    private final NameIds triggerGroups = new NameIds();
+
+    private final NameIds calendarNames = new NameIds();
+
+    private final OffHeapTriggerTable triggers = new OffHeapTriggerTable();
+
+    private final SlotTimeIndex timeTriggers = new SlotTimeIndex();
+
+    private ClassLoadHelper classLoadHelper;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Create a new <code>OffHeapRAMJobStore</code>.
+     * </p>
+     */
+    public OffHeapRAMJobStore() {
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler schedSignaler)
+        throws SchedulerConfigException {
+
+        this.classLoadHelper = loadHelper;
+        this.signaler = schedSignaler;
+
+        getLog().info("OffHeapRAMJobStore initialized.");
+    }
+
+    public void schedulerStarted() {
+        // nothing to do
+    }
+
+    public void schedulerPaused() {
+        // nothing to do
+    }
+
+    public void schedulerResumed() {
+        // nothing to do
+    }
+
+    public long getMisfireThreshold() {
+        return misfireThreshold;
+    }
+
+    /**
+     * The number of milliseconds by which a trigger must have missed its
+     * next-fire-time, in order for it to be considered "misfired" and thus
+     * have its misfire instruction applied.
+     *
+     * @param misfireThreshold the new misfire threshold
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    public void setMisfireThreshold(long misfireThreshold) {
+        if (misfireThreshold < 1) {
+            throw new IllegalArgumentException("Misfire threshold must be larger than 0");
+        }
+        this.misfireThreshold = misfireThreshold;
+    }
+
+    /**
+     * @return the number of bytes currently held outside of the heap for
+     *         trigger records.
+     */
+    public long getOffHeapSize() {
+        synchronized (lock) {
+            return triggers.getOffHeapBytes();
+        }
+    }
+
+    public void shutdown() {
+    }
+
+    public boolean supportsPersistence() {
+        return false;
+    }
+
+    public void clearAllSchedulingData() throws JobPersistenceException {
+        synchronized (lock) {
+            triggers.clear();
+            timeTriggers.clear();
+            triggerGroups.clear();
+            calendarNames.clear();
+            jobsByKey.clear();
+            jobsByGroup.clear();
+            jobsById.clear();
+            freeJobIds.clear();
+            calendarsByName.clear();
+            blockedJobs.clear();
+        }
+    }
+
+    public void storeJobAndTrigger(JobDetail newJob,
+            OperableTrigger newTrigger) throws JobPersistenceException {
+        storeJob(newJob, false);
+        storeTrigger(newTrigger, false);
+    }
+
+    public void storeJob(JobDetail newJob,
+            boolean replaceExisting) throws JobPersistenceException {
+        JobDetail jobDetail = (JobDetail) newJob.clone();
+
+        synchronized (lock) {
+            JobRecord jr = jobsByKey.get(jobDetail.getKey());
+            if (jr != null) {
+                if (!replaceExisting) {
+                    throw new ObjectAlreadyExistsException(newJob);
+                }
+                jr.jobDetail = jobDetail;
+                return;
+            }
+
+            int id;
+            if (freeJobIds.isEmpty()) {
+                id = jobsById.size();
+                jobsById.add(null);
+            } else {
+                id = freeJobIds.removeFirst();
+            }
+            jr = new JobRecord(id, jobDetail);
+            jobsById.set(id, jr);
+            jobsByKey.put(jr.key, jr);
+
+            HashMap<JobKey, JobRecord> grpMap = jobsByGroup.get(jr.key.getGroup());
+            if (grpMap == null) {
+                grpMap = new HashMap<JobKey, JobRecord>(100);
+                jobsByGroup.put(jr.key.getGroup(), grpMap);
+            }
+            grpMap.put(jr.key, jr);
+        }
+    }
+
+    public boolean removeJob(JobKey jobKey) {
+
+        boolean found = false;
+
+        synchronized (lock) {
+            JobRecord jr = jobsByKey.get(jobKey);
+            if (jr != null) {
+                for (int slot : getTriggerSlotsForJob(jr)) {
+                    removeTrigger(slot, true);
+                    found = true;
+                }
+            }
+
+            jr = jobsByKey.remove(jobKey);
+            if (jr != null) {
+                found = true;
+                jobsById.set(jr.id, null);
+                freeJobIds.add(jr.id);
+
+                HashMap<JobKey, JobRecord> grpMap = jobsByGroup.get(jobKey.getGroup());
+                if (grpMap != null) {
+                    grpMap.remove(jobKey);
+                    if (grpMap.size() == 0) {
+                        jobsByGroup.remove(jobKey.getGroup());
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+
+    public boolean removeJobs(List<JobKey> jobKeys)
+            throws JobPersistenceException {
+        boolean allFound = true;
+
+        synchronized (lock) {
+            for (JobKey key : jobKeys) {
+                allFound = removeJob(key) && allFound;
+            }
+        }
+
+        return allFound;
+    }
+
+    public boolean removeTriggers(List<TriggerKey> triggerKeys)
+            throws JobPersistenceException {
+        boolean allFound = true;
+
+        synchronized (lock) {
+            for (TriggerKey key : triggerKeys) {
+                allFound = removeTrigger(key) && allFound;
+            }
+        }
+
+        return allFound;
+    }
+
+    public void storeJobsAndTriggers(
+            Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace)
+            throws JobPersistenceException {
+
+        synchronized (lock) {
+            // make sure there are no collisions...
+            if (!replace) {
+                for (Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+                    if (checkExists(e.getKey().getKey())) {
+                        throw new ObjectAlreadyExistsException(e.getKey());
+                    }
+                    for (Trigger trigger : e.getValue()) {
+                        if (checkExists(trigger.getKey())) {
+                            throw new ObjectAlreadyExistsException(trigger);
+                        }
+                    }
+                }
+            }
+            // do bulk add...
+            for (Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+                storeJob(e.getKey(), true);
+                for (Trigger trigger : e.getValue()) {
+                    storeTrigger((OperableTrigger) trigger, true);
+                }
+            }
+        }
+    }
+
+    public void storeTrigger(OperableTrigger newTrigger,
+            boolean replaceExisting) throws JobPersistenceException {
+
+        synchronized (lock) {
+            int existing = findTrigger(newTrigger.getKey());
+            if (existing >= 0) {
+                if (!replaceExisting) {
+                    throw new ObjectAlreadyExistsException(newTrigger);
+                }
+                removeTrigger(existing, false);
+            }
+
+            JobRecord jr = jobsByKey.get(newTrigger.getJobKey());
+            if (jr == null) {
+                throw new JobPersistenceException("The job ("
+                        + newTrigger.getJobKey()
+                        + ") referenced by the trigger does not exist.");
+            }
+
+            int slot = insertTrigger(newTrigger, jr);
+
+            if (pausedTriggerGroups.contains(newTrigger.getKey().getGroup())
+                    || pausedJobGroups.contains(newTrigger.getJobKey().getGroup())) {
+                setState(slot, TriggerWrapper.STATE_PAUSED);
+                if (blockedJobs.contains(jr.key)) {
+                    setState(slot, TriggerWrapper.STATE_PAUSED_BLOCKED);
+                }
+            } else if (blockedJobs.contains(jr.key)) {
+                setState(slot, TriggerWrapper.STATE_BLOCKED);
+            } else {
+                addToTimeIndex(slot);
+            }
+        }
+    }
+
+    public boolean removeTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            if (slot < 0) {
+                return false;
+            }
+            removeTrigger(slot, true);
+            return true;
+        }
+    }
+
+    private void removeTrigger(int slot, boolean removeOrphanedJob) {
+        JobRecord jr = jobsById.get(triggers.getInt(slot, JOB_ID));
+
+        timeTriggers.remove(slot);
+        unlinkFromJob(slot, jr);
+        triggerGroups.release(triggers.getInt(slot, GROUP_ID));
+        int calendarId = triggers.getInt(slot, CALENDAR_ID);
+        if (calendarId >= 0) {
+            calendarNames.release(calendarId);
+        }
+        triggers.free(slot);
+
+        if (removeOrphanedJob && jr.triggerCount == 0 && !jr.jobDetail.isDurable()) {
+            if (removeJob(jr.key)) {
+                signaler.notifySchedulerListenersJobDeleted(jr.key);
+            }
+        }
+    }
+
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            if (slot < 0) {
+                return false;
+            }
+
+            JobRecord jr = jobsById.get(triggers.getInt(slot, JOB_ID));
+            if (!jr.key.equals(newTrigger.getJobKey())) {
+                throw new JobPersistenceException("New trigger is not related to the same job as the old trigger.");
+            }
+
+            OperableTrigger oldTrigger = materialize(slot);
+            removeTrigger(slot, false);
+
+            try {
+                storeTrigger(newTrigger, false);
+            } catch (JobPersistenceException jpe) {
+                storeTrigger(oldTrigger, false); // put previous trigger back...
+                throw jpe;
+            }
+            return true;
+        }
+    }
+
+    public JobDetail retrieveJob(JobKey jobKey) {
+        synchronized (lock) {
+            JobRecord jr = jobsByKey.get(jobKey);
+            return (jr != null) ? (JobDetail) jr.jobDetail.clone() : null;
+        }
+    }
+
+    public OperableTrigger retrieveTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            return (slot >= 0) ? materialize(slot) : null;
+        }
+    }
+
+    public boolean checkExists(JobKey jobKey) throws JobPersistenceException {
+        synchronized (lock) {
+            return jobsByKey.containsKey(jobKey);
+        }
+    }
+
+    public boolean checkExists(TriggerKey triggerKey) throws JobPersistenceException {
+        synchronized (lock) {
+            return findTrigger(triggerKey) >= 0;
+        }
+    }
+
+    public TriggerState getTriggerState(TriggerKey triggerKey) throws JobPersistenceException {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            if (slot < 0) {
+                return TriggerState.NONE;
+            }
+
+            switch (getState(slot)) {
+                case TriggerWrapper.STATE_COMPLETE:
+                    return TriggerState.COMPLETE;
+                case TriggerWrapper.STATE_PAUSED:
+                case TriggerWrapper.STATE_PAUSED_BLOCKED:
+                    return TriggerState.PAUSED;
+                case TriggerWrapper.STATE_BLOCKED:
+                    return TriggerState.BLOCKED;
+                case TriggerWrapper.STATE_ERROR:
+                    return TriggerState.ERROR;
+                default:
+                    return TriggerState.NORMAL;
+            }
+        }
+    }
+
+    public void storeCalendar(String name,
+            Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+        throws JobPersistenceException {
+
+        calendar = (Calendar) calendar.clone();
+
+        synchronized (lock) {
+            Calendar obj = calendarsByName.get(name);
+
+            if (obj != null && !replaceExisting) {
+                throw new ObjectAlreadyExistsException(
+                    "Calendar with name '" + name + "' already exists.");
+            }
+
+            calendarsByName.put(name, calendar);
+
+            int calendarId = calendarNames.find(name);
+            if (obj != null && updateTriggers && calendarId >= 0) {
+                for (int slot = 0; slot < triggers.slotLimit(); slot++) {
+                    if (!triggers.inUse(slot) || triggers.getInt(slot, CALENDAR_ID) != calendarId) {
+                        continue;
+                    }
+                    OperableTrigger trig = materialize(slot);
+                    boolean removed = timeTriggers.remove(slot);
+
+                    trig.updateWithNewCalendar(calendar, getMisfireThreshold());
+                    updateSchedule(slot, trig);
+
+                    if (removed) {
+                        addToTimeIndex(slot);
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean removeCalendar(String calName)
+        throws JobPersistenceException {
+        synchronized (lock) {
+            int calendarId = calendarNames.find(calName);
+            if (calendarId >= 0 && calendarNames.count(calendarId) > 0) {
+                throw new JobPersistenceException(
+                        "Calender cannot be removed if it referenced by a Trigger!");
+            }
+
+            return (calendarsByName.remove(calName) != null);
+        }
+    }
+
+    public Calendar retrieveCalendar(String calName) {
+        synchronized (lock) {
+            Calendar cal = calendarsByName.get(calName);
+            return (cal != null) ? (Calendar) cal.clone() : null;
+        }
+    }
+
+    public int getNumberOfJobs() {
+        synchronized (lock) {
+            return jobsByKey.size();
+        }
+    }
+
+    public int getNumberOfTriggers() {
+        synchronized (lock) {
+            return triggers.size();
+        }
+    }
+
+    public int getNumberOfCalendars() {
+        synchronized (lock) {
+            return calendarsByName.size();
+        }
+    }
+
+    public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) {
+        Set<JobKey> outList = new HashSet<JobKey>();
+        synchronized (lock) {
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            String compareToValue = matcher.getCompareToValue();
+
+            for (Map.Entry<String, HashMap<JobKey, JobRecord>> entry : jobsByGroup.entrySet()) {
+                if (operator.evaluate(entry.getKey(), compareToValue)) {
+                    outList.addAll(entry.getValue().keySet());
+                }
+            }
+        }
+        return outList;
+    }
+
+    public List<String> getCalendarNames() {
+        synchronized (lock) {
+            return new LinkedList<String>(calendarsByName.keySet());
+        }
+    }
+
+    public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) {
+        Set<TriggerKey> outList = new HashSet<TriggerKey>();
+        synchronized (lock) {
+            boolean[] groups = matchTriggerGroups(matcher);
+            if (groups == null) {
+                return outList;
+            }
+            for (int slot = 0; slot < triggers.slotLimit(); slot++) {
+                if (triggers.inUse(slot) && groups[triggers.getInt(slot, GROUP_ID)]) {
+                    outList.add(getTriggerKey(slot));
+                }
+            }
+        }
+        return outList;
+    }
+
+    public List<String> getJobGroupNames() {
+        synchronized (lock) {
+            return new LinkedList<String>(jobsByGroup.keySet());
+        }
+    }
+
+    public List<String> getTriggerGroupNames() {
+        synchronized (lock) {
+            return new LinkedList<String>(triggerGroups.names());
+        }
+    }
+
+    public List<OperableTrigger> getTriggersForJob(JobKey jobKey) {
+        ArrayList<OperableTrigger> trigList = new ArrayList<OperableTrigger>();
+
+        synchronized (lock) {
+            JobRecord jr = jobsByKey.get(jobKey);
+            if (jr != null) {
+                for (int slot : getTriggerSlotsForJob(jr)) {
+                    trigList.add(materialize(slot));
+                }
+            }
+        }
+
+        return trigList;
+    }
+
+    public void pauseTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            if (slot >= 0) {
+                pauseTrigger(slot);
+            }
+        }
+    }
+
+    private void pauseTrigger(int slot) {
+        int state = getState(slot);
+
+        // if the trigger is "complete" pausing it does not make sense...
+        if (state == TriggerWrapper.STATE_COMPLETE) {
+            return;
+        }
+
+        if (state == TriggerWrapper.STATE_BLOCKED) {
+            setState(slot, TriggerWrapper.STATE_PAUSED_BLOCKED);
+        } else {
+            setState(slot, TriggerWrapper.STATE_PAUSED);
+        }
+
+        timeTriggers.remove(slot);
+    }
+
+    public List<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) {
+
+        List<String> pausedGroups = new LinkedList<String>();
+        synchronized (lock) {
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            switch (operator) {
+                case EQUALS:
+                    if (pausedTriggerGroups.add(matcher.getCompareToValue())) {
+                        pausedGroups.add(matcher.getCompareToValue());
+                    }
+                    break;
+                default:
+                    for (String group : triggerGroups.names()) {
+                        if (operator.evaluate(group, matcher.getCompareToValue())) {
+                            if (pausedTriggerGroups.add(group)) {
+                                pausedGroups.add(group);
+                            }
+                        }
+                    }
+            }
+
+            boolean[] groups = new boolean[triggerGroups.size()];
+            boolean any = false;
+            for (String pausedGroup : pausedGroups) {
+                int groupId = triggerGroups.find(pausedGroup);
+                if (groupId >= 0) {
+                    groups[groupId] = true;
+                    any = true;
+                }
+            }
+            for (int slot = 0; any && slot < triggers.slotLimit(); slot++) {
+                if (triggers.inUse(slot) && groups[triggers.getInt(slot, GROUP_ID)]) {
+                    pauseTrigger(slot);
+                }
+            }
+        }
+
+        return pausedGroups;
+    }
+
+    public void pauseJob(JobKey jobKey) {
+        synchronized (lock) {
+            JobRecord jr = jobsByKey.get(jobKey);
+            if (jr != null) {
+                for (int slot : getTriggerSlotsForJob(jr)) {
+                    pauseTrigger(slot);
+                }
+            }
+        }
+    }
+
+    public List<String> pauseJobs(GroupMatcher<JobKey> matcher) {
+        List<String> pausedGroups = new LinkedList<String>();
+        synchronized (lock) {
+
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            switch (operator) {
+                case EQUALS:
+                    if (pausedJobGroups.add(matcher.getCompareToValue())) {
+                        pausedGroups.add(matcher.getCompareToValue());
+                    }
+                    break;
+                default:
+                    for (String group : jobsByGroup.keySet()) {
+                        if (operator.evaluate(group, matcher.getCompareToValue())) {
+                            if (pausedJobGroups.add(group)) {
+                                pausedGroups.add(group);
+                            }
+                        }
+                    }
+            }
+
+            for (String groupName : pausedGroups) {
+                HashMap<JobKey, JobRecord> grpMap = jobsByGroup.get(groupName);
+                if (grpMap == null) {
+                    continue;
+                }
+                for (JobRecord jr : grpMap.values()) {
+                    for (int slot : getTriggerSlotsForJob(jr)) {
+                        pauseTrigger(slot);
+                    }
+                }
+            }
+        }
+
+        return pausedGroups;
+    }
+
+    public void resumeTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            int slot = findTrigger(triggerKey);
+            if (slot >= 0) {
+                resumeTrigger(slot);
+            }
+        }
+    }
+
+    private void resumeTrigger(int slot) {
+        int state = getState(slot);
+
+        // if the trigger is not paused resuming it does not make sense...
+        if (state != TriggerWrapper.STATE_PAUSED && state != TriggerWrapper.STATE_PAUSED_BLOCKED) {
+            return;
+        }
+
+        JobRecord jr = jobsById.get(triggers.getInt(slot, JOB_ID));
+        if (blockedJobs.contains(jr.key)) {
+            setState(slot, TriggerWrapper.STATE_BLOCKED);
+        } else {
+            setState(slot, TriggerWrapper.STATE_WAITING);
+        }
+
+        applyMisfire(slot);
+
+        if (getState(slot) == TriggerWrapper.STATE_WAITING) {
+            addToTimeIndex(slot);
+        }
+    }
+
+    public List<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) {
+        Set<String> groups = new HashSet<String>();
+
+        synchronized (lock) {
+            boolean[] matched = matchTriggerGroups(matcher);
+            for (int slot = 0; matched != null && slot < triggers.slotLimit(); slot++) {
+                if (!triggers.inUse(slot)) {
+                    continue;
+                }
+                int groupId = triggers.getInt(slot, GROUP_ID);
+                if (!matched[groupId]) {
+                    continue;
+                }
+                groups.add(triggerGroups.name(groupId));
+                JobRecord jr = jobsById.get(triggers.getInt(slot, JOB_ID));
+                if (pausedJobGroups.contains(jr.key.getGroup())) {
+                    continue;
+                }
+                resumeTrigger(slot);
+            }
+            for (String group : groups) {
+                pausedTriggerGroups.remove(group);
+            }
+        }
+
+        return new ArrayList<String>(groups);
+    }
+
+    public void resumeJob(JobKey jobKey) {
+        synchronized (lock) {
+            JobRecord jr = jobsByKey.get(jobKey);
+            if (jr != null) {
+                for (int slot : getTriggerSlotsForJob(jr)) {
+                    resumeTrigger(slot);
+                }
+            }
+        }
+    }
+
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) {
+        Set<String> resumedGroups = new HashSet<String>();
+        synchronized (lock) {
+            Set<JobKey> keys = getJobKeys(matcher);
+
+            for (String pausedJobGroup : pausedJobGroups) {
+                if (matcher.getCompareWithOperator().evaluate(pausedJobGroup, matcher.getCompareToValue())) {
+                    resumedGroups.add(pausedJobGroup);
+                }
+            }
+
+            for (String resumedGroup : resumedGroups) {
+                pausedJobGroups.remove(resumedGroup);
+            }
+
+            for (JobKey key : keys) {
+                for (int slot : getTriggerSlotsForJob(jobsByKey.get(key))) {
+                    resumeTrigger(slot);
+                }
+            }
+        }
+        return resumedGroups;
+    }
+
+    public void pauseAll() {
+        synchronized (lock) {
+            for (String name : getTriggerGroupNames()) {
+                pauseTriggers(GroupMatcher.triggerGroupEquals(name));
+            }
+        }
+    }
+
+    public void resumeAll() {
+        synchronized (lock) {
+            pausedJobGroups.clear();
+            resumeTriggers(GroupMatcher.anyTriggerGroup());
+        }
+    }
+
+    public Set<String> getPausedTriggerGroups() throws JobPersistenceException {
+        synchronized (lock) {
+            return new HashSet<String>(pausedTriggerGroups);
+        }
+    }
+
+    /**
+     * Apply the misfire instruction of the trigger if it has misfired.  The
+     * trigger is only materialized if it has.
+     *
+     * @return whether the trigger's next fire time was changed.
+     */
+    private boolean applyMisfire(int slot) {
+
+        long misfireTime = System.currentTimeMillis();
+        if (getMisfireThreshold() > 0) {
+            misfireTime -= getMisfireThreshold();
+        }
+
+        long tnft = triggers.getLong(slot, NEXT_FIRE_TIME);
+        if (tnft == NULL_TIME || tnft > misfireTime
+                || triggers.getInt(slot, MISFIRE_INSTRUCTION) == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
+            return false;
+        }
+
+        OperableTrigger trig = materialize(slot);
+        signaler.notifyTriggerListenersMisfired((OperableTrigger) trig.clone());
+
+        trig.updateAfterMisfire(getCalendar(slot));
+        updateSchedule(slot, trig);
+
+        if (trig.getNextFireTime() == null) {
+            setState(slot, TriggerWrapper.STATE_COMPLETE);
+            signaler.notifySchedulerListenersFinalized(trig);
+            timeTriggers.remove(slot);
+        } else if (tnft == trig.getNextFireTime().getTime()) {
+            return false;
+        }
+
+        return true;
+    }
+
+    private static final AtomicLong ftrCtr = new AtomicLong(System.currentTimeMillis());
+
+    protected String getFiredTriggerRecordId() {
+        return String.valueOf(ftrCtr.incrementAndGet());
+    }
+
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
+        synchronized (lock) {
+            List<OperableTrigger> result = new ArrayList<OperableTrigger>();
+            Set<JobKey> acquiredJobKeysForNoConcurrentExec = new HashSet<JobKey>();
+            List<Integer> excludedTriggers = new ArrayList<Integer>();
+
+            while (!timeTriggers.isEmpty()) {
+                int slot = timeTriggers.peek();
+                long nft = triggers.getLong(slot, NEXT_FIRE_TIME);
+                // leave the earliest trigger in place if it is not due within
+                // the window (it cannot have misfired either, then)
+                if (nft != NULL_TIME && timeTriggers.peekFireTime() > noLaterThan + timeWindow) {
+                    break;
+                }
+                timeTriggers.remove(slot);
+
+                if (nft == NULL_TIME) {
+                    continue;
+                }
+
+                if (applyMisfire(slot)) {
+                    if (triggers.getLong(slot, NEXT_FIRE_TIME) != NULL_TIME) {
+                        addToTimeIndex(slot);
+                    }
+                    continue;
+                }
+
+                if (triggers.getLong(slot, NEXT_FIRE_TIME) > noLaterThan + timeWindow) {
+                    addToTimeIndex(slot);
+                    break;
+                }
+
+                // If trigger's job is set as @DisallowConcurrentExecution, and it has already been added to result, then
+                // put it back into the time index and continue to search for next trigger.
+                JobRecord jr = jobsById.get(triggers.getInt(slot, JOB_ID));
+                if (jr.jobDetail.isConcurrentExectionDisallowed()) {
+                    if (!acquiredJobKeysForNoConcurrentExec.add(jr.key)) {
+                        excludedTriggers.add(slot);
+                        continue; // go to next trigger in store.
+                    }
+                }
+
+                setState(slot, TriggerWrapper.STATE_ACQUIRED);
+                OperableTrigger trig = materialize(slot);
+                trig.setFireInstanceId(getFiredTriggerRecordId());
+                result.add(trig);
+
+                if (result.size() == maxCount) {
+                    break;
+                }
+            }
+
+            // If we did excluded triggers to prevent ACQUIRE state due to DisallowConcurrentExecution, we need to add them back to store.
+            for (int slot : excludedTriggers) {
+                addToTimeIndex(slot);
+            }
+            return result;
+        }
+    }
+
+    public void releaseAcquiredTrigger(OperableTrigger trigger) {
+        synchronized (lock) {
+            int slot = findTrigger(trigger.getKey());
+            if (slot >= 0 && getState(slot) == TriggerWrapper.STATE_ACQUIRED) {
+                setState(slot, TriggerWrapper.STATE_WAITING);
+                addToTimeIndex(slot);
+            }
+        }
+    }
+
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) {
+
+        synchronized (lock) {
+            List<TriggerFiredResult> results = new ArrayList<TriggerFiredResult>();
+
+            for (OperableTrigger trigger : firedTriggers) {
+                int slot = findTrigger(trigger.getKey());
+                // was the trigger deleted since being acquired?
+                if (slot < 0) {
+                    continue;
+                }
+                // was the trigger completed, paused, blocked, etc. since being acquired?
+                if (getState(slot) != TriggerWrapper.STATE_ACQUIRED) {
+                    continue;
+                }
+                // was another trigger of its non-concurrent job fired since (by
+                // a scheduler thread acquiring ahead)?
+                JobRecord jr = jobsById.get(triggers.getInt(slot, JOB_ID));
+                if (blockedJobs.contains(jr.key)) {
+                    setState(slot, TriggerWrapper.STATE_BLOCKED);
+                    continue;
+                }
+
+                Calendar cal = null;
+                if (triggers.getInt(slot, CALENDAR_ID) >= 0) {
+                    cal = getCalendar(slot);
+                    if (cal == null) {
+                        continue;
+                    }
+                }
+
+                // in case trigger was replaced between acquiring and firing
+                timeTriggers.remove(slot);
+
+                // the materialized trigger is handed to the scheduler, and
+                // only its schedule is written back to the record
+                OperableTrigger firedTrigger = materialize(slot);
+                Date prevFireTime = firedTrigger.getPreviousFireTime();
+                firedTrigger.triggered(cal);
+                updateSchedule(slot, firedTrigger);
+                firedTrigger.setFireInstanceId(trigger.getFireInstanceId());
+                setState(slot, TriggerWrapper.STATE_WAITING);
+
+                TriggerFiredBundle bndle = new TriggerFiredBundle((JobDetail) jr.jobDetail.clone(),
+                        firedTrigger, (cal == null) ? null : (Calendar) cal.clone(),
+                        false, new Date(), firedTrigger.getPreviousFireTime(), prevFireTime,
+                        firedTrigger.getNextFireTime());
+
+                if (jr.jobDetail.isConcurrentExectionDisallowed()) {
+                    for (int jobSlot : getTriggerSlotsForJob(jr)) {
+                        int state = getState(jobSlot);
+                        if (state == TriggerWrapper.STATE_WAITING) {
+                            setState(jobSlot, TriggerWrapper.STATE_BLOCKED);
+                        }
+                        if (state == TriggerWrapper.STATE_PAUSED) {
+                            setState(jobSlot, TriggerWrapper.STATE_PAUSED_BLOCKED);
+                        }
+                        timeTriggers.remove(jobSlot);
+                    }
+                    blockedJobs.add(jr.key);
+                } else if (firedTrigger.getNextFireTime() != null) {
+                    addToTimeIndex(slot);
+                }
+
+                results.add(new TriggerFiredResult(bndle));
+            }
+            return results;
+        }
+    }
+
+    public void triggeredJobComplete(OperableTrigger trigger,
+            JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+
+        synchronized (lock) {
+
+            JobRecord jr = jobsByKey.get(jobDetail.getKey());
+            int slot = findTrigger(trigger.getKey());
+
+            // It's possible that the job is null if it was deleted during execution
+            if (jr != null) {
+                JobDetail jd = jr.jobDetail;
+
+                if (jd.isPersistJobDataAfterExecution()) {
+                    JobDataMap newData = jobDetail.getJobDataMap();
+                    if (newData != null) {
+                        newData = (JobDataMap) newData.clone();
+                        newData.clearDirtyFlag();
+                    }
+                    jd = jd.getJobBuilder().setJobData(newData).build();
+                    jr.jobDetail = jd;
+                }
+                if (jd.isConcurrentExectionDisallowed()) {
+                    blockedJobs.remove(jd.getKey());
+                    for (int jobSlot : getTriggerSlotsForJob(jr)) {
+                        int state = getState(jobSlot);
+                        if (state == TriggerWrapper.STATE_BLOCKED) {
+                            setState(jobSlot, TriggerWrapper.STATE_WAITING);
+                            addToTimeIndex(jobSlot);
+                        }
+                        if (state == TriggerWrapper.STATE_PAUSED_BLOCKED) {
+                            setState(jobSlot, TriggerWrapper.STATE_PAUSED);
+                        }
+                    }
+                    signaler.signalSchedulingChange(0L);
+                }
+            } else { // even if it was deleted, there may be cleanup to do
+                blockedJobs.remove(jobDetail.getKey());
+            }
+
+            // check for trigger deleted during execution...
+            if (slot >= 0) {
+                if (triggerInstCode == CompletedExecutionInstruction.DELETE_TRIGGER) {
+
+                    if (trigger.getNextFireTime() == null) {
+                        // double check for possible reschedule within job
+                        // execution, which would cancel the need to delete...
+                        if (triggers.getLong(slot, NEXT_FIRE_TIME) == NULL_TIME) {
+                            removeTrigger(slot, true);
+                        }
+                    } else {
+                        removeTrigger(slot, true);
+                        signaler.signalSchedulingChange(0L);
+                    }
+                } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE) {
+                    setState(slot, TriggerWrapper.STATE_COMPLETE);
+                    timeTriggers.remove(slot);
+                    signaler.signalSchedulingChange(0L);
+                } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
+                    getLog().info("Trigger " + trigger.getKey() + " set to ERROR state.");
+                    setState(slot, TriggerWrapper.STATE_ERROR);
+                    signaler.signalSchedulingChange(0L);
+                } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
+                    getLog().info("All triggers of Job "
+                            + trigger.getJobKey() + " set to ERROR state.");
+                    setAllTriggersOfJobToState(trigger.getJobKey(), TriggerWrapper.STATE_ERROR);
+                    signaler.signalSchedulingChange(0L);
+                } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE) {
+                    setAllTriggersOfJobToState(trigger.getJobKey(), TriggerWrapper.STATE_COMPLETE);
+                    signaler.signalSchedulingChange(0L);
+                }
+            }
+        }
+    }
+
+    private void setAllTriggersOfJobToState(JobKey jobKey, int state) {
+        JobRecord jr = jobsByKey.get(jobKey);
+        if (jr == null) {
+            return;
+        }
+        for (int slot : getTriggerSlotsForJob(jr)) {
+            setState(slot, state);
+            if (state != TriggerWrapper.STATE_WAITING) {
+                timeTriggers.remove(slot);
+            }
+        }
+    }
+
+    public void setInstanceId(String schedInstId) {
+        //
+    }
+
+    public void setInstanceName(String schedName) {
+        //
+    }
+
+    public void setThreadPoolSize(final int poolSize) {
+        //
+    }
+
+    public long getEstimatedTimeToReleaseAndAcquireTrigger() {
+        return 5;
+    }
+
+    public boolean isClustered() {
+        return false;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Trigger records.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private int findTrigger(TriggerKey key) {
+        int groupId = triggerGroups.find(key.getGroup());
+        if (groupId < 0) {
+            return -1;
+        }
+        byte[] name;
+        try {
+            name = OffHeapTriggerTable.encodeName(key.getName());
+        } catch (UTFDataFormatException e) {
+            return -1; // too long to have been stored
+        }
+        return triggers.find(groupId, name, OffHeapTriggerTable.hash(groupId, key.getName()));
+    }
+
+    private TriggerKey getTriggerKey(int slot) {
+        return new TriggerKey(triggers.getName(slot), triggerGroups.name(triggers.getInt(slot, GROUP_ID)));
+    }
+
+    private int getState(int slot) {
+        return triggers.getByte(slot, STATE);
+    }
+
+    private void setState(int slot, int state) {
+        triggers.setByte(slot, STATE, (byte) state);
+    }
+
+    private void addToTimeIndex(int slot) {
+        long nft = triggers.getLong(slot, NEXT_FIRE_TIME);
+        timeTriggers.add(slot, (nft == NULL_TIME) ? Long.MAX_VALUE : nft, triggers.getInt(slot, PRIORITY));
+    }
+
+    private Calendar getCalendar(int slot) {
+        int calendarId = triggers.getInt(slot, CALENDAR_ID);
+        return (calendarId < 0) ? null : calendarsByName.get(calendarNames.name(calendarId));
+    }
+
+    /**
+     * @return the slots of the job's triggers, in the order they were stored.
+     */
+    private int[] getTriggerSlotsForJob(JobRecord jr) {
+        int[] slots = new int[jr.triggerCount];
+        int i = 0;
+        for (int slot = jr.firstTrigger; slot >= 0; slot = triggers.getInt(slot, NEXT_IN_JOB)) {
+            slots[i++] = slot;
+        }
+        return slots;
+    }
+
+    private int insertTrigger(OperableTrigger trigger, JobRecord jr) throws JobPersistenceException {
+        byte kind = isCompact(trigger) ? KIND_SIMPLE : KIND_SERIALIZED;
+        byte[] blob = encode(trigger, kind);
+
+        int groupId = triggerGroups.acquire(trigger.getKey().getGroup());
+        int calendarId = (trigger.getCalendarName() == null) ? -1 : calendarNames.acquire(trigger.getCalendarName());
+
+        int slot = triggers.allocate(kind);
+        triggers.setBlob(slot, blob);
+        writeColumns(slot, trigger);
+        triggers.setInt(slot, GROUP_ID, groupId);
+        triggers.setInt(slot, CALENDAR_ID, calendarId);
+        triggers.setInt(slot, JOB_ID, jr.id);
+        triggers.index(slot, OffHeapTriggerTable.hash(groupId, trigger.getKey().getName()));
+
+        // append to the job's list of triggers
+        triggers.setInt(slot, NEXT_IN_JOB, -1);
+        triggers.setInt(slot, PREVIOUS_IN_JOB, jr.lastTrigger);
+        if (jr.lastTrigger >= 0) {
+            triggers.setInt(jr.lastTrigger, NEXT_IN_JOB, slot);
+        } else {
+            jr.firstTrigger = slot;
+        }
+        jr.lastTrigger = slot;
+        jr.triggerCount++;
+        return slot;
+    }
+
+    private void unlinkFromJob(int slot, JobRecord jr) {
+        int next = triggers.getInt(slot, NEXT_IN_JOB);
+        int prev = triggers.getInt(slot, PREVIOUS_IN_JOB);
+        if (prev >= 0) {
+            triggers.setInt(prev, NEXT_IN_JOB, next);
+        } else {
+            jr.firstTrigger = next;
+        }
+        if (next >= 0) {
+            triggers.setInt(next, PREVIOUS_IN_JOB, prev);
+        } else {
+            jr.lastTrigger = prev;
+        }
+        jr.triggerCount--;
+    }
+
+    /**
+     * Write back the schedule of a materialized trigger, after it was fired
+     * or had its misfire instruction or a new calendar applied.
+     */
+    private void updateSchedule(int slot, OperableTrigger trigger) {
+        if (triggers.getByte(slot, KIND) == KIND_SERIALIZED) {
+            try {
+                triggers.setBlob(slot, encode(trigger, KIND_SERIALIZED));
+            } catch (JobPersistenceException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        }
+        writeColumns(slot, trigger);
+    }
+
+    private void writeColumns(int slot, OperableTrigger trigger) {
+        triggers.setLong(slot, NEXT_FIRE_TIME, toMillis(trigger.getNextFireTime()));
+        triggers.setLong(slot, PREVIOUS_FIRE_TIME, toMillis(trigger.getPreviousFireTime()));
+        triggers.setLong(slot, START_TIME, toMillis(trigger.getStartTime()));
+        triggers.setLong(slot, END_TIME, toMillis(trigger.getEndTime()));
+        triggers.setInt(slot, PRIORITY, trigger.getPriority());
+        triggers.setInt(slot, MISFIRE_INSTRUCTION, trigger.getMisfireInstruction());
+        if (trigger instanceof SimpleTriggerImpl) {
+            SimpleTriggerImpl st = (SimpleTriggerImpl) trigger;
+            triggers.setLong(slot, REPEAT_INTERVAL, st.getRepeatInterval());
+            triggers.setInt(slot, REPEAT_COUNT, st.getRepeatCount());
+            triggers.setInt(slot, TIMES_TRIGGERED, st.getTimesTriggered());
+        }
+    }
+
+    private static long toMillis(Date date) {
+        return (date == null) ? NULL_TIME : date.getTime();
+    }
+
+    private static Date toDate(long millis) {
+        return (millis == NULL_TIME) ? null : new Date(millis);
+    }
+
+    /**
+     * @return whether the trigger can be stored field by field.
+     */
+    private static boolean isCompact(OperableTrigger trigger) {
+        if (trigger.getClass() != SimpleTriggerImpl.class) {
+            return false;
+        }
+        if (trigger.getDescription() != null && trigger.getDescription().length() > MAX_COMPACT_STRING) {
+            return false;
+        }
+        for (Map.Entry<String, Object> entry : trigger.getJobDataMap().entrySet()) {
+            Object value = entry.getValue();
+            if (entry.getKey().length() > MAX_COMPACT_STRING) {
+                return false;
+            }
+            if (value instanceof String) {
+                if (((String) value).length() > MAX_COMPACT_STRING) {
+                    return false;
+                }
+            } else if (!(value instanceof Integer || value instanceof Long || value instanceof Boolean
+                    || value instanceof Double || value instanceof Float)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] encode(OperableTrigger trigger, byte kind) throws JobPersistenceException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(64);
+        try {
+            baos.write(OffHeapTriggerTable.encodeName(trigger.getKey().getName()));
+            if (kind == KIND_SERIALIZED) {
+                ObjectOutputStream out = new ObjectOutputStream(baos);
+                out.writeObject(trigger);
+                out.close();
+                return baos.toByteArray();
+            }
+
+            DataOutputStream out = new DataOutputStream(baos);
+            JobDataMap data = trigger.getJobDataMap();
+            int flags = (trigger.getDescription() != null ? FLAG_DESCRIPTION : 0)
+                    | (data.isEmpty() ? 0 : FLAG_JOB_DATA);
+            out.writeByte(flags);
+            if (trigger.getDescription() != null) {
+                out.writeUTF(trigger.getDescription());
+            }
+            if (!data.isEmpty()) {
+                out.writeInt(data.size());
+                for (Map.Entry<String, Object> entry : data.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    Object value = entry.getValue();
+                    if (value instanceof String) {
+                        out.writeByte(TYPE_STRING);
+                        out.writeUTF((String) value);
+                    } else if (value instanceof Integer) {
+                        out.writeByte(TYPE_INTEGER);
+                        out.writeInt((Integer) value);
+                    } else if (value instanceof Long) {
+                        out.writeByte(TYPE_LONG);
+                        out.writeLong((Long) value);
+                    } else if (value instanceof Boolean) {
+                        out.writeByte(TYPE_BOOLEAN);
+                        out.writeBoolean((Boolean) value);
+                    } else if (value instanceof Double) {
+                        out.writeByte(TYPE_DOUBLE);
+                        out.writeDouble((Double) value);
+                    } else {
+                        out.writeByte(TYPE_FLOAT);
+                        out.writeFloat((Float) value);
+                    }
+                }
+            }
+            out.close();
+            return baos.toByteArray();
+        } catch (IOException e) {
+            throw new JobPersistenceException("Couldn't store trigger " + trigger.getKey() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Create a new <code>OperableTrigger</code> from the record.
+     */
+    private OperableTrigger materialize(int slot) {
+        byte[] blob = triggers.getBlob(slot);
+        TriggerKey key = getTriggerKey(slot);
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(blob));
+            in.readUTF(); // the name
+
+            if (triggers.getByte(slot, KIND) == KIND_SERIALIZED) {
+                ObjectInputStream ois = new ClassLoadHelperObjectInputStream(in, classLoadHelper);
+                try {
+                    return (OperableTrigger) ois.readObject();
+                } finally {
+                    ois.close();
+                }
+            }
+
+            SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+            trigger.setKey(key);
+            trigger.setJobKey(jobsById.get(triggers.getInt(slot, JOB_ID)).key);
+            long startTime = triggers.getLong(slot, START_TIME);
+            if (startTime != NULL_TIME) {
+                trigger.setStartTime(new Date(startTime));
+            }
+            trigger.setEndTime(toDate(triggers.getLong(slot, END_TIME)));
+            trigger.setNextFireTime(toDate(triggers.getLong(slot, NEXT_FIRE_TIME)));
+            trigger.setPreviousFireTime(toDate(triggers.getLong(slot, PREVIOUS_FIRE_TIME)));
+            trigger.setRepeatCount(triggers.getInt(slot, REPEAT_COUNT));
+            trigger.setRepeatInterval(triggers.getLong(slot, REPEAT_INTERVAL));
+            trigger.setTimesTriggered(triggers.getInt(slot, TIMES_TRIGGERED));
+            trigger.setPriority(triggers.getInt(slot, PRIORITY));
+            trigger.setMisfireInstruction(triggers.getInt(slot, MISFIRE_INSTRUCTION));
+            int calendarId = triggers.getInt(slot, CALENDAR_ID);
+            if (calendarId >= 0) {
+                trigger.setCalendarName(calendarNames.name(calendarId));
+            }
+
+            int flags = in.readByte();
+            if ((flags & FLAG_DESCRIPTION) != 0) {
+                trigger.setDescription(in.readUTF());
+            }
+            if ((flags & FLAG_JOB_DATA) != 0) {
+                JobDataMap data = new JobDataMap();
+                for (int i = in.readInt(); i > 0; i--) {
+                    String name = in.readUTF();
+                    switch (in.readByte()) {
+                        case TYPE_STRING:
+                            data.put(name, in.readUTF());
+                            break;
+                        case TYPE_INTEGER:
+                            data.put(name, in.readInt());
+                            break;
+                        case TYPE_LONG:
+                            data.put(name, in.readLong());
+                            break;
+                        case TYPE_BOOLEAN:
+                            data.put(name, in.readBoolean());
+                            break;
+                        case TYPE_DOUBLE:
+                            data.put(name, in.readDouble());
+                            break;
+                        default:
+                            data.put(name, in.readFloat());
+                    }
+                }
+                data.clearDirtyFlag();
+                trigger.setJobDataMap(data);
+            }
+            return trigger;
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read trigger " + key + ": " + e.getMessage(), e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Couldn't read trigger " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return which trigger group ids match, or <code>null</code> if none do.
+     */
+    private boolean[] matchTriggerGroups(GroupMatcher<TriggerKey> matcher) {
+        StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+        boolean[] matched = new boolean[triggerGroups.size()];
+        boolean any = false;
+        for (int id = 0; id < matched.length; id++) {
+            String name = triggerGroups.name(id);
+            if (triggerGroups.count(id) > 0 && operator.evaluate(name, matcher.getCompareToValue())) {
+                matched[id] = true;
+                any = true;
+            }
+        }
+        return any ? matched : null;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Helper Classes.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * A stored job, and the head and tail of the list of its triggers, which
+     * is threaded through the trigger records.
+     */
+    protected static class JobRecord {
+
+        final int id;
+
+        final JobKey key;
+
+        JobDetail jobDetail;
+
+        int firstTrigger = -1;
+
+        int lastTrigger = -1;
+
+        int triggerCount;
+
+        JobRecord(int id, JobDetail jobDetail) {
+            this.id = id;
+            this.jobDetail = jobDetail;
+            this.key = jobDetail.getKey();
+        }
+    }
+
+    /**
+     * Maps the few distinct names used by many records - trigger groups and
+     * calendar names - to small ids, counting the records using each.
+     */
+    private static class NameIds {
+
+        private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+
+        private final ArrayList<String> names = new ArrayList<String>();
+
+        private int[] counts = new int[16];
+
+        int size() {
+            return names.size();
+        }
+
+        int find(String name) {
+            Integer id = ids.get(name);
+            return (id == null) ? -1 : id;
+        }
+
+        String name(int id) {
+            return names.get(id);
+        }
+
+        int count(int id) {
+            return counts[id];
+        }
+
+        /**
+         * @return the id of the name, after counting one more use of it.
+         */
+        int acquire(String name) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                names.add(name);
+                ids.put(name, id);
+                if (id == counts.length) {
+                    counts = Arrays.copyOf(counts, id << 1);
+                }
+            }
+            counts[id]++;
+            return id;
+        }
+
+        void release(int id) {
+            counts[id]--;
+        }
+
+        /**
+         * @return the names that are in use.
+         */
+        List<String> names() {
+            List<String> inUse = new ArrayList<String>();
+            for (int id = 0; id < names.size(); id++) {
+                if (counts[id] > 0) {
+                    inUse.add(names.get(id));
+                }
+            }
+            return inUse;
+        }
+
+        void clear() {
+            ids.clear();
+            names.clear();
+            counts = new int[16];
+        }
+    }
+}
@@ -0,0 +1,503 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * The trigger records of an <code>{@link OffHeapRAMJobStore}</code>, kept
+ * outside of the Java heap.
+ * </p>
+ *
+ * <p>
+ * Each trigger occupies a fixed-size <i>slot</i> of primitive columns
+ * (fire times, repeat settings, state and the ids of its group, job and
+ * calendar), held in direct buffers of {@value #SLOTS_PER_PAGE} slots each.
+ * The variable-length part of a record - its name, followed by whatever
+ * the store encodes after it - lives in an arena of direct buffer chunks
+ * and is addressed from the slot.  Arena space given up by rewritten or
+ * removed records is reclaimed by copying the live records into a fresh
+ * arena once it exceeds the live data.
+ * </p>
+ *
+ * <p>
+ * Records are found by key through an open-addressing hash table of slot
+ * numbers, which compares the hash and group id stored in the slot before
+ * comparing the encoded name in place.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe; <code>OffHeapRAMJobStore</code> only uses
+ * it while holding its lock.
+ * </p>
+ */
+final class OffHeapTriggerTable {
+
+    /** Stored in time columns to mean <code>null</code>. */
+    static final long NULL_TIME = Long.MIN_VALUE;
+
+    static final byte KIND_FREE = 0;
+
+    /*
+     * Slot layout.
+     */
+
+    static final int NEXT_FIRE_TIME = 0;
+
+    static final int PREVIOUS_FIRE_TIME = 8;
+
+    static final int START_TIME = 16;
+
+    static final int END_TIME = 24;
+
+    static final int REPEAT_INTERVAL = 32;
+
+    private static final int BLOB_OFFSET = 40;
+
+    static final int REPEAT_COUNT = 48;
+
+    static final int TIMES_TRIGGERED = 52;
+
+    static final int PRIORITY = 56;
+
+    static final int MISFIRE_INSTRUCTION = 60;
+
+    static final int GROUP_ID = 64;
+
+    static final int JOB_ID = 68;
+
+    static final int CALENDAR_ID = 72;
+
+    private static final int KEY_HASH = 76;
+
+    static final int NEXT_IN_JOB = 80;
+
+    static final int PREVIOUS_IN_JOB = 84;
+
+    private static final int BLOB_LENGTH = 88;
+
+    static final int STATE = 92;
+
+    static final int KIND = 93;
+
+    static final int SLOT_SIZE = 96;
+
+    static final int SLOTS_PER_PAGE = 1 << 14;
+
+    private static final int CHUNK_SIZE = 1 << 22;
+
+    private static final int EMPTY = 0;
+
+    private static final int DELETED = -1;
+
+    private final List<ByteBuffer> pages = new ArrayList<ByteBuffer>();
+
+    /** Slots at or above this have never been used. */
+    private int slotLimit;
+
+    private int[] freeSlots = new int[64];
+
+    private int freeSlotCount;
+
+    private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+    private int currentChunk = -1;
+
+    private int chunkPosition;
+
+    private long liveBytes;
+
+    private long garbageBytes;
+
+    /** slot + 1, or <code>EMPTY</code> or <code>DELETED</code>. */
+    private int[] keyTable = new int[1024];
+
+    private int keyCount;
+
+    private int deletedCount;
+
+    private byte[] scratch = new byte[256];
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Slots.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * @return the number of records in the table.
+     */
+    int size() {
+        return keyCount;
+    }
+
+    /**
+     * @return an upper bound of the slot numbers in use, for scanning.
+     */
+    int slotLimit() {
+        return slotLimit;
+    }
+
+    boolean inUse(int slot) {
+        return getByte(slot, KIND) != KIND_FREE;
+    }
+
+    /**
+     * Allocate a zeroed slot of the given kind.  The slot is not indexed by
+     * key until <code>index()</code> is called.
+     */
+    int allocate(byte kind) {
+        int slot;
+        if (freeSlotCount > 0) {
+            slot = freeSlots[--freeSlotCount];
+        } else {
+            slot = slotLimit++;
+            if ((slot / SLOTS_PER_PAGE) == pages.size()) {
+                pages.add(ByteBuffer.allocateDirect(SLOTS_PER_PAGE * SLOT_SIZE).order(ByteOrder.nativeOrder()));
+            }
+        }
+        ByteBuffer page = page(slot);
+        int base = base(slot);
+        for (int i = 0; i < SLOT_SIZE; i += 8) {
+            page.putLong(base + i, 0L);
+        }
+        page.put(base + KIND, kind);
+        return slot;
+    }
+
+    /**
+     * Remove the record from the key index and give up its slot and blob.
+     */
+    void free(int slot) {
+        unindex(slot);
+        releaseBlob(slot);
+        page(slot).put(base(slot) + KIND, KIND_FREE);
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount << 1);
+        }
+        freeSlots[freeSlotCount++] = slot;
+        maybeCompact();
+    }
+
+    void clear() {
+        pages.clear();
+        chunks.clear();
+        slotLimit = 0;
+        freeSlotCount = 0;
+        currentChunk = -1;
+        chunkPosition = 0;
+        liveBytes = 0;
+        garbageBytes = 0;
+        keyTable = new int[1024];
+        keyCount = 0;
+        deletedCount = 0;
+    }
+
+    long getLong(int slot, int column) {
+        return page(slot).getLong(base(slot) + column);
+    }
+
+    void setLong(int slot, int column, long value) {
+        page(slot).putLong(base(slot) + column, value);
+    }
+
+    int getInt(int slot, int column) {
+        return page(slot).getInt(base(slot) + column);
+    }
+
+    void setInt(int slot, int column, int value) {
+        page(slot).putInt(base(slot) + column, value);
+    }
+
+    byte getByte(int slot, int column) {
+        return page(slot).get(base(slot) + column);
+    }
+
+    void setByte(int slot, int column, byte value) {
+        page(slot).put(base(slot) + column, value);
+    }
+
+    /**
+     * @return the number of bytes held outside of the heap.
+     */
+    long getOffHeapBytes() {
+        long bytes = (long) pages.size() * SLOTS_PER_PAGE * SLOT_SIZE;
+        for (ByteBuffer chunk : chunks) {
+            bytes += chunk.capacity();
+        }
+        return bytes;
+    }
+
+    private ByteBuffer page(int slot) {
+        return pages.get(slot / SLOTS_PER_PAGE);
+    }
+
+    private static int base(int slot) {
+        return (slot % SLOTS_PER_PAGE) * SLOT_SIZE;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Blobs.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * Encode a record name the way it is stored at the start of each blob:
+     * as modified UTF-8, preceded by its length.
+     *
+     * @throws UTFDataFormatException if the name is too long to be stored.
+     */
+    static byte[] encodeName(String name) throws UTFDataFormatException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(name.length() + 2);
+        try {
+            new DataOutputStream(baos).writeUTF(name);
+        } catch (UTFDataFormatException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Replace the blob of the record.  The blob must start with the record's
+     * encoded name.
+     */
+    void setBlob(int slot, byte[] blob) {
+        releaseBlob(slot);
+        long offset = allocateBlob(blob.length);
+        ByteBuffer chunk = chunks.get((int) (offset >>> 32)).duplicate();
+        chunk.position((int) offset);
+        chunk.put(blob);
+        setLong(slot, BLOB_OFFSET, offset);
+        setInt(slot, BLOB_LENGTH, blob.length);
+        liveBytes += blob.length;
+        maybeCompact();
+    }
+
+    byte[] getBlob(int slot) {
+        byte[] blob = new byte[getInt(slot, BLOB_LENGTH)];
+        long offset = getLong(slot, BLOB_OFFSET);
+        ByteBuffer chunk = chunks.get((int) (offset >>> 32)).duplicate();
+        chunk.position((int) offset);
+        chunk.get(blob);
+        return blob;
+    }
+
+    String getName(int slot) {
+        long offset = getLong(slot, BLOB_OFFSET);
+        ByteBuffer chunk = chunks.get((int) (offset >>> 32));
+        int length = 2 + (chunk.getShort((int) offset) & 0xffff);
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length << 1)];
+        }
+        ByteBuffer in = chunk.duplicate();
+        in.position((int) offset);
+        in.get(scratch, 0, length);
+        try {
+            return new DataInputStream(new ByteArrayInputStream(scratch, 0, length)).readUTF();
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt trigger record in slot " + slot, e);
+        }
+    }
+
+    private boolean nameEquals(int slot, byte[] encodedName) {
+        if (getInt(slot, BLOB_LENGTH) < encodedName.length) {
+            return false;
+        }
+        long offset = getLong(slot, BLOB_OFFSET);
+        ByteBuffer chunk = chunks.get((int) (offset >>> 32));
+        int base = (int) offset;
+        for (int i = 0; i < encodedName.length; i++) {
+            if (chunk.get(base + i) != encodedName[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void releaseBlob(int slot) {
+        int length = getInt(slot, BLOB_LENGTH);
+        if (length > 0) {
+            liveBytes -= length;
+            garbageBytes += length;
+            setInt(slot, BLOB_LENGTH, 0);
+        }
+    }
+
+    private long allocateBlob(int length) {
+        if (length > CHUNK_SIZE / 2) {
+            // large records get a chunk of their own
+            chunks.add(ByteBuffer.allocateDirect(length).order(ByteOrder.nativeOrder()));
+            return ((long) (chunks.size() - 1)) << 32;
+        }
+        if (currentChunk < 0 || chunkPosition + length > CHUNK_SIZE) {
+            if (currentChunk >= 0) {
+                garbageBytes += CHUNK_SIZE - chunkPosition;
+            }
+            chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.nativeOrder()));
+            currentChunk = chunks.size() - 1;
+            chunkPosition = 0;
+        }
+        long offset = (((long) currentChunk) << 32) | chunkPosition;
+        chunkPosition += length;
+        return offset;
+    }
+
+    /**
+     * Copy the live blobs into a new arena if more than half of the
+     * current one is garbage.
+     */
+    private void maybeCompact() {
+        if (garbageBytes <= Math.max(liveBytes, CHUNK_SIZE)) {
+            return;
+        }
+        List<ByteBuffer> old = new ArrayList<ByteBuffer>(chunks);
+        chunks.clear();
+        currentChunk = -1;
+        chunkPosition = 0;
+        liveBytes = 0;
+        garbageBytes = 0;
+        for (int slot = 0; slot < slotLimit; slot++) {
+            int length = getInt(slot, BLOB_LENGTH);
+            if (length == 0 || !inUse(slot)) {
+                continue;
+            }
+            long offset = getLong(slot, BLOB_OFFSET);
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length << 1)];
+            }
+            ByteBuffer in = old.get((int) (offset >>> 32)).duplicate();
+            in.position((int) offset);
+            in.get(scratch, 0, length);
+
+            long newOffset = allocateBlob(length);
+            ByteBuffer out = chunks.get((int) (newOffset >>> 32)).duplicate();
+            out.position((int) newOffset);
+            out.put(scratch, 0, length);
+            setLong(slot, BLOB_OFFSET, newOffset);
+            liveBytes += length;
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Key index.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    static int hash(int groupId, String name) {
+        int h = name.hashCode() * 31 + groupId;
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h;
+    }
+
+    /**
+     * @return the slot of the record with the given group and name, or -1.
+     */
+    int find(int groupId, byte[] encodedName, int hash) {
+        int mask = keyTable.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int entry = keyTable[i];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            if (entry != DELETED) {
+                int slot = entry - 1;
+                if (getInt(slot, KEY_HASH) == hash && getInt(slot, GROUP_ID) == groupId
+                        && nameEquals(slot, encodedName)) {
+                    return slot;
+                }
+            }
+        }
+    }
+
+    /**
+     * Index the record by key, which must not be indexed yet.  The record's
+     * group id and blob must have been set.
+     */
+    void index(int slot, int hash) {
+        setInt(slot, KEY_HASH, hash);
+        if ((keyCount + deletedCount + 1) * 4 > keyTable.length * 3) {
+            rehash(keyCount + 1 > keyTable.length / 2 ? keyTable.length << 1 : keyTable.length);
+        }
+        insert(slot, hash);
+        keyCount++;
+    }
+
+    private void unindex(int slot) {
+        int mask = keyTable.length - 1;
+        for (int i = getInt(slot, KEY_HASH) & mask; ; i = (i + 1) & mask) {
+            int entry = keyTable[i];
+            if (entry == EMPTY) {
+                return;
+            }
+            if (entry == slot + 1) {
+                keyTable[i] = DELETED;
+                keyCount--;
+                deletedCount++;
+                return;
+            }
+        }
+    }
+
+    private void insert(int slot, int hash) {
+        int mask = keyTable.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int entry = keyTable[i];
+            if (entry == EMPTY || entry == DELETED) {
+                if (entry == DELETED) {
+                    deletedCount--;
+                }
+                keyTable[i] = slot + 1;
+                return;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        int[] old = keyTable;
+        keyTable = new int[capacity];
+        deletedCount = 0;
+        for (int entry : old) {
+            if (entry != EMPTY && entry != DELETED) {
+                insert(entry - 1, getInt(entry - 1, KEY_HASH));
+            }
+        }
+    }
+}
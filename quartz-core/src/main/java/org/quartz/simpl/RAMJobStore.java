@@ -20,16 +20,14 @@ package org.quartz.simpl;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -44,13 +42,13 @@ import org.quartz.Trigger;
 import org.quartz.TriggerKey;
 import org.quartz.Trigger.CompletedExecutionInstruction;
 import org.quartz.Trigger.TriggerState;
-import org.quartz.Trigger.TriggerTimeComparator;
 import org.quartz.impl.JobDetailImpl;
 import org.quartz.impl.matchers.GroupMatcher;
 import org.quartz.impl.matchers.StringMatcher;
 import org.quartz.spi.ClassLoadHelper;
 import org.quartz.spi.JobStore;
 import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.PartitionedJobStore;
 import org.quartz.spi.SchedulerSignaler;
 import org.quartz.spi.TriggerFiredBundle;
 import org.quartz.spi.TriggerFiredResult;
@@ -76,7 +74,7 @@ import static org.quartz.impl.matchers.EverythingMatcher.allTriggers;
  * @author Sharada Jambula
  * @author Eric Mueller
  */
-public class RAMJobStore implements JobStore {
+public class RAMJobStore implements JobStore, PartitionedJobStore {
 
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -94,11 +92,22 @@ public class RAMJobStore implements JobStore {
 
     protected HashMap<String, HashMap<TriggerKey, TriggerWrapper>> triggersByGroup = new HashMap<String, HashMap<TriggerKey, TriggerWrapper>>(25);
 
-    protected TreeSet<TriggerWrapper> timeTriggers = new TreeSet<TriggerWrapper>(new TriggerWrapperComparator());
+    private final TimeTriggerIndex timeTriggers = new TimeTriggerIndex();
 
     protected HashMap<String, Calendar> calendarsByName = new HashMap<String, Calendar>(25);
 
-    protected ArrayList<TriggerWrapper> triggers = new ArrayList<TriggerWrapper>(1000);
+    /**
+     * A read-only view of all stored triggers.
+     *
+     * @deprecated triggers are no longer kept in a list; this is a view of
+     * the values of <code>triggersByKey</code>, and will be removed.
+     */
+    @Deprecated
+    protected final Collection<TriggerWrapper> triggers = Collections.unmodifiableCollection(triggersByKey.values());
+
+    protected HashMap<JobKey, LinkedHashMap<TriggerKey, TriggerWrapper>> triggersByJob = new HashMap<JobKey, LinkedHashMap<TriggerKey, TriggerWrapper>>(1000);
+
+    protected HashMap<String, HashMap<TriggerKey, TriggerWrapper>> triggersByCalendar = new HashMap<String, HashMap<TriggerKey, TriggerWrapper>>(25);
 
     protected final Object lock = new Object();
 
@@ -315,9 +324,8 @@ public class RAMJobStore implements JobStore {
         boolean found = false;
 
         synchronized (lock) {
-            List<OperableTrigger> triggersOfJob = getTriggersForJob(jobKey);
-            for (OperableTrigger trig: triggersOfJob) {
-                this.removeTrigger(trig.getKey());
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                this.removeTrigger(tw.key);
                 found = true;
             }
             
@@ -424,8 +432,8 @@ public class RAMJobStore implements JobStore {
                         + ") referenced by the trigger does not exist.");
             }
 
-            // add to triggers array
-            triggers.add(tw);
+            // add to triggers by job and by calendar
+            addToSecondaryIndexes(tw);
             // add to triggers by group
             HashMap<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(newTrigger.getKey().getGroup());
             if (grpMap == null) {
@@ -469,9 +477,9 @@ public class RAMJobStore implements JobStore {
 
         synchronized (lock) {
             // remove from triggers by FQN map
-            found = (triggersByKey.remove(key) != null);
+            TriggerWrapper tw = triggersByKey.remove(key);
+            found = (tw != null);
             if (found) {
-                TriggerWrapper tw = null;
                 // remove from triggers by group
                 HashMap<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(key.getGroup());
                 if (grpMap != null) {
@@ -480,21 +488,13 @@ public class RAMJobStore implements JobStore {
                         triggersByGroup.remove(key.getGroup());
                     }
                 }
-                // remove from triggers array
-                Iterator<TriggerWrapper> tgs = triggers.iterator();
-                while (tgs.hasNext()) {
-                    tw = tgs.next();
-                    if (key.equals(tw.key)) {
-                        tgs.remove();
-                        break;
-                    }
-                }
+                // remove from triggers by job and by calendar
+                removeFromSecondaryIndexes(tw);
                 timeTriggers.remove(tw);
 
                 if (removeOrphanedJob) {
                     JobWrapper jw = jobsByKey.get(tw.jobKey);
-                    List<OperableTrigger> trigs = getTriggersForJob(tw.jobKey);
-                    if ((trigs == null || trigs.size() == 0) && !jw.jobDetail.isDurable()) {
+                    if (!triggersByJob.containsKey(tw.jobKey) && !jw.jobDetail.isDurable()) {
                         if (removeJob(jw.key)) {
                             signaler.notifySchedulerListenersJobDeleted(jw.key);
                         }
@@ -525,7 +525,6 @@ public class RAMJobStore implements JobStore {
                     throw new JobPersistenceException("New trigger is not related to the same job as the old trigger.");
                 }
 
-                tw = null;
                 // remove from triggers by group
                 HashMap<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(triggerKey.getGroup());
                 if (grpMap != null) {
@@ -534,15 +533,8 @@ public class RAMJobStore implements JobStore {
                         triggersByGroup.remove(triggerKey.getGroup());
                     }
                 }
-                // remove from triggers array
-                Iterator<TriggerWrapper> tgs = triggers.iterator();
-                while (tgs.hasNext()) {
-                    tw = tgs.next();
-                    if (triggerKey.equals(tw.key)) {
-                        tgs.remove();
-                        break;
-                    }
-                }
+                // remove from triggers by job and by calendar
+                removeFromSecondaryIndexes(tw);
                 timeTriggers.remove(tw);
 
                 try {
@@ -734,24 +726,14 @@ public class RAMJobStore implements JobStore {
      */
     public boolean removeCalendar(String calName)
         throws JobPersistenceException {
-        int numRefs = 0;
-
         synchronized (lock) {
-            for (TriggerWrapper trigger : triggers) {
-                OperableTrigger trigg = trigger.trigger;
-                if (trigg.getCalendarName() != null
-                        && trigg.getCalendarName().equals(calName)) {
-                    numRefs++;
-                }
+            if (triggersByCalendar.containsKey(calName)) {
+                throw new JobPersistenceException(
+                        "Calender cannot be removed if it referenced by a Trigger!");
             }
-        }
 
-        if (numRefs > 0) {
-            throw new JobPersistenceException(
-                    "Calender cannot be removed if it referenced by a Trigger!");
+            return (calendarsByName.remove(calName) != null);
         }
-
-        return (calendarsByName.remove(calName) != null);
     }
 
     /**
@@ -793,7 +775,7 @@ public class RAMJobStore implements JobStore {
      */
     public int getNumberOfTriggers() {
         synchronized (lock) {
-            return triggers.size();
+            return triggersByKey.size();
         }
     }
 
@@ -965,10 +947,8 @@ public class RAMJobStore implements JobStore {
         ArrayList<OperableTrigger> trigList = new ArrayList<OperableTrigger>();
 
         synchronized (lock) {
-            for (TriggerWrapper tw : triggers) {
-                if (tw.jobKey.equals(jobKey)) {
-                    trigList.add((OperableTrigger) tw.trigger.clone());
-                }
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                trigList.add((OperableTrigger) tw.trigger.clone());
             }
         }
 
@@ -976,32 +956,71 @@ public class RAMJobStore implements JobStore {
     }
 
     protected ArrayList<TriggerWrapper> getTriggerWrappersForJob(JobKey jobKey) {
-        ArrayList<TriggerWrapper> trigList = new ArrayList<TriggerWrapper>();
+        synchronized (lock) {
+            HashMap<TriggerKey, TriggerWrapper> jobTriggers = triggersByJob.get(jobKey);
+            if (jobTriggers == null) {
+                return new ArrayList<TriggerWrapper>();
+            }
+            return new ArrayList<TriggerWrapper>(jobTriggers.values());
+        }
+    }
 
+    protected ArrayList<TriggerWrapper> getTriggerWrappersForCalendar(String calName) {
         synchronized (lock) {
-            for (TriggerWrapper trigger : triggers) {
-                if (trigger.jobKey.equals(jobKey)) {
-                    trigList.add(trigger);
-                }
+            HashMap<TriggerKey, TriggerWrapper> calTriggers = triggersByCalendar.get(calName);
+            if (calTriggers == null) {
+                return new ArrayList<TriggerWrapper>();
             }
+            return new ArrayList<TriggerWrapper>(calTriggers.values());
         }
+    }
 
-        return trigList;
+    /**
+     * Add the trigger to the job-to-triggers and calendar-to-triggers
+     * indexes.  Must be called while holding the lock.
+     */
+    private void addToSecondaryIndexes(TriggerWrapper tw) {
+        LinkedHashMap<TriggerKey, TriggerWrapper> jobTriggers = triggersByJob.get(tw.jobKey);
+        if (jobTriggers == null) {
+            jobTriggers = new LinkedHashMap<TriggerKey, TriggerWrapper>();
+            triggersByJob.put(tw.jobKey, jobTriggers);
+        }
+        jobTriggers.put(tw.key, tw);
+
+        String calName = tw.trigger.getCalendarName();
+        if (calName != null) {
+            HashMap<TriggerKey, TriggerWrapper> calTriggers = triggersByCalendar.get(calName);
+            if (calTriggers == null) {
+                calTriggers = new HashMap<TriggerKey, TriggerWrapper>();
+                triggersByCalendar.put(calName, calTriggers);
+            }
+            calTriggers.put(tw.key, tw);
+        }
     }
 
-    protected ArrayList<TriggerWrapper> getTriggerWrappersForCalendar(String calName) {
-        ArrayList<TriggerWrapper> trigList = new ArrayList<TriggerWrapper>();
+    /**
+     * Remove the trigger from the job-to-triggers and calendar-to-triggers
+     * indexes.  Must be called while holding the lock.
+     */
+    private void removeFromSecondaryIndexes(TriggerWrapper tw) {
+        HashMap<TriggerKey, TriggerWrapper> jobTriggers = triggersByJob.get(tw.jobKey);
+        if (jobTriggers != null) {
+            jobTriggers.remove(tw.key);
+            if (jobTriggers.size() == 0) {
+                triggersByJob.remove(tw.jobKey);
+            }
+        }
 
-        synchronized (lock) {
-            for (TriggerWrapper tw : triggers) {
-                String tcalName = tw.getTrigger().getCalendarName();
-                if (tcalName != null && tcalName.equals(calName)) {
-                    trigList.add(tw);
+        String calName = tw.trigger.getCalendarName();
+        if (calName != null) {
+            HashMap<TriggerKey, TriggerWrapper> calTriggers = triggersByCalendar.get(calName);
+            if (calTriggers != null) {
+                calTriggers.remove(tw.key);
+                if (calTriggers.size() == 0) {
+                    triggersByCalendar.remove(calName);
                 }
             }
         }
-
-        return trigList;
     }
 
     /**
@@ -1091,9 +1110,8 @@ public class RAMJobStore implements JobStore {
      */
     public void pauseJob(JobKey jobKey) {
         synchronized (lock) {
-            List<OperableTrigger> triggersOfJob = getTriggersForJob(jobKey);
-            for (OperableTrigger trigger: triggersOfJob) {
-                pauseTrigger(trigger.getKey());
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                pauseTrigger(tw.key);
             }
         }
     }
@@ -1134,9 +1152,8 @@ public class RAMJobStore implements JobStore {
 
             for (String groupName : pausedGroups) {
                 for (JobKey jobKey: getJobKeys(GroupMatcher.jobGroupEquals(groupName))) {
-                    List<OperableTrigger> triggersOfJob = getTriggersForJob(jobKey);
-                    for (OperableTrigger trigger: triggersOfJob) {
-                        pauseTrigger(trigger.getKey());
+                    for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                        pauseTrigger(tw.key);
                     }
                 }
             }
@@ -1241,9 +1258,8 @@ public class RAMJobStore implements JobStore {
     public void resumeJob(JobKey jobKey) {
 
         synchronized (lock) {
-            List<OperableTrigger> triggersOfJob = getTriggersForJob(jobKey);
-            for (OperableTrigger trigger: triggersOfJob) {
-                resumeTrigger(trigger.getKey());
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                resumeTrigger(tw.key);
             }
         }
     }
@@ -1277,9 +1293,8 @@ public class RAMJobStore implements JobStore {
             }
 
             for (JobKey key: keys) {
-                List<OperableTrigger> triggersOfJob = getTriggersForJob(key);
-                for (OperableTrigger trigger: triggersOfJob) {
-                    resumeTrigger(trigger.getKey());
+                for (TriggerWrapper tw : getTriggerWrappersForJob(key)) {
+                    resumeTrigger(tw.key);
                 }
             }
         }
@@ -1346,9 +1361,10 @@ public class RAMJobStore implements JobStore {
             return false; 
         }
 
+        // the calendar is only read here, so there's no need to clone it
         Calendar cal = null;
         if (tw.trigger.getCalendarName() != null) {
-            cal = retrieveCalendar(tw.trigger.getCalendarName());
+            cal = calendarsByName.get(tw.trigger.getCalendarName());
         }
 
         signaler.notifyTriggerListenersMisfired((OperableTrigger)tw.trigger.clone());
@@ -1383,26 +1399,49 @@ public class RAMJobStore implements JobStore {
      * @see #releaseAcquiredTrigger(OperableTrigger)
      */
     public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
+        return acquireNextTriggers(noLaterThan, maxCount, timeWindow, 0, 1);
+    }
+
+    /**
+     * <p>
+     * Get a handle to the next triggers of the given partition to be fired,
+     * and mark them as 'reserved' by the calling scheduler.  The time index
+     * is split into the given number of partitions on first use, so each
+     * partition is acquired from without looking at the triggers of the
+     * others.
+     * </p>
+     *
+     * @see #releaseAcquiredTrigger(OperableTrigger)
+     */
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow, int partition, int partitionCount) {
         synchronized (lock) {
+            boolean partitioned = partitionCount > 1;
+            if (partitioned) {
+                timeTriggers.setPartitionCount(partitionCount);
+            }
+
             List<OperableTrigger> result = new ArrayList<OperableTrigger>();
             Set<JobKey> acquiredJobKeysForNoConcurrentExec = new HashSet<JobKey>();
             Set<TriggerWrapper> excludedTriggers = new HashSet<TriggerWrapper>();
             long firstAcquiredTriggerFireTime = 0;
             
             // return empty list if store has no triggers.
-            if (timeTriggers.size() == 0)
+            if (timeTriggers.isEmpty())
                 return result;
             
             while (true) {
-                TriggerWrapper tw;
-
-                try {
-                    tw = timeTriggers.first();
-                    if (tw == null)
-                        break;
-                    timeTriggers.remove(tw);
-                } catch (java.util.NoSuchElementException nsee) {
+                TriggerWrapper tw = partitioned ? timeTriggers.peek(partition) : timeTriggers.peek();
+                if (tw == null)
                     break;
+                // leave the earliest trigger in place if it is not due within
+                // the window (it cannot have misfired either, then)
+                if (tw.trigger.getNextFireTime() != null
+                        && (partitioned ? timeTriggers.peekFireTime(partition) : timeTriggers.peekFireTime()) > noLaterThan + timeWindow)
+                    break;
+                if (partitioned) {
+                    timeTriggers.poll(partition);
+                } else {
+                    timeTriggers.poll();
                 }
 
                 if (tw.trigger.getNextFireTime() == null) {
@@ -1491,26 +1530,33 @@ public class RAMJobStore implements JobStore {
                 if (tw.state != TriggerWrapper.STATE_ACQUIRED) {
                     continue;
                 }
+                // was another trigger of its non-concurrent job fired since (by
+                // a scheduler thread acquiring ahead, or another partition's)?
+                if (blockedJobs.contains(tw.jobKey)) {
+                    tw.state = TriggerWrapper.STATE_BLOCKED;
+                    continue;
+                }
 
                 Calendar cal = null;
                 if (tw.trigger.getCalendarName() != null) {
-                    cal = retrieveCalendar(tw.trigger.getCalendarName());
+                    cal = calendarsByName.get(tw.trigger.getCalendarName());
                     if(cal == null)
                         continue;
                 }
-                Date prevFireTime = trigger.getPreviousFireTime();
+                Date prevFireTime = tw.trigger.getPreviousFireTime();
                 // in case trigger was replaced between acquiring and firing
                 timeTriggers.remove(tw);
-                // call triggered on our copy, and the scheduler's copy
+                // call triggered on our copy only, and hand the scheduler a
+                // snapshot of the result (its job data map is copy-on-write)
                 tw.trigger.triggered(cal);
-                trigger.triggered(cal);
+                OperableTrigger firedTrigger = (OperableTrigger) tw.trigger.clone();
                 //tw.state = TriggerWrapper.STATE_EXECUTING;
                 tw.state = TriggerWrapper.STATE_WAITING;
 
                 TriggerFiredBundle bndle = new TriggerFiredBundle(retrieveJob(
-                        tw.jobKey), trigger, cal,
-                        false, new Date(), trigger.getPreviousFireTime(), prevFireTime,
-                        trigger.getNextFireTime());
+                        tw.jobKey), firedTrigger, (cal == null) ? null : (Calendar) cal.clone(),
+                        false, new Date(), firedTrigger.getPreviousFireTime(), prevFireTime,
+                        firedTrigger.getNextFireTime());
 
                 JobDetail job = bndle.getJobDetail();
 
@@ -1634,6 +1680,14 @@ public class RAMJobStore implements JobStore {
         }
     }
     
+    /**
+     * The time index of waiting triggers, for subclasses in this package
+     * that change the state of stored triggers directly.  Must hold the lock.
+     */
+    TimeTriggerIndex getTimeTriggers() {
+        return timeTriggers;
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     protected String peekTriggers() {
 
@@ -1647,7 +1701,7 @@ public class RAMJobStore implements JobStore {
         str.append(" | ");
 
         synchronized (lock) {
-            for (TriggerWrapper timeTrigger : timeTriggers) {
+            for (TriggerWrapper timeTrigger : timeTriggers.toSortedArray()) {
                 str.append(timeTrigger.trigger.getKey().getName());
                 str.append("->");
             }
@@ -1688,117 +1742,3 @@ public class RAMJobStore implements JobStore {
     }
 
 }
-
-/*******************************************************************************
- * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
- * 
- * Helper Classes. * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
- */
-
-class TriggerWrapperComparator implements Comparator<TriggerWrapper>, java.io.Serializable {
-  
-    private static final long serialVersionUID = 8809557142191514261L;
-
-    TriggerTimeComparator ttc = new TriggerTimeComparator();
-    
-    public int compare(TriggerWrapper trig1, TriggerWrapper trig2) {
-        return ttc.compare(trig1.trigger, trig2.trigger);
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        return (obj instanceof TriggerWrapperComparator);
-    }
-
-    @Override
-    public int hashCode() {
-        return super.hashCode();
-    }
-}
-
-class JobWrapper {
-
-    public JobKey key;
-
-    public JobDetail jobDetail;
-
-    JobWrapper(JobDetail jobDetail) {
-        this.jobDetail = jobDetail;
-        key = jobDetail.getKey();
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj instanceof JobWrapper) {
-            JobWrapper jw = (JobWrapper) obj;
-            if (jw.key.equals(this.key)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-    
-    @Override
-    public int hashCode() {
-        return key.hashCode(); 
-    }
-}
-
-class TriggerWrapper {
-
-    public final TriggerKey key;
-
-    public final JobKey jobKey;
-
-    public final OperableTrigger trigger;
-
-    public int state = STATE_WAITING;
-
-    public static final int STATE_WAITING = 0;
-
-    public static final int STATE_ACQUIRED = 1;
-
-    @SuppressWarnings("UnusedDeclaration")
-    public static final int STATE_EXECUTING = 2;
-
-    public static final int STATE_COMPLETE = 3;
-
-    public static final int STATE_PAUSED = 4;
-
-    public static final int STATE_BLOCKED = 5;
-
-    public static final int STATE_PAUSED_BLOCKED = 6;
-
-    public static final int STATE_ERROR = 7;
-    
-    TriggerWrapper(OperableTrigger trigger) {
-        if(trigger == null)
-            throw new IllegalArgumentException("Trigger cannot be null!");
-        this.trigger = trigger;
-        key = trigger.getKey();
-        this.jobKey = trigger.getJobKey();
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj instanceof TriggerWrapper) {
-            TriggerWrapper tw = (TriggerWrapper) obj;
-            if (tw.key.equals(this.key)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    @Override
-    public int hashCode() {
-        return key.hashCode(); 
-    }
-
-    
-    public OperableTrigger getTrigger() {
-        return this.trigger;
-    }
-}
@@ -242,10 +242,7 @@ public class SimpleThreadPool implements ThreadPool {
             throw new SchedulerConfigException(
                     "Thread count must be > 0");
         }
-        if (prio <= 0 || prio > 9) {
-            throw new SchedulerConfigException(
-                    "Thread priority must be > 0 and <= 9");
-        }
+        validateThreadPriority(prio);
 
         if(isThreadsInheritGroupOfInitializingThread()) {
             threadGroup = Thread.currentThread().getThreadGroup();
@@ -300,6 +297,17 @@ public class SimpleThreadPool implements ThreadPool {
         return workers;
     }
 
+    /**
+     * Checks a configured worker thread priority, as the thread pools of
+     * this package accept it.
+     */
+    static void validateThreadPriority(int prio) throws SchedulerConfigException {
+        if (prio <= 0 || prio > 9) {
+            throw new SchedulerConfigException(
+                    "Thread priority must be > 0 and <= 9");
+        }
+    }
+
     /**
      * <p>
      * Terminate any worker threads in this thread group.
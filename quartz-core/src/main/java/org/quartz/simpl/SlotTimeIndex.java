@@ -0,0 +1,209 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The time-ordered index of waiting triggers used by
+ * <code>{@link OffHeapRAMJobStore}</code>: the same binary min-heap as
+ * <code>{@link TimeTriggerIndex}</code>, but holding the <code>int</code>
+ * slot numbers of trigger records instead of wrapper objects, so that the
+ * whole index is a handful of primitive arrays however many triggers it
+ * holds.
+ * </p>
+ *
+ * <p>
+ * Entries are ordered by next fire time, then by highest priority.  Exact
+ * ties are broken by slot number rather than by trigger key, which would
+ * have to be read back from the record.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe; <code>OffHeapRAMJobStore</code> only uses
+ * it while holding its lock.
+ * </p>
+ */
+final class SlotTimeIndex {
+
+    private int[] slots;
+
+    private long[] fireTimes;
+
+    private int[] priorities;
+
+    /** Heap position of each slot, or -1. */
+    private int[] positions;
+
+    private int size;
+
+    SlotTimeIndex() {
+        slots = new int[1024];
+        fireTimes = new long[1024];
+        priorities = new int[1024];
+        positions = new int[1024];
+        Arrays.fill(positions, -1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int slot) {
+        return slot < positions.length && positions[slot] >= 0;
+    }
+
+    /**
+     * @return the earliest slot, or -1 if the index is empty.
+     */
+    int peek() {
+        return (size == 0) ? -1 : slots[0];
+    }
+
+    /**
+     * @return the fire time of the earliest slot, or
+     *         <code>Long.MAX_VALUE</code> if the index is empty.
+     */
+    long peekFireTime() {
+        return (size == 0) ? Long.MAX_VALUE : fireTimes[0];
+    }
+
+    /**
+     * Add the slot with the given sort key, or re-position it if it is
+     * already present.
+     */
+    void add(int slot, long fireTime, int priority) {
+        if (slot >= positions.length) {
+            int old = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(old << 1, slot + 1));
+            Arrays.fill(positions, old, positions.length, -1);
+        }
+
+        int i = positions[slot];
+        if (i < 0) {
+            if (size == slots.length) {
+                int capacity = slots.length << 1;
+                slots = Arrays.copyOf(slots, capacity);
+                fireTimes = Arrays.copyOf(fireTimes, capacity);
+                priorities = Arrays.copyOf(priorities, capacity);
+            }
+            i = size++;
+            slots[i] = slot;
+            positions[slot] = i;
+        }
+        fireTimes[i] = fireTime;
+        priorities[i] = priority;
+        if (!siftUp(i)) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the slot was present.
+     */
+    boolean remove(int slot) {
+        if (!contains(slot)) {
+            return false;
+        }
+        int i = positions[slot];
+        positions[slot] = -1;
+        int last = --size;
+        if (i != last) {
+            slots[i] = slots[last];
+            fireTimes[i] = fireTimes[last];
+            priorities[i] = priorities[last];
+            positions[slots[i]] = i;
+            if (!siftUp(i)) {
+                siftDown(i);
+            }
+        }
+        return true;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[slots[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /** @return whether the entry moved. */
+    private boolean siftUp(int i) {
+        int start = i;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (compare(i, parent) >= 0) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+        return i != start;
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = (i << 1) + 1;
+            if (left >= size) {
+                break;
+            }
+            int right = left + 1;
+            int smallest = (right < size && compare(right, left) < 0) ? right : left;
+            if (compare(smallest, i) >= 0) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private int compare(int a, int b) {
+        long ta = fireTimes[a];
+        long tb = fireTimes[b];
+        if (ta != tb) {
+            return (ta < tb) ? -1 : 1;
+        }
+        int pa = priorities[a];
+        int pb = priorities[b];
+        if (pa != pb) {
+            return (pa > pb) ? -1 : 1;
+        }
+        return (slots[a] < slots[b]) ? -1 : ((slots[a] == slots[b]) ? 0 : 1);
+    }
+
+    private void swap(int a, int b) {
+        int s = slots[a];
+        slots[a] = slots[b];
+        slots[b] = s;
+        positions[slots[a]] = a;
+        positions[slots[b]] = b;
+
+        long t = fireTimes[a];
+        fireTimes[a] = fireTimes[b];
+        fireTimes[b] = t;
+
+        int p = priorities[a];
+        priorities[a] = priorities[b];
+        priorities[b] = p;
+    }
+}
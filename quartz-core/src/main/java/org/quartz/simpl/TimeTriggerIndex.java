@@ -0,0 +1,457 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.quartz.TriggerKey;
+
+/**
+ * <p>
+ * The time-ordered index of waiting triggers used by
+ * <code>{@link RAMJobStore}</code>: a binary min-heap keyed by the next fire
+ * time (in millis) and priority of each trigger, both captured into
+ * primitive arrays when the trigger is added.  Ordering is the same as
+ * <code>{@link org.quartz.Trigger.TriggerTimeComparator}</code>: earliest
+ * fire time first, then highest priority, then trigger key - but the key
+ * (and the trigger itself) is only consulted to break exact ties.
+ * </p>
+ *
+ * <p>
+ * Each <code>TriggerWrapper</code> remembers its slot in the heap, so
+ * <code>peek()</code> is O(1), and <code>poll()</code>, <code>add()</code>
+ * and <code>remove()</code> are O(log n) without any searching.  Because the
+ * sort key is captured on insertion, a trigger must be removed before its
+ * next fire time or priority is changed, and added again afterwards (adding
+ * a trigger that is already present re-positions it).
+ * </p>
+ *
+ * <p>
+ * The index can be split into partitions by the hash of the trigger group
+ * (see <code>{@link org.quartz.spi.PartitionedJobStore}</code>), each held
+ * in a heap of its own, so that the earliest triggers of one partition are
+ * found without looking at those of the others.  The whole index then
+ * answers <code>peek()</code> and <code>poll()</code> from the earliest of
+ * the partitions' heads.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe; <code>RAMJobStore</code> only uses it
+ * while holding its lock.
+ * </p>
+ */
+final class TimeTriggerIndex {
+
+    /** Sort key used for triggers that have no next fire time. */
+    private static final long NO_FIRE_TIME = Long.MAX_VALUE;
+
+    private TriggerWrapper[] entries;
+
+    private long[] fireTimes;
+
+    private int[] priorities;
+
+    private int size;
+
+    // the heaps of the partitions, or null if the index is not partitioned
+    private TimeTriggerIndex[] partitions;
+
+    TimeTriggerIndex() {
+        this(1024);
+    }
+
+    TimeTriggerIndex(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        entries = new TriggerWrapper[capacity];
+        fireTimes = new long[capacity];
+        priorities = new int[capacity];
+    }
+
+    int size() {
+        if (partitions != null) {
+            int total = 0;
+            for (TimeTriggerIndex partition : partitions) {
+                total += partition.size;
+            }
+            return total;
+        }
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * The partition of the trigger with the given key, by the hash of its
+     * group.
+     */
+    static int partitionOf(TriggerKey key, int partitionCount) {
+        return (key.getGroup().hashCode() & Integer.MAX_VALUE) % partitionCount;
+    }
+
+    /**
+     * @return the number of partitions, 1 if the index is not partitioned.
+     */
+    int getPartitionCount() {
+        return (partitions == null) ? 1 : partitions.length;
+    }
+
+    /**
+     * Split the index into the given number of partitions (or merge it back
+     * into one heap), moving the indexed triggers accordingly.
+     */
+    void setPartitionCount(int partitionCount) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount must be positive.");
+        }
+        if (partitionCount == getPartitionCount()) {
+            return;
+        }
+
+        List<TriggerWrapper> indexed = new ArrayList<TriggerWrapper>(size());
+        if (partitions == null) {
+            indexed.addAll(Arrays.asList(entries).subList(0, size));
+        } else {
+            for (TimeTriggerIndex partition : partitions) {
+                indexed.addAll(Arrays.asList(partition.entries).subList(0, partition.size));
+            }
+        }
+        clear();
+
+        if (partitionCount == 1) {
+            partitions = null;
+        } else {
+            partitions = new TimeTriggerIndex[partitionCount];
+            for (int i = 0; i < partitionCount; i++) {
+                partitions[i] = new TimeTriggerIndex(Math.max(entries.length / partitionCount, 16));
+            }
+        }
+        addAll(indexed);
+    }
+
+    boolean contains(TriggerWrapper tw) {
+        if (partitions != null) {
+            return partitionFor(tw).contains(tw);
+        }
+        int i = tw.timeIndexPosition;
+        return i >= 0 && i < size && entries[i] == tw;
+    }
+
+    /**
+     * @return the earliest trigger, or <code>null</code> if the index is empty.
+     */
+    TriggerWrapper peek() {
+        if (partitions != null) {
+            return first().peek();
+        }
+        return (size == 0) ? null : entries[0];
+    }
+
+    /**
+     * @return the earliest trigger of the given partition, or
+     *         <code>null</code> if it is empty.
+     */
+    TriggerWrapper peek(int partition) {
+        return partition(partition).peek();
+    }
+
+    /**
+     * @return the next fire time (in millis) of the earliest trigger, as it
+     *         was when the trigger was added, or <code>Long.MAX_VALUE</code>
+     *         if the index is empty.
+     */
+    long peekFireTime() {
+        if (partitions != null) {
+            return first().peekFireTime();
+        }
+        return (size == 0) ? NO_FIRE_TIME : fireTimes[0];
+    }
+
+    /**
+     * @return the next fire time (in millis) of the earliest trigger of the
+     *         given partition, or <code>Long.MAX_VALUE</code> if it is empty.
+     */
+    long peekFireTime(int partition) {
+        return partition(partition).peekFireTime();
+    }
+
+    /**
+     * Remove and return the earliest trigger.
+     *
+     * @return the earliest trigger, or <code>null</code> if the index is empty.
+     */
+    TriggerWrapper poll() {
+        if (partitions != null) {
+            return first().poll();
+        }
+        if (size == 0) {
+            return null;
+        }
+        TriggerWrapper first = entries[0];
+        removeAt(0);
+        return first;
+    }
+
+    /**
+     * Remove and return the earliest trigger of the given partition.
+     *
+     * @return the earliest trigger, or <code>null</code> if the partition is
+     *         empty.
+     */
+    TriggerWrapper poll(int partition) {
+        return partition(partition).poll();
+    }
+
+    /**
+     * Add the trigger, keyed by its current next fire time and priority.
+     *
+     * @return <code>false</code> if the trigger was already present (in
+     *         which case it has been re-positioned according to its current
+     *         fire time and priority).
+     */
+    boolean add(TriggerWrapper tw) {
+        if (partitions != null) {
+            return partitionFor(tw).add(tw);
+        }
+        if (contains(tw)) {
+            int i = tw.timeIndexPosition;
+            capture(i, tw);
+            if (!siftUp(i)) {
+                siftDown(i);
+            }
+            return false;
+        }
+
+        if (size == entries.length) {
+            grow();
+        }
+        int i = size++;
+        entries[i] = tw;
+        tw.timeIndexPosition = i;
+        capture(i, tw);
+        siftUp(i);
+        return true;
+    }
+
+    void addAll(Collection<TriggerWrapper> tws) {
+        for (TriggerWrapper tw : tws) {
+            add(tw);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the trigger was present.
+     */
+    boolean remove(TriggerWrapper tw) {
+        if (tw == null || !contains(tw)) {
+            return false;
+        }
+        if (partitions != null) {
+            return partitionFor(tw).remove(tw);
+        }
+        removeAt(tw.timeIndexPosition);
+        return true;
+    }
+
+    void clear() {
+        if (partitions != null) {
+            for (TimeTriggerIndex partition : partitions) {
+                partition.clear();
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            entries[i].timeIndexPosition = -1;
+            entries[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * @return the indexed triggers, in time order.
+     */
+    TriggerWrapper[] toSortedArray() {
+        if (partitions != null) {
+            List<TriggerWrapper> sorted = new ArrayList<TriggerWrapper>(size());
+            for (TimeTriggerIndex partition : partitions) {
+                sorted.addAll(Arrays.asList(partition.toSortedArray()));
+            }
+            Collections.sort(sorted, new TriggerWrapperComparator());
+            return sorted.toArray(new TriggerWrapper[sorted.size()]);
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return TimeTriggerIndex.this.compare(a, b);
+            }
+        });
+        TriggerWrapper[] sorted = new TriggerWrapper[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = entries[order[i]];
+        }
+        return sorted;
+    }
+
+    private TimeTriggerIndex partition(int partition) {
+        return (partitions == null) ? this : partitions[partition];
+    }
+
+    private TimeTriggerIndex partitionFor(TriggerWrapper tw) {
+        return partitions[partitionOf(tw.key, partitions.length)];
+    }
+
+    /**
+     * @return the partition holding the earliest trigger.
+     */
+    private TimeTriggerIndex first() {
+        TimeTriggerIndex first = partitions[0];
+        for (int i = 1; i < partitions.length; i++) {
+            TimeTriggerIndex partition = partitions[i];
+            if (partition.size > 0 && (first.size == 0 || compareHeads(partition, first) < 0)) {
+                first = partition;
+            }
+        }
+        return first;
+    }
+
+    private static int compareHeads(TimeTriggerIndex a, TimeTriggerIndex b) {
+        long ta = a.fireTimes[0];
+        long tb = b.fireTimes[0];
+        if (ta != tb) {
+            return (ta < tb) ? -1 : 1;
+        }
+        int pa = a.priorities[0];
+        int pb = b.priorities[0];
+        if (pa != pb) {
+            return (pa > pb) ? -1 : 1;
+        }
+        return a.entries[0].key.compareTo(b.entries[0].key);
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Heap maintenance.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private void capture(int i, TriggerWrapper tw) {
+        Date nft = tw.trigger.getNextFireTime();
+        fireTimes[i] = (nft == null) ? NO_FIRE_TIME : nft.getTime();
+        priorities[i] = tw.trigger.getPriority();
+    }
+
+    private void removeAt(int i) {
+        TriggerWrapper removed = entries[i];
+        removed.timeIndexPosition = -1;
+        int last = --size;
+        if (i != last) {
+            move(last, i);
+            entries[last] = null;
+            if (!siftUp(i)) {
+                siftDown(i);
+            }
+        } else {
+            entries[last] = null;
+        }
+    }
+
+    /** @return whether the entry moved. */
+    private boolean siftUp(int i) {
+        int start = i;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (compare(i, parent) >= 0) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+        return i != start;
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = (i << 1) + 1;
+            if (left >= size) {
+                break;
+            }
+            int right = left + 1;
+            int smallest = (right < size && compare(right, left) < 0) ? right : left;
+            if (compare(smallest, i) >= 0) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private int compare(int a, int b) {
+        long ta = fireTimes[a];
+        long tb = fireTimes[b];
+        if (ta != tb) {
+            return (ta < tb) ? -1 : 1;
+        }
+        int pa = priorities[a];
+        int pb = priorities[b];
+        if (pa != pb) {
+            return (pa > pb) ? -1 : 1;
+        }
+        return entries[a].key.compareTo(entries[b].key);
+    }
+
+    private void swap(int a, int b) {
+        TriggerWrapper tw = entries[a];
+        entries[a] = entries[b];
+        entries[b] = tw;
+        entries[a].timeIndexPosition = a;
+        entries[b].timeIndexPosition = b;
+
+        long t = fireTimes[a];
+        fireTimes[a] = fireTimes[b];
+        fireTimes[b] = t;
+
+        int p = priorities[a];
+        priorities[a] = priorities[b];
+        priorities[b] = p;
+    }
+
+    private void move(int from, int to) {
+        entries[to] = entries[from];
+        entries[to].timeIndexPosition = to;
+        fireTimes[to] = fireTimes[from];
+        priorities[to] = priorities[from];
+    }
+
+    private void grow() {
+        int capacity = entries.length << 1;
+        entries = Arrays.copyOf(entries, capacity);
+        fireTimes = Arrays.copyOf(fireTimes, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.quartz.SchedulerConfigException;
+import org.quartz.spi.ThreadPool;
+
+/**
+ * <p>
+ * An implementation of the <code>{@link org.quartz.spi.ThreadPool}</code>
+ * interface running each <code>Runnable</code> on a new virtual thread, for
+ * jobs that spend most of their time blocked on I/O.
+ * </p>
+ *
+ * <p>
+ * Virtual threads are cheap to create and to block, so none are pooled; the
+ * pool size is instead a cap on the number of <code>Runnable</code>s running
+ * at once, which <code>{@link #blockForAvailableThreads()}</code> and
+ * <code>{@link #runInThread(Runnable)}</code> respect as they would the
+ * worker threads of the <code>{@link SimpleThreadPool}</code>.  The cap is set
+ * by the <code>maxConcurrency</code> property, or <code>threadCount</code> so
+ * that existing configurations keep working.
+ * </p>
+ *
+ * <p>
+ * Virtual threads are looked up reflectively, as they need Java 21.  On older
+ * JVMs, each <code>Runnable</code> runs on a new platform thread instead, with
+ * the configured priority and daemon flag (which virtual threads ignore).
+ * </p>
+ *
+ * @see SimpleThreadPool
+ */
+public class VirtualThreadPool implements ThreadPool {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private int count = -1;
+
+    private int prio = Thread.NORM_PRIORITY;
+
+    private boolean inheritLoader = false;
+
+    private boolean makeThreadsDaemons = false;
+
+    private String threadNamePrefix;
+
+    private String schedulerInstanceName;
+
+    private final Object lock = new Object();
+
+    // guarded by lock
+    private int running;
+    private boolean isShutdown = false;
+
+    private ThreadFactory threadFactory;
+
+    private boolean virtual;
+
+    private ClassLoader contextClassLoader;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Create a new (unconfigured) <code>VirtualThreadPool</code>.
+     * </p>
+     *
+     * @see #setMaxConcurrency(int)
+     */
+    public VirtualThreadPool() {
+    }
+
+    /**
+     * <p>
+     * Create a new <code>VirtualThreadPool</code> running at most the given
+     * number of <code>Runnable</code>s at once.
+     * </p>
+     */
+    public VirtualThreadPool(int maxConcurrency) {
+        setMaxConcurrency(maxConcurrency);
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public int getPoolSize() {
+        return getMaxConcurrency();
+    }
+
+    /**
+     * <p>
+     * Set the maximum number of <code>Runnable</code>s running at once - has
+     * no effect after <code>initialize()</code> has been called.
+     * </p>
+     */
+    public void setMaxConcurrency(int count) {
+        this.count = count;
+    }
+
+    /**
+     * <p>
+     * Get the maximum number of <code>Runnable</code>s running at once.
+     * </p>
+     */
+    public int getMaxConcurrency() {
+        return count;
+    }
+
+    /**
+     * <p>
+     * Same as <code>{@link #setMaxConcurrency(int)}</code>.
+     * </p>
+     */
+    public void setThreadCount(int count) {
+        setMaxConcurrency(count);
+    }
+
+    public int getThreadCount() {
+        return getMaxConcurrency();
+    }
+
+    /**
+     * <p>
+     * Set the thread priority of the platform threads used without virtual
+     * threads - has no effect after <code>initialize()</code> has been called.
+     * </p>
+     */
+    public void setThreadPriority(int prio) {
+        this.prio = prio;
+    }
+
+    public int getThreadPriority() {
+        return prio;
+    }
+
+    public void setThreadNamePrefix(String prfx) {
+        this.threadNamePrefix = prfx;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public boolean isThreadsInheritContextClassLoaderOfInitializingThread() {
+        return inheritLoader;
+    }
+
+    public void setThreadsInheritContextClassLoaderOfInitializingThread(
+            boolean inheritLoader) {
+        this.inheritLoader = inheritLoader;
+    }
+
+    /**
+     * @return whether the platform threads used without virtual threads are
+     *         daemons.
+     */
+    public boolean isMakeThreadsDaemons() {
+        return makeThreadsDaemons;
+    }
+
+    public void setMakeThreadsDaemons(boolean makeThreadsDaemons) {
+        this.makeThreadsDaemons = makeThreadsDaemons;
+    }
+
+    /**
+     * @return whether <code>Runnable</code>s run on virtual threads, known
+     *         once <code>initialize()</code> has been called.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public void setInstanceId(String schedInstId) {
+    }
+
+    public void setInstanceName(String schedName) {
+        schedulerInstanceName = schedName;
+    }
+
+    public void initialize() throws SchedulerConfigException {
+
+        if (threadFactory != null) // already initialized...
+            return;
+
+        if (count <= 0) {
+            throw new SchedulerConfigException(
+                    "Max concurrency must be > 0");
+        }
+        SimpleThreadPool.validateThreadPriority(prio);
+
+        String prefix = getThreadNamePrefix();
+        if (prefix == null) {
+            prefix = schedulerInstanceName + "_Worker";
+        }
+
+        if (isThreadsInheritContextClassLoaderOfInitializingThread()) {
+            contextClassLoader = Thread.currentThread().getContextClassLoader();
+            getLog().info(
+                    "Job execution threads will use class loader of thread: "
+                            + Thread.currentThread().getName());
+        }
+
+        threadFactory = createVirtualThreadFactory(prefix);
+        virtual = threadFactory != null;
+        if (virtual) {
+            getLog().info("Jobs will run on virtual threads, at most " + count + " at once.");
+        } else {
+            getLog().info("Virtual threads are not available, jobs will run on new platform threads, at most "
+                    + count + " at once.");
+            threadFactory = createPlatformThreadFactory(prefix);
+        }
+    }
+
+    /**
+     * @return a factory of virtual threads named after the given prefix, or
+     *         <code>null</code> if the JVM has none.
+     */
+    private ThreadFactory createVirtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            // through the public interface, as the builder class itself is not
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, prefix + "-", Long.valueOf(1L));
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (Exception e) {
+            // e.g. a preview feature not enabled
+            getLog().debug("Virtual threads cannot be used.", e);
+            return null;
+        }
+    }
+
+    private ThreadFactory createPlatformThreadFactory(final String prefix) {
+        final ThreadGroup threadGroup = Thread.currentThread().getThreadGroup();
+        final AtomicInteger threadNumber = new AtomicInteger(1);
+        return new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(threadGroup, runnable, prefix + "-" + threadNumber.getAndIncrement());
+                thread.setPriority(prio);
+                thread.setDaemon(makeThreadsDaemons);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * <p>
+     * Stop accepting <code>Runnable</code>s.
+     * </p>
+     *
+     * <p>
+     * Jobs currently in progress will complete.
+     * </p>
+     */
+    public void shutdown() {
+        shutdown(true);
+    }
+
+    /**
+     * <p>
+     * Stop accepting <code>Runnable</code>s, waiting for those running to
+     * complete if asked to.
+     * </p>
+     */
+    public void shutdown(boolean waitForJobsToComplete) {
+
+        synchronized (lock) {
+            getLog().debug("Shutting down threadpool...");
+
+            isShutdown = true;
+            lock.notifyAll();
+
+            if (waitForJobsToComplete == true) {
+                boolean interrupted = false;
+                try {
+                    while (running > 0) {
+                        try {
+                            // note: with waiting infinite time the
+                            // application may appear to 'hang'.
+                            lock.wait(2000);
+                        } catch (InterruptedException ignore) {
+                            interrupted = true;
+                        }
+                    }
+                } finally {
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                getLog().debug("No executing jobs remaining.");
+            }
+            getLog().debug("Shutdown of threadpool complete.");
+        }
+    }
+
+    /**
+     * <p>
+     * Run the given <code>Runnable</code> object on a new thread, once fewer
+     * than the maximum number are running.  If while waiting the thread pool
+     * is asked to shut down, the Runnable is run at once, as with the
+     * <code>SimpleThreadPool</code>.
+     * </p>
+     *
+     * @param runnable
+     *          the <code>Runnable</code> to be run.
+     */
+    public boolean runInThread(final Runnable runnable) {
+        if (runnable == null) {
+            return false;
+        }
+
+        synchronized (lock) {
+            // Wait until fewer than the maximum are running
+            while (running >= count && !isShutdown) {
+                try {
+                    lock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+            running++;
+        }
+
+        boolean started = false;
+        try {
+            Thread thread = threadFactory.newThread(new Runnable() {
+                public void run() {
+                    try {
+                        runnable.run();
+                    } finally {
+                        synchronized (lock) {
+                            running--;
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            });
+            if (contextClassLoader != null) {
+                thread.setContextClassLoader(contextClassLoader);
+            }
+            thread.start();
+            started = true;
+        } catch (RuntimeException e) {
+            getLog().error("Could not start a thread for " + runnable, e);
+        } catch (OutOfMemoryError e) {
+            getLog().error("Could not start a thread for " + runnable, e);
+        } finally {
+            if (!started) {
+                synchronized (lock) {
+                    running--;
+                    lock.notifyAll();
+                }
+            }
+        }
+        return started;
+    }
+
+    public int blockForAvailableThreads() {
+        synchronized (lock) {
+
+            while (running >= count && !isShutdown) {
+                try {
+                    lock.wait(500);
+                } catch (InterruptedException ignore) {
+                }
+            }
+
+            return Math.max(0, count - running);
+        }
+    }
+}
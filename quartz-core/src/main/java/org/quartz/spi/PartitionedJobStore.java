@@ -0,0 +1,58 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.spi;
+
+import java.util.List;
+
+import org.quartz.JobPersistenceException;
+
+/**
+ * <p>
+ * A <code>{@link JobStore}</code> whose triggers can be acquired by several
+ * scheduler threads in parallel, each of them responsible for a disjoint
+ * partition of the triggers.
+ * </p>
+ *
+ * <p>
+ * Triggers are partitioned by the hash of their group
+ * (<code>(group.hashCode() &amp; Integer.MAX_VALUE) % partitionCount</code>),
+ * so all the triggers of a group are always acquired by the same thread, in
+ * the order of their fire times and priorities.  The store remains
+ * responsible for never handing out a trigger twice, exactly as with a single
+ * scheduler thread.
+ * </p>
+ *
+ * @see org.quartz.core.QuartzSchedulerResources#setSchedulerThreadCount(int)
+ */
+public interface PartitionedJobStore extends JobStore {
+
+    /**
+     * <p>
+     * Get a handle to the next triggers of the given partition to be fired,
+     * and mark them as 'reserved' by the calling scheduler, as with
+     * <code>{@link JobStore#acquireNextTriggers(long, int, long)}</code>.
+     * </p>
+     *
+     * @param partition the partition to acquire triggers of, in
+     *        <code>[0, partitionCount)</code>.
+     * @param partitionCount the number of partitions the triggers are divided
+     *        into; always the same for a given scheduler.
+     */
+    List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow, int partition, int partitionCount)
+        throws JobPersistenceException;
+}
@@ -30,6 +30,17 @@ import java.util.Set;
  * and flags itself 'dirty' when it is modified.
  * </p>
  *
+ * <p>
+ * Clones are copy-on-write: a clone holds a snapshot of the wrapped map
+ * that is never modified in place, and takes a private copy of it before it
+ * is first modified (or hands out a view or the wrapped map itself).
+ * Cloning a map that is not itself a clone takes the snapshot; cloning a
+ * clone shares its snapshot.  Cloning never changes the map being cloned.
+ * This makes cloning cheap when, as for the <code>JobDataMap</code>s of
+ * jobs and triggers handed out by a <code>JobStore</code>, most clones are
+ * taken from a stored clone and only read.
+ * </p>
+ *
  * @author James House
  */
 public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializable {
@@ -45,6 +56,8 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
 
     private boolean dirty = false;
     private Map<K,V> map;
+    /** Whether <code>map</code> is a snapshot shared with clones, that must be copied before writing. */
+    private transient boolean copyOnWrite = false;
 
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -121,6 +134,7 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
      * </p>
      */
     public Map<K,V> getWrappedMap() {
+        copyIfShared();
         return map;
     }
 
@@ -128,7 +142,12 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
         if (!map.isEmpty()) {
             dirty = true;
         }
-        map.clear();
+        if (copyOnWrite) {
+            map = new HashMap<K,V>();
+            copyOnWrite = false;
+        } else {
+            map.clear();
+        }
     }
 
     public boolean containsKey(final Object key) {
@@ -140,6 +159,7 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
     }
 
     public Set<Entry<K,V>> entrySet() {
+        copyIfShared();
         return new DirtyFlagMapEntrySet(map.entrySet());
     }
 
@@ -149,7 +169,7 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
             return false;
         }
 
-        return map.equals(((DirtyFlagMap<?,?>) obj).getWrappedMap());
+        return map.equals(((DirtyFlagMap<?,?>) obj).map);
     }
 
     @Override
@@ -167,24 +187,37 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
     }
 
     public Set<K> keySet() {
+        copyIfShared();
         return new DirtyFlagSet<K>(map.keySet());
     }
 
     public V put(final K key, final V val) {
         dirty = true;
 
+        copyIfShared();
         return map.put(key, val);
     }
 
+    @SuppressWarnings("unchecked")
     public void putAll(final Map<? extends K, ? extends V> t) {
         if (!t.isEmpty()) {
             dirty = true;
+            copyIfShared();
         }
 
-        map.putAll(t);
+        if (t instanceof DirtyFlagMap) {
+            // read the other map directly, rather than through a view that
+            // would force it to take a private copy
+            map.putAll(((DirtyFlagMap<? extends K, ? extends V>) t).map);
+        } else {
+            map.putAll(t);
+        }
     }
 
     public V remove(final Object key) {
+        if (copyOnWrite && map.containsKey(key)) {
+            copyIfShared();
+        }
         V obj = map.remove(key);
 
         if (obj != null) {
@@ -199,6 +232,7 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
     }
 
     public Collection<V> values() {
+        copyIfShared();
         return new DirtyFlagCollection<V>(map.values());
     }
 
@@ -209,7 +243,12 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
         try {
             copy = (DirtyFlagMap<K,V>) super.clone();
             if (map instanceof HashMap) {
-                copy.map = (Map<K,V>)((HashMap<K,V>)map).clone();
+                if (!copyOnWrite) {
+                    // our map is written to in place, so the copy gets a
+                    // snapshot of it, which clones of the copy then share
+                    copy.map = (Map<K,V>)((HashMap<K,V>)map).clone();
+                }
+                copy.copyOnWrite = true;
             }
         } catch (CloneNotSupportedException ex) {
             throw new IncompatibleClassChangeError("Not Cloneable.");
@@ -218,6 +257,14 @@ public class DirtyFlagMap<K,V> implements Map<K,V>, Cloneable, java.io.Serializa
         return copy;
     }
 
+    @SuppressWarnings("unchecked")
+    private void copyIfShared() {
+        if (copyOnWrite) {
+            map = (Map<K,V>)((HashMap<K,V>)map).clone();
+            copyOnWrite = false;
+        }
+    }
+
     /**
      * Wrap a Collection so we can mark the DirtyFlagMap as dirty if
      * the underlying Collection is modified.
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2001-2013 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.core;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+import org.quartz.Scheduler;
+import org.quartz.core.PipelinedTriggerAcquisitionTest.Firing;
+import org.quartz.core.PipelinedTriggerAcquisitionTest.RecordingJob;
+import org.quartz.core.PipelinedTriggerAcquisitionTest.SlowRAMJobStore;
+import org.quartz.impl.StdSchedulerFactory;
+
+/**
+ * Tests the decisions of the <code>BatchAcquisitionController</code>, and
+ * adaptive batch trigger acquisition against a slow job store.
+ */
+public class BatchAcquisitionControllerTest extends TestCase {
+
+    private static final int POOL_SIZE = 30;
+
+    private BatchAcquisitionController newController(boolean adaptive, int maxBatchSize, long timeWindow) {
+        QuartzSchedulerResources qsRsrcs = new QuartzSchedulerResources();
+        qsRsrcs.setAdaptiveBatchAcquisition(adaptive);
+        qsRsrcs.setMaxBatchSize(maxBatchSize);
+        qsRsrcs.setBatchTimeWindow(timeWindow);
+        qsRsrcs.setAdaptiveMaxBatchTimeWindow(200L);
+        return new BatchAcquisitionController(qsRsrcs);
+    }
+
+    public void testStaticUnlessAdaptive() {
+        BatchAcquisitionController controller = newController(false, 5, 10L);
+        controller.batchAcquired(5, 5, 40L, POOL_SIZE, POOL_SIZE);
+        controller.batchFired(1000L, POOL_SIZE);
+        assertEquals(5, controller.getMaxBatchSize());
+        assertEquals(10L, controller.getBatchTimeWindow());
+        assertEquals("none", controller.getLastDecision());
+    }
+
+    public void testLateFullBatchesGrowUpToPoolSize() {
+        BatchAcquisitionController controller = newController(true, 1, 0L);
+        for (int i = 0; i < 10; i++) {
+            int maxCount = controller.getMaxBatchSize();
+            controller.batchAcquired(maxCount, maxCount, 40L, POOL_SIZE, POOL_SIZE);
+            controller.batchFired(500L, POOL_SIZE);
+        }
+        assertEquals(POOL_SIZE, controller.getMaxBatchSize());
+        // the window covers the acquisition latency, within its limit
+        assertTrue(controller.getBatchTimeWindow() >= 40L);
+        assertTrue(controller.getBatchTimeWindow() <= 200L);
+        assertTrue(controller.getLastDecision().startsWith("increased"));
+        assertTrue(controller.getMetrics().get("Increases").longValue() > 0);
+    }
+
+    public void testLateWithBusyPoolShrinksWindow() {
+        BatchAcquisitionController controller = newController(true, 1, 0L);
+        controller.batchAcquired(1, 1, 100L, POOL_SIZE, POOL_SIZE);
+        controller.batchFired(500L, POOL_SIZE);
+        long widened = controller.getBatchTimeWindow();
+        assertTrue(widened > 0L);
+
+        // the occupancy is averaged, so it takes a few batches to tell
+        for (int i = 0; i < 20; i++) {
+            controller.batchAcquired(1, 1, 100L, 0, POOL_SIZE);
+            controller.batchFired(500L, POOL_SIZE);
+        }
+        assertTrue(controller.getBatchTimeWindow() < widened);
+        assertTrue(controller.getLastDecision().startsWith("decreased"));
+    }
+
+    public void testOnTimeStepsBackToConfiguredValues() {
+        BatchAcquisitionController controller = newController(true, 2, 5L);
+        for (int i = 0; i < 5; i++) {
+            int maxCount = controller.getMaxBatchSize();
+            controller.batchAcquired(maxCount, maxCount, 40L, POOL_SIZE, POOL_SIZE);
+            controller.batchFired(500L, POOL_SIZE);
+        }
+        assertTrue(controller.getMaxBatchSize() > 2);
+
+        for (int i = 0; i < 100 * BatchAcquisitionController.ON_TIME_BATCHES_BEFORE_DECREASE; i++) {
+            controller.batchAcquired(1, 0, 1L, POOL_SIZE, POOL_SIZE);
+            controller.batchFired(0L, POOL_SIZE);
+        }
+        assertEquals(2, controller.getMaxBatchSize());
+        assertEquals(5L, controller.getBatchTimeWindow());
+    }
+
+    public void testAdaptiveBurst() throws Exception {
+        long fixed = fireBurst("fixedBatchBurst", false);
+        long adaptive = fireBurst("adaptiveBatchBurst", true);
+        assertTrue("burst drained in " + fixed + " ms with fixed batches, " + adaptive + " ms with adaptive batches",
+                adaptive * 4 < fixed);
+    }
+
+    private long fireBurst(String name, boolean adaptive) throws Exception {
+        Properties props = new Properties();
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, name);
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_SKIP_UPDATE_CHECK, "true");
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_JMX_EXPORT, "true");
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_ADAPTIVE_BATCH, Boolean.toString(adaptive));
+        props.setProperty(StdSchedulerFactory.PROP_JOB_STORE_CLASS, SlowRAMJobStore.class.getName());
+        props.setProperty("org.quartz.jobStore.misfireThreshold", "60000");
+        props.setProperty("org.quartz.threadPool.threadCount", Integer.toString(POOL_SIZE));
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        try {
+            int burstSize = 300;
+            CountDownLatch latch = new CountDownLatch(burstSize);
+            scheduler.getContext().put("LATCH", latch);
+            scheduler.getContext().put("FIRED", new ConcurrentLinkedQueue<Firing>());
+            scheduler.addJob(newJob(RecordingJob.class).withIdentity("job").storeDurably().build(), false);
+
+            long startAt = System.currentTimeMillis() + 1000L;
+            for (int i = 0; i < burstSize; i++) {
+                scheduler.scheduleJob(newTrigger().withIdentity("trigger" + i).forJob("job").startAt(new Date(startAt)).build());
+            }
+            scheduler.start();
+            assertTrue("burst was not fired in time", latch.await(60, TimeUnit.SECONDS));
+            long elapsed = System.currentTimeMillis() - startAt;
+
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(QuartzSchedulerResources.generateJMXObjectName(name, "NON_CLUSTERED"));
+            assertEquals(Boolean.valueOf(adaptive), mbeanServer.getAttribute(objectName, "BatchTriggerAcquisitionAdaptive"));
+            Integer maxCount = (Integer) mbeanServer.getAttribute(objectName, "BatchTriggerAcquisitionMaxCount");
+            if (adaptive) {
+                assertTrue(maxCount.intValue() > 1);
+            } else {
+                assertEquals(1, maxCount.intValue());
+            }
+            return elapsed;
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2001-2013 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.core;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredResult;
+
+/**
+ * Tests several scheduler threads, each firing the triggers of its own
+ * partition of the <code>RAMJobStore</code>.
+ */
+public class PartitionedSchedulerThreadsTest {
+
+    private static final String LATCH = "LATCH";
+    private static final String FIRED = "FIRED";
+    private static final String RUNNING = "RUNNING";
+
+    private static final int BURST_SIZE = 800;
+    private static final int GROUP_COUNT = 40;
+
+    public static class CountingJob implements Job {
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            try {
+                @SuppressWarnings("unchecked")
+                ConcurrentHashMap<String, AtomicInteger> fired = (ConcurrentHashMap<String, AtomicInteger>) context.getScheduler().getContext().get(FIRED);
+                AtomicInteger count = fired.putIfAbsent(context.getTrigger().getKey().toString(), new AtomicInteger(1));
+                if (count != null) {
+                    count.incrementAndGet();
+                }
+                ((CountDownLatch) context.getScheduler().getContext().get(LATCH)).countDown();
+            } catch (SchedulerException e) {
+                throw new JobExecutionException(e);
+            }
+        }
+    }
+
+    @DisallowConcurrentExecution
+    public static class NonConcurrentJob implements Job {
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            try {
+                AtomicInteger running = (AtomicInteger) context.getScheduler().getContext().get(RUNNING);
+                if (running.incrementAndGet() > 1) {
+                    context.getScheduler().getContext().put(FIRED, Boolean.TRUE);
+                }
+                Thread.sleep(50L);
+                running.decrementAndGet();
+                ((CountDownLatch) context.getScheduler().getContext().get(LATCH)).countDown();
+            } catch (Exception e) {
+                throw new JobExecutionException(e);
+            }
+        }
+    }
+
+    /**
+     * A <code>RAMJobStore</code> taking a little while to acquire and fire
+     * triggers outside of its lock, as the scheduler thread's own work
+     * between calls would.
+     */
+    public static class SlowRAMJobStore extends RAMJobStore {
+        @Override
+        public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow, int partition, int partitionCount) {
+            pause();
+            return super.acquireNextTriggers(noLaterThan, maxCount, timeWindow, partition, partitionCount);
+        }
+
+        @Override
+        public List<TriggerFiredResult> triggersFired(List<OperableTrigger> triggers) {
+            pause();
+            return super.triggersFired(triggers);
+        }
+
+        private void pause() {
+            try {
+                Thread.sleep(5L);
+            } catch (InterruptedException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Fires the burst against a store with latency outside of its lock, 
+     * which partition threads spend in parallel.  The store acquires and
+     * fires every partition's triggers under its one lock, so an 
+     * unmodified <code>RAMJobStore</code> would only show the parallelism
+     * of the rest of their loop: creating the <code>JobRunShell</code>s and
+     * handing them to the thread pool.
+     */
+    @Test
+    public void testFiresPerSecondScaling() throws Exception {
+        long oneThread = fireBurst("slowStore1", 1, SlowRAMJobStore.class);
+        long fourThreads = fireBurst("slowStore4", 4, SlowRAMJobStore.class);
+        Assert.assertTrue("burst fired in " + oneThread + " ms with 1 thread, " + fourThreads + " ms with 4 threads",
+                fourThreads * 2 < oneThread);
+    }
+
+    @Test
+    public void testNonConcurrentJobAcrossPartitions() throws Exception {
+        Scheduler scheduler = createScheduler("partitionedNonConcurrent", 4, SlowRAMJobStore.class);
+        try {
+            CountDownLatch latch = new CountDownLatch(GROUP_COUNT);
+            scheduler.getContext().put(LATCH, latch);
+            scheduler.getContext().put(RUNNING, new AtomicInteger());
+            scheduler.addJob(newJob(NonConcurrentJob.class).withIdentity("job").storeDurably().build(), false);
+
+            // one trigger in each group, so that every partition fires the same job
+            Date startAt = new Date(System.currentTimeMillis() + 500L);
+            for (int i = 0; i < GROUP_COUNT; i++) {
+                scheduler.scheduleJob(newTrigger().withIdentity("trigger", "group" + i).forJob("job").startAt(startAt).build());
+            }
+            scheduler.start();
+
+            Assert.assertTrue("triggers were not fired in time", latch.await(30, TimeUnit.SECONDS));
+            Assert.assertNull("job ran concurrently", scheduler.getContext().get(FIRED));
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    private long fireBurst(String name, int threadCount, Class<? extends RAMJobStore> storeClass) throws Exception {
+        Scheduler scheduler = createScheduler(name, threadCount, storeClass);
+        try {
+            CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+            ConcurrentHashMap<String, AtomicInteger> fired = new ConcurrentHashMap<String, AtomicInteger>();
+            scheduler.getContext().put(LATCH, latch);
+            scheduler.getContext().put(FIRED, fired);
+            scheduler.addJob(newJob(CountingJob.class).withIdentity("job").storeDurably().build(), false);
+
+            long startAt = System.currentTimeMillis() + 1000L;
+            for (int i = 0; i < BURST_SIZE; i++) {
+                scheduler.scheduleJob(newTrigger().withIdentity("trigger" + i, "group" + (i % GROUP_COUNT))
+                        .forJob("job").startAt(new Date(startAt)).build());
+            }
+            scheduler.start();
+
+            Assert.assertTrue("burst was not fired in time", latch.await(60, TimeUnit.SECONDS));
+            long elapsed = System.currentTimeMillis() - startAt;
+
+            Assert.assertEquals(BURST_SIZE, fired.size());
+            for (AtomicInteger count : fired.values()) {
+                Assert.assertEquals(1, count.get());
+            }
+            return elapsed;
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    private Scheduler createScheduler(String name, int threadCount, Class<? extends RAMJobStore> storeClass) throws SchedulerException {
+        Properties props = new Properties();
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, name);
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_SKIP_UPDATE_CHECK, "true");
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_SCHEDULER_THREAD_COUNT, Integer.toString(threadCount));
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_MAX_BATCH_SIZE, "5");
+        props.setProperty(StdSchedulerFactory.PROP_JOB_STORE_CLASS, storeClass.getName());
+        props.setProperty("org.quartz.jobStore.misfireThreshold", "60000");
+        props.setProperty("org.quartz.threadPool.threadCount", "40");
+        return new StdSchedulerFactory(props).getScheduler();
+    }
+}
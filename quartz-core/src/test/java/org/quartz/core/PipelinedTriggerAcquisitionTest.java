@@ -0,0 +1,195 @@
+/*
+ * Copyright 2001-2013 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.core;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredResult;
+
+/**
+ * Tests the pipelined trigger acquisition of the <code>QuartzSchedulerThread</code>
+ * against a job store as slow to acquire and fire triggers as a database.
+ */
+public class PipelinedTriggerAcquisitionTest {
+
+    private static final String LATCH = "LATCH";
+    private static final String FIRED = "FIRED";
+
+    private static final int BURST_SIZE = 600;
+
+    static class Firing {
+        final String trigger;
+        final long lateness;
+
+        Firing(String trigger, long lateness) {
+            this.trigger = trigger;
+            this.lateness = lateness;
+        }
+    }
+
+    public static class RecordingJob implements Job {
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            try {
+                @SuppressWarnings("unchecked")
+                ConcurrentLinkedQueue<Firing> fired = (ConcurrentLinkedQueue<Firing>) context.getScheduler().getContext().get(FIRED);
+                fired.add(new Firing(context.getTrigger().getKey().getName(),
+                        System.currentTimeMillis() - context.getScheduledFireTime().getTime()));
+                ((CountDownLatch) context.getScheduler().getContext().get(LATCH)).countDown();
+            } catch (SchedulerException e) {
+                throw new JobExecutionException(e);
+            }
+        }
+    }
+
+    /**
+     * A <code>RAMJobStore</code> taking as long to acquire and fire triggers
+     * as a round trip to a database would.
+     */
+    public static class SlowRAMJobStore extends RAMJobStore {
+        @Override
+        public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
+            pause();
+            return super.acquireNextTriggers(noLaterThan, maxCount, timeWindow);
+        }
+
+        @Override
+        public List<TriggerFiredResult> triggersFired(List<OperableTrigger> triggers) {
+            pause();
+            return super.triggersFired(triggers);
+        }
+
+        private void pause() {
+            try {
+                Thread.sleep(20L);
+            } catch (InterruptedException ignore) {
+            }
+        }
+    }
+
+    @Test
+    public void testTopOfTheMinuteBurst() throws Exception {
+        long sequential = fireBurst("sequentialBurst", false, false);
+        long pipelined = fireBurst("pipelinedBurst", true, false);
+        long prefired = fireBurst("prefiredBurst", true, true);
+        // acquiring the next batch while the last one is fired overlaps
+        // the store's round trips, which dominate the drain time here
+        Assert.assertTrue("pipelined " + pipelined + " ms, sequential " + sequential + " ms",
+                pipelined < sequential * 3 / 4);
+        Assert.assertTrue("pipelined and pre-fired " + prefired + " ms, sequential " + sequential + " ms",
+                prefired < sequential * 3 / 4);
+    }
+
+    @Test
+    public void testEarlierTriggerReleasesAcquiredBatches() throws Exception {
+        Scheduler scheduler = createScheduler("earlierTrigger", 1, true, true);
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            ConcurrentLinkedQueue<Firing> fired = new ConcurrentLinkedQueue<Firing>();
+            scheduler.getContext().put(LATCH, latch);
+            scheduler.getContext().put(FIRED, fired);
+            scheduler.addJob(newJob(RecordingJob.class).withIdentity("job").storeDurably().build(), false);
+
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < 10; i++) {
+                scheduler.scheduleJob(newTrigger().withIdentity("late" + i).forJob("job").startAt(new Date(now + 20000L)).build());
+            }
+            // one trigger per batch, so that most of them are queued ahead
+            scheduler.start();
+            Thread.sleep(500L);
+
+            Trigger early = newTrigger().withIdentity("early").forJob("job").startAt(new Date(System.currentTimeMillis() + 500L)).build();
+            scheduler.scheduleJob(early);
+
+            Assert.assertTrue("earlier trigger was held back by the acquired batches", latch.await(5, TimeUnit.SECONDS));
+            Firing firing = fired.peek();
+            Assert.assertEquals("early", firing.trigger);
+            Assert.assertTrue(firing.lateness < 1000L);
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    private long fireBurst(String name, boolean pipelined, boolean prefire) throws Exception {
+        Scheduler scheduler = createScheduler(name, 10, pipelined, prefire);
+        try {
+            CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+            ConcurrentLinkedQueue<Firing> fired = new ConcurrentLinkedQueue<Firing>();
+            scheduler.getContext().put(LATCH, latch);
+            scheduler.getContext().put(FIRED, fired);
+            scheduler.addJob(newJob(RecordingJob.class).withIdentity("job").storeDurably().build(), false);
+
+            Date startAt = new Date(System.currentTimeMillis() + 1500L);
+            Set<String> expected = new HashSet<String>();
+            for (int i = 0; i < BURST_SIZE; i++) {
+                scheduler.scheduleJob(newTrigger().withIdentity("trigger" + i).forJob("job").startAt(startAt).build());
+                expected.add("trigger" + i);
+            }
+            scheduler.start();
+
+            Assert.assertTrue("burst was not fired in time", latch.await(60, TimeUnit.SECONDS));
+
+            List<Long> lateness = new ArrayList<Long>();
+            Set<String> actual = new HashSet<String>();
+            for (Firing firing : fired) {
+                lateness.add(firing.lateness);
+                actual.add(firing.trigger);
+            }
+            Assert.assertEquals(BURST_SIZE, fired.size());
+            Assert.assertEquals(expected, actual);
+
+            return Collections.max(lateness);
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    private Scheduler createScheduler(String name, int maxBatchSize, boolean pipelined, boolean prefire) throws SchedulerException {
+        Properties props = new Properties();
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, name);
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_SKIP_UPDATE_CHECK, "true");
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_MAX_BATCH_SIZE, Integer.toString(maxBatchSize));
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_PIPELINED_TRIGGER_ACQUISITION, Boolean.toString(pipelined));
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_PREFIRE_ACQUIRED_TRIGGERS, Boolean.toString(prefire));
+        props.setProperty(StdSchedulerFactory.PROP_JOB_STORE_CLASS, SlowRAMJobStore.class.getName());
+        props.setProperty("org.quartz.jobStore.misfireThreshold", "60000");
+        props.setProperty("org.quartz.threadPool.threadCount", "30");
+        return new StdSchedulerFactory(props).getScheduler();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2001-2013 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.core;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.ThreadPool;
+import org.quartz.spi.TriggerFiredBundle;
+
+/**
+ * Tests the <code>TimingWheelDispatcher</code>, and the precision of trigger
+ * firing with it, against batches acquired ahead of their fire times.
+ */
+public class TimingWheelDispatchTest {
+
+    private static final String LATCH = "LATCH";
+    private static final String FIRED = "FIRED";
+
+    private static final int TRIGGER_COUNT = 200;
+
+    // the precision with which the scheduled fire times are placed on the nanoTime scale
+    private static final long CLOCK_RESOLUTION_MICROS = 1000L;
+
+    // the nanoTime of millisecond zero
+    private static long baseNanos;
+    private static long baseMillis;
+
+    public static class JitterJob implements Job {
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            long nanos = System.nanoTime();
+            long scheduledNanos = baseNanos + (context.getScheduledFireTime().getTime() - baseMillis) * 1000000L;
+            try {
+                @SuppressWarnings("unchecked")
+                ConcurrentLinkedQueue<Long> fired = (ConcurrentLinkedQueue<Long>) context.getScheduler().getContext().get(FIRED);
+                fired.add(Long.valueOf((nanos - scheduledNanos) / 1000L));
+                ((CountDownLatch) context.getScheduler().getContext().get(LATCH)).countDown();
+            } catch (SchedulerException e) {
+                throw new JobExecutionException(e);
+            }
+        }
+    }
+
+    @Test
+    public void testJitter() throws Exception {
+        synchronizeClocks();
+
+        List<Long> batched = fire("batchedJitter", false);
+        List<Long> wheel = fire("timingWheelJitter", true);
+        // batches of 20 acquired 100 ms ahead fire most of their triggers early,
+        // while the wheel holds each one until its fire time; how late it
+        // then fires depends on the load of the host, so is not asserted
+        Assert.assertTrue("batched median jitter " + batched.get(batched.size() / 2) + " us",
+                batched.get(batched.size() / 2) < 0L);
+        Assert.assertTrue("timing wheel fired " + -wheel.get(0) + " us early",
+                wheel.get(0) >= -CLOCK_RESOLUTION_MICROS);
+    }
+
+    @Test
+    public void testHoldsShellUntilFireTime() throws Exception {
+        RecordingThreadPool pool = new RecordingThreadPool();
+        TimingWheelDispatcher wheel = newDispatcher(pool);
+        wheel.start();
+        try {
+            long fireTime = System.currentTimeMillis() + 200L;
+            Assert.assertTrue(schedule(wheel, new Date(fireTime)));
+            Assert.assertEquals(1, wheel.getPendingCount());
+
+            Assert.assertTrue("shell was not dispatched", pool.dispatched.await(10, TimeUnit.SECONDS));
+            Assert.assertTrue("dispatched early", pool.dispatchedAt >= fireTime);
+            Assert.assertEquals(0, wheel.getPendingCount());
+        } finally {
+            wheel.halt();
+            wheel.join();
+        }
+    }
+
+    @Test
+    public void testRefusesShellsItCannotHold() throws Exception {
+        RecordingThreadPool pool = new RecordingThreadPool();
+        TimingWheelDispatcher wheel = newDispatcher(pool);
+        wheel.start();
+        try {
+            Assert.assertFalse(schedule(wheel, null));
+            Assert.assertFalse(schedule(wheel, new Date(System.currentTimeMillis() - 1000L)));
+            Assert.assertEquals(0, wheel.getPendingCount());
+        } finally {
+            wheel.halt();
+            wheel.join();
+        }
+
+        Assert.assertFalse(schedule(wheel, new Date(System.currentTimeMillis() + 60000L)));
+        Assert.assertEquals(0, wheel.getPendingCount());
+        Assert.assertEquals(0, pool.runCount.get());
+    }
+
+    @Test
+    public void testHaltDispatchesHeldShells() throws Exception {
+        RecordingThreadPool pool = new RecordingThreadPool();
+        TimingWheelDispatcher wheel = newDispatcher(pool);
+        wheel.start();
+
+        // further ahead than a turn of the wheel
+        long fireTime = System.currentTimeMillis() + 60000L;
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(schedule(wheel, new Date(fireTime + i)));
+        }
+        Assert.assertEquals(3, wheel.getPendingCount());
+        Assert.assertEquals(0, pool.runCount.get());
+
+        wheel.halt();
+        wheel.join(10000L);
+        Assert.assertFalse(wheel.isAlive());
+        Assert.assertEquals(0, wheel.getPendingCount());
+        Assert.assertEquals(3, pool.runCount.get());
+    }
+
+    /**
+     * A thread pool that records the shells it is given, without running them.
+     */
+    static class RecordingThreadPool implements ThreadPool {
+        final AtomicInteger runCount = new AtomicInteger();
+        final CountDownLatch dispatched = new CountDownLatch(1);
+        volatile long dispatchedAt;
+
+        public boolean runInThread(Runnable runnable) {
+            if (runCount.getAndIncrement() == 0) {
+                dispatchedAt = System.currentTimeMillis();
+                dispatched.countDown();
+            }
+            return true;
+        }
+
+        public int blockForAvailableThreads() {
+            return 1;
+        }
+
+        public int getPoolSize() {
+            return 1;
+        }
+
+        public void initialize() {
+        }
+
+        public void shutdown(boolean waitForJobsToComplete) {
+        }
+
+        public void setInstanceId(String schedInstId) {
+        }
+
+        public void setInstanceName(String schedName) {
+        }
+    }
+
+    private static TimingWheelDispatcher newDispatcher(ThreadPool pool) {
+        QuartzSchedulerResources qsRsrcs = new QuartzSchedulerResources();
+        qsRsrcs.setThreadPool(pool);
+        return new TimingWheelDispatcher(new Thread("TimingWheelDispatchTest"), qsRsrcs);
+    }
+
+    private static boolean schedule(TimingWheelDispatcher wheel, Date scheduledFireTime) {
+        JobDetail job = newJob(JitterJob.class).build();
+        OperableTrigger trigger = (OperableTrigger) newTrigger().forJob(job).build();
+        TriggerFiredBundle bndle = new TriggerFiredBundle(job, trigger, null, false, new Date(), scheduledFireTime, null, null);
+        return wheel.schedule(new JobRunShell(null, bndle), trigger, bndle);
+    }
+
+    private List<Long> fire(String name, boolean timingWheel) throws Exception {
+        Properties props = new Properties();
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, name);
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_SKIP_UPDATE_CHECK, "true");
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_MAX_BATCH_SIZE, "20");
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_BATCH_TIME_WINDOW, "100");
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_TIMING_WHEEL_DISPATCH, Boolean.toString(timingWheel));
+        props.setProperty("org.quartz.threadPool.threadCount", "20");
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        try {
+            CountDownLatch latch = new CountDownLatch(TRIGGER_COUNT);
+            ConcurrentLinkedQueue<Long> fired = new ConcurrentLinkedQueue<Long>();
+            scheduler.getContext().put(LATCH, latch);
+            scheduler.getContext().put(FIRED, fired);
+            scheduler.addJob(newJob(JitterJob.class).withIdentity("job").storeDurably().build(), false);
+
+            // a trigger every 7 ms, so that a batch spans a few dozen milliseconds
+            long startAt = System.currentTimeMillis() + 1500L;
+            for (int i = 0; i < TRIGGER_COUNT; i++) {
+                scheduler.scheduleJob(newTrigger().withIdentity("trigger" + i).forJob("job").startAt(new Date(startAt + i * 7L)).build());
+            }
+            scheduler.start();
+
+            Assert.assertTrue("triggers were not fired in time", latch.await(30, TimeUnit.SECONDS));
+            List<Long> jitter = new ArrayList<Long>(fired);
+            Collections.sort(jitter);
+            return jitter;
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    /**
+     * Reads the nanoTime at the turn of a millisecond, keeping the earliest
+     * of several readings, as any of them may have been delayed.
+     */
+    private static void synchronizeClocks() {
+        long offset = Long.MAX_VALUE;
+        for (int i = 0; i < 50; i++) {
+            long millis = System.currentTimeMillis();
+            while (System.currentTimeMillis() == millis) {
+            }
+            offset = Math.min(offset, System.nanoTime() - (millis + 1) * 1000000L);
+        }
+        baseMillis = System.currentTimeMillis();
+        baseNanos = offset + baseMillis * 1000000L;
+    }
+}
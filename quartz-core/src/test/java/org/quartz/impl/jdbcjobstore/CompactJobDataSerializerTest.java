@@ -0,0 +1,173 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.impl.jdbcjobstore;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.quartz.JobDataMap;
+import org.quartz.impl.calendar.AnnualCalendar;
+import org.quartz.impl.calendar.BaseCalendar;
+import org.quartz.impl.calendar.CronCalendar;
+import org.quartz.impl.calendar.DailyCalendar;
+import org.quartz.impl.calendar.HolidayCalendar;
+import org.quartz.impl.calendar.MonthlyCalendar;
+import org.quartz.impl.calendar.WeeklyCalendar;
+import org.quartz.simpl.SimpleClassLoadHelper;
+import org.slf4j.LoggerFactory;
+
+import junit.framework.TestCase;
+
+public class CompactJobDataSerializerTest extends TestCase {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private StdJDBCDelegate compact;
+
+    private StdJDBCDelegate standard;
+
+    @Override
+    protected void setUp() throws Exception {
+        compact = createDelegate("jobDataSerializerClass=" + CompactJobDataSerializer.class.getName());
+        standard = createDelegate("");
+    }
+
+    public void testJobDataMapRoundTrip() throws Exception {
+        JobDataMap map = createJobDataMap();
+        byte[] bytes = compact.serializeJobData(map).toByteArray();
+        assertEquals('Q', bytes[0]);
+
+        JobDataMap read = (JobDataMap) read(compact, bytes);
+        assertEquals(map, read);
+        assertFalse(read.isDirty());
+        assertEquals(Long.valueOf(Long.MAX_VALUE), read.get("long"));
+        assertEquals(new Date(1234567890L), read.get("date"));
+        assertNull(read.get("null"));
+    }
+
+    public void testCalendarRoundTrip() throws Exception {
+        long now = System.currentTimeMillis();
+        TimeZone timeZone = TimeZone.getTimeZone("America/Los_Angeles");
+
+        HolidayCalendar holidays = new HolidayCalendar();
+        holidays.addExcludedDate(new Date(now + DAY));
+        holidays.setDescription("holidays");
+
+        WeeklyCalendar weekly = new WeeklyCalendar(holidays);
+        weekly.setDayExcluded(java.util.Calendar.WEDNESDAY, true);
+        weekly.setTimeZone(timeZone);
+
+        MonthlyCalendar monthly = new MonthlyCalendar(weekly);
+        monthly.setDayExcluded(15, true);
+
+        AnnualCalendar annual = new AnnualCalendar();
+        GregorianCalendar christmas = new GregorianCalendar(2010, java.util.Calendar.DECEMBER, 25);
+        annual.setDayExcluded(christmas, true);
+
+        CronCalendar cron = new CronCalendar(monthly, "* * 0-7 ? * *", timeZone);
+
+        for (BaseCalendar calendar : new BaseCalendar[] { new BaseCalendar(), holidays, weekly, monthly, annual, cron }) {
+            assertTrue(calendar.toString(), compact.jobDataSerializer.canSerialize(calendar));
+            BaseCalendar read = (BaseCalendar) read(compact, compact.serializeObject(calendar).toByteArray());
+            assertSame(calendar.getClass(), read.getClass());
+            assertEquals(calendar.getDescription(), read.getDescription());
+            assertEquals(calendar.getTimeZone(), read.getTimeZone());
+            for (long time = now; time < now + 40 * DAY; time += DAY / 3) {
+                assertEquals(calendar.isTimeIncluded(time), read.isTimeIncluded(time));
+            }
+        }
+
+        AnnualCalendar readAnnual = (AnnualCalendar) read(compact, compact.serializeObject(annual).toByteArray());
+        assertTrue(readAnnual.isDayExcluded(christmas));
+        assertEquals("* * 0-7 ? * *",
+            ((CronCalendar) read(compact, compact.serializeObject(cron).toByteArray())).getCronExpression().getCronExpression());
+    }
+
+    public void testUnsupportedObjectsUseJavaSerialization() throws Exception {
+        JobDataMap map = createJobDataMap();
+        map.put("list", new ArrayList<String>());
+        assertFalse(compact.jobDataSerializer.canSerialize(map));
+
+        DailyCalendar daily = new DailyCalendar("08:00", "17:00");
+        assertFalse(compact.jobDataSerializer.canSerialize(daily));
+        assertFalse(compact.jobDataSerializer.canSerialize(new WeeklyCalendar(daily)));
+        assertFalse(compact.jobDataSerializer.canSerialize(new HolidayCalendar() { }));
+
+        for (Object obj : new Object[] { map, daily }) {
+            byte[] bytes = compact.serializeObject(obj).toByteArray();
+            assertEquals((byte) 0xAC, bytes[0]);
+            assertEquals(obj.getClass(), read(compact, bytes).getClass());
+        }
+    }
+
+    public void testReadsBlobsWrittenWithEitherFormat() throws Exception {
+        JobDataMap map = createJobDataMap();
+        byte[] legacy = standard.serializeJobData(map).toByteArray();
+        byte[] compacted = compact.serializeJobData(map).toByteArray();
+
+        assertEquals(map, read(compact, legacy));
+        assertEquals(map, read(standard, legacy));
+        assertEquals(map, read(compact, compacted));
+        assertTrue(compacted.length < legacy.length);
+    }
+
+    public void testSizeAgainstJavaSerialization() throws Exception {
+        HolidayCalendar holidays = new HolidayCalendar();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 365; i++) {
+            holidays.addExcludedDate(new Date(now + i * 7 * DAY));
+        }
+
+        byte[] legacy = standard.serializeObject(holidays).toByteArray();
+        byte[] compacted = compact.serializeObject(holidays).toByteArray();
+        assertEquals(holidays.getExcludedDates(), ((HolidayCalendar) read(compact, compacted)).getExcludedDates());
+        assertTrue(compacted.length + " bytes against " + legacy.length, compacted.length * 2 < legacy.length);
+
+        JobDataMap map = createJobDataMap();
+        legacy = standard.serializeJobData(map).toByteArray();
+        compacted = compact.serializeJobData(map).toByteArray();
+        assertTrue(compacted.length + " bytes against " + legacy.length, compacted.length * 2 < legacy.length);
+    }
+
+    private static JobDataMap createJobDataMap() {
+        JobDataMap map = new JobDataMap();
+        map.put("string", "value \u00e9");
+        map.put("int", 42);
+        map.put("long", Long.MAX_VALUE);
+        map.put("boolean", true);
+        map.put("double", 3.25d);
+        map.put("float", 1.5f);
+        map.put("short", (short) 7);
+        map.put("byte", (byte) -3);
+        map.put("char", 'x');
+        map.put("date", new Date(1234567890L));
+        map.put("null", null);
+        return map;
+    }
+
+    private static Object read(StdJDBCDelegate delegate, byte[] bytes) throws Exception {
+        return delegate.readObject(new ByteArrayInputStream(bytes));
+    }
+
+    private StdJDBCDelegate createDelegate(String initString) throws NoSuchDelegateException {
+        StdJDBCDelegate delegate = new StdJDBCDelegate();
+        delegate.initialize(LoggerFactory.getLogger(getClass()), "QRTZ_", "TESTSCHED", "INSTANCE", new SimpleClassLoadHelper(), false, initString);
+        return delegate;
+    }
+}
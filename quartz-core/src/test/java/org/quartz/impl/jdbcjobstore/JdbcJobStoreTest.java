@@ -1,10 +1,51 @@
 package org.quartz.impl.jdbcjobstore;
 
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.quartz.AbstractJobStoreTest;
+import org.quartz.CalendarIntervalScheduleBuilder;
+import org.quartz.CalendarIntervalTrigger;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.CronTrigger;
+import org.quartz.DailyTimeIntervalScheduleBuilder;
+import org.quartz.DailyTimeIntervalTrigger;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
+import org.quartz.ScheduleBuilder;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.quartz.impl.calendar.HolidayCalendar;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.ClassLoadHelper;
 import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.spi.TriggerFiredResult;
+import org.quartz.utils.DBConnectionManager;
 
 public class JdbcJobStoreTest extends AbstractJobStoreTest {
 
@@ -14,6 +55,1010 @@ public class JdbcJobStoreTest extends AbstractJobStoreTest {
         // nothing
     }
 
+    public void testAcquireMixedTriggersInBatch() throws Exception {
+        JobStore store = createMixedTriggerStore("testAcquireMixedTriggersInBatch");
+        try {
+            long noLaterThan = System.currentTimeMillis() + 2 * 24 * 60 * 60 * 1000L;
+            List<OperableTrigger> triggers = store.acquireNextTriggers(noLaterThan, 10, 0L);
+            assertEquals(5, triggers.size());
+
+            Set<String> names = new HashSet<String>();
+            for (OperableTrigger trigger : triggers) {
+                names.add(trigger.getKey().getName());
+                assertNotNull(trigger.getFireInstanceId());
+                assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(trigger.getKey()));
+            }
+            assertTrue(names.containsAll(Arrays.asList("simple", "cron", "calendar", "daily")));
+
+            assertEquals(5 * 60 * 1000L, ((SimpleTrigger) find(triggers, "simple")).getRepeatInterval());
+            assertEquals("0 0 12 * * ?", ((CronTrigger) find(triggers, "cron")).getCronExpression());
+            assertEquals(3, ((CalendarIntervalTrigger) find(triggers, "calendar")).getRepeatInterval());
+            assertEquals(7, ((DailyTimeIntervalTrigger) find(triggers, "daily")).getRepeatInterval());
+
+            // only one trigger of the non-concurrent job is acquired per batch
+            names.retainAll(Arrays.asList("nonConcurrent1", "nonConcurrent2"));
+            assertEquals(1, names.size());
+
+            triggers = store.acquireNextTriggers(noLaterThan, 10, 0L);
+            assertEquals(1, triggers.size());
+            assertFalse(names.contains(triggers.get(0).getKey().getName()));
+            
+            assertTrue(store.acquireNextTriggers(noLaterThan, 10, 0L).isEmpty());
+        } finally {
+            destroyJobStore("testAcquireMixedTriggersInBatch");
+        }
+    }
+
+    public void testFireMixedTriggersInBatch() throws Exception {
+        JobStore store = createMixedTriggerStore("testFireMixedTriggersInBatch");
+        try {
+            long noLaterThan = System.currentTimeMillis() + 2 * 24 * 60 * 60 * 1000L;
+            List<OperableTrigger> triggers = store.acquireNextTriggers(noLaterThan, 10, 0L);
+            assertEquals(5, triggers.size());
+            
+            Map<String, Date> fireTimes = new HashMap<String, Date>();
+            for (OperableTrigger trigger : triggers) {
+                fireTimes.put(trigger.getKey().getName(), trigger.getNextFireTime());
+            }
+            store.removeTrigger(TriggerKey.triggerKey("calendar"));
+
+            List<TriggerFiredResult> results = store.triggersFired(triggers);
+            assertEquals(5, results.size());
+            for (int i = 0; i < triggers.size(); i++) {
+                String name = triggers.get(i).getKey().getName();
+                TriggerFiredBundle bundle = results.get(i).getTriggerFiredBundle();
+                assertNull(results.get(i).getException());
+                if (name.equals("calendar")) {
+                    assertNull(bundle);
+                    continue;
+                }
+                assertNotNull(name, bundle);
+                assertEquals(fireTimes.get(name), bundle.getScheduledFireTime());
+                
+                OperableTrigger stored = (OperableTrigger) store.retrieveTrigger(triggers.get(i).getKey());
+                assertTrue(name, stored.getNextFireTime().after(fireTimes.get(name)));
+                if (name.startsWith("nonConcurrent")) {
+                    assertEquals(NonConcurrentJob.class, bundle.getJobDetail().getJobClass());
+                    assertEquals(Trigger.TriggerState.BLOCKED, store.getTriggerState(stored.getKey()));
+                } else {
+                    assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(stored.getKey()));
+                }
+            }
+            assertEquals(1, ((SimpleTrigger) store.retrieveTrigger(TriggerKey.triggerKey("simple"))).getTimesTriggered());
+        } finally {
+            destroyJobStore("testFireMixedTriggersInBatch");
+        }
+    }
+
+    public void testGroupCommitJobCompletions() throws Exception {
+        final JobStoreSupport store = (JobStoreSupport) createMixedTriggerStore("testGroupCommitJobCompletions");
+        try {
+            store.setGroupCommitJobCompletions(true);
+            
+            long noLaterThan = System.currentTimeMillis() + 2 * 24 * 60 * 60 * 1000L;
+            List<OperableTrigger> triggers = store.acquireNextTriggers(noLaterThan, 10, 0L);
+            final List<TriggerFiredResult> results = store.triggersFired(triggers);
+            
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<Thread>();
+            for (final TriggerFiredResult result : results) {
+                Thread worker = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        TriggerFiredBundle bundle = result.getTriggerFiredBundle();
+                        store.triggeredJobComplete(bundle.getTrigger(), bundle.getJobDetail(), 
+                                Trigger.CompletedExecutionInstruction.NOOP);
+                    }
+                };
+                worker.start();
+                workers.add(worker);
+            }
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join(30000L);
+                assertFalse(worker.isAlive());
+            }
+            
+            // the non-concurrent job's other trigger is unblocked, and every fired record is gone 
+            assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(TriggerKey.triggerKey("nonConcurrent1")));
+            assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(TriggerKey.triggerKey("nonConcurrent2")));
+            Connection conn = DBConnectionManager.getInstance().getConnection("testGroupCommitJobCompletions");
+            try {
+                assertTrue(store.getDelegate().selectInstancesFiredTriggerRecords(conn, "SINGLE_NODE_TEST").isEmpty());
+            } finally {
+                conn.close();
+            }
+        } finally {
+            destroyJobStore("testGroupCommitJobCompletions");
+        }
+    }
+
+    public void testAcquireTriggersWithoutLockFromTwoNodes() throws Exception {
+        final String name = "testAcquireTriggersWithoutLockFromTwoNodes";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreSupport node1 = (JobStoreSupport) createJobStore(name);
+        node1.setInstanceId("node1");
+        JobStoreSupport node2 = createNode(name, "node2");
+        try {
+            final JobStoreSupport[] nodes = new JobStoreSupport[] { node1, node2 };
+            for (JobStoreSupport node : nodes) {
+                node.setAcquireTriggersWithoutLock(true);
+                node.initialize(loadHelper, new SampleSignaler());
+                node.schedulerStarted();
+            }
+
+            JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job").storeDurably().build();
+            node1.storeJob(job, false);
+            Date startTime = new Date(System.currentTimeMillis() + 60 * 1000L);
+            final int triggerCount = 40;
+            for (int i = 0; i < triggerCount; i++) {
+                storeTrigger(node1, job, "trigger" + i, startTime, SimpleScheduleBuilder.repeatMinutelyForever());
+            }
+
+            final long noLaterThan = System.currentTimeMillis() + 2 * 60 * 1000L;
+            final List<List<TriggerKey>> acquired = new ArrayList<List<TriggerKey>>();
+            final List<Throwable> failures = new ArrayList<Throwable>();
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Thread> acquirers = new ArrayList<Thread>();
+            for (final JobStoreSupport node : nodes) {
+                final List<TriggerKey> keys = new ArrayList<TriggerKey>();
+                acquired.add(keys);
+                Thread acquirer = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            List<OperableTrigger> triggers;
+                            do {
+                                triggers = node.acquireNextTriggers(noLaterThan, 5, 0L);
+                                for (OperableTrigger trigger : triggers) {
+                                    keys.add(trigger.getKey());
+                                }
+                            } while (!triggers.isEmpty());
+                        } catch (Throwable t) {
+                            synchronized (failures) {
+                                failures.add(t);
+                            }
+                        }
+                    }
+                };
+                acquirer.start();
+                acquirers.add(acquirer);
+            }
+            start.countDown();
+            for (Thread acquirer : acquirers) {
+                acquirer.join(60000L);
+                assertFalse(acquirer.isAlive());
+            }
+            assertTrue(failures.toString(), failures.isEmpty());
+
+            // every trigger is acquired by exactly one of the nodes
+            Set<TriggerKey> all = new HashSet<TriggerKey>(acquired.get(0));
+            for (TriggerKey key : acquired.get(1)) {
+                assertTrue(key + " acquired twice", all.add(key));
+            }
+            assertEquals(triggerCount, all.size());
+            assertEquals(triggerCount, acquired.get(0).size() + acquired.get(1).size());
+        } finally {
+            node2.shutdown();
+            destroyJobStore(name);
+        }
+    }
+
+    public void testPartitionedClusterNodesAcquireOwnTriggers() throws Exception {
+        final String name = "testPartitionedClusterNodesAcquireOwnTriggers";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreSupport node1 = (JobStoreSupport) createJobStore(name);
+        node1.setInstanceId("node1");
+        JobStoreSupport node2 = createNode(name, "node2");
+        try {
+            JobStoreSupport[] nodes = new JobStoreSupport[] { node1, node2 };
+            for (JobStoreSupport node : nodes) {
+                node.setIsClustered(true);
+                node.setTriggerPartitionCount(8);
+                node.setAcquireTriggersWithoutLock(true);
+                node.initialize(loadHelper, new SampleSignaler());
+                node.schedulerStarted();
+            }
+            // node1 checked in alone, so it learns of node2 at its next check-in
+            assertEquals(8, node1.getTriggerPartitions().getOwnedPartitionCount());
+            node1.doCheckin();
+            assertEquals(4, node1.getTriggerPartitions().getOwnedPartitionCount());
+            assertEquals(4, node2.getTriggerPartitions().getOwnedPartitionCount());
+
+            JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job").storeDurably().build();
+            node1.storeJob(job, false);
+            Date startTime = new Date(System.currentTimeMillis() + 60 * 1000L);
+            final int triggerCount = 40;
+            for (int i = 0; i < triggerCount; i++) {
+                storeTrigger(node1, job, "trigger" + i, startTime, SimpleScheduleBuilder.repeatMinutelyForever());
+            }
+
+            long noLaterThan = System.currentTimeMillis() + 2 * 60 * 1000L;
+            Set<TriggerKey> all = new HashSet<TriggerKey>();
+            for (JobStoreSupport node : nodes) {
+                List<OperableTrigger> triggers = node.acquireNextTriggers(noLaterThan, triggerCount, 0L);
+                assertFalse(triggers.isEmpty());
+                for (OperableTrigger trigger : triggers) {
+                    assertTrue(node.getTriggerPartitions().isOwned(trigger.getKey()));
+                    assertTrue(all.add(trigger.getKey()));
+                }
+                assertTrue(node.acquireNextTriggers(noLaterThan, triggerCount, 0L).isEmpty());
+            }
+            assertEquals(triggerCount, all.size());
+        } finally {
+            node2.shutdown();
+            destroyJobStore(name);
+        }
+    }
+
+    public void testCachePreparedStatements() throws Exception {
+        final String name = "testCachePreparedStatements";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreSupport store = (JobStoreSupport) createJobStore(name);
+        try {
+            store.setDriverDelegateInitString("cachePreparedStatements=true");
+            store.initialize(loadHelper, new SampleSignaler());
+            store.schedulerStarted();
+
+            JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job").storeDurably().build();
+            store.storeJob(job, false);
+            Date startTime = new Date(System.currentTimeMillis() + 60 * 1000L);
+            for (int i = 0; i < 5; i++) {
+                storeTrigger(store, job, "trigger" + i, startTime, SimpleScheduleBuilder.repeatMinutelyForever());
+            }
+
+            long noLaterThan = System.currentTimeMillis() + 24 * 60 * 60 * 1000L;
+            for (int round = 0; round < 2; round++) {
+                List<OperableTrigger> triggers = store.acquireNextTriggers(noLaterThan, 5, 60 * 1000L);
+                assertEquals(5, triggers.size());
+                List<TriggerFiredResult> results = store.triggersFired(triggers);
+                assertEquals(5, results.size());
+                for (TriggerFiredResult result : results) {
+                    TriggerFiredBundle bundle = result.getTriggerFiredBundle();
+                    assertNotNull(bundle);
+                    store.triggeredJobComplete(bundle.getTrigger(), bundle.getJobDetail(), Trigger.CompletedExecutionInstruction.NOOP);
+                }
+            }
+            assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(TriggerKey.triggerKey("trigger0")));
+        } finally {
+            destroyJobStore(name);
+        }
+    }
+
+    public void testBatchMisfireRecovery() throws Exception {
+        int count = 1000;
+        Map<TriggerKey, String> expectedStates = null;
+        boolean[] rounds = { false, true };
+        long[] statements = new long[rounds.length];
+        for (int round = 0; round < rounds.length; round++) {
+            boolean batch = rounds[round];
+            final String name = "testBatchMisfireRecovery" + round;
+            ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+            loadHelper.initialize();
+
+            JobStoreSupport store = (JobStoreSupport) createJobStore(name);
+            AtomicLong executions = JdbcQuartzTestUtilities.countStatementExecutions(name);
+            try {
+                CountingSignaler signaler = new CountingSignaler();
+                store.setBatchMisfireRecovery(batch);
+                store.setMaxMisfiresToHandleAtATime(100);
+                store.initialize(loadHelper, signaler);
+
+                JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job").storeDurably().build();
+                JobDetail nonConcurrentJob = JobBuilder.newJob(NonConcurrentJob.class).withIdentity("nonConcurrentJob").storeDurably().build();
+                store.storeJob(job, false);
+                store.storeJob(nonConcurrentJob, false);
+                HolidayCalendar holidays = new HolidayCalendar();
+                holidays.addExcludedDate(new Date());
+                store.storeCalendar("holidays", holidays, false, false);
+
+                Date startTime = new Date(System.currentTimeMillis() - 10 * 60 * 1000L);
+                for (int i = 0; i < count; i++) {
+                    ScheduleBuilder<?> schedule;
+                    switch (i % 4) {
+                        case 0: schedule = SimpleScheduleBuilder.repeatMinutelyForever(); break;
+                        case 1: schedule = SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionNextWithRemainingCount(); break;
+                        case 2: schedule = CronScheduleBuilder.cronSchedule("0 * * * * ?"); break;
+                        default: schedule = CronScheduleBuilder.cronSchedule("0 * * * * ?").withMisfireHandlingInstructionDoNothing(); break;
+                    }
+                    OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger()
+                        .withIdentity(TriggerKey.triggerKey("trigger" + i, "group" + (i % 3)))
+                        .forJob(i % 10 == 0 ? nonConcurrentJob : job)
+                        .startAt(startTime)
+                        .modifiedByCalendar(i % 7 == 0 ? "holidays" : null)
+                        .withSchedule(schedule)
+                        .build();
+                    trigger.computeFirstFireTime(null);
+                    store.storeTrigger(trigger, false);
+                }
+                store.pauseTriggers(GroupMatcher.triggerGroupEquals("group1"));
+                // pausing leaves the triggers in the PAUSED state, so put some back to show the group check
+                Connection conn = DBConnectionManager.getInstance().getConnection(name);
+                try {
+                    store.getDelegate().updateTriggerGroupStateFromOtherState(conn, GroupMatcher.triggerGroupEquals("group1"), Constants.STATE_WAITING, Constants.STATE_PAUSED);
+                    if (!conn.getAutoCommit()) {
+                        conn.commit();
+                    }
+                } finally {
+                    conn.close();
+                }
+
+                long recoveryStart = System.currentTimeMillis();
+                long executionsBefore = executions.get();
+                int recovered = 0;
+                JobStoreSupport.RecoverMisfiredJobsResult result;
+                do {
+                    result = store.doRecoverMisfires();
+                    recovered += result.getProcessedMisfiredTriggerCount();
+                } while (result.hasMoreMisfiredTriggers());
+                statements[round] = executions.get() - executionsBefore;
+
+                assertEquals(count, recovered);
+                assertEquals(count, signaler.misfires);
+                assertEquals(count / 4, signaler.finalized);
+
+                Map<TriggerKey, String> states = new HashMap<TriggerKey, String>();
+                for (int i = 0; i < count; i++) {
+                    TriggerKey key = TriggerKey.triggerKey("trigger" + i, "group" + (i % 3));
+                    states.put(key, store.getTriggerState(key).name());
+                    OperableTrigger trigger = store.retrieveTrigger(key);
+                    if (i % 4 == 1) {
+                        assertNull(trigger.getNextFireTime());
+                        assertEquals(Trigger.TriggerState.COMPLETE.name(), states.get(key));
+                    } else {
+                        assertTrue(trigger.getNextFireTime().getTime() >= recoveryStart - store.getMisfireThreshold());
+                    }
+                }
+                if (expectedStates == null) {
+                    expectedStates = states;
+                } else {
+                    assertEquals(expectedStates, states);
+                }
+                assertEquals(Trigger.TriggerState.PAUSED, store.getTriggerState(TriggerKey.triggerKey("trigger4", "group1")));
+                assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(TriggerKey.triggerKey("trigger3", "group0")));
+            } finally {
+                destroyJobStore(name);
+            }
+        }
+        assertTrue(statements[1] + " statements in batches, " + statements[0] + " one at a time",
+            statements[1] * 3 < statements[0]);
+    }
+
+    public void testBulkRemovePauseAndResume() throws Exception {
+        final String name = "testBulkRemovePauseAndResume";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreSupport store = (JobStoreSupport) createJobStore(name);
+        AtomicLong executions = JdbcQuartzTestUtilities.countStatementExecutions(name);
+        try {
+            store.initialize(loadHelper, new CountingSignaler());
+            store.schedulerStarted();
+
+            int jobCount = 100;
+            int triggersPerJob = 10;
+            Date startTime = new Date(System.currentTimeMillis() + 60 * 60 * 1000L);
+            List<JobKey> jobKeys = new ArrayList<JobKey>();
+            for (int j = 0; j < jobCount; j++) {
+                JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job" + j, "tenantJobs").build();
+                store.storeJob(job, false);
+                jobKeys.add(job.getKey());
+                for (int t = 0; t < triggersPerJob; t++) {
+                    ScheduleBuilder<?> schedule;
+                    switch (t % 4) {
+                        case 0: schedule = SimpleScheduleBuilder.repeatMinutelyForever(); break;
+                        case 1: schedule = CronScheduleBuilder.cronSchedule("0 * * * * ?"); break;
+                        case 2: schedule = CalendarIntervalScheduleBuilder.calendarIntervalSchedule().withIntervalInHours(3); break;
+                        default: schedule = DailyTimeIntervalScheduleBuilder.dailyTimeIntervalSchedule().withIntervalInMinutes(7); break;
+                    }
+                    OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger()
+                        .withIdentity(TriggerKey.triggerKey("trigger" + j + "_" + t, "tenant"))
+                        .forJob(job)
+                        .startAt(j == 0 && t == 0 ? new Date(System.currentTimeMillis() - 10 * 60 * 1000L) : startTime)
+                        .withSchedule(schedule)
+                        .build();
+                    trigger.computeFirstFireTime(null);
+                    store.storeTrigger(trigger, false);
+                }
+            }
+            int tenantTriggers = jobCount * triggersPerJob;
+            TriggerKey misfired = TriggerKey.triggerKey("trigger0_0", "tenant");
+
+            JobDetail nonConcurrentJob = JobBuilder.newJob(NonConcurrentJob.class).withIdentity("nonConcurrentJob", "tenantJobs").storeDurably().build();
+            store.storeJob(nonConcurrentJob, false);
+            TriggerKey blocked = TriggerKey.triggerKey("nonConcurrent2", "tenant");
+            for (TriggerKey key : Arrays.asList(TriggerKey.triggerKey("nonConcurrent1", "tenant"), blocked)) {
+                OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger().withIdentity(key).forJob(nonConcurrentJob)
+                    .startAt(new Date(System.currentTimeMillis() + (key.equals(blocked) ? 60 * 60 * 1000L : 1000L)))
+                    .withSchedule(SimpleScheduleBuilder.repeatMinutelyForever()).build();
+                trigger.computeFirstFireTime(null);
+                store.storeTrigger(trigger, false);
+            }
+            JobDetail other = JobBuilder.newJob(MyJob.class).withIdentity("other", "otherJobs").storeDurably().build();
+            store.storeJob(other, false);
+            storeTrigger(store, other, "other", startTime, SimpleScheduleBuilder.repeatMinutelyForever());
+            TriggerKey otherKey = TriggerKey.triggerKey("other");
+
+            // the non-concurrent job starts executing, blocking its other trigger
+            List<OperableTrigger> acquired = store.acquireNextTriggers(System.currentTimeMillis() + 60 * 1000L, 1, 0L);
+            assertEquals("nonConcurrent1", acquired.get(0).getKey().getName());
+            store.triggersFired(acquired);
+            assertEquals(Trigger.TriggerState.BLOCKED, store.getTriggerState(blocked));
+
+            long start = executions.get();
+            assertEquals(new HashSet<String>(Arrays.asList("tenantJobs")), store.pauseJobs(GroupMatcher.jobGroupEquals("tenantJobs")));
+            assertStatements("Paused", tenantTriggers, "by job group", executions.get() - start, 20);
+            assertEquals(Trigger.TriggerState.PAUSED, store.getTriggerState(TriggerKey.triggerKey("trigger99_9", "tenant")));
+            assertEquals(Trigger.TriggerState.PAUSED, store.getTriggerState(blocked));
+            assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(otherKey));
+
+            start = executions.get();
+            assertEquals(new HashSet<String>(Arrays.asList("tenantJobs")), store.resumeJobs(GroupMatcher.jobGroupEquals("tenantJobs")));
+            assertStatements("Resumed", tenantTriggers, "by job group", executions.get() - start, 20);
+            assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(TriggerKey.triggerKey("trigger99_9", "tenant")));
+            assertEquals(Trigger.TriggerState.BLOCKED, store.getTriggerState(blocked));
+            // the trigger that missed its fire time while paused had its misfire instruction applied
+            assertTrue(store.retrieveTrigger(misfired).getNextFireTime().getTime() >= System.currentTimeMillis() - store.getMisfireThreshold());
+
+            start = executions.get();
+            store.pauseTriggers(GroupMatcher.triggerGroupEquals("tenant"));
+            assertStatements("Paused", tenantTriggers, "by trigger group", executions.get() - start, 20);
+            assertEquals(Trigger.TriggerState.PAUSED, store.getTriggerState(TriggerKey.triggerKey("trigger42_3", "tenant")));
+            assertEquals(Trigger.TriggerState.PAUSED, store.getTriggerState(blocked));
+
+            start = executions.get();
+            assertEquals(new HashSet<String>(Arrays.asList("tenant")), store.resumeTriggers(GroupMatcher.triggerGroupEquals("tenant")));
+            assertStatements("Resumed", tenantTriggers, "by trigger group", executions.get() - start, 20);
+            assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(TriggerKey.triggerKey("trigger42_3", "tenant")));
+            assertEquals(Trigger.TriggerState.BLOCKED, store.getTriggerState(blocked));
+
+            // removing all of the triggers of the even jobs removes those jobs too, as they are not durable
+            List<TriggerKey> triggerKeys = new ArrayList<TriggerKey>();
+            for (int j = 0; j < jobCount; j++) {
+                for (int t = 0; t < (j % 2 == 0 ? triggersPerJob : triggersPerJob / 2); t++) {
+                    triggerKeys.add(TriggerKey.triggerKey("trigger" + j + "_" + t, "tenant"));
+                }
+            }
+            // one status lookup per key, the deletes batched
+            start = executions.get();
+            assertTrue(store.removeTriggers(triggerKeys));
+            assertStatements("Removed", triggerKeys.size(), "and their orphaned jobs", executions.get() - start, triggerKeys.size() + 20);
+            assertNull(store.retrieveJob(JobKey.jobKey("job0", "tenantJobs")));
+            assertNotNull(store.retrieveJob(JobKey.jobKey("job1", "tenantJobs")));
+            assertEquals(jobCount / 2 + 2, store.getNumberOfJobs());
+            assertEquals(tenantTriggers - triggerKeys.size() + 3, store.getNumberOfTriggers());
+            assertFalse(store.removeTriggers(Arrays.asList(TriggerKey.triggerKey("trigger0_0", "tenant"))));
+
+            List<JobKey> remaining = new ArrayList<JobKey>();
+            for (int j = 1; j < jobCount; j += 2) {
+                remaining.add(jobKeys.get(j));
+            }
+            remaining.add(nonConcurrentJob.getKey());
+            // one lookup per job
+            start = executions.get();
+            assertTrue(store.removeJobs(remaining));
+            assertStatements("Removed", tenantTriggers - triggerKeys.size() + 2, "with their jobs", executions.get() - start, remaining.size() + 20);
+            assertFalse(store.removeJobs(Arrays.asList(jobKeys.get(1), other.getKey())));
+            assertEquals(0, store.getNumberOfJobs());
+            assertEquals(0, store.getNumberOfTriggers());
+        } finally {
+            destroyJobStore(name);
+        }
+    }
+
+    /**
+     * Asserts that an operation executed no more than the given number of
+     * statements, a batch counting once.
+     */
+    private static void assertStatements(String operation, int triggers, String how, long statements, long maxStatements) {
+        assertTrue(operation + " " + triggers + " triggers " + how + " in " + statements + " statements",
+            statements <= maxStatements);
+    }
+
+    public void testBulkStoreJobsAndTriggers() throws Exception {
+        final String name = "testBulkStoreJobsAndTriggers";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreSupport store = (JobStoreSupport) createJobStore(name);
+        AtomicLong executions = JdbcQuartzTestUtilities.countStatementExecutions(name);
+        try {
+            store.initialize(loadHelper, new CountingSignaler());
+            store.schedulerStarted();
+            store.pauseTriggers(GroupMatcher.triggerGroupEquals("paused"));
+
+            int jobCount = 200;
+            int triggersPerJob = 5;
+            Map<JobDetail, Set<? extends Trigger>> jobsAndTriggers = createJobsAndTriggers(jobCount, triggersPerJob, "loaded");
+            JobDetail idle = JobBuilder.newJob(MyJob.class).withIdentity("idle", "loaded").storeDurably().build();
+            jobsAndTriggers.put(idle, new HashSet<Trigger>());
+
+            store.setMaxTriggersToStoreAtATime(300);
+            // one existence check per job and trigger, the inserts batched per chunk
+            long start = executions.get();
+            store.storeJobsAndTriggers(jobsAndTriggers, false);
+            assertStatements("Stored", jobCount * triggersPerJob, "with " + (jobCount + 1) + " jobs in chunks of 300", executions.get() - start,
+                jobCount + 1 + jobCount * triggersPerJob + 40);
+
+            assertEquals(jobCount + 1, store.getNumberOfJobs());
+            assertEquals(jobCount * triggersPerJob, store.getNumberOfTriggers());
+            assertNotNull(store.retrieveJob(idle.getKey()));
+            assertEquals("0 * * * * ?", ((CronTrigger) store.retrieveTrigger(TriggerKey.triggerKey("trigger7_1", "paused"))).getCronExpression());
+            assertEquals(3, ((CalendarIntervalTrigger) store.retrieveTrigger(TriggerKey.triggerKey("trigger7_2", "loaded"))).getRepeatInterval());
+            assertEquals(Trigger.TriggerState.NORMAL, store.getTriggerState(TriggerKey.triggerKey("trigger7_2", "loaded")));
+            assertEquals(Trigger.TriggerState.PAUSED, store.getTriggerState(TriggerKey.triggerKey("trigger7_3", "paused")));
+
+            // nothing of a call that conflicts with what is stored is kept
+            store.setMaxTriggersToStoreAtATime(0);
+            Map<JobDetail, Set<? extends Trigger>> conflicting = createJobsAndTriggers(1, 1, "other");
+            conflicting.putAll(createJobsAndTriggers(1, 1, "loaded"));
+            try {
+                store.storeJobsAndTriggers(conflicting, false);
+                fail("Expected ObjectAlreadyExistsException");
+            } catch (ObjectAlreadyExistsException expected) {
+                // expected
+            }
+            assertNull(store.retrieveJob(JobKey.jobKey("job0", "other")));
+            assertEquals(jobCount * triggersPerJob, store.getNumberOfTriggers());
+
+            // replacing updates what exists and inserts the rest
+            Map<JobDetail, Set<? extends Trigger>> replacements = createJobsAndTriggers(jobCount + 10, triggersPerJob, "loaded");
+            // existing jobs are updated one at a time
+            start = executions.get();
+            store.storeJobsAndTriggers(replacements, true);
+            assertStatements("Replaced", (jobCount + 10) * triggersPerJob, "with their jobs", executions.get() - start,
+                2 * (jobCount + 10) + (jobCount + 10) * triggersPerJob + 20);
+            assertEquals(jobCount + 11, store.getNumberOfJobs());
+            assertEquals((jobCount + 10) * triggersPerJob, store.getNumberOfTriggers());
+            assertEquals("replaced", store.retrieveJob(JobKey.jobKey("job3", "loaded")).getDescription());
+        } finally {
+            destroyJobStore(name);
+        }
+    }
+
+    private static Map<JobDetail, Set<? extends Trigger>> createJobsAndTriggers(int jobCount, int triggersPerJob, String jobGroup) {
+        Date startTime = new Date(System.currentTimeMillis() + 60 * 60 * 1000L);
+        Map<JobDetail, Set<? extends Trigger>> jobsAndTriggers = new LinkedHashMap<JobDetail, Set<? extends Trigger>>();
+        for (int j = 0; j < jobCount; j++) {
+            JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job" + j, jobGroup)
+                .withDescription(jobCount > 200 ? "replaced" : null).usingJobData("index", j).build();
+            Set<Trigger> triggers = new HashSet<Trigger>();
+            for (int t = 0; t < triggersPerJob; t++) {
+                ScheduleBuilder<?> schedule;
+                switch (t % 4) {
+                    case 0: schedule = SimpleScheduleBuilder.repeatMinutelyForever(); break;
+                    case 1: schedule = CronScheduleBuilder.cronSchedule("0 * * * * ?"); break;
+                    case 2: schedule = CalendarIntervalScheduleBuilder.calendarIntervalSchedule().withIntervalInHours(3); break;
+                    default: schedule = DailyTimeIntervalScheduleBuilder.dailyTimeIntervalSchedule().withIntervalInMinutes(7); break;
+                }
+                OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger()
+                    .withIdentity(TriggerKey.triggerKey("trigger" + j + "_" + t, t % 2 == 0 ? jobGroup : "paused"))
+                    .forJob(job)
+                    .startAt(startTime)
+                    .withSchedule(schedule)
+                    .build();
+                trigger.computeFirstFireTime(null);
+                triggers.add(trigger);
+            }
+            jobsAndTriggers.put(job, triggers);
+        }
+        return jobsAndTriggers;
+    }
+
+    public void testIncrementalClusterRecovery() throws Exception {
+        final String name = "testIncrementalClusterRecovery";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreSupport node1 = (JobStoreSupport) createJobStore(name);
+        node1.setInstanceId("node1");
+        JobStoreSupport node2 = createNode(name, "node2");
+        try {
+            for (JobStoreSupport node : new JobStoreSupport[] { node1, node2 }) {
+                node.setIsClustered(true);
+                node.setMaxFiredTriggersToRecoverAtATime(10);
+                node.initialize(loadHelper, new SampleSignaler());
+                node.doCheckin();
+            }
+
+            JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job").requestRecovery().storeDurably().build();
+            node1.storeJob(job, false);
+            Date startTime = new Date(System.currentTimeMillis() + 60 * 1000L);
+            final int triggerCount = 25;
+            for (int i = 0; i < triggerCount; i++) {
+                storeTrigger(node1, job, "trigger" + i, startTime, SimpleScheduleBuilder.repeatMinutelyForever());
+            }
+
+            // node2 fires 20 of the triggers, has acquired the other 5, and then fails
+            List<OperableTrigger> acquired = node2.acquireNextTriggers(startTime.getTime() + 60 * 1000L, triggerCount, 0L);
+            assertEquals(triggerCount, acquired.size());
+            node2.triggersFired(acquired.subList(0, 20));
+            Connection conn = DBConnectionManager.getInstance().getConnection(name);
+            try {
+                node1.getDelegate().updateSchedulerState(conn, "node2", 1L);
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+            } finally {
+                conn.close();
+            }
+
+            int checkins = 0;
+            while (node1.doCheckin()) {
+                checkins++;
+                assertTrue(checkins < 10);
+            }
+            assertEquals(3, checkins);
+
+            GroupMatcher<TriggerKey> recoveryGroup = GroupMatcher.triggerGroupEquals(Scheduler.DEFAULT_RECOVERY_GROUP);
+            assertEquals(20, node1.getTriggerKeys(recoveryGroup).size());
+            for (OperableTrigger trigger : acquired) {
+                assertEquals(Trigger.TriggerState.NORMAL, node1.getTriggerState(trigger.getKey()));
+            }
+            conn = DBConnectionManager.getInstance().getConnection(name);
+            try {
+                assertTrue(node1.getDelegate().selectInstancesFiredTriggerRecords(conn, "node2").isEmpty());
+                assertEquals(1, node1.getDelegate().selectSchedulerStateRecords(conn, null).size());
+            } finally {
+                conn.close();
+            }
+        } finally {
+            node2.shutdown();
+            destroyJobStore(name);
+        }
+    }
+
+    public void testScheduleChangesWakeOtherNodes() throws Exception {
+        final String name = "testScheduleChangesWakeOtherNodes";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreSupport node1 = (JobStoreSupport) createJobStore(name);
+        node1.setInstanceId("node1");
+        JobStoreSupport node2 = createNode(name, "node2");
+        final BlockingQueue<Long> signals = new LinkedBlockingQueue<Long>();
+        try {
+            for (JobStoreSupport node : new JobStoreSupport[] { node1, node2 }) {
+                node.setIsClustered(true);
+                node.setScheduleChangePollInterval(50L);
+            }
+            node1.initialize(loadHelper, new SampleSignaler());
+            node2.initialize(loadHelper, new SampleSignaler() {
+                @Override
+                public void signalSchedulingChange(long candidateNewNextFireTime) {
+                    signals.add(candidateNewNextFireTime);
+                }
+            });
+            node2.schedulerStarted();
+
+            JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job").storeDurably().build();
+            node1.storeJob(job, false);
+            Date startTime = new Date(System.currentTimeMillis() + 60 * 1000L);
+            storeTrigger(node1, job, "trigger", startTime, SimpleScheduleBuilder.repeatMinutelyForever());
+
+            // the storing transaction leaves the counter to node1's watcher
+            Connection conn = DBConnectionManager.getInstance().getConnection(name);
+            try {
+                assertEquals(0L, node1.getDelegate().selectChangeCounter(conn, Constants.COUNTER_SCHEDULE));
+            } finally {
+                conn.close();
+            }
+            node1.schedulerStarted();
+            assertSignaled(signals, startTime.getTime());
+
+            // a later trigger still signals the earliest fire time
+            storeTrigger(node1, job, "later", new Date(startTime.getTime() + 60 * 1000L), SimpleScheduleBuilder.repeatMinutelyForever());
+            assertSignaled(signals, startTime.getTime());
+
+            node1.pauseTrigger(TriggerKey.triggerKey("trigger"));
+            node1.resumeTrigger(TriggerKey.triggerKey("trigger"));
+            assertSignaled(signals, startTime.getTime());
+        } finally {
+            node1.shutdown();
+            node2.shutdown();
+            destroyJobStore(name);
+        }
+    }
+
+    private static void assertSignaled(BlockingQueue<Long> signals, long nextFireTime) throws InterruptedException {
+        long giveUpAt = System.currentTimeMillis() + 10 * 1000L;
+        Long signal;
+        do {
+            signal = signals.poll(giveUpAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            assertNotNull("not signaled", signal);
+        } while (signal != nextFireTime);
+        signals.clear();
+    }
+
+    public void testReadDataSourceAndCache() throws Exception {
+        final String name = "testReadDataSourceAndCache";
+        final String replica = name + "Replica";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreSupport store = (JobStoreSupport) createJobStore(name);
+        JdbcQuartzTestUtilities.createDatabase(replica);
+        try {
+            store.setReadDataSource(replica);
+            store.initialize(loadHelper, new SampleSignaler());
+
+            JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job").storeDurably().build();
+            store.storeJob(job, false);
+            storeTrigger(store, job, "trigger", new Date(System.currentTimeMillis() + 60 * 1000L), SimpleScheduleBuilder.repeatMinutelyForever());
+
+            // monitoring queries see the (empty) replica, everything else the main database
+            assertEquals(0, store.getNumberOfJobs());
+            assertTrue(store.getTriggerKeys(GroupMatcher.anyTriggerGroup()).isEmpty());
+            assertEquals(Trigger.TriggerState.NONE, store.getTriggerState(TriggerKey.triggerKey("trigger")));
+            assertEquals(1, store.getTriggersForJob(job.getKey()).size());
+            assertNotNull(store.retrieveJob(job.getKey()));
+
+            store.setReadDataSource(null);
+            store.setReadCacheTimeToLive(60 * 1000L);
+            assertEquals(1, store.getNumberOfJobs());
+            Set<TriggerKey> keys = store.getTriggerKeys(GroupMatcher.anyTriggerGroup());
+            assertEquals(1, keys.size());
+            keys.clear();
+
+            // cached for the time to live, and handed out as copies
+            store.storeJob(JobBuilder.newJob(MyJob.class).withIdentity("job2").storeDurably().build(), false);
+            storeTrigger(store, job, "trigger2", new Date(System.currentTimeMillis() + 60 * 1000L), SimpleScheduleBuilder.repeatMinutelyForever());
+            assertEquals(1, store.getNumberOfJobs());
+            assertEquals(1, store.getTriggerKeys(GroupMatcher.anyTriggerGroup()).size());
+            assertEquals(2, store.getTriggerKeys(GroupMatcher.triggerGroupEquals(Scheduler.DEFAULT_GROUP)).size());
+            assertEquals(2, store.getTriggersForJob(job.getKey()).size());
+
+            store.setReadCacheTimeToLive(1L);
+            Thread.sleep(10L);
+            assertEquals(2, store.getNumberOfJobs());
+        } finally {
+            destroyJobStore(name);
+            JdbcQuartzTestUtilities.destroyDatabase(replica);
+        }
+    }
+
+    public void testCacheJobDetails() throws Exception {
+        final String name = "testCacheJobDetails";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreSupport node1 = (JobStoreSupport) createJobStore(name);
+        node1.setInstanceId("node1");
+        JobStoreSupport node2 = createNode(name, "node2");
+        try {
+            for (JobStoreSupport node : new JobStoreSupport[] { node1, node2 }) {
+                node.setCacheJobDetails(true);
+                node.initialize(loadHelper, new SampleSignaler());
+            }
+
+            JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job").usingJobData("version", "1").storeDurably().build();
+            node1.storeJob(job, false);
+            storeTrigger(node1, job, "trigger", new Date(System.currentTimeMillis() + 60 * 1000L), SimpleScheduleBuilder.repeatMinutelyForever());
+            assertEquals("1", fireNext(node1).getJobDetail().getJobDataMap().getString("version"));
+
+            // changed behind the store's back, so the cached job is still used
+            Connection conn = DBConnectionManager.getInstance().getConnection(name);
+            try {
+                node1.getDelegate().updateJobData(conn, job.getJobBuilder().usingJobData("version", "2").build());
+                if (!conn.getAutoCommit()) {
+                    conn.commit();
+                }
+            } finally {
+                conn.close();
+            }
+            TriggerFiredBundle bundle = fireNext(node1);
+            assertEquals("1", bundle.getJobDetail().getJobDataMap().getString("version"));
+            bundle.getJobDetail().getJobDataMap().put("version", "modified");
+
+            // changed by another node, which bumps the change counter
+            node2.storeJob(job.getJobBuilder().usingJobData("version", "3").build(), true);
+            assertEquals("3", fireNext(node1).getJobDetail().getJobDataMap().getString("version"));
+            assertEquals("3", fireNext(node1).getJobDetail().getJobDataMap().getString("version"));
+            
+            node2.removeJob(job.getKey());
+            assertNull(node1.retrieveJob(job.getKey()));
+        } finally {
+            node2.shutdown();
+            destroyJobStore(name);
+        }
+    }
+
+    public void testChangeCounterUpdatedConcurrently() throws Exception {
+        final String name = "testChangeCounterUpdatedConcurrently";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreSupport node1 = (JobStoreSupport) createJobStore(name);
+        node1.setInstanceId("node1");
+        JobStoreSupport node2 = createNode(name, "node2");
+        try {
+            for (JobStoreSupport node : new JobStoreSupport[] { node1, node2 }) {
+                node.setCacheJobDetails(true);
+                node.initialize(loadHelper, new SampleSignaler());
+            }
+
+            // replacing a job bumps the counter, which the first update creates
+            final int jobsPerThread = 5;
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < jobsPerThread; j++) {
+                    node1.storeJob(JobBuilder.newJob(MyJob.class).withIdentity("job" + j, "group" + i).storeDurably().build(), false);
+                }
+            }
+            final List<Exception> failures = new ArrayList<Exception>();
+            final CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int i = 0; i < 4; i++) {
+                final JobStoreSupport node = (i % 2 == 0) ? node1 : node2;
+                final String group = "group" + i;
+                Thread thread = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int j = 0; j < jobsPerThread; j++) {
+                                node.storeJob(JobBuilder.newJob(MyJob.class).withIdentity("job" + j, group).storeDurably().build(), true);
+                            }
+                        } catch (Exception e) {
+                            synchronized (failures) {
+                                failures.add(e);
+                            }
+                        }
+                    }
+                };
+                thread.start();
+                threads.add(thread);
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(Collections.<Exception>emptyList(), failures);
+
+            Connection conn = DBConnectionManager.getInstance().getConnection(name);
+            try {
+                assertEquals(threads.size() * jobsPerThread, node1.getDelegate().selectChangeCounter(conn, Constants.COUNTER_JOB_DETAILS));
+            } finally {
+                conn.close();
+            }
+        } finally {
+            node2.shutdown();
+            destroyJobStore(name);
+        }
+    }
+
+    public void testCacheCalendarsWhenClustered() throws Exception {
+        final String name = "testCacheCalendarsWhenClustered";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreSupport node1 = (JobStoreSupport) createJobStore(name);
+        node1.setInstanceId("node1");
+        JobStoreSupport node2 = createNode(name, "node2");
+        try {
+            for (JobStoreSupport node : new JobStoreSupport[] { node1, node2 }) {
+                node.setIsClustered(true);
+                node.setCacheCalendarsWhenClustered(true);
+                node.initialize(loadHelper, new SampleSignaler());
+            }
+
+            Date holiday = new Date(System.currentTimeMillis() + 24 * 60 * 60 * 1000L);
+            HolidayCalendar calendar = new HolidayCalendar();
+            calendar.addExcludedDate(holiday);
+            node1.storeCalendar("holidays", calendar, false, false);
+
+            HolidayCalendar cached = (HolidayCalendar) node1.retrieveCalendar("holidays");
+            assertFalse(cached.isTimeIncluded(holiday.getTime()));
+            assertSame(cached, node1.retrieveCalendar("holidays"));
+
+            // replaced by another node, which bumps the change counter
+            node2.storeCalendar("holidays", new HolidayCalendar(), true, false);
+            HolidayCalendar replaced = (HolidayCalendar) node1.retrieveCalendar("holidays");
+            assertNotSame(cached, replaced);
+            assertTrue(replaced.isTimeIncluded(holiday.getTime()));
+            assertSame(replaced, node1.retrieveCalendar("holidays"));
+
+            node2.removeCalendar("holidays");
+            assertNull(node1.retrieveCalendar("holidays"));
+        } finally {
+            node2.shutdown();
+            destroyJobStore(name);
+        }
+    }
+
+    private JobStore createMixedTriggerStore(String name) throws Exception {
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStore store = createJobStore(name);
+        store.initialize(loadHelper, new SampleSignaler());
+        store.schedulerStarted();
+
+        JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job").storeDurably().build();
+        JobDetail nonConcurrentJob = JobBuilder.newJob(NonConcurrentJob.class).withIdentity("nonConcurrentJob").storeDurably().build();
+        store.storeJob(job, false);
+        store.storeJob(nonConcurrentJob, false);
+
+        Date startTime = new Date(System.currentTimeMillis() + 60 * 1000L);
+        storeTrigger(store, job, "simple", startTime, SimpleScheduleBuilder.repeatMinutelyForever(5));
+        storeTrigger(store, job, "cron", startTime, CronScheduleBuilder.cronSchedule("0 0 12 * * ?"));
+        storeTrigger(store, job, "calendar", startTime, CalendarIntervalScheduleBuilder.calendarIntervalSchedule().withIntervalInHours(3));
+        storeTrigger(store, job, "daily", startTime, DailyTimeIntervalScheduleBuilder.dailyTimeIntervalSchedule().withIntervalInMinutes(7));
+        storeTrigger(store, nonConcurrentJob, "nonConcurrent1", startTime, SimpleScheduleBuilder.repeatMinutelyForever());
+        storeTrigger(store, nonConcurrentJob, "nonConcurrent2", startTime, SimpleScheduleBuilder.repeatMinutelyForever());
+        return store;
+    }
+
+    private static TriggerFiredBundle fireNext(JobStore store) throws Exception {
+        long noLaterThan = System.currentTimeMillis() + 24 * 60 * 60 * 1000L;
+        List<OperableTrigger> triggers = store.acquireNextTriggers(noLaterThan, 1, 0L);
+        assertEquals(1, triggers.size());
+        TriggerFiredBundle bundle = store.triggersFired(triggers).get(0).getTriggerFiredBundle();
+        store.triggeredJobComplete(triggers.get(0), bundle.getJobDetail(), Trigger.CompletedExecutionInstruction.NOOP);
+        return bundle;
+    }
+
+    /** Counts notifications without printing each misfire. */
+    private static class CountingSignaler extends SampleSignaler {
+        volatile int misfires = 0;
+        volatile int finalized = 0;
+
+        @Override
+        public void notifyTriggerListenersMisfired(Trigger trigger) {
+            misfires++;
+        }
+
+        @Override
+        public void notifySchedulerListenersFinalized(Trigger trigger) {
+            finalized++;
+        }
+    }
+
+    private static JobStoreSupport createNode(String dataSource, String instanceId) {
+        JobStoreTX node = new JobStoreTX();
+        node.setDataSource(dataSource);
+        node.setTablePrefix("QRTZ_");
+        node.setInstanceId(instanceId);
+        node.setInstanceName(dataSource);
+        node.setUseDBLocks(true);
+        return node;
+    }
+
+    private static void storeTrigger(JobStore store, JobDetail job, String name, Date startTime, ScheduleBuilder<?> schedule) throws Exception {
+        OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger()
+            .withIdentity(TriggerKey.triggerKey(name))
+            .forJob(job)
+            .startAt(startTime)
+            .withSchedule(schedule)
+            .build();
+        trigger.computeFirstFireTime(null);
+        store.storeTrigger(trigger, false);
+    }
+
+    private static OperableTrigger find(List<OperableTrigger> triggers, String name) {
+        for (OperableTrigger trigger : triggers) {
+            if (trigger.getKey().getName().equals(name)) {
+                return trigger;
+            }
+        }
+        throw new AssertionError("No trigger " + name);
+    }
+
+    @DisallowConcurrentExecution
+    public static class NonConcurrentJob extends MyJob {
+    }
+
     @Override
     protected JobStore createJobStore(String name) {
         try {
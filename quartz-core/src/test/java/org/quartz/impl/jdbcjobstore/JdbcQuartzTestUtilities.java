@@ -4,12 +4,17 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.quartz.utils.ConnectionProvider;
 import org.quartz.utils.DBConnectionManager;
@@ -67,6 +72,17 @@ public final class JdbcQuartzTestUtilities {
                 new DerbyEmbeddedConnectionProvider(name));
     }
 
+    /**
+     * Have the connections of an already created database count the 
+     * statements they execute, a batch counting once, as one round trip.
+     */
+    public static AtomicLong countStatementExecutions(String name) {
+        AtomicLong executions = new AtomicLong();
+        DBConnectionManager.getInstance().addConnectionProvider(name,
+                new CountingConnectionProvider(name, executions));
+        return executions;
+    }
+
     public static void destroyDatabase(String name) throws SQLException {
         try {
             DriverManager.getConnection(
@@ -128,6 +144,51 @@ public final class JdbcQuartzTestUtilities {
         }
     }
 
+    static class CountingConnectionProvider implements ConnectionProvider {
+
+        private final String databaseName;
+        private final AtomicLong executions;
+
+        CountingConnectionProvider(String name, AtomicLong executions) {
+            this.databaseName = name;
+            this.executions = executions;
+        }
+
+        public Connection getConnection() throws SQLException {
+            return (Connection) counting(Connection.class,
+                    DriverManager.getConnection(DATABASE_CONNECTION_PREFIX + databaseName));
+        }
+
+        private Object counting(Class<?> type, final Object target) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type },
+                    new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            if (method.getName().startsWith("execute")) {
+                                executions.incrementAndGet();
+                            }
+                            Object result;
+                            try {
+                                result = method.invoke(target, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                            if (result instanceof Statement) {
+                                return counting(method.getReturnType(), result);
+                            }
+                            return result;
+                        }
+                    });
+        }
+
+        public void shutdown() throws SQLException {
+            // nothing to do
+        }
+
+        public void initialize() throws SQLException {
+            // nothing to do
+        }
+    }
+
     private JdbcQuartzTestUtilities() {
         // not instantiable
     }
@@ -18,6 +18,8 @@ package org.quartz.impl.jdbcjobstore;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -135,6 +137,53 @@ public class StdJDBCDelegateTest extends TestCase {
         verify(persistenceDelegate).loadExtendedTriggerProperties(any(Connection.class), any(TriggerKey.class));
     }
 
+    public void testCachePreparedStatementsPerConnection() throws SQLException, NoSuchDelegateException {
+        StdJDBCDelegate jdbcDelegate = new StdJDBCDelegate();
+        jdbcDelegate.initialize(LoggerFactory.getLogger(getClass()), "QRTZ_", "TESTSCHED", "INSTANCE", new SimpleClassLoadHelper(), false, "cachePreparedStatements=true");
+
+        Connection conn = mock(Connection.class);
+        Connection otherConn = mock(Connection.class);
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        PreparedStatement otherStatement = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(otherConn.prepareStatement(anyString())).thenReturn(otherStatement);
+
+        TriggerKey key = TriggerKey.triggerKey("test");
+        jdbcDelegate.updateTriggerStateFromOtherState(conn, key, Constants.STATE_ACQUIRED, Constants.STATE_WAITING);
+        jdbcDelegate.updateTriggerStateFromOtherState(conn, key, Constants.STATE_WAITING, Constants.STATE_ACQUIRED);
+        jdbcDelegate.updateTriggerStateFromOtherState(otherConn, key, Constants.STATE_ACQUIRED, Constants.STATE_WAITING);
+
+        String sql = jdbcDelegate.rtp(StdJDBCConstants.UPDATE_TRIGGER_STATE_FROM_STATE);
+        assertSame(sql, jdbcDelegate.rtp(StdJDBCConstants.UPDATE_TRIGGER_STATE_FROM_STATE));
+        verify(conn, times(1)).prepareStatement(sql);
+        verify(otherConn, times(1)).prepareStatement(sql);
+        verify(preparedStatement, times(2)).executeUpdate();
+        verify(preparedStatement, never()).close();
+
+        jdbcDelegate.closeCachedStatements(conn);
+        verify(preparedStatement).close();
+        verify(otherStatement, never()).close();
+    }
+
+    public void testSelectNextTriggerToAcquireSkipLockedSql() throws NoSuchDelegateException {
+        StdJDBCDelegate[] lockingDelegates = new StdJDBCDelegate[] {
+            new StdJDBCDelegate(), new MSSQLDelegate(), new HSQLDBDelegate(),
+            new DB2v6Delegate(), new DB2v7Delegate(), new DB2v8Delegate(),
+            new SybaseDelegate(), new PointbaseDelegate(), new CacheDelegate() };
+        for (StdJDBCDelegate jdbcDelegate : lockingDelegates) {
+            jdbcDelegate.initialize(LoggerFactory.getLogger(getClass()), "QRTZ_", "TESTSCHED", "INSTANCE", new SimpleClassLoadHelper(), false, "");
+            assertNull(jdbcDelegate.getClass().getName(), jdbcDelegate.getSelectNextTriggerToAcquireSkipLockedSql(5));
+        }
+
+        StdJDBCDelegate postgres = new PostgreSQLDelegate();
+        postgres.initialize(LoggerFactory.getLogger(getClass()), "QRTZ_", "TESTSCHED", "INSTANCE", new SimpleClassLoadHelper(), false, "");
+        assertEquals("SELECT TRIGGER_NAME, TRIGGER_GROUP, NEXT_FIRE_TIME, PRIORITY FROM QRTZ_TRIGGERS"
+                + " WHERE SCHED_NAME = 'TESTSCHED' AND TRIGGER_STATE = ? AND NEXT_FIRE_TIME <= ?"
+                + " AND (MISFIRE_INSTR = -1 OR (MISFIRE_INSTR != -1 AND NEXT_FIRE_TIME >= ?))"
+                + " ORDER BY NEXT_FIRE_TIME ASC, PRIORITY DESC LIMIT 5 FOR UPDATE SKIP LOCKED",
+                postgres.getSelectNextTriggerToAcquireSkipLockedSql(5));
+    }
+
     static class TestStdJDBCDelegate extends StdJDBCDelegate {
 
         private final TriggerPersistenceDelegate testDelegate;
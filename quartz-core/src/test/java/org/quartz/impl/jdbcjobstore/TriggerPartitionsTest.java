@@ -0,0 +1,103 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.impl.jdbcjobstore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.quartz.TriggerKey;
+
+import junit.framework.TestCase;
+
+public class TriggerPartitionsTest extends TestCase {
+
+    public void testPartitionsAreDealtOutOncePerInstance() {
+        List<String> ids = Arrays.asList("c", "a", "b");
+        int[] owners = new int[12];
+        for (String id : ids) {
+            TriggerPartitions partitions = new TriggerPartitions(12, ids, id);
+            assertEquals(Arrays.asList("a", "b", "c"), partitions.getInstanceIds());
+            assertEquals(4, partitions.getOwnedPartitionCount());
+            for (int partition = 0; partition < 12; partition++) {
+                if (partitions.isOwned(partition)) {
+                    owners[partition]++;
+                }
+            }
+        }
+        for (int owner : owners) {
+            assertEquals(1, owner);
+        }
+    }
+
+    public void testOwnInstanceCountsAsLive() {
+        TriggerPartitions alone = new TriggerPartitions(4, Collections.<String>emptyList(), "a");
+        assertEquals(4, alone.getOwnedPartitionCount());
+
+        TriggerPartitions joined = new TriggerPartitions(4, Arrays.asList("b"), "a");
+        assertEquals(2, joined.getOwnedPartitionCount());
+        assertEquals(Arrays.asList("a", "b"), joined.getInstanceIds());
+
+        // more instances than partitions leaves some instances without any
+        List<String> ids = Arrays.asList("a", "b", "c");
+        int withoutPartitions = 0;
+        for (String id : ids) {
+            if (new TriggerPartitions(2, ids, id).getOwnedPartitionCount() == 0) {
+                withoutPartitions++;
+            }
+        }
+        assertEquals(1, withoutPartitions);
+    }
+
+    public void testOwnedKeyHashRangeMatchesOwnership() {
+        List<TriggerKey> keys = new ArrayList<TriggerKey>();
+        for (int i = 0; i < 1000; i++) {
+            keys.add(TriggerKey.triggerKey("trigger" + i, "group" + (i % 3)));
+        }
+
+        List<String> ids = Arrays.asList("a", "b", "c");
+        int[] owners = new int[keys.size()];
+        for (String id : ids) {
+            TriggerPartitions partitions = new TriggerPartitions(7, ids, id);
+            for (int i = 0; i < keys.size(); i++) {
+                int keyHash = TriggerPartitions.keyHashOf(keys.get(i));
+                boolean inRange = keyHash >= partitions.getMinOwnedKeyHash() && keyHash <= partitions.getMaxOwnedKeyHash();
+                assertEquals(partitions.isOwned(keys.get(i)), inRange);
+                if (inRange) {
+                    owners[i]++;
+                }
+            }
+        }
+        for (int owner : owners) {
+            assertEquals(1, owner);
+        }
+
+        // once the others fail, a owns every hash again
+        TriggerPartitions alone = new TriggerPartitions(7, Collections.<String>emptyList(), "a");
+        assertEquals(0, alone.getMinOwnedKeyHash());
+        assertEquals(Integer.MAX_VALUE, alone.getMaxOwnedKeyHash());
+    }
+
+    public void testPartitionOfIsStable() {
+        TriggerKey key = TriggerKey.triggerKey("name", "group");
+        int partition = TriggerPartitions.partitionOf(key, 16);
+        assertEquals(partition, TriggerPartitions.partitionOf(TriggerKey.triggerKey("name", "group"), 16));
+        assertTrue(partition >= 0 && partition < 16);
+        assertTrue(TriggerPartitions.keyHashOf(key) >= 0);
+        assertEquals(TriggerPartitions.keyHashOf(key) / (1 << 27), partition);
+    }
+}
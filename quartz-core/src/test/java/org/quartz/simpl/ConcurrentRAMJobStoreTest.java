@@ -0,0 +1,158 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.simpl;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.quartz.AbstractJobStoreTest;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredResult;
+
+public class ConcurrentRAMJobStoreTest extends AbstractJobStoreTest {
+
+    private static final long STRESS_MILLIS = 500L;
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        return new ConcurrentRAMJobStore();
+    }
+
+    @Override
+    protected void destroyJobStore(String name) {
+
+    }
+
+    /**
+     * Runs admin threads mutating their own jobs while another thread keeps
+     * acquiring and firing, for an increasing number of admin threads.  
+     * Neither side may be starved by the other, and every trigger must 
+     * still be consistent at the end.
+     */
+    public void testConcurrentMutationsDuringAcquisition() throws Exception {
+        int maxThreads = Math.max(Runtime.getRuntime().availableProcessors(), 4);
+
+        for (int threads = 1; threads <= maxThreads; threads <<= 1) {
+            ConcurrentRAMJobStore store = new ConcurrentRAMJobStore();
+            store.initialize(null, new SampleSignaler());
+            long[] ops = runStress(store, threads);
+            assertTrue("no triggers fired with " + threads + " admin thread(s)", ops[0] > 0);
+            assertTrue("no admin operations with " + threads + " admin thread(s)", ops[1] > 0);
+
+            for (String group : store.getTriggerGroupNames()) {
+                for (TriggerKey key : store.getTriggerKeys(GroupMatcher.triggerGroupEquals(group))) {
+                    assertNotNull(store.retrieveTrigger(key));
+                    assertFalse(TriggerState.NONE.equals(store.getTriggerState(key)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of triggers fired, and of admin operations made.
+     */
+    private long[] runStress(final ConcurrentRAMJobStore store, int adminThreads) throws Exception {
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong fired = new AtomicLong();
+        final AtomicLong ops = new AtomicLong();
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch done = new CountDownLatch(adminThreads + 1);
+
+        Thread acquirer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    while (running.get()) {
+                        List<OperableTrigger> acquired = store.acquireNextTriggers(System.currentTimeMillis() + 1000L, 10, 0L);
+                        for (TriggerFiredResult result : store.triggersFired(acquired)) {
+                            if (result.getTriggerFiredBundle() != null) {
+                                store.triggeredJobComplete(result.getTriggerFiredBundle().getTrigger(),
+                                        result.getTriggerFiredBundle().getJobDetail(), CompletedExecutionInstruction.NOOP);
+                            }
+                        }
+                        fired.addAndGet(acquired.size());
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        acquirer.start();
+
+        for (int t = 0; t < adminThreads; t++) {
+            final String group = "group" + t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        int i = 0;
+                        while (running.get()) {
+                            JobKey jobKey = JobKey.jobKey("job" + (i % 50), group);
+                            TriggerKey triggerKey = TriggerKey.triggerKey("trigger" + (i % 50), group);
+                            JobDetail job = newJob(MyJob.class).withIdentity(jobKey).storeDurably().build();
+                            OperableTrigger trigger = (OperableTrigger) newTrigger().withIdentity(triggerKey).forJob(jobKey)
+                                    .withSchedule(simpleSchedule().withIntervalInMilliseconds(10).repeatForever())
+                                    .startAt(new Date()).build();
+                            trigger.computeFirstFireTime(null);
+                            store.storeJob(job, true);
+                            store.storeTrigger(trigger, true);
+                            store.pauseTrigger(triggerKey);
+                            store.getTriggerState(triggerKey);
+                            store.resumeTrigger(triggerKey);
+                            store.retrieveTrigger(triggerKey);
+                            if (i % 7 == 0) {
+                                store.removeJob(jobKey);
+                            }
+                            ops.addAndGet(7);
+                            i++;
+                        }
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        Thread.sleep(STRESS_MILLIS);
+        running.set(false);
+        done.await();
+
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.get(0));
+        }
+        return new long[] { fired.get(), ops.get() };
+    }
+}
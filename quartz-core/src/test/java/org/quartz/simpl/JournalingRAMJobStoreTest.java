@@ -0,0 +1,264 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.simpl;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.quartz.AbstractJobStoreTest;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerKey;
+import org.quartz.impl.calendar.BaseCalendar;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredResult;
+
+public class JournalingRAMJobStoreTest extends AbstractJobStoreTest {
+
+    private final List<JournalingRAMJobStore> stores = new ArrayList<JournalingRAMJobStore>();
+
+    private final List<File> directories = new ArrayList<File>();
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        try {
+            return newStore(newDirectory(), 1024 * 1024);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    protected void destroyJobStore(String name) {
+        for (JournalingRAMJobStore store : stores) {
+            store.shutdown();
+        }
+        stores.clear();
+        for (File dir : directories) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            dir.delete();
+        }
+        directories.clear();
+    }
+
+    public void testRecoversStateFromJournalAfterCrash() throws Exception {
+        File dir = newDirectory();
+        JournalingRAMJobStore store = newStore(dir, 1024 * 1024);
+        store.initialize(null, new SampleSignaler());
+        store.schedulerStarted();
+
+        store.storeCalendar("cal", new BaseCalendar(), false, false);
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "jobs").usingJobData("key", "value")
+                .storeDurably().build();
+        store.storeJob(job, false);
+        Date start = new Date(System.currentTimeMillis() + 100L);
+        store.storeTrigger(newSimpleTrigger("t1", job, start, null), false);
+        store.storeTrigger(newSimpleTrigger("t2", job, start, null), false);
+        store.storeTrigger(newSimpleTrigger("t3", job, start, "cal"), false);
+        store.pauseTrigger(TriggerKey.triggerKey("t2", "triggers"));
+        store.pauseJobs(GroupMatcher.jobGroupEquals("paused"));
+
+        fireAll(store, start, true);
+        Date t1Next = store.retrieveTrigger(TriggerKey.triggerKey("t1", "triggers")).getNextFireTime();
+        assertTrue(t1Next.after(start));
+
+        store.removeTrigger(TriggerKey.triggerKey("t3", "triggers"));
+        store.removeCalendar("cal");
+
+        JournalingRAMJobStore recovered = newStore(copyOf(dir), 1024 * 1024);
+        recovered.initialize(null, new SampleSignaler());
+
+        assertEquals("value", recovered.retrieveJob(job.getKey()).getJobDataMap().getString("key"));
+        assertEquals(2, recovered.getNumberOfTriggers());
+        assertEquals(0, recovered.getNumberOfCalendars());
+        assertEquals(t1Next, recovered.retrieveTrigger(TriggerKey.triggerKey("t1", "triggers")).getNextFireTime());
+        assertEquals(TriggerState.NORMAL, recovered.getTriggerState(TriggerKey.triggerKey("t1", "triggers")));
+        assertEquals(TriggerState.PAUSED, recovered.getTriggerState(TriggerKey.triggerKey("t2", "triggers")));
+        JobDetail pausedJob = newJob(MyJob.class).withIdentity("job", "paused").storeDurably().build();
+        recovered.storeJob(pausedJob, false);
+        recovered.storeTrigger(newSimpleTrigger("t4", pausedJob, start, null), false);
+        assertEquals(TriggerState.PAUSED, recovered.getTriggerState(TriggerKey.triggerKey("t4", "triggers")));
+    }
+
+    public void testRejectsJobItCannotSave() throws Exception {
+        JournalingRAMJobStore store = newStore(newDirectory(), 1024 * 1024);
+        store.initialize(null, new SampleSignaler());
+
+        JobDetail job = newJob(MyJob.class).withIdentity("unsaveable", "jobs").storeDurably().build();
+        job.getJobDataMap().put("key", new Object());
+        try {
+            store.storeJob(job, false);
+            fail("Expected JobPersistenceException");
+        } catch (JobPersistenceException e) {
+            assertFalse(e instanceof ObjectAlreadyExistsException);
+        }
+        assertNull(store.retrieveJob(job.getKey()));
+    }
+
+    public void testInitializeFailsWithoutJournalDirectory() throws Exception {
+        JournalingRAMJobStore store = new JournalingRAMJobStore();
+        try {
+            store.initialize(null, new SampleSignaler());
+            fail("Expected SchedulerConfigException");
+        } catch (SchedulerConfigException e) {
+            assertTrue(e.getMessage().contains("journalDirectory"));
+        }
+    }
+
+    public void testRecoversInFlightJobsRequestingRecovery() throws Exception {
+        File dir = newDirectory();
+        JournalingRAMJobStore store = newStore(dir, 1024 * 1024);
+        store.initialize(null, new SampleSignaler());
+        store.schedulerStarted();
+
+        JobDetail job = newJob(MyJob.class).withIdentity("recoverable", "jobs").requestRecovery()
+                .storeDurably().build();
+        store.storeJob(job, false);
+        Date start = new Date(System.currentTimeMillis() + 100L);
+        store.storeTrigger(newSimpleTrigger("t1", job, start, null), false);
+        fireAll(store, start, false);
+
+        File recoveredDir = copyOf(dir);
+        JournalingRAMJobStore recovered = newStore(recoveredDir, 1024 * 1024);
+        recovered.initialize(null, new SampleSignaler());
+        recovered.schedulerStarted();
+
+        List<TriggerKey> recoveryTriggers = new ArrayList<TriggerKey>(
+                recovered.getTriggerKeys(GroupMatcher.triggerGroupEquals(Scheduler.DEFAULT_RECOVERY_GROUP)));
+        assertEquals(1, recoveryTriggers.size());
+        OperableTrigger recoveryTrigger = recovered.retrieveTrigger(recoveryTriggers.get(0));
+        assertEquals(job.getKey(), recoveryTrigger.getJobKey());
+        assertEquals("t1", recoveryTrigger.getJobDataMap().getString(Scheduler.FAILED_JOB_ORIGINAL_TRIGGER_NAME));
+
+        // recovery happens once only
+        JournalingRAMJobStore again = newStore(copyOf(recoveredDir), 1024 * 1024);
+        again.initialize(null, new SampleSignaler());
+        again.schedulerStarted();
+        assertEquals(1, again.getTriggerKeys(GroupMatcher.triggerGroupEquals(Scheduler.DEFAULT_RECOVERY_GROUP)).size());
+    }
+
+    public void testSnapshotsWhenJournalFillsUp() throws Exception {
+        File dir = newDirectory();
+        JournalingRAMJobStore store = newStore(dir, 4096);
+        store.initialize(null, new SampleSignaler());
+
+        for (int i = 0; i < 200; i++) {
+            store.storeJob(newJob(MyJob.class).withIdentity("job" + i, "jobs").storeDurably().build(), false);
+        }
+        for (int i = 0; i < 200; i += 2) {
+            store.removeJob(JobKey.jobKey("job" + i, "jobs"));
+        }
+
+        JournalingRAMJobStore recovered = newStore(copyOf(dir), 4096);
+        recovered.initialize(null, new SampleSignaler());
+        assertEquals(100, recovered.getNumberOfJobs());
+        assertNull(recovered.retrieveJob(JobKey.jobKey("job0", "jobs")));
+        assertNotNull(recovered.retrieveJob(JobKey.jobKey("job1", "jobs")));
+    }
+
+    public void testRecoversAfterShutdown() throws Exception {
+        File dir = newDirectory();
+        JournalingRAMJobStore store = newStore(dir, 1024 * 1024);
+        store.initialize(null, new SampleSignaler());
+        store.storeJob(newJob(MyJob.class).withIdentity("job", "jobs").storeDurably().build(), false);
+        store.shutdown();
+        stores.remove(store);
+
+        JournalingRAMJobStore reopened = newStore(dir, 1024 * 1024);
+        reopened.initialize(null, new SampleSignaler());
+        assertNotNull(reopened.retrieveJob(JobKey.jobKey("job", "jobs")));
+    }
+
+    private void fireAll(JournalingRAMJobStore store, Date start, boolean complete) throws Exception {
+        long noLaterThan = start.getTime() + 1000L;
+        List<OperableTrigger> acquired = store.acquireNextTriggers(noLaterThan, 10, 0L);
+        assertFalse(acquired.isEmpty());
+        for (TriggerFiredResult result : store.triggersFired(acquired)) {
+            if (complete && result.getTriggerFiredBundle() != null) {
+                store.triggeredJobComplete(result.getTriggerFiredBundle().getTrigger(),
+                        result.getTriggerFiredBundle().getJobDetail(), CompletedExecutionInstruction.NOOP);
+            }
+        }
+    }
+
+    private OperableTrigger newSimpleTrigger(String name, JobDetail job, Date start, String calendarName) {
+        OperableTrigger trigger = (OperableTrigger) newTrigger().withIdentity(name, "triggers").forJob(job)
+                .withSchedule(simpleSchedule().withIntervalInHours(1).repeatForever())
+                .modifiedByCalendar(calendarName).startAt(start).build();
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    private JournalingRAMJobStore newStore(File dir, int journalSize) {
+        JournalingRAMJobStore store = new JournalingRAMJobStore();
+        store.setJournalDirectory(dir.getPath());
+        store.setJournalSize(journalSize);
+        stores.add(store);
+        return store;
+    }
+
+    private File newDirectory() throws IOException {
+        File dir = File.createTempFile("quartz-journal", "");
+        dir.delete();
+        dir.mkdirs();
+        directories.add(dir);
+        return dir;
+    }
+
+    /**
+     * Copies the files of a store that is still open, which is what a
+     * restart after a crash of the JVM would find on disk.
+     */
+    private File copyOf(File dir) throws IOException {
+        File copy = newDirectory();
+        for (File f : dir.listFiles()) {
+            FileInputStream in = new FileInputStream(f);
+            FileOutputStream out = new FileOutputStream(new File(copy, f.getName()));
+            try {
+                byte[] buf = new byte[8192];
+                for (int n = in.read(buf); n > 0; n = in.read(buf)) {
+                    out.write(buf, 0, n);
+                }
+            } finally {
+                in.close();
+                out.close();
+            }
+        }
+        return copy;
+    }
+}
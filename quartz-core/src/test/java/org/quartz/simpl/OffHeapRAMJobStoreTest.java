@@ -0,0 +1,254 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.simpl;
+
+import static org.quartz.CronScheduleBuilder.cronSchedule;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.Date;
+import java.util.List;
+
+import org.quartz.AbstractJobStoreTest;
+import org.quartz.CronTrigger;
+import org.quartz.JobDetail;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerKey;
+import org.quartz.impl.calendar.BaseCalendar;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredResult;
+
+public class OffHeapRAMJobStoreTest extends AbstractJobStoreTest {
+
+    private static final int MEMORY_TEST_TRIGGERS = 100000;
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        return new OffHeapRAMJobStore();
+    }
+
+    @Override
+    protected void destroyJobStore(String name) {
+
+    }
+
+    public void testStoresCompactAndSerializedTriggers() throws Exception {
+        OffHeapRAMJobStore store = newStore();
+        JobDetail job = storeJob(store, "job");
+        Date start = new Date(System.currentTimeMillis() + 60000L);
+
+        OperableTrigger simple = (OperableTrigger) newTrigger().withIdentity("simple", "triggers").forJob(job)
+                .withDescription("a simple trigger").withPriority(7).usingJobData("entity", "e-1")
+                .usingJobData("attempt", 3).usingJobData("weight", 0.5d).usingJobData("flag", Boolean.TRUE)
+                .withSchedule(simpleSchedule().withIntervalInMinutes(5).withRepeatCount(10)
+                        .withMisfireHandlingInstructionNextWithRemainingCount())
+                .startAt(start).endAt(new Date(start.getTime() + 3600000L)).build();
+        simple.computeFirstFireTime(null);
+        store.storeTrigger(simple, false);
+
+        OperableTrigger cron = (OperableTrigger) newTrigger().withIdentity("cron", "triggers").forJob(job)
+                .withSchedule(cronSchedule("0 0 12 * * ?")).startAt(start).build();
+        cron.computeFirstFireTime(null);
+        store.storeTrigger(cron, false);
+
+        SimpleTrigger storedSimple = (SimpleTrigger) store.retrieveTrigger(simple.getKey());
+        assertEquals(simple.getKey(), storedSimple.getKey());
+        assertEquals(job.getKey(), storedSimple.getJobKey());
+        assertEquals("a simple trigger", storedSimple.getDescription());
+        assertEquals(7, storedSimple.getPriority());
+        assertEquals(start, storedSimple.getStartTime());
+        assertEquals(simple.getEndTime(), storedSimple.getEndTime());
+        assertEquals(simple.getNextFireTime(), storedSimple.getNextFireTime());
+        assertEquals(10, storedSimple.getRepeatCount());
+        assertEquals(300000L, storedSimple.getRepeatInterval());
+        assertEquals(SimpleTrigger.MISFIRE_INSTRUCTION_RESCHEDULE_NEXT_WITH_REMAINING_COUNT,
+                storedSimple.getMisfireInstruction());
+        assertEquals("e-1", storedSimple.getJobDataMap().getString("entity"));
+        assertEquals(3, storedSimple.getJobDataMap().getInt("attempt"));
+        assertEquals(0.5d, storedSimple.getJobDataMap().getDouble("weight"));
+        assertTrue(storedSimple.getJobDataMap().getBoolean("flag"));
+
+        CronTrigger storedCron = (CronTrigger) store.retrieveTrigger(cron.getKey());
+        assertEquals("0 0 12 * * ?", storedCron.getCronExpression());
+        assertEquals(cron.getNextFireTime(), storedCron.getNextFireTime());
+
+        assertEquals(2, store.getTriggersForJob(job.getKey()).size());
+        assertEquals(2, store.getTriggerKeys(GroupMatcher.triggerGroupEquals("triggers")).size());
+    }
+
+    public void testFiringRewritesSchedule() throws Exception {
+        OffHeapRAMJobStore store = newStore();
+        JobDetail job = storeJob(store, "job");
+        store.storeCalendar("cal", new BaseCalendar(), false, false);
+        Date start = new Date(System.currentTimeMillis() + 100L);
+        for (int i = 0; i < 3; i++) {
+            OperableTrigger trigger = (OperableTrigger) newTrigger().withIdentity("t" + i, "triggers").forJob(job)
+                    .modifiedByCalendar(i == 0 ? "cal" : null)
+                    .withSchedule(simpleSchedule().withIntervalInHours(1).withRepeatCount(1))
+                    .startAt(start).build();
+            trigger.computeFirstFireTime(null);
+            store.storeTrigger(trigger, false);
+        }
+
+        List<OperableTrigger> acquired = store.acquireNextTriggers(start.getTime() + 1000L, 10, 0L);
+        assertEquals(3, acquired.size());
+        for (TriggerFiredResult result : store.triggersFired(acquired)) {
+            OperableTrigger fired = result.getTriggerFiredBundle().getTrigger();
+            assertNotNull(fired.getFireInstanceId());
+            store.triggeredJobComplete(fired, result.getTriggerFiredBundle().getJobDetail(),
+                    CompletedExecutionInstruction.NOOP);
+        }
+
+        SimpleTrigger t0 = (SimpleTrigger) store.retrieveTrigger(TriggerKey.triggerKey("t0", "triggers"));
+        assertEquals(1, t0.getTimesTriggered());
+        assertEquals(start, t0.getPreviousFireTime());
+        assertEquals(new Date(start.getTime() + 3600000L), t0.getNextFireTime());
+        assertEquals("cal", t0.getCalendarName());
+
+        try {
+            store.removeCalendar("cal");
+            fail("calendar is still referenced");
+        } catch (Exception expected) {
+            // expected
+        }
+        store.removeTrigger(TriggerKey.triggerKey("t0", "triggers"));
+        assertTrue(store.removeCalendar("cal"));
+        assertTrue(store.acquireNextTriggers(start.getTime() + 1000L, 10, 0L).isEmpty());
+    }
+
+    public void testReusesSlotsOfRemovedTriggers() throws Exception {
+        OffHeapRAMJobStore store = newStore();
+        JobDetail job = storeJob(store, "job");
+        Date start = new Date(System.currentTimeMillis() + 60000L);
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5000; i++) {
+                store.storeTrigger(newSimpleTrigger("t" + i, job, start), true);
+            }
+            for (int i = 0; i < 5000; i += 2) {
+                assertTrue(store.removeTrigger(TriggerKey.triggerKey("t" + i, "triggers")));
+            }
+        }
+
+        assertEquals(2500, store.getNumberOfTriggers());
+        assertEquals(2500, store.getTriggersForJob(job.getKey()).size());
+        assertNull(store.retrieveTrigger(TriggerKey.triggerKey("t0", "triggers")));
+        assertNotNull(store.retrieveTrigger(TriggerKey.triggerKey("t1", "triggers")));
+        assertEquals(TriggerState.NORMAL, store.getTriggerState(TriggerKey.triggerKey("t4999", "triggers")));
+
+        store.pauseTriggers(GroupMatcher.triggerGroupEquals("triggers"));
+        assertEquals(TriggerState.PAUSED, store.getTriggerState(TriggerKey.triggerKey("t1", "triggers")));
+        assertTrue(store.acquireNextTriggers(start.getTime() + 1000L, 10, 0L).isEmpty());
+        store.resumeTriggers(GroupMatcher.triggerGroupEquals("triggers"));
+        assertEquals(10, store.acquireNextTriggers(start.getTime() + 1000L, 10, 0L).size());
+
+        assertTrue(store.removeJob(job.getKey()));
+        assertEquals(0, store.getNumberOfTriggers());
+        assertTrue(store.getTriggerGroupNames().isEmpty());
+    }
+
+    public void testCompactsSpaceOfReplacedRecords() throws Exception {
+        OffHeapRAMJobStore store = newStore();
+        JobDetail job = storeJob(store, "job");
+        Date start = new Date(System.currentTimeMillis() + 60000L);
+
+        // serialized records are large enough to fill several arena chunks
+        for (int i = 0; i < 20000; i++) {
+            OperableTrigger cron = (OperableTrigger) newTrigger().withIdentity("cron" + (i % 100), "triggers")
+                    .forJob(job).usingJobData("round", i)
+                    .withSchedule(cronSchedule("0 0 12 * * ?")).startAt(start).build();
+            cron.computeFirstFireTime(null);
+            store.storeTrigger(cron, true);
+        }
+
+        assertEquals(100, store.getNumberOfTriggers());
+        assertTrue(store.getOffHeapSize() < 16 * 1024 * 1024);
+        for (int i = 0; i < 100; i++) {
+            OperableTrigger cron = store.retrieveTrigger(TriggerKey.triggerKey("cron" + i, "triggers"));
+            assertEquals(19900 + i, cron.getJobDataMap().getInt("round"));
+        }
+    }
+
+    /**
+     * Simple triggers kept off the heap take at most a quarter of the heap
+     * that <code>RAMJobStore</code> takes for them.
+     */
+    public void testHeapPerTrigger() throws Exception {
+        OffHeapRAMJobStore offHeap = newStore();
+        long offHeapUsed = heapUsedBy(offHeap);
+
+        RAMJobStore ram = new RAMJobStore();
+        ram.initialize(null, new SampleSignaler());
+        long ramUsed = heapUsedBy(ram);
+
+        assertEquals(MEMORY_TEST_TRIGGERS, offHeap.getNumberOfTriggers());
+        assertEquals(MEMORY_TEST_TRIGGERS, ram.getNumberOfTriggers());
+        assertTrue(offHeap.getOffHeapSize() > 0);
+        assertTrue("heap bytes per trigger: " + (offHeapUsed / MEMORY_TEST_TRIGGERS) + " off-heap store, "
+                + (ramUsed / MEMORY_TEST_TRIGGERS) + " RAMJobStore", offHeapUsed * 4 < ramUsed);
+    }
+
+    private long heapUsedBy(JobStore store) throws Exception {
+        JobDetail job = newJob(MyJob.class).withIdentity("entity-job", "jobs").storeDurably().build();
+        store.storeJob(job, false);
+        Date start = new Date(System.currentTimeMillis() + 3600000L);
+
+        long before = usedHeap();
+        for (int i = 0; i < MEMORY_TEST_TRIGGERS; i++) {
+            OperableTrigger trigger = (OperableTrigger) newTrigger().withIdentity("entity-" + i, "entities")
+                    .forJob(job).usingJobData("entityId", (long) i)
+                    .withSchedule(simpleSchedule().withIntervalInHours(24).repeatForever())
+                    .startAt(new Date(start.getTime() + i)).build();
+            trigger.computeFirstFireTime(null);
+            store.storeTrigger(trigger, false);
+        }
+        return usedHeap() - before;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50L);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private OffHeapRAMJobStore newStore() throws Exception {
+        OffHeapRAMJobStore store = new OffHeapRAMJobStore();
+        store.initialize(null, new SampleSignaler());
+        return store;
+    }
+
+    private JobDetail storeJob(OffHeapRAMJobStore store, String name) throws Exception {
+        JobDetail job = newJob(MyJob.class).withIdentity(name, "jobs").storeDurably().build();
+        store.storeJob(job, false);
+        return job;
+    }
+
+    private OperableTrigger newSimpleTrigger(String name, JobDetail job, Date start) {
+        OperableTrigger trigger = (OperableTrigger) newTrigger().withIdentity(name, "triggers").forJob(job)
+                .withSchedule(simpleSchedule().withIntervalInHours(1).repeatForever())
+                .startAt(start).build();
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+}
@@ -15,8 +15,16 @@
  */
 package org.quartz.simpl;
 
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
 import org.quartz.AbstractJobStoreTest;
+import org.quartz.JobDetail;
+import org.quartz.JobPersistenceException;
+import org.quartz.TriggerKey;
+import org.quartz.impl.calendar.BaseCalendar;
 import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
 
 public class RAMJobStoreTest extends AbstractJobStoreTest {
 
@@ -30,4 +38,45 @@ public class RAMJobStoreTest extends AbstractJobStoreTest {
     protected void destroyJobStore(String name) {
 
     }
+
+    public void testJobAndCalendarIndexesFollowReplaceAndRemove() throws Exception {
+        RAMJobStore store = new RAMJobStore();
+        store.initialize(null, new SampleSignaler());
+        store.storeCalendar("cal", new BaseCalendar(), false, false);
+
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "group").storeDurably().build();
+        store.storeJob(job, false);
+
+        OperableTrigger t1 = (OperableTrigger) newTrigger().withIdentity("t1").forJob(job)
+                .modifiedByCalendar("cal").build();
+        OperableTrigger t2 = (OperableTrigger) newTrigger().withIdentity("t2").forJob(job).build();
+        t1.computeFirstFireTime(null);
+        t2.computeFirstFireTime(null);
+        store.storeTrigger(t1, false);
+        store.storeTrigger(t2, false);
+
+        assertEquals(2, store.getTriggersForJob(job.getKey()).size());
+        assertEquals(1, store.getTriggerWrappersForCalendar("cal").size());
+
+        try {
+            store.removeCalendar("cal");
+            fail("calendar is still referenced by t1");
+        } catch (JobPersistenceException expected) {
+        }
+
+        // replacing t1 with a trigger that has no calendar releases the calendar
+        OperableTrigger t1b = (OperableTrigger) newTrigger().withIdentity("t1").forJob(job).build();
+        t1b.computeFirstFireTime(null);
+        store.replaceTrigger(TriggerKey.triggerKey("t1"), t1b);
+        assertEquals(2, store.getTriggersForJob(job.getKey()).size());
+        assertEquals(0, store.getTriggerWrappersForCalendar("cal").size());
+        assertTrue(store.removeCalendar("cal"));
+
+        store.removeTrigger(TriggerKey.triggerKey("t2"));
+        assertEquals(1, store.getTriggersForJob(job.getKey()).size());
+
+        store.removeJob(job.getKey());
+        assertEquals(0, store.getTriggersForJob(job.getKey()).size());
+        assertEquals(0, store.getNumberOfTriggers());
+    }
 }
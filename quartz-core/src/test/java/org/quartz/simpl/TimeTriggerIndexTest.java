@@ -0,0 +1,150 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.simpl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+
+public class TimeTriggerIndexTest extends TestCase {
+
+    private static final long BASE = 1000000000000L;
+
+    public void testOrderMatchesTreeSet() {
+        Random random = new Random(42);
+        List<TriggerWrapper> wrappers = newWrappers(2000, random);
+
+        TimeTriggerIndex index = new TimeTriggerIndex(16);
+        TreeSet<TriggerWrapper> tree = new TreeSet<TriggerWrapper>(new TriggerWrapperComparator());
+        for (TriggerWrapper tw : wrappers) {
+            assertTrue(index.add(tw));
+            tree.add(tw);
+        }
+        assertFalse(index.add(wrappers.get(0)));
+
+        // remove an arbitrary third, then reschedule another third
+        for (int i = 0; i < wrappers.size(); i += 3) {
+            assertTrue(index.remove(wrappers.get(i)));
+            tree.remove(wrappers.get(i));
+        }
+        assertFalse(index.remove(wrappers.get(0)));
+        for (int i = 1; i < wrappers.size(); i += 3) {
+            TriggerWrapper tw = wrappers.get(i);
+            index.remove(tw);
+            tree.remove(tw);
+            ((SimpleTriggerImpl) tw.trigger).setNextFireTime(new Date(BASE + random.nextInt(500)));
+            index.add(tw);
+            tree.add(tw);
+        }
+
+        assertEquals(tree.size(), index.size());
+        assertEquals(tree.first(), index.peek());
+        TriggerWrapper[] sorted = index.toSortedArray();
+        int n = 0;
+        for (TriggerWrapper tw : tree) {
+            assertSame(tw, sorted[n++]);
+        }
+        while (!tree.isEmpty()) {
+            assertSame(tree.pollFirst(), index.poll());
+        }
+        assertNull(index.poll());
+        assertTrue(index.isEmpty());
+    }
+
+    public void testPartitions() {
+        List<TriggerWrapper> wrappers = newWrappers(500, new Random(3));
+
+        TimeTriggerIndex index = new TimeTriggerIndex();
+        TreeSet<TriggerWrapper> tree = new TreeSet<TriggerWrapper>(new TriggerWrapperComparator());
+        index.addAll(wrappers);
+        tree.addAll(wrappers);
+        index.setPartitionCount(3);
+        assertEquals(3, index.getPartitionCount());
+
+        // the index as a whole keeps its order
+        assertEquals(tree.size(), index.size());
+        assertSame(tree.first(), index.peek());
+        TriggerWrapper[] sorted = index.toSortedArray();
+        int n = 0;
+        for (TriggerWrapper tw : tree) {
+            assertSame(tw, sorted[n++]);
+        }
+
+        // each partition yields the triggers of its own groups, in order
+        for (int p = 0; p < 3; p++) {
+            TriggerWrapper previous = null;
+            for (TriggerWrapper tw = index.poll(p); tw != null; tw = index.poll(p)) {
+                assertEquals(p, TimeTriggerIndex.partitionOf(tw.key, 3));
+                if (previous != null) {
+                    assertTrue(new TriggerWrapperComparator().compare(previous, tw) < 0);
+                }
+                previous = tw;
+                tree.remove(tw);
+            }
+        }
+        assertTrue(tree.isEmpty());
+        assertTrue(index.isEmpty());
+    }
+
+    /**
+     * The acquisition pattern: peek, pop, reschedule, re-insert, yields the
+     * same order as the TreeSet previously used by RAMJobStore.
+     */
+    public void testPopReinsertMatchesTreeSet() {
+        int count = 10000;
+        List<TriggerWrapper> wrappers = newWrappers(count, new Random(7));
+
+        TreeSet<TriggerWrapper> tree = new TreeSet<TriggerWrapper>(new TriggerWrapperComparator());
+        tree.addAll(wrappers);
+        TimeTriggerIndex index = new TimeTriggerIndex();
+        index.addAll(wrappers);
+        for (int i = 0; i < 3 * count; i++) {
+            assertSame(tree.first(), index.peek());
+            TriggerWrapper tw = tree.pollFirst();
+            assertSame(tw, index.poll());
+            reschedule(tw);
+            tree.add(tw);
+            index.add(tw);
+        }
+        assertEquals(count, index.size());
+    }
+
+    private static void reschedule(TriggerWrapper tw) {
+        SimpleTriggerImpl trigger = (SimpleTriggerImpl) tw.trigger;
+        trigger.setNextFireTime(new Date(trigger.getNextFireTime().getTime() + 60000L));
+    }
+
+    private static List<TriggerWrapper> newWrappers(int count, Random random) {
+        List<TriggerWrapper> wrappers = new ArrayList<TriggerWrapper>(count);
+        for (int i = 0; i < count; i++) {
+            SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+            trigger.setName("t" + i);
+            trigger.setGroup("g" + (i % 10));
+            trigger.setJobName("job");
+            trigger.setPriority(random.nextInt(3));
+            // few distinct times, so that priority and key ties are exercised
+            trigger.setNextFireTime(new Date(BASE + random.nextInt(500)));
+            wrappers.add(new TriggerWrapper(trigger));
+        }
+        return wrappers;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2001-2013 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.simpl;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
+
+/**
+ * Tests the <code>VirtualThreadPool</code> (on platform threads before Java
+ * 21).
+ */
+public class VirtualThreadPoolTest extends TestCase {
+
+    public static class CountingJob implements Job {
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            try {
+                ((CountDownLatch) context.getScheduler().getContext().get("LATCH")).countDown();
+            } catch (SchedulerException e) {
+                throw new JobExecutionException(e);
+            }
+        }
+    }
+
+    public void testMaxConcurrency() throws Exception {
+        final VirtualThreadPool pool = new VirtualThreadPool(5);
+        pool.setInstanceName("testMaxConcurrency");
+        pool.initialize();
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(50);
+        for (int i = 0; i < 50; i++) {
+            int avail = pool.blockForAvailableThreads();
+            assertTrue(avail > 0 && avail <= 5);
+            assertTrue(pool.runInThread(new Runnable() {
+                public void run() {
+                    int now = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), now));
+                    }
+                    sleep(10L);
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            }));
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(5, maxRunning.get());
+        pool.shutdown(true);
+        assertEquals(5, pool.blockForAvailableThreads());
+    }
+
+    public void testSchedulerWithVirtualThreadPool() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "virtualThreadPool");
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_SKIP_UPDATE_CHECK, "true");
+        props.setProperty(StdSchedulerFactory.PROP_THREAD_POOL_CLASS, VirtualThreadPool.class.getName());
+        props.setProperty("org.quartz.threadPool.threadCount", "3");
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        try {
+            assertEquals(3, scheduler.getMetaData().getThreadPoolSize());
+            assertEquals(VirtualThreadPool.class, scheduler.getMetaData().getThreadPoolClass());
+
+            CountDownLatch latch = new CountDownLatch(20);
+            scheduler.getContext().put("LATCH", latch);
+            scheduler.addJob(newJob(CountingJob.class).withIdentity("job").storeDurably().build(), false);
+            for (int i = 0; i < 20; i++) {
+                scheduler.scheduleJob(newTrigger().withIdentity("trigger" + i).forJob("job").startNow().build());
+            }
+            scheduler.start();
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    /**
+     * Jobs blocking for 20 ms, as on a remote call, fed to the pool the way
+     * the scheduler thread does, never run more than the cap at once.
+     */
+    public void testMaxConcurrencyUnderLoad() throws Exception {
+        final int cap = 200;
+        int jobCount = 2000;
+        VirtualThreadPool pool = new VirtualThreadPool(cap);
+        pool.setInstanceName("testMaxConcurrencyUnderLoad");
+        pool.initialize();
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(jobCount);
+        int submitted = 0;
+        while (submitted < jobCount) {
+            int avail = pool.blockForAvailableThreads();
+            assertTrue(avail > 0 && avail <= cap);
+            for (int i = 0; i < avail && submitted < jobCount; i++, submitted++) {
+                assertTrue(pool.runInThread(new Runnable() {
+                    public void run() {
+                        int now = running.incrementAndGet();
+                        synchronized (maxRunning) {
+                            maxRunning.set(Math.max(maxRunning.get(), now));
+                        }
+                        sleep(20L);
+                        running.decrementAndGet();
+                        done.countDown();
+                    }
+                }));
+            }
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        assertTrue("ran " + maxRunning.get() + " jobs at once", maxRunning.get() <= cap);
+        pool.shutdown(true);
+        assertEquals(cap, pool.blockForAvailableThreads());
+    }
+
+    public void testThreadPriorityValidated() throws Exception {
+        VirtualThreadPool pool = new VirtualThreadPool(5);
+        pool.setInstanceName("testThreadPriorityValidated");
+        pool.setThreadPriority(10);
+        try {
+            pool.initialize();
+            fail("priority 10 accepted");
+        } catch (SchedulerConfigException expected) {
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ignore) {
+        }
+    }
+}
@@ -15,9 +15,12 @@
  */
 package org.quartz.utils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -188,4 +191,87 @@ public class DirtyFlagMapTest extends TestCase {
         assertTrue(dirtyFlagMap.isDirty());
         assertEquals(0, dirtyFlagMap.size());
     }    
+
+    public void testCloneIsIndependentOfOriginal() {
+        DirtyFlagMap<String, String> original = new DirtyFlagMap<String, String>();
+        original.put("a", "A");
+        original.put("b", "B");
+
+        @SuppressWarnings("unchecked")
+        DirtyFlagMap<String, String> copy = (DirtyFlagMap<String, String>) original.clone();
+        copy.put("a", "AA");
+        copy.remove("b");
+        assertEquals("A", original.get("a"));
+        assertEquals("B", original.get("b"));
+        assertEquals(1, copy.size());
+
+        @SuppressWarnings("unchecked")
+        DirtyFlagMap<String, String> second = (DirtyFlagMap<String, String>) original.clone();
+        original.clear();
+        assertEquals(2, second.size());
+        assertEquals("A", second.get("a"));
+        assertEquals("AA", copy.get("a"));
+    }
+
+    public void testCloneIsIndependentOfViews() {
+        DirtyFlagMap<String, String> original = new DirtyFlagMap<String, String>();
+        original.put("a", "A");
+        Set<String> keySet = original.keySet();
+
+        @SuppressWarnings("unchecked")
+        DirtyFlagMap<String, String> copy = (DirtyFlagMap<String, String>) original.clone();
+        keySet.clear();
+        assertEquals(0, original.size());
+        assertEquals("A", copy.get("a"));
+
+        copy.values().clear();
+        original.put("b", "B");
+        assertEquals(0, copy.size());
+        assertEquals(1, original.size());
+    }
+
+    public void testConcurrentClonesLeaveOriginalUnchanged() throws Exception {
+        DirtyFlagMap<String, String> map = new DirtyFlagMap<String, String>();
+        for (int i = 0; i < 100; i++) {
+            map.put("key" + i, "value" + i);
+        }
+        map.clearDirtyFlag();
+
+        // clone both a map that is written in place and a clone sharing its snapshot
+        @SuppressWarnings("unchecked")
+        DirtyFlagMap<String, String> clone = (DirtyFlagMap<String, String>) map.clone();
+        for (final DirtyFlagMap<String, String> original : Arrays.asList(map, clone)) {
+            final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+            Thread[] threads = new Thread[8];
+            for (int t = 0; t < threads.length; t++) {
+                final String ownKey = "thread" + t;
+                threads[t] = new Thread() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < 1000; i++) {
+                            @SuppressWarnings("unchecked")
+                            DirtyFlagMap<String, String> copy = (DirtyFlagMap<String, String>) original.clone();
+                            copy.put(ownKey, "x");
+                            copy.remove("key0");
+                            if (copy.size() != 100 || !"value99".equals(copy.get("key99"))) {
+                                failures.add(ownKey + " saw " + copy.size() + " entries");
+                            }
+                        }
+                    }
+                };
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(Collections.<String>emptyList(), failures);
+            assertEquals(100, original.size());
+            assertEquals("value0", original.get("key0"));
+            assertFalse(original.containsKey("thread0"));
+            assertFalse(original.isDirty());
+        }
+    }
 }
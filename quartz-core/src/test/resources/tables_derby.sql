@@ -31,6 +31,7 @@
 -- drop table qrtz_paused_trigger_grps;
 -- drop table qrtz_scheduler_state;
 -- drop table qrtz_locks;
+-- drop table qrtz_change_counters;
 -- drop table qrtz_simple_triggers;
 -- drop table qrtz_simprop_triggers;
 -- drop table qrtz_cron_triggers;
@@ -63,6 +64,7 @@ description varchar(250),
 next_fire_time bigint,
 prev_fire_time bigint,
 priority integer,
+key_hash integer,
 trigger_state varchar(16) not null,
 trigger_type varchar(8) not null,
 start_time bigint not null,
@@ -172,3 +174,11 @@ create table qrtz_locks
 primary key (sched_name,lock_name)
 );
 
+create table qrtz_change_counters
+  (
+    sched_name varchar(120) not null,
+    counter_name varchar(40) not null,
+    counter_value bigint not null,
+primary key (sched_name,counter_name)
+);
+
@@ -20,17 +20,18 @@ package org.quartz.impl.jdbcjobstore.oracle;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.math.BigDecimal;
 import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 import org.quartz.Calendar;
 import org.quartz.JobDetail;
 import org.quartz.impl.jdbcjobstore.StdJDBCDelegate;
+import org.quartz.impl.jdbcjobstore.TriggerPartitions;
 import org.quartz.impl.jdbcjobstore.TriggerPersistenceDelegate;
 import org.quartz.spi.ClassLoadHelper;
 import org.quartz.spi.OperableTrigger;
@@ -125,6 +126,13 @@ public class OracleDelegate extends StdJDBCDelegate {
             + " = ? " + " WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
             + " AND " + COL_CALENDAR_NAME + " = ?";
 
+    public static final String SELECT_ORACLE_NEXT_TRIGGER_ROWIDS_TO_ACQUIRE = "SELECT ROWID RID FROM "
+            + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND " + COL_TRIGGER_STATE + " = ? AND " + COL_NEXT_FIRE_TIME + " <= ? "
+            + "AND (" + COL_MISFIRE_INSTRUCTION + " = -1 OR (" + COL_MISFIRE_INSTRUCTION + " != -1 AND " + COL_NEXT_FIRE_TIME + " >= ?)) "
+            + "ORDER BY " + COL_NEXT_FIRE_TIME + " ASC, " + COL_PRIORITY + " DESC";
+
     //---------------------------------------------------------------------------
     // protected methods that can be overridden by subclasses
     //---------------------------------------------------------------------------
@@ -136,12 +144,7 @@ public class OracleDelegate extends StdJDBCDelegate {
         Object obj = null;
         InputStream binaryInput = rs.getBinaryStream(colName);
         if (binaryInput != null) {
-            ObjectInputStream in = new ObjectInputStream(binaryInput);
-            try {
-                obj = in.readObject();
-            } finally {
-                in.close();
-            }
+            obj = readObject(binaryInput);
         }
 
         return obj;
@@ -203,6 +206,22 @@ public class OracleDelegate extends StdJDBCDelegate {
 
     }
 
+    /**
+     * <p>
+     * Insert the given jobs one at a time, as each writes its job data
+     * BLOB with its own statements.
+     * </p>
+     */
+    @Override
+    public int[] insertJobDetails(Connection conn, List<JobDetail> jobs)
+        throws IOException, SQLException {
+        int[] results = new int[jobs.size()];
+        for (int i = 0; i < jobs.size(); i++) {
+            results[i] = insertJobDetail(conn, jobs.get(i));
+        }
+        return results;
+    }
+
     @Override
     protected Object getJobDataFromBlob(ResultSet rs, String colName)
         throws ClassNotFoundException, IOException, SQLException {
@@ -316,6 +335,7 @@ public class OracleDelegate extends StdJDBCDelegate {
             ps.setInt(13, trigger.getMisfireInstruction());
             ps.setBinaryStream(14, null, 0);
             ps.setInt(15, trigger.getPriority());
+            ps.setInt(16, TriggerPartitions.keyHashOf(trigger.getKey()));
 
             insertResult = ps.executeUpdate();
 
@@ -466,6 +486,38 @@ public class OracleDelegate extends StdJDBCDelegate {
 
         return insertResult;
     }
+
+    /**
+     * <p>
+     * Insert the given triggers one at a time, as each writes its job data
+     * BLOB with its own statements.
+     * </p>
+     */
+    @Override
+    public int[] insertTriggers(Connection conn, List<OperableTrigger> triggers, List<String> states,
+            List<JobDetail> jobDetails) throws SQLException, IOException {
+        int[] results = new int[triggers.size()];
+        for (int i = 0; i < triggers.size(); i++) {
+            results[i] = insertTrigger(conn, triggers.get(i), states.get(i), jobDetails.get(i));
+        }
+        return results;
+    }
+
+    /**
+     * <p>
+     * Update the given triggers one at a time, as each writes its job data
+     * BLOB with its own statements.
+     * </p>
+     */
+    @Override
+    public int[] updateTriggers(Connection conn, List<OperableTrigger> triggers, List<String> states,
+            List<JobDetail> jobDetails) throws SQLException, IOException {
+        int[] results = new int[triggers.size()];
+        for (int i = 0; i < triggers.size(); i++) {
+            results[i] = updateTrigger(conn, triggers.get(i), states.get(i), jobDetails.get(i));
+        }
+        return results;
+    }
     
     @Override
     public int insertCalendar(Connection conn, String calendarName,
@@ -599,6 +651,26 @@ public class OracleDelegate extends StdJDBCDelegate {
                             + blob.getClass().getName());
         }
     }
+
+    /**
+     * <p>
+     * Select with <code>FOR UPDATE SKIP LOCKED</code>.  Oracle rejects a
+     * row limit in a query that locks rows, so the rows are locked by
+     * <code>ROWID</code> from the first <code>maxCount</code> waiting
+     * triggers, in fire time order.  Those another transaction has locked
+     * are skipped rather than replaced by later triggers, so a node may
+     * acquire fewer than <code>maxCount</code> triggers while another node
+     * is acquiring.
+     * </p>
+     */
+    @Override
+    protected String getSelectNextTriggerToAcquireSkipLockedSql(int maxCount) {
+        return "SELECT " + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", "
+            + COL_NEXT_FIRE_TIME + ", " + COL_PRIORITY + " FROM "
+            + rtp(TABLE_PREFIX_SUBST + TABLE_TRIGGERS) + " WHERE ROWID IN (SELECT RID FROM ("
+            + rtp(SELECT_ORACLE_NEXT_TRIGGER_ROWIDS_TO_ACQUIRE) + ") WHERE ROWNUM <= " + maxCount + ") "
+            + "ORDER BY " + COL_NEXT_FIRE_TIME + " ASC, " + COL_PRIORITY + " DESC FOR UPDATE SKIP LOCKED";
+    }
 }
 
 // EOF
@@ -0,0 +1,38 @@
+/* 
+ * Copyright 2001-2009 Terracotta, Inc. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may obtain a copy 
+ * of the License at 
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ */
+package org.quartz.impl.jdbcjobstore.oracle;
+
+import org.quartz.impl.jdbcjobstore.NoSuchDelegateException;
+import org.quartz.simpl.SimpleClassLoadHelper;
+import org.slf4j.LoggerFactory;
+
+import junit.framework.TestCase;
+
+public class OracleDelegateTest extends TestCase {
+
+    public void testSelectNextTriggerToAcquireSkipLockedSqlIsBounded() throws NoSuchDelegateException {
+        OracleDelegate delegate = new OracleDelegate();
+        delegate.initialize(LoggerFactory.getLogger(getClass()), "QRTZ_", "TESTSCHED", "INSTANCE", new SimpleClassLoadHelper(), false, "");
+
+        assertEquals("SELECT TRIGGER_NAME, TRIGGER_GROUP, NEXT_FIRE_TIME, PRIORITY FROM QRTZ_TRIGGERS"
+                + " WHERE ROWID IN (SELECT RID FROM (SELECT ROWID RID FROM QRTZ_TRIGGERS"
+                + " WHERE SCHED_NAME = 'TESTSCHED' AND TRIGGER_STATE = ? AND NEXT_FIRE_TIME <= ?"
+                + " AND (MISFIRE_INSTR = -1 OR (MISFIRE_INSTR != -1 AND NEXT_FIRE_TIME >= ?))"
+                + " ORDER BY NEXT_FIRE_TIME ASC, PRIORITY DESC) WHERE ROWNUM <= 5)"
+                + " ORDER BY NEXT_FIRE_TIME ASC, PRIORITY DESC FOR UPDATE SKIP LOCKED",
+                delegate.getSelectNextTriggerToAcquireSkipLockedSql(5));
+    }
+}